@@ -1,7 +1,10 @@
 module org.semaflux.sim {
     requires javafx.controls;
     requires javafx.fxml;
-    requires org.json;
+    requires java.xml;
+    requires jdk.management;
+    requires jdk.jfr;
+    requires jdk.httpserver;
 
     opens org.semaflux.sim to javafx.fxml;
     opens org.semaflux.sim.core to javafx.fxml;
@@ -1,5 +1,9 @@
 package org.semaflux.sim;
 
+import org.semaflux.sim.control.CacheMapas;
+import org.semaflux.sim.control.CarregadorParaleloJson;
+import org.semaflux.sim.control.MapaBinario;
+import org.semaflux.sim.control.UniaoMapas;
 import org.semaflux.sim.control.leitorJson;
 import org.semaflux.sim.core.Grafo;
 import org.semaflux.sim.simulação.Config;
@@ -19,10 +23,26 @@ import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 public class InicioSis extends Application {
 
+    /** Opção do seletor de mapas que une todos os bairros de Teresina distribuídos com o simulador. */
+    public static final String MAPA_TODOS_BAIRROS = "Todos os Bairros - Teresina, Piauí";
+
+    private static final String[] MAPAS_TERESINA = {
+        "/mapas/DirceuTeresinaPiauíBrazil.json",
+        "/mapas/FatimaTeresinaPiauíBrazil.json",
+        "/mapas/JoqueiTeresinaPiauiBrazil.json",
+        "/mapas/MocambinhoTeresinaPiauíBrazil.json",
+        "/mapas/MontecasteloTeresinaPiauíBrazil.json",
+        "/mapas/MoradadoSolTeresinaPiauíBrazil.json",
+        "/mapas/SantaIsabelTeresinaPiauíBrazil.json"
+    };
+
     private Simulador simulator;
     private Thread simulationThread;
     
@@ -52,18 +72,23 @@ public class InicioSis extends Application {
      * @param config Configuração com os parâmetros definidos pelo usuário
      * @param primaryStage O Stage principal da aplicação
      * @param selectedMap Nome do mapa selecionado pelo usuário
-     * @param arquivoPersonalizado Arquivo JSON personalizado (pode ser null)
+     * @param arquivosPersonalizados Arquivos de mapa personalizados (pode ser null); com mais de um,
+     *                               os mapas são unidos em uma só rede
      */
-    public void iniciarSimulacao(Config config, Stage primaryStage, String selectedMap, File arquivoPersonalizado) {
+    public void iniciarSimulacao(Config config, Stage primaryStage, String selectedMap, List<File> arquivosPersonalizados) {
         Grafo graph;
 
         try {
-            // Verificar se está usando um arquivo personalizado
-            if (selectedMap.equals("Personalizado") && arquivoPersonalizado != null) {
-                // Carregar grafo a partir do arquivo personalizado
-                try (FileInputStream fileInputStream = new FileInputStream(arquivoPersonalizado)) {
-                    graph = leitorJson.carregarGrafoDoFluxo(fileInputStream, config);
+            // Verificar se está usando arquivos personalizados
+            if (selectedMap.equals("Personalizado") && arquivosPersonalizados != null && !arquivosPersonalizados.isEmpty()) {
+                graph = carregarArquivos(arquivosPersonalizados, config);
+            } else if (selectedMap.equals(MAPA_TODOS_BAIRROS)) {
+                // Todos os bairros distribuídos com o simulador, unidos em uma só rede
+                List<CacheMapas.FonteMapa> fontes = new ArrayList<>();
+                for (String resourcePath : MAPAS_TERESINA) {
+                    fontes.add(() -> abrirRecurso(resourcePath));
                 }
+                graph = carregarFontes(fontes, config);
             } else {
                 // Usar o mapa padrão (Jóquei)
                 String resourcePath = "/mapas/JoqueiTeresinaPiauiBrazil.json";
@@ -75,7 +100,11 @@ public class InicioSis extends Application {
                     mostrarErroFatal(primaryStage, errorMessage);
                     return;
                 }
-                graph = leitorJson.carregarGrafoDoFluxo(jsonInputStream, config);
+                try (InputStream in = jsonInputStream) {
+                    graph = config.isUsarCacheMapas()
+                            ? new CacheMapas(CacheMapas.diretorioPadrao()).carregar(in, config, this::lerJson)
+                            : CacheMapas.preparar(lerJson(in, config), config);
+                }
             }
 
         } catch (Exception e) {
@@ -98,6 +127,16 @@ public class InicioSis extends Application {
 
         // Iniciar o simulador e o visualizador
         this.simulator = new Simulador(graph, config);
+        if (config.getArquivoInstantaneo() != null) {
+            try {
+                this.simulator.restaurarInstantaneo(new File(config.getArquivoInstantaneo()));
+            } catch (IOException e) {
+                String errorMessage = "Erro Crítico ao retomar o instantâneo: " + e.getMessage();
+                System.err.println(errorMessage);
+                mostrarErroFatal(primaryStage, errorMessage);
+                return;
+            }
+        }
         Visualizer visualizer = new Visualizer(graph, this.simulator);
 
         try {
@@ -123,6 +162,79 @@ public class InicioSis extends Application {
         simulationThread.start();
     }
 
+    /**
+     * Carrega um ou mais arquivos de mapa (JSON ou compilados); vários arquivos são unidos.
+     */
+    private Grafo carregarArquivos(List<File> arquivos, Config config) throws IOException {
+        boolean algumCompilado = false;
+        for (File arquivo : arquivos) {
+            algumCompilado |= arquivo.getName().endsWith(MapaBinario.EXTENSAO);
+        }
+        if (!algumCompilado) {
+            List<CacheMapas.FonteMapa> fontes = new ArrayList<>();
+            for (File arquivo : arquivos) {
+                fontes.add(() -> new FileInputStream(arquivo));
+            }
+            if (arquivos.size() > 1 || config.isUsarCacheMapas()) {
+                return carregarFontes(fontes, config);
+            }
+        }
+
+        List<Grafo> mapas = new ArrayList<>();
+        for (File arquivo : arquivos) {
+            if (arquivo.getName().endsWith(MapaBinario.EXTENSAO)) {
+                // Mapa compilado: carregado por mapeamento de memória, sem interpretar JSON
+                mapas.add(MapaBinario.carregar(arquivo, config));
+            } else if (usarCarregamentoParalelo(config)) {
+                mapas.add(CarregadorParaleloJson.carregar(arquivo, config));
+            } else {
+                try (FileInputStream fileInputStream = new FileInputStream(arquivo)) {
+                    mapas.add(leitorJson.carregarGrafoDoFluxo(fileInputStream, config));
+                }
+            }
+        }
+        return CacheMapas.preparar(UniaoMapas.unir(mapas), config);
+    }
+
+    /**
+     * Carrega e une mapas JSON, pelo cache de mapas quando ativado.
+     */
+    private Grafo carregarFontes(List<CacheMapas.FonteMapa> fontes, Config config) throws IOException {
+        if (config.isUsarCacheMapas()) {
+            // Mapas já pré-processados em execuções anteriores são lidos do cache
+            return new CacheMapas(CacheMapas.diretorioPadrao()).carregar(fontes, config, this::lerJson);
+        }
+        List<Grafo> mapas = new ArrayList<>();
+        for (CacheMapas.FonteMapa fonte : fontes) {
+            try (InputStream in = fonte.abrir()) {
+                mapas.add(lerJson(in, config));
+            }
+        }
+        return CacheMapas.preparar(UniaoMapas.unir(mapas), config);
+    }
+
+    private InputStream abrirRecurso(String resourcePath) throws IOException {
+        InputStream in = getClass().getResourceAsStream(resourcePath);
+        if (in == null) {
+            throw new IOException("Não foi possível localizar o arquivo JSON do mapa: " + resourcePath);
+        }
+        return in;
+    }
+
+    private Grafo lerJson(InputStream json, Config config) throws IOException {
+        return usarCarregamentoParalelo(config)
+                ? CarregadorParaleloJson.carregar(json, config)
+                : leitorJson.carregarGrafoDoFluxo(json, config);
+    }
+
+    /**
+     * O carregamento paralelo só compensa com mais de um processador; caso contrário
+     * o leitor sequencial, que usa memória constante, é preferido.
+     */
+    private boolean usarCarregamentoParalelo(Config config) {
+        return config.isCarregamentoParalelo() && Runtime.getRuntime().availableProcessors() > 1;
+    }
+
     private void mostrarErroFatal(Stage stage, String mensagem) {
         Pane errorPane = new Pane(new Text(20, 50, mensagem));
         Scene errorScene = new Scene(errorPane, Math.max(400, mensagem.length() * 7), 100);
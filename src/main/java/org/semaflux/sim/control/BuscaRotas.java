@@ -0,0 +1,327 @@
+package org.semaflux.sim.control;
+
+import org.semaflux.sim.core.Aresta;
+import org.semaflux.sim.core.Grafo;
+import org.semaflux.sim.core.No;
+import org.semaflux.sim.simulação.PerfilTempoViagem;
+
+import java.util.Arrays;
+
+/**
+ * Busca de menor caminho sobre uma cópia indexada do grafo.
+ * <p>
+ * Na construção, os nós e arestas são copiados para vetores (lista de adjacência compactada,
+ * indexada por {@link No#getIndice()}). Os vetores de distância, predecessor e o heap binário
+ * são alocados uma única vez e reaproveitados entre buscas: cada busca usa uma nova "marca"
+ * em vez de reinicializar todos os nós, de modo que o custo depende apenas da região explorada.
+ * <p>
+ * O custo das arestas é o tempo de viagem efetivo lido no momento da busca, um retrato desses
+ * tempos tirado antes (para buscar em outra thread sem depender do andamento da simulação) ou,
+ * na consulta dependente do tempo, o tempo histórico da aresta no instante em que ela seria alcançada.
+ * Uma instância não é segura para uso simultâneo por várias threads; cada thread de busca
+ * deve ter a sua.
+ */
+public class BuscaRotas {
+    private final No[] nos;
+    private final int[] inicioAdjacencia; // Arestas do nó i ficam em [inicioAdjacencia[i], inicioAdjacencia[i + 1])
+    private final int[] destinoAdjacencia;
+    private final Aresta[] arestaAdjacencia;
+
+    // Estado reutilizável da busca
+    private final double[] distancia;
+    private final int[] anterior;
+    private final int[] marcaVisita; // Nó com marcaVisita == marcaAtual já tem distância válida nesta busca
+    private final int[] marcaFechado; // Nó com marcaFechado == marcaAtual já foi finalizado
+    private int marcaAtual;
+
+    // Heap binário de mínimo com inserção preguiçosa (entradas obsoletas são descartadas ao sair)
+    private int[] heapNos;
+    private double[] heapChaves;
+    private int tamanhoHeap;
+    private int nosFechados; // Nós finalizados na última busca
+
+    public BuscaRotas(Grafo graph) {
+        int numeroNos = graph.getNodes().size();
+        this.nos = new No[numeroNos];
+        for (No node : graph.getNodes()) {
+            if (node != null && node.getIndice() >= 0 && node.getIndice() < numeroNos) {
+                nos[node.getIndice()] = node;
+            }
+        }
+
+        // Primeira passada: conta as arestas válidas de cada nó
+        this.inicioAdjacencia = new int[numeroNos + 1];
+        for (int i = 0; i < numeroNos; i++) {
+            int grau = 0;
+            if (nos[i] != null) {
+                for (Aresta edge : nos[i].getEdges()) {
+                    if (indiceDestino(graph, edge) >= 0) grau++;
+                }
+            }
+            inicioAdjacencia[i + 1] = inicioAdjacencia[i] + grau;
+        }
+
+        // Segunda passada: preenche os vetores de adjacência
+        int numeroArestas = inicioAdjacencia[numeroNos];
+        this.destinoAdjacencia = new int[numeroArestas];
+        this.arestaAdjacencia = new Aresta[numeroArestas];
+        for (int i = 0; i < numeroNos; i++) {
+            if (nos[i] == null) continue;
+            int pos = inicioAdjacencia[i];
+            for (Aresta edge : nos[i].getEdges()) {
+                int destino = indiceDestino(graph, edge);
+                if (destino < 0) continue;
+                destinoAdjacencia[pos] = destino;
+                arestaAdjacencia[pos] = edge;
+                pos++;
+            }
+        }
+
+        this.distancia = new double[numeroNos];
+        this.anterior = new int[numeroNos];
+        this.marcaVisita = new int[numeroNos];
+        this.marcaFechado = new int[numeroNos];
+        this.marcaAtual = 0;
+        this.heapNos = new int[Math.max(16, numeroNos)];
+        this.heapChaves = new double[heapNos.length];
+    }
+
+    private static int indiceDestino(Grafo graph, Aresta edge) {
+        if (edge == null) return -1;
+        return (graph.getNode(edge.getIndiceDestino()) != null) ? edge.getIndiceDestino() : -1;
+    }
+
+    /**
+     * Calcula o caminho de menor custo entre dois nós.
+     *
+     * @param origem      Índice do nó de origem
+     * @param destino     Índice do nó de destino
+     * @param penalidades Custo adicional (s) para atravessar cada nó, indexado pelo nó; pode ser null
+     * @param noProibido  Índice de um nó que o caminho não pode usar, ou -1
+     * @return Os índices dos nós do caminho (origem e destino inclusos), ou null se não houver caminho
+     */
+    public int[] menorCaminho(int origem, int destino, double[] penalidades, int noProibido) {
+        return buscar(origem, destino, null, penalidades, noProibido, false, null, 0.0);
+    }
+
+    /**
+     * Como {@link #menorCaminho(int, int, double[], int)}, com o tempo de cada aresta lido de um
+     * retrato em vez do tempo efetivo atual.
+     *
+     * @param tempos Tempo de viagem (s) de cada aresta, indexado por {@link Aresta#getIndice()}
+     */
+    public int[] menorCaminho(int origem, int destino, double[] tempos, double[] penalidades, int noProibido) {
+        return buscar(origem, destino, tempos, penalidades, noProibido, false, null, 0.0);
+    }
+
+    /**
+     * Calcula o caminho de menor tempo de viagem em fluxo livre ({@link Aresta#getTravelTime()}),
+     * sem considerar a ocupação atual das arestas.
+     *
+     * @return Os índices dos nós do caminho (origem e destino inclusos), ou null se não houver caminho
+     */
+    public int[] menorCaminhoFluxoLivre(int origem, int destino) {
+        return buscar(origem, destino, null, null, -1, true, null, 0.0);
+    }
+
+    /**
+     * Calcula o caminho mais rápido para um veículo que parte no instante informado, usando o
+     * tempo histórico de cada aresta na faixa de horário em que ela seria alcançada.
+     *
+     * @param origem       Índice do nó de origem
+     * @param destino      Índice do nó de destino
+     * @param tempoPartida Instante de partida no tempo simulado (s)
+     * @param perfil       Perfis históricos de tempo de viagem por aresta
+     * @return Os índices dos nós do caminho (origem e destino inclusos), ou null se não houver caminho
+     */
+    public int[] menorCaminhoDependenteDoTempo(int origem, int destino, double tempoPartida, PerfilTempoViagem perfil) {
+        return buscar(origem, destino, null, null, -1, false, perfil, tempoPartida);
+    }
+
+    // Publica um evento do Flight Recorder por busca quando a gravação estiver ativa
+    private int[] buscar(int origem, int destino, double[] tempos, double[] penalidades, int noProibido,
+                         boolean fluxoLivre, PerfilTempoViagem perfil, double tempoPartida) {
+        CalculoRotaJfr evento = new CalculoRotaJfr();
+        if (!evento.isEnabled()) {
+            return buscarCaminho(origem, destino, tempos, penalidades, noProibido, fluxoLivre, perfil, tempoPartida);
+        }
+        evento.begin();
+        int[] caminho = buscarCaminho(origem, destino, tempos, penalidades, noProibido, fluxoLivre, perfil, tempoPartida);
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.origem = idDoNo(origem);
+            evento.destino = idDoNo(destino);
+            evento.custo = perfil != null ? "perfil histórico" : fluxoLivre ? "fluxo livre" : "penalidades";
+            evento.nosFechados = nosFechados;
+            evento.nosNaRota = caminho != null ? caminho.length : 0;
+            evento.commit();
+        }
+        return caminho;
+    }
+
+    private String idDoNo(int indice) {
+        return (indice >= 0 && indice < nos.length && nos[indice] != null) ? nos[indice].getId() : String.valueOf(indice);
+    }
+
+    // Com perfil, a distância de cada nó é o tempo decorrido desde a partida até alcançá-lo
+    private int[] buscarCaminho(int origem, int destino, double[] tempos, double[] penalidades, int noProibido,
+                                boolean fluxoLivre, PerfilTempoViagem perfil, double tempoPartida) {
+        nosFechados = 0;
+        if (origem < 0 || destino < 0 || origem >= nos.length || destino >= nos.length) return null;
+        if (origem == destino) return new int[] { origem };
+
+        novaMarca();
+        tamanhoHeap = 0;
+        visitar(origem, 0.0, -1);
+        inserirHeap(origem, 0.0);
+
+        while (tamanhoHeap > 0) {
+            double chave = heapChaves[0];
+            int atual = removerMinimoHeap();
+            if (marcaFechado[atual] == marcaAtual || chave > distancia[atual]) continue; // Entrada obsoleta
+            marcaFechado[atual] = marcaAtual;
+            nosFechados++;
+            if (atual == destino) break;
+
+            for (int k = inicioAdjacencia[atual]; k < inicioAdjacencia[atual + 1]; k++) {
+                int vizinho = destinoAdjacencia[k];
+                if (vizinho == noProibido || marcaFechado[vizinho] == marcaAtual) continue;
+
+                double custo;
+                if (perfil != null) {
+                    custo = perfil.estimar(arestaAdjacencia[k], tempoPartida + distancia[atual]);
+                } else if (fluxoLivre) {
+                    custo = arestaAdjacencia[k].getTravelTime();
+                } else {
+                    custo = custoAresta(k, tempos, penalidades);
+                }
+                if (!(custo > 0) || custo == Double.POSITIVE_INFINITY) continue;
+
+                double novaDistancia = distancia[atual] + custo;
+                if (marcaVisita[vizinho] != marcaAtual || novaDistancia < distancia[vizinho]) {
+                    visitar(vizinho, novaDistancia, atual);
+                    inserirHeap(vizinho, novaDistancia);
+                }
+            }
+        }
+
+        if (marcaFechado[destino] != marcaAtual) return null;
+
+        int tamanho = 0;
+        for (int n = destino; n != -1; n = anterior[n]) tamanho++;
+        int[] caminho = new int[tamanho];
+        for (int n = destino, i = tamanho - 1; n != -1; n = anterior[n], i--) {
+            caminho[i] = n;
+        }
+        return caminho;
+    }
+
+    /**
+     * Soma o custo atual de um caminho já conhecido, com as mesmas regras de {@link #menorCaminho}.
+     * @return O custo em segundos, ou infinito se algum trecho não existir no grafo
+     */
+    public double custoCaminho(int[] caminho, double[] penalidades) {
+        return custoCaminho(caminho, null, penalidades);
+    }
+
+    /**
+     * Como {@link #custoCaminho(int[], double[])}, com o tempo de cada aresta lido de um retrato.
+     * @param tempos Tempo de viagem (s) de cada aresta, indexado por {@link Aresta#getIndice()};
+     *               null usa o tempo efetivo atual
+     */
+    public double custoCaminho(int[] caminho, double[] tempos, double[] penalidades) {
+        if (caminho == null) return Double.POSITIVE_INFINITY;
+        double total = 0.0;
+        for (int i = 0; i + 1 < caminho.length; i++) {
+            int k = posicaoAresta(caminho[i], caminho[i + 1]);
+            if (k < 0) return Double.POSITIVE_INFINITY;
+            total += custoAresta(k, tempos, penalidades);
+        }
+        return total;
+    }
+
+    private double custoAresta(int k, double[] tempos, double[] penalidades) {
+        double tempo = (tempos != null) ? tempos[arestaAdjacencia[k].getIndice()] : arestaAdjacencia[k].getTempoViagemEfetivo();
+        if (tempo <= 0 || tempo == Double.POSITIVE_INFINITY) return Double.POSITIVE_INFINITY;
+        return (penalidades != null) ? tempo + penalidades[destinoAdjacencia[k]] : tempo;
+    }
+
+    private int posicaoAresta(int origem, int destino) {
+        if (origem < 0 || origem >= nos.length) return -1;
+        for (int k = inicioAdjacencia[origem]; k < inicioAdjacencia[origem + 1]; k++) {
+            if (destinoAdjacencia[k] == destino) return k;
+        }
+        return -1;
+    }
+
+    /**
+     * Índice do nó com o ID informado na cópia indexada, ou -1 se não existir.
+     */
+    public int indiceDe(Grafo graph, String nodeId) {
+        No node = graph.getNode(nodeId);
+        int i = (node != null) ? node.getIndice() : -1;
+        return (i >= 0 && i < nos.length && nos[i] == node) ? i : -1;
+    }
+
+    public int getNumeroNos() {
+        return nos.length;
+    }
+
+    public No getNo(int indice) {
+        return nos[indice];
+    }
+
+    private void novaMarca() {
+        marcaAtual++;
+        if (marcaAtual == Integer.MAX_VALUE) { // Evita colisão de marcas após estouro do contador
+            Arrays.fill(marcaVisita, 0);
+            Arrays.fill(marcaFechado, 0);
+            marcaAtual = 1;
+        }
+    }
+
+    private void visitar(int no, double dist, int predecessor) {
+        distancia[no] = dist;
+        anterior[no] = predecessor;
+        marcaVisita[no] = marcaAtual;
+    }
+
+    private void inserirHeap(int no, double chave) {
+        if (tamanhoHeap == heapNos.length) {
+            heapNos = Arrays.copyOf(heapNos, tamanhoHeap * 2);
+            heapChaves = Arrays.copyOf(heapChaves, tamanhoHeap * 2);
+        }
+        int i = tamanhoHeap++;
+        while (i > 0) {
+            int pai = (i - 1) >>> 1;
+            if (heapChaves[pai] <= chave) break;
+            heapNos[i] = heapNos[pai];
+            heapChaves[i] = heapChaves[pai];
+            i = pai;
+        }
+        heapNos[i] = no;
+        heapChaves[i] = chave;
+    }
+
+    private int removerMinimoHeap() {
+        int minimo = heapNos[0];
+        tamanhoHeap--;
+        if (tamanhoHeap > 0) {
+            int no = heapNos[tamanhoHeap];
+            double chave = heapChaves[tamanhoHeap];
+            int i = 0;
+            while (true) {
+                int filho = 2 * i + 1;
+                if (filho >= tamanhoHeap) break;
+                if (filho + 1 < tamanhoHeap && heapChaves[filho + 1] < heapChaves[filho]) filho++;
+                if (heapChaves[filho] >= chave) break;
+                heapNos[i] = heapNos[filho];
+                heapChaves[i] = heapChaves[filho];
+                i = filho;
+            }
+            heapNos[i] = no;
+            heapChaves[i] = chave;
+        }
+        return minimo;
+    }
+}
@@ -0,0 +1,167 @@
+package org.semaflux.sim.control;
+
+import org.semaflux.sim.core.Grafo;
+import org.semaflux.sim.simulação.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cache em disco dos mapas já carregados e pré-processados.
+ * <p>
+ * Na primeira vez que um mapa JSON é aberto, o grafo é lido, simplificado (se configurado),
+ * tem suas componentes fortemente conexas calculadas e é gravado no formato {@code .smap}
+ * ({@link MapaBinario}) em {@code ~/.semaflux/cache}. O nome do arquivo é o hash SHA-256 do
+ * conteúdo do JSON, seguido da versão do formato e da variante do pré-processamento; nas
+ * execuções seguintes com o mesmo conteúdo, o grafo é carregado direto do cache por mapeamento
+ * de memória, sem interpretar o JSON nem repetir o pré-processamento. Um JSON alterado gera
+ * outro hash e, portanto, outra entrada. Entradas ilegíveis são descartadas e refeitas.
+ * <p>
+ * Os semáforos são recriados a partir da configuração atual a cada carregamento, de modo que a
+ * mesma entrada serve para qualquer modo de semáforo.
+ */
+public class CacheMapas {
+
+    /** Leitura do JSON quando o mapa não está no cache. */
+    public interface LeitorMapa {
+        Grafo ler(InputStream json, Config config) throws IOException;
+    }
+
+    /** Origem do conteúdo de um mapa; pode ser aberta mais de uma vez (hash e leitura). */
+    public interface FonteMapa {
+        InputStream abrir() throws IOException;
+    }
+
+    private final File diretorio;
+
+    public CacheMapas(File diretorio) {
+        this.diretorio = diretorio;
+    }
+
+    /**
+     * Diretório padrão do cache, compartilhado por todas as execuções do usuário.
+     */
+    public static File diretorioPadrao() {
+        return new File(new File(System.getProperty("user.home"), ".semaflux"), "cache");
+    }
+
+    /**
+     * Carrega um mapa JSON em arquivo, pelo cache se possível.
+     */
+    public Grafo carregar(File json, Config config, LeitorMapa leitor) throws IOException {
+        return carregar(List.of(() -> new FileInputStream(json)), config, leitor);
+    }
+
+    /**
+     * Carrega vários mapas JSON unidos em uma só rede ({@link UniaoMapas}), pelo cache se possível.
+     * A chave é o hash do conteúdo de todos os mapas, na ordem informada; a união é feita antes
+     * do pré-processamento, de modo que os trechos de fronteira também são simplificados.
+     */
+    public Grafo carregar(List<FonteMapa> fontes, Config config, LeitorMapa leitor) throws IOException {
+        File entrada = arquivoEntrada(hash(fontes), config);
+        Grafo grafo = lerEntrada(entrada, config);
+        if (grafo != null) return grafo;
+
+        List<Grafo> mapas = new ArrayList<>(fontes.size());
+        for (FonteMapa fonte : fontes) {
+            try (InputStream in = fonte.abrir()) {
+                mapas.add(leitor.ler(in, config));
+            }
+        }
+        grafo = preparar(UniaoMapas.unir(mapas), config);
+        gravarEntrada(grafo, entrada);
+        return grafo;
+    }
+
+    /**
+     * Carrega um mapa JSON lido de um fluxo (ex.: recurso do classpath), pelo cache se possível.
+     * O conteúdo é lido por inteiro para o cálculo do hash.
+     */
+    public Grafo carregar(InputStream json, Config config, LeitorMapa leitor) throws IOException {
+        byte[] conteudo = json.readAllBytes();
+        return carregar(List.of(() -> new ByteArrayInputStream(conteudo)), config, leitor);
+    }
+
+    /**
+     * Pré-processamento aplicado a um grafo recém-lido: simplificação (se configurada) e
+     * componentes fortemente conexas. É o mesmo com ou sem cache.
+     */
+    public static Grafo preparar(Grafo grafo, Config config) {
+        if (grafo == null || grafo.getNodes().isEmpty()) return grafo;
+        if (config.isSimplificarGrafo()) {
+            grafo = SimplificadorGrafo.simplificar(grafo);
+        }
+        ComponentesFortes.obter(grafo);
+        return grafo;
+    }
+
+    private File arquivoEntrada(String hash, Config config) {
+        String variante = config.isSimplificarGrafo() ? "s" : "c"; // Simplificado ou completo
+        return new File(diretorio, hash + "-v" + MapaBinario.VERSAO + variante + MapaBinario.EXTENSAO);
+    }
+
+    private static Grafo lerEntrada(File entrada, Config config) {
+        if (!entrada.isFile()) return null;
+        try {
+            Grafo grafo = MapaBinario.carregar(entrada, config);
+            if (grafo.getComponentes() != null && !grafo.getNodes().isEmpty()) {
+                return grafo;
+            }
+            System.err.println("Cache de mapa incompleto, será refeito: " + entrada);
+        } catch (IOException e) {
+            System.err.println("Cache de mapa inválido, será refeito: " + entrada + " (" + e.getMessage() + ")");
+        }
+        entrada.delete();
+        return null;
+    }
+
+    // Grava em arquivo temporário e renomeia, para que uma gravação interrompida nunca seja lida
+    private void gravarEntrada(Grafo grafo, File entrada) {
+        if (grafo == null || grafo.getNodes().isEmpty()) return;
+        File temporario = null;
+        try {
+            Files.createDirectories(diretorio.toPath());
+            temporario = File.createTempFile("mapa", ".tmp", diretorio);
+            MapaBinario.escrever(grafo, temporario);
+            Files.move(temporario.toPath(), entrada.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Não foi possível gravar o cache do mapa: " + e.getMessage());
+            if (temporario != null) temporario.delete();
+        }
+    }
+
+    // Hash do conteúdo concatenado das fontes (um único mapa tem o hash do próprio arquivo)
+    private static String hash(List<FonteMapa> fontes) throws IOException {
+        MessageDigest sha;
+        try {
+            sha = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+        byte[] buffer = new byte[1 << 16];
+        for (FonteMapa fonte : fontes) {
+            try (InputStream in = fonte.abrir()) {
+                if (in == null) throw new IOException("Mapa não encontrado");
+                int lidos;
+                while ((lidos = in.read(buffer)) > 0) {
+                    sha.update(buffer, 0, lidos);
+                }
+            }
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : sha.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package org.semaflux.sim.control;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento do JDK Flight Recorder para cada cálculo de rota. A duração do evento é o tempo da busca.
+ */
+@Name("org.semaflux.CalculoRota")
+@Label("Cálculo de Rota")
+@Category({"Semaflux", "Roteamento"})
+@Description("Busca de menor caminho entre dois nós")
+@StackTrace(false)
+final class CalculoRotaJfr extends Event {
+
+    @Label("Origem")
+    public String origem;
+
+    @Label("Destino")
+    public String destino;
+
+    @Label("Custo")
+    @Description("Custo das arestas: penalidades de congestionamento, fluxo livre ou perfil histórico")
+    public String custo;
+
+    @Label("Nós Fechados")
+    @Description("Nós retirados da fila de prioridade com a distância definitiva")
+    public int nosFechados;
+
+    @Label("Nós na Rota")
+    @Description("Nós do caminho encontrado, ou 0 se não houver caminho")
+    public int nosNaRota;
+
+    CalculoRotaJfr() {
+    }
+}
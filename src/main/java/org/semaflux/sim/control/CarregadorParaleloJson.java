@@ -0,0 +1,328 @@
+package org.semaflux.sim.control;
+
+import org.semaflux.sim.core.*;
+import org.semaflux.sim.simulação.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Carregamento paralelo de mapas JSON.
+ * <p>
+ * Uma varredura de colchetes (sem interpretar valores) localiza as seções {@code nodes},
+ * {@code edges} e {@code traffic_lights} e divide cada uma em blocos de objetos completos. Os
+ * blocos das três seções são interpretados em paralelo, criando nós, arestas e semáforos
+ * (com controlador e filas) independentemente. A montagem do grafo preserva a ordem do arquivo:
+ * nós e arestas são registrados em sequência, e as listas de adjacência são montadas em duas
+ * passadas (contagem do grau de saída e preenchimento de vetores pré-alocados), o que permite
+ * ligar as arestas de cada nó em paralelo. O grafo resultante é idêntico ao de {@link leitorJson}.
+ */
+public class CarregadorParaleloJson {
+    private static final int TAMANHO_MINIMO_BLOCO = 64 * 1024; // Blocos menores não compensam o paralelismo
+    private static final int BLOCOS_POR_PROCESSADOR = 4;
+
+    private CarregadorParaleloJson() {
+    }
+
+    private enum Secao { NOS, ARESTAS, SEMAFOROS }
+
+    /** Trecho de uma seção com objetos completos, em [inicio, fim) do texto. */
+    private static final class Bloco {
+        final Secao secao;
+        final int inicio;
+        final int fim;
+
+        Bloco(Secao secao, int inicio, int fim) {
+            this.secao = secao;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+    }
+
+    public static Grafo carregar(File arquivo, Config config) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+            if (canal.size() > Integer.MAX_VALUE) {
+                throw new IOException("Arquivo grande demais para o carregamento paralelo: " + arquivo);
+            }
+            return carregar(canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()), config);
+        }
+    }
+
+    public static Grafo carregar(InputStream inputStream, Config config) throws IOException {
+        if (inputStream == null) {
+            throw new IOException("InputStream é nulo, não foi possível localizar o arquivo JSON.");
+        }
+        try (InputStream in = inputStream) {
+            return carregar(ByteBuffer.wrap(in.readAllBytes()), config);
+        }
+    }
+
+    /**
+     * Carrega o grafo a partir do texto JSON (UTF-8) contido no buffer.
+     */
+    public static Grafo carregar(ByteBuffer texto, Config config) throws IOException {
+        List<Bloco> blocos = dividirSecoes(texto);
+
+        // Interpretação paralela: cada bloco produz seus objetos, na ordem do arquivo
+        Object[][] resultados = new Object[blocos.size()][];
+        try {
+            IntStream.range(0, blocos.size()).parallel().forEach(i -> {
+                try {
+                    resultados[i] = interpretar(texto, blocos.get(i), config);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        List<No> nos = new ArrayList<>();
+        List<Aresta> arestas = new ArrayList<>();
+        List<SinalTransito> semaforos = new ArrayList<>();
+        for (int i = 0; i < blocos.size(); i++) {
+            for (Object objeto : resultados[i]) {
+                switch (blocos.get(i).secao) {
+                    case NOS: nos.add((No) objeto); break;
+                    case ARESTAS: arestas.add((Aresta) objeto); break;
+                    case SEMAFOROS: semaforos.add((SinalTransito) objeto); break;
+                }
+            }
+            resultados[i] = null;
+        }
+
+        return montarGrafo(nos, arestas, semaforos);
+    }
+
+    private static Object[] interpretar(ByteBuffer texto, Bloco bloco, Config config) throws IOException {
+        ByteBuffer trecho = texto.slice(bloco.inicio, bloco.fim - bloco.inicio);
+        TokenizadorJson tokens = new TokenizadorJson(new InputStreamReader(new EntradaBuffer(trecho), StandardCharsets.UTF_8));
+        ListaLigada<Object> objetos = new ListaLigada<>();
+        ListaLigada<Aresta> arestas = new ListaLigada<>();
+        while (tokens.peek() != TokenizadorJson.Token.FIM_DOCUMENTO) {
+            switch (bloco.secao) {
+                case NOS:
+                    objetos.add(leitorJson.lerNo(tokens));
+                    break;
+                case ARESTAS:
+                    leitorJson.lerAresta(tokens, arestas);
+                    while (!arestas.isEmpty()) objetos.add(arestas.removeFirst());
+                    break;
+                case SEMAFOROS:
+                    objetos.add(leitorJson.lerSemaforo(tokens, config));
+                    break;
+            }
+        }
+        Object[] vetor = new Object[objetos.size()];
+        int i = 0;
+        for (Object objeto : objetos) vetor[i++] = objeto;
+        return vetor;
+    }
+
+    private static Grafo montarGrafo(List<No> nos, List<Aresta> arestas, List<SinalTransito> semaforos) {
+        Grafo grafo = new Grafo(nos.size());
+        for (No no : nos) {
+            grafo.addNode(no);
+        }
+        No[] porIndice = new No[grafo.getNodes().size()];
+        for (No no : grafo.getNodes()) {
+            porIndice[no.getIndice()] = no;
+        }
+
+        // Registro das arestas (define o índice de cada uma, os índices dos seus nós e as arestas de entrada)
+        int m = arestas.size();
+        int[] origem = new int[m];
+        for (int i = 0; i < m; i++) {
+            Aresta aresta = arestas.get(i);
+            grafo.addEdge(aresta);
+            origem[i] = aresta.getIndiceOrigem();
+        }
+
+        // Primeira passada: grau de saída de cada nó
+        int n = porIndice.length;
+        int[] inicio = new int[n + 1];
+        for (int i = 0; i < m; i++) {
+            if (origem[i] >= 0) inicio[origem[i] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inicio[v + 1] += inicio[v];
+        }
+
+        // Segunda passada: preenche a adjacência em vetor pré-alocado, mantendo a ordem do arquivo
+        int[] proximaPosicao = new int[n];
+        System.arraycopy(inicio, 0, proximaPosicao, 0, n);
+        int[] adjacencia = new int[inicio[n]];
+        for (int i = 0; i < m; i++) {
+            if (origem[i] >= 0) adjacencia[proximaPosicao[origem[i]]++] = i;
+        }
+
+        // Cada nó recebe suas arestas de forma independente
+        IntStream.range(0, n).parallel().forEach(v -> {
+            for (int k = inicio[v]; k < inicio[v + 1]; k++) {
+                porIndice[v].addEdge(arestas.get(adjacencia[k]));
+            }
+        });
+
+        for (SinalTransito semaforo : semaforos) {
+            grafo.addTrafficLight(semaforo);
+            No noSemaforo = grafo.getNode(semaforo.getNodeId());
+            if (noSemaforo != null) {
+                noSemaforo.isTrafficLight = true;
+            }
+        }
+        return grafo;
+    }
+
+    // Varredura estrutural
+
+    private static List<Bloco> dividirSecoes(ByteBuffer texto) throws IOException {
+        int limite = texto.limit();
+        int tamanhoBloco = Math.max(TAMANHO_MINIMO_BLOCO,
+                limite / (Runtime.getRuntime().availableProcessors() * BLOCOS_POR_PROCESSADOR));
+        List<Bloco> blocos = new ArrayList<>();
+
+        int pos = pularEspacos(texto, 0);
+        if (pos >= limite || texto.get(pos) != '{') throw new IOException("Mapa JSON deve começar com '{'");
+        pos++;
+        while (true) {
+            pos = pularEspacos(texto, pos);
+            if (pos >= limite) throw new IOException("Fim inesperado do mapa JSON");
+            if (texto.get(pos) == '}') break;
+            if (texto.get(pos) != '"') throw new IOException("Nome de seção esperado na posição " + pos);
+
+            int fimNome = fimDoValor(texto, pos);
+            String nome = new String(bytes(texto, pos + 1, fimNome - 1), StandardCharsets.UTF_8);
+            pos = pularEspacos(texto, fimNome);
+            if (pos >= limite || texto.get(pos) != ':') throw new IOException("':' esperado após \"" + nome + "\"");
+            pos = pularEspacos(texto, pos + 1);
+            int fimValor = fimDoValor(texto, pos);
+
+            Secao secao = nome.equals("nodes") ? Secao.NOS
+                    : nome.equals("edges") ? Secao.ARESTAS
+                    : nome.equals("traffic_lights") ? Secao.SEMAFOROS : null;
+            if (secao != null) {
+                if (texto.get(pos) != '[') throw new IOException("A seção \"" + nome + "\" deve ser uma lista");
+                dividirLista(texto, secao, pos, fimValor, tamanhoBloco, blocos);
+            }
+            pos = fimValor;
+        }
+        return blocos;
+    }
+
+    // Divide a lista [inicio, fim) em blocos de objetos completos com cerca de tamanhoBloco bytes
+    private static void dividirLista(ByteBuffer texto, Secao secao, int inicio, int fim, int tamanhoBloco, List<Bloco> blocos) throws IOException {
+        int pos = inicio + 1;
+        int inicioBloco = -1;
+        while (true) {
+            pos = pularEspacos(texto, pos);
+            if (pos >= fim || texto.get(pos) == ']') break;
+            if (inicioBloco < 0) inicioBloco = pos;
+            pos = fimDoValor(texto, pos);
+            if (pos - inicioBloco >= tamanhoBloco) {
+                blocos.add(new Bloco(secao, inicioBloco, pos));
+                inicioBloco = -1;
+            }
+        }
+        if (inicioBloco >= 0) {
+            blocos.add(new Bloco(secao, inicioBloco, pos));
+        }
+    }
+
+    // Pula espaços e vírgulas
+    private static int pularEspacos(ByteBuffer texto, int pos) {
+        int limite = texto.limit();
+        while (pos < limite) {
+            byte b = texto.get(pos);
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t' && b != ',') break;
+            pos++;
+        }
+        return pos;
+    }
+
+    // Retorna a posição logo após o valor que começa em pos (objeto, lista, string ou literal)
+    private static int fimDoValor(ByteBuffer texto, int pos) throws IOException {
+        int limite = texto.limit();
+        byte primeiro = texto.get(pos);
+        if (primeiro == '"') {
+            return fimDaString(texto, pos);
+        }
+        if (primeiro != '{' && primeiro != '[') {
+            while (pos < limite) {
+                byte b = texto.get(pos);
+                if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\n' || b == '\r' || b == '\t') break;
+                pos++;
+            }
+            return pos;
+        }
+        int profundidade = 0;
+        while (pos < limite) {
+            byte b = texto.get(pos);
+            if (b == '"') {
+                pos = fimDaString(texto, pos);
+                continue;
+            }
+            if (b == '{' || b == '[') {
+                profundidade++;
+            } else if (b == '}' || b == ']') {
+                profundidade--;
+                if (profundidade == 0) return pos + 1;
+            }
+            pos++;
+        }
+        throw new IOException("Objeto ou lista não terminado no mapa JSON");
+    }
+
+    private static int fimDaString(ByteBuffer texto, int pos) throws IOException {
+        int limite = texto.limit();
+        pos++;
+        while (pos < limite) {
+            byte b = texto.get(pos);
+            if (b == '\\') {
+                pos += 2;
+            } else if (b == '"') {
+                return pos + 1;
+            } else {
+                pos++;
+            }
+        }
+        throw new IOException("String não terminada no mapa JSON");
+    }
+
+    private static byte[] bytes(ByteBuffer texto, int inicio, int fim) {
+        byte[] resultado = new byte[fim - inicio];
+        texto.get(inicio, resultado);
+        return resultado;
+    }
+
+    /** Leitura sequencial de um buffer (mapeado ou em memória) como InputStream, sem cópia. */
+    private static final class EntradaBuffer extends InputStream {
+        private final ByteBuffer buffer;
+
+        EntradaBuffer(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? (buffer.get() & 0xff) : -1;
+        }
+
+        @Override
+        public int read(byte[] destino, int deslocamento, int tamanho) {
+            if (!buffer.hasRemaining()) return -1;
+            int n = Math.min(tamanho, buffer.remaining());
+            buffer.get(destino, deslocamento, n);
+            return n;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.semaflux.sim.control;
+
+import org.semaflux.sim.core.Aresta;
+import org.semaflux.sim.core.Grafo;
+import org.semaflux.sim.core.No;
+
+import java.util.Arrays;
+
+/**
+ * Componentes fortemente conexas do grafo (algoritmo de Tarjan, em versão iterativa para não
+ * depender da profundidade da pilha de chamadas em mapas grandes).
+ * <p>
+ * Dois nós da mesma componente sempre têm rota entre si, nos dois sentidos. O gerador de
+ * veículos usa essa informação para sortear apenas pares origem-destino com rota garantida,
+ * sem buscas que terminam sem caminho.
+ */
+public class ComponentesFortes {
+
+    private ComponentesFortes() {
+    }
+
+    /**
+     * Retorna as componentes do grafo, calculando-as e guardando-as no grafo se necessário.
+     * @return A componente de cada nó, indexada por {@link No#getIndice()}
+     */
+    public static int[] obter(Grafo grafo) {
+        int[] componentes = grafo.getComponentes();
+        if (componentes == null) {
+            componentes = calcular(grafo);
+            grafo.setComponentes(componentes);
+        }
+        return componentes;
+    }
+
+    /**
+     * Calcula a componente fortemente conexa de cada nó.
+     * @return Vetor indexado por {@link No#getIndice()}; as componentes são numeradas a partir de 0
+     */
+    public static int[] calcular(Grafo grafo) {
+        int n = grafo.getNodes().size();
+
+        // Adjacência compactada pelos índices dos nós
+        int[] inicio = new int[n + 1];
+        for (Aresta aresta : grafo.getEdges()) {
+            if (valida(aresta, n)) inicio[aresta.getIndiceOrigem() + 1]++;
+        }
+        for (int i = 0; i < n; i++) inicio[i + 1] += inicio[i];
+        int[] destinos = new int[inicio[n]];
+        int[] posicao = Arrays.copyOf(inicio, n);
+        for (Aresta aresta : grafo.getEdges()) {
+            if (valida(aresta, n)) destinos[posicao[aresta.getIndiceOrigem()]++] = aresta.getIndiceDestino();
+        }
+
+        int[] componente = new int[n];
+        Arrays.fill(componente, -1);
+        int[] ordem = new int[n]; // Ordem de descoberta (0 = não visitado)
+        int[] menor = new int[n]; // Menor ordem alcançável pela subárvore
+        int[] pilha = new int[n]; // Nós ainda sem componente
+        boolean[] naPilha = new boolean[n];
+        int[] chamadas = new int[n]; // Pilha de recursão explícita
+        int[] proxima = new int[n]; // Próxima aresta a examinar de cada nó da recursão
+        int topoPilha = 0, contador = 0, numeroComponentes = 0;
+
+        for (int raiz = 0; raiz < n; raiz++) {
+            if (ordem[raiz] != 0) continue;
+            int topoChamadas = 0;
+            chamadas[topoChamadas++] = raiz;
+            ordem[raiz] = menor[raiz] = ++contador;
+            proxima[raiz] = inicio[raiz];
+            pilha[topoPilha++] = raiz;
+            naPilha[raiz] = true;
+
+            while (topoChamadas > 0) {
+                int v = chamadas[topoChamadas - 1];
+                if (proxima[v] < inicio[v + 1]) {
+                    int w = destinos[proxima[v]++];
+                    if (ordem[w] == 0) {
+                        ordem[w] = menor[w] = ++contador;
+                        proxima[w] = inicio[w];
+                        pilha[topoPilha++] = w;
+                        naPilha[w] = true;
+                        chamadas[topoChamadas++] = w;
+                    } else if (naPilha[w]) {
+                        menor[v] = Math.min(menor[v], ordem[w]);
+                    }
+                    continue;
+                }
+
+                // Todas as arestas de v examinadas: fecha a componente, se v for a raiz dela
+                if (menor[v] == ordem[v]) {
+                    int w;
+                    do {
+                        w = pilha[--topoPilha];
+                        naPilha[w] = false;
+                        componente[w] = numeroComponentes;
+                    } while (w != v);
+                    numeroComponentes++;
+                }
+                topoChamadas--;
+                if (topoChamadas > 0) {
+                    int pai = chamadas[topoChamadas - 1];
+                    menor[pai] = Math.min(menor[pai], menor[v]);
+                }
+            }
+        }
+        return componente;
+    }
+
+    private static boolean valida(Aresta aresta, int n) {
+        return aresta != null && aresta.getIndiceOrigem() >= 0 && aresta.getIndiceOrigem() < n
+                && aresta.getIndiceDestino() >= 0 && aresta.getIndiceDestino() < n;
+    }
+}
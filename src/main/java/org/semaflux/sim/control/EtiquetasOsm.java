@@ -0,0 +1,43 @@
+package org.semaflux.sim.control;
+
+import java.util.Arrays;
+
+/**
+ * Etiquetas (pares chave/valor) do elemento OSM sendo lido.
+ * <p>
+ * Uma única instância é reaproveitada pelos leitores para todos os elementos; o receptor deve
+ * copiar o que precisar antes de retornar.
+ */
+final class EtiquetasOsm {
+    private String[] chaves = new String[16];
+    private String[] valores = new String[16];
+    private int tamanho;
+
+    void limpar() {
+        Arrays.fill(chaves, 0, tamanho, null);
+        Arrays.fill(valores, 0, tamanho, null);
+        tamanho = 0;
+    }
+
+    void adicionar(String chave, String valor) {
+        if (tamanho == chaves.length) {
+            chaves = Arrays.copyOf(chaves, tamanho * 2);
+            valores = Arrays.copyOf(valores, tamanho * 2);
+        }
+        chaves[tamanho] = chave;
+        valores[tamanho] = valor;
+        tamanho++;
+    }
+
+    /** @return O valor da etiqueta, ou null se o elemento não a tiver */
+    String get(String chave) {
+        for (int i = 0; i < tamanho; i++) {
+            if (chaves[i].equals(chave)) return valores[i];
+        }
+        return null;
+    }
+
+    int tamanho() {
+        return tamanho;
+    }
+}
@@ -5,6 +5,10 @@ import org.semaflux.sim.core.SinalTransito;
 import org.semaflux.sim.simulação.Config;
 import org.semaflux.sim.simulação.MudancaDeFase;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 public class FilaAdaptativa implements Semaforo {
     // Parâmetros base de configuração
     private double TempoVerdeBase;
@@ -249,4 +253,22 @@ public class FilaAdaptativa implements Semaforo {
         }
         return new MudancaDeFase(nextPhaseDetermined, durationDetermined);
     }
-}
\ No newline at end of file
+
+    @Override
+    public void salvarEstado(DataOutput out) throws IOException {
+        out.writeDouble(ultimoTempoMedioNorteSul);
+        out.writeDouble(ultimoTempoMedioLesteOeste);
+        out.writeInt(filaMediaNorteSul);
+        out.writeInt(filaMediaLesteOeste);
+        out.writeInt(contadorCiclos);
+    }
+
+    @Override
+    public void restaurarEstado(DataInput in) throws IOException {
+        this.ultimoTempoMedioNorteSul = in.readDouble();
+        this.ultimoTempoMedioLesteOeste = in.readDouble();
+        this.filaMediaNorteSul = in.readInt();
+        this.filaMediaLesteOeste = in.readInt();
+        this.contadorCiclos = in.readInt();
+    }
+}
@@ -0,0 +1,505 @@
+package org.semaflux.sim.control;
+
+import org.semaflux.sim.core.Grafo;
+import org.semaflux.sim.core.MapaLongInt;
+import org.semaflux.sim.simulação.Config;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Importa um extrato do OpenStreetMap (XML ou PBF) para o formato de mapa do Semaflux.
+ * <p>
+ * O arquivo é percorrido duas vezes, sem carregar o extrato inteiro em memória:
+ * <ol>
+ *   <li>Vias: mantém apenas as vias trafegáveis por carros, guardando a sequência de nós, a
+ *       velocidade máxima e o sentido de cada uma, e conta quantas vezes cada nó é usado.</li>
+ *   <li>Nós: guarda as coordenadas apenas dos nós usados pelas vias mantidas e identifica os
+ *       semáforos ({@code highway=traffic_signals}) e sua direção
+ *       ({@code traffic_signals:direction}).</li>
+ * </ol>
+ * Em seguida, cada via é dividida em arestas nos cruzamentos (nós usados por mais de uma via ou
+ * extremidades de via) e nos semáforos; os nós intermediários viram parte do comprimento da
+ * aresta e de seu traçado ({@code geometry}). A memória usada é proporcional às vias
+ * trafegáveis, e não ao total de nós do extrato.
+ * <p>
+ * A saída é um mapa JSON no mesmo formato dos mapas incluídos ou, se o arquivo de saída tiver a
+ * extensão {@value MapaBinario#EXTENSAO}, o mapa binário compilado.
+ * <p>
+ * Uso pela linha de comando: {@code ImportadorOsm entrada.osm.pbf [saida.json|saida.smap]}.
+ */
+public class ImportadorOsm {
+    private static final double RAIO_TERRA_METROS = 6371008.8;
+
+    // Tipos de via trafegáveis e a velocidade (km/h) usada quando a via não informa maxspeed
+    private static final Map<String, Double> VELOCIDADE_PADRAO = new HashMap<>();
+    static {
+        VELOCIDADE_PADRAO.put("motorway", 100.0);
+        VELOCIDADE_PADRAO.put("motorway_link", 60.0);
+        VELOCIDADE_PADRAO.put("trunk", 80.0);
+        VELOCIDADE_PADRAO.put("trunk_link", 50.0);
+        VELOCIDADE_PADRAO.put("primary", 60.0);
+        VELOCIDADE_PADRAO.put("primary_link", 40.0);
+        VELOCIDADE_PADRAO.put("secondary", 50.0);
+        VELOCIDADE_PADRAO.put("secondary_link", 40.0);
+        VELOCIDADE_PADRAO.put("tertiary", 40.0);
+        VELOCIDADE_PADRAO.put("tertiary_link", 30.0);
+        VELOCIDADE_PADRAO.put("unclassified", 30.0);
+        VELOCIDADE_PADRAO.put("residential", 30.0);
+        VELOCIDADE_PADRAO.put("living_street", 10.0);
+        VELOCIDADE_PADRAO.put("service", 20.0);
+        VELOCIDADE_PADRAO.put("road", 30.0);
+    }
+
+    private final File entrada;
+
+    // Vias mantidas: os nós da via i ficam em referenciasVias[inicioVia[i] .. inicioVia[i + 1])
+    private long[] referenciasVias = new long[1 << 16];
+    private int[] inicioVia = new int[1 << 10];
+    private double[] velocidadeVia = new double[1 << 10];
+    private byte[] sentidoVia = new byte[1 << 10]; // 0: mão dupla, 1: mão única, -1: mão única no sentido contrário ao da via
+    private int numeroVias;
+
+    // Nós usados pelas vias mantidas, indexados na ordem em que aparecem
+    private final MapaLongInt indiceNo = new MapaLongInt(1 << 16);
+    private long[] idNo = new long[1 << 12];
+    private int[] usosNo = new int[1 << 12]; // Extremidades de via contam 2, de modo que usos >= 2 indica nó do grafo
+    private int numeroNos;
+    private double[] latitudeNo;
+    private double[] longitudeNo;
+    private boolean[] semaforoNo;
+    private final Map<Integer, String> direcaoSemaforo = new HashMap<>();
+
+    // Arestas resultantes da divisão das vias
+    private int[] origemTrecho = new int[1 << 12];
+    private int[] destinoTrecho = new int[1 << 12];
+    private double[] comprimentoTrecho = new double[1 << 12];
+    private int[] viaTrecho = new int[1 << 12];
+    private int[] inicioPontosTrecho = new int[(1 << 12) + 1]; // Traçado do trecho t: pontos[inicioPontosTrecho[t] .. inicioPontosTrecho[t + 1])
+    private int numeroTrechos;
+    private double[] pontos = new double[1 << 14]; // Nós intermediários dos trechos (lat, lon intercalados)
+    private int numeroPontos;
+
+    private int numeroNosGrafo;
+    private int numeroSemaforos;
+
+    public ImportadorOsm(File entrada) {
+        this.entrada = entrada;
+    }
+
+    /**
+     * Lê o extrato e grava o mapa. O formato de saída é escolhido pela extensão do arquivo.
+     */
+    public void importar(File saida) throws IOException {
+        lerVias();
+        lerNos();
+        dividirVias();
+
+        if (saida.getName().endsWith(MapaBinario.EXTENSAO)) {
+            escreverBinario(saida);
+        } else {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(saida), StandardCharsets.UTF_8), 1 << 16)) {
+                escreverJson(writer);
+            }
+        }
+    }
+
+    public int getNumeroNos() {
+        return numeroNosGrafo;
+    }
+
+    public int getNumeroArestas() {
+        return numeroTrechos;
+    }
+
+    public int getNumeroSemaforos() {
+        return numeroSemaforos;
+    }
+
+    private void ler(ReceptorOsm receptor) throws IOException {
+        if (entrada.getName().endsWith(".pbf")) {
+            LeitorOsmPbf.ler(entrada, receptor);
+        } else {
+            LeitorOsmXml.ler(entrada, receptor);
+        }
+    }
+
+    // Passada 1: vias
+
+    private void lerVias() throws IOException {
+        inicioVia[0] = 0;
+        ler(new ReceptorOsm() {
+            @Override
+            public boolean querVias() {
+                return true;
+            }
+
+            @Override
+            public void via(long id, long[] referencias, int numeroReferencias, EtiquetasOsm etiquetas) {
+                String tipo = etiquetas.get("highway");
+                Double velocidadePadrao = (tipo != null) ? VELOCIDADE_PADRAO.get(tipo) : null;
+                if (velocidadePadrao == null || numeroReferencias < 2 || !trafegavel(etiquetas)) return;
+                adicionarVia(referencias, numeroReferencias,
+                        velocidadeMaxima(etiquetas.get("maxspeed"), velocidadePadrao), sentido(etiquetas, tipo));
+            }
+        });
+    }
+
+    private static boolean trafegavel(EtiquetasOsm etiquetas) {
+        if ("yes".equals(etiquetas.get("area"))) return false;
+        if (proibido(etiquetas.get("access")) || proibido(etiquetas.get("motor_vehicle")) || proibido(etiquetas.get("motorcar"))) {
+            return false;
+        }
+        String servico = etiquetas.get("service");
+        return servico == null || !(servico.equals("parking_aisle") || servico.equals("driveway")
+                || servico.equals("drive-through") || servico.equals("emergency_access") || servico.equals("parking"));
+    }
+
+    private static boolean proibido(String acesso) {
+        return acesso != null && (acesso.equals("no") || acesso.equals("private"));
+    }
+
+    /**
+     * Converte o valor de {@code maxspeed} para km/h. Aceita "50", "50 km/h" e "30 mph"; valores
+     * simbólicos ("BR:urban", "none", "signals") ou inválidos usam a velocidade padrão do tipo de via.
+     */
+    static double velocidadeMaxima(String valor, double padrao) {
+        if (valor == null) return padrao;
+        String texto = valor.trim();
+        int separador = texto.indexOf(';'); // Vários valores: usa o primeiro
+        if (separador >= 0) texto = texto.substring(0, separador).trim();
+
+        int fimNumero = 0;
+        while (fimNumero < texto.length() && (Character.isDigit(texto.charAt(fimNumero)) || texto.charAt(fimNumero) == '.')) {
+            fimNumero++;
+        }
+        if (fimNumero == 0) return padrao;
+        try {
+            double velocidade = Double.parseDouble(texto.substring(0, fimNumero));
+            if (texto.substring(fimNumero).trim().equals("mph")) velocidade *= 1.609344;
+            return (velocidade > 0) ? velocidade : padrao;
+        } catch (NumberFormatException e) {
+            return padrao;
+        }
+    }
+
+    private static byte sentido(EtiquetasOsm etiquetas, String tipo) {
+        String maoUnica = etiquetas.get("oneway");
+        if (maoUnica != null) {
+            switch (maoUnica) {
+                case "yes": case "true": case "1": return 1;
+                case "-1": case "reverse": return -1;
+                case "no": case "false": case "0": return 0;
+                default: break; // "reversible", "alternating": tratadas como mão dupla
+            }
+            return 0;
+        }
+        String juncao = etiquetas.get("junction");
+        if ("roundabout".equals(juncao) || "circular".equals(juncao) || "motorway".equals(tipo)) return 1;
+        return 0;
+    }
+
+    private void adicionarVia(long[] referencias, int n, double velocidade, byte sentido) {
+        if (numeroVias + 2 > inicioVia.length) {
+            int novo = inicioVia.length * 2;
+            inicioVia = Arrays.copyOf(inicioVia, novo);
+            velocidadeVia = Arrays.copyOf(velocidadeVia, novo);
+            sentidoVia = Arrays.copyOf(sentidoVia, novo);
+        }
+        int inicio = inicioVia[numeroVias];
+        if (inicio + n > referenciasVias.length) {
+            referenciasVias = Arrays.copyOf(referenciasVias, Math.max(referenciasVias.length * 2, inicio + n));
+        }
+        System.arraycopy(referencias, 0, referenciasVias, inicio, n);
+        velocidadeVia[numeroVias] = velocidade;
+        sentidoVia[numeroVias] = sentido;
+        numeroVias++;
+        inicioVia[numeroVias] = inicio + n;
+
+        for (int i = 0; i < n; i++) {
+            int no = indiceDoNo(referencias[i]);
+            usosNo[no] += (i == 0 || i == n - 1) ? 2 : 1;
+        }
+    }
+
+    private int indiceDoNo(long id) {
+        int indice = indiceNo.putIfAbsent(id, numeroNos);
+        if (indice != MapaLongInt.AUSENTE) return indice;
+        if (numeroNos == idNo.length) {
+            idNo = Arrays.copyOf(idNo, numeroNos * 2);
+            usosNo = Arrays.copyOf(usosNo, numeroNos * 2);
+        }
+        idNo[numeroNos] = id;
+        return numeroNos++;
+    }
+
+    // Passada 2: nós
+
+    private void lerNos() throws IOException {
+        latitudeNo = new double[numeroNos];
+        longitudeNo = new double[numeroNos];
+        semaforoNo = new boolean[numeroNos];
+        Arrays.fill(latitudeNo, Double.NaN);
+
+        ler(new ReceptorOsm() {
+            @Override
+            public boolean querNos() {
+                return true;
+            }
+
+            @Override
+            public boolean aceitaNo(long id) {
+                return indiceNo.containsKey(id);
+            }
+
+            @Override
+            public void no(long id, double latitude, double longitude, EtiquetasOsm etiquetas) {
+                int indice = indiceNo.get(id);
+                latitudeNo[indice] = latitude;
+                longitudeNo[indice] = longitude;
+                if ("traffic_signals".equals(etiquetas.get("highway"))) {
+                    semaforoNo[indice] = true;
+                    String direcao = etiquetas.get("traffic_signals:direction");
+                    if (direcao != null) direcaoSemaforo.put(indice, direcao);
+                }
+            }
+        });
+    }
+
+    // Divisão das vias em arestas
+
+    private boolean noDoGrafo(int no) {
+        return usosNo[no] >= 2 || semaforoNo[no];
+    }
+
+    private void dividirVias() {
+        for (int v = 0; v < numeroVias; v++) {
+            int origem = -1; // Nó do grafo onde começa o trecho atual, ou -1 se não há trecho aberto
+            int anterior = -1;
+            double comprimento = 0.0;
+
+            for (int k = inicioVia[v]; k < inicioVia[v + 1]; k++) {
+                int no = indiceNo.get(referenciasVias[k]);
+                if (Double.isNaN(latitudeNo[no])) { // Nó fora do extrato: descarta o trecho em andamento
+                    origem = -1;
+                    numeroPontos = inicioPontosTrecho[numeroTrechos];
+                    continue;
+                }
+                if (origem < 0) {
+                    if (noDoGrafo(no)) {
+                        origem = no;
+                        anterior = no;
+                        comprimento = 0.0;
+                    }
+                    continue;
+                }
+                if (no == anterior) continue;
+
+                comprimento += distancia(anterior, no);
+                anterior = no;
+                if (noDoGrafo(no)) {
+                    adicionarTrecho(origem, no, comprimento, v);
+                    origem = no;
+                    comprimento = 0.0;
+                } else {
+                    adicionarPonto(no);
+                }
+            }
+            numeroPontos = inicioPontosTrecho[numeroTrechos]; // Descarta os pontos de um trecho não concluído
+        }
+    }
+
+    private void adicionarPonto(int no) {
+        if (numeroPontos + 2 > pontos.length) pontos = Arrays.copyOf(pontos, pontos.length * 2);
+        pontos[numeroPontos++] = latitudeNo[no];
+        pontos[numeroPontos++] = longitudeNo[no];
+    }
+
+    // Fecha o trecho atual; os pontos intermediários acumulados desde o último trecho passam a ser dele
+    private void adicionarTrecho(int origem, int destino, double comprimento, int via) {
+        int inicioPontos = inicioPontosTrecho[numeroTrechos];
+        if (origem == destino) { // Laço sem cruzamentos no meio
+            numeroPontos = inicioPontos;
+            return;
+        }
+
+        if (sentidoVia[via] < 0) {
+            int t = origem;
+            origem = destino;
+            destino = t;
+            for (int i = inicioPontos, j = numeroPontos - 2; i < j; i += 2, j -= 2) { // Inverte o traçado
+                double lat = pontos[i], lon = pontos[i + 1];
+                pontos[i] = pontos[j];
+                pontos[i + 1] = pontos[j + 1];
+                pontos[j] = lat;
+                pontos[j + 1] = lon;
+            }
+        }
+        if (numeroTrechos + 1 == origemTrecho.length) {
+            int novo = origemTrecho.length * 2;
+            origemTrecho = Arrays.copyOf(origemTrecho, novo);
+            destinoTrecho = Arrays.copyOf(destinoTrecho, novo);
+            comprimentoTrecho = Arrays.copyOf(comprimentoTrecho, novo);
+            viaTrecho = Arrays.copyOf(viaTrecho, novo);
+            inicioPontosTrecho = Arrays.copyOf(inicioPontosTrecho, novo + 1);
+        }
+        origemTrecho[numeroTrechos] = origem;
+        destinoTrecho[numeroTrechos] = destino;
+        comprimentoTrecho[numeroTrechos] = comprimento;
+        viaTrecho[numeroTrechos] = via;
+        numeroTrechos++;
+        inicioPontosTrecho[numeroTrechos] = numeroPontos;
+    }
+
+    // Distância em metros pela fórmula de haversine
+    private double distancia(int a, int b) {
+        double lat1 = Math.toRadians(latitudeNo[a]);
+        double lat2 = Math.toRadians(latitudeNo[b]);
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(longitudeNo[b] - longitudeNo[a]);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * RAIO_TERRA_METROS * Math.asin(Math.min(1.0, Math.sqrt(h)));
+    }
+
+    // Saída
+
+    /**
+     * Grava o mapa no formato JSON dos mapas incluídos. As arestas são agrupadas pelo nó de origem
+     * e identificadas como "origem-destino-k", onde k distingue arestas paralelas; as de mão dupla
+     * são gravadas uma única vez, e o sentido de volta é criado na leitura do mapa. O traçado
+     * ({@code geometry}) lista os nós intermediários como {@code [lat0, lon0, lat1, lon1, ...]}.
+     */
+    void escreverJson(Writer w) throws IOException {
+        boolean[] noUsado = new boolean[numeroNos];
+        for (int t = 0; t < numeroTrechos; t++) {
+            noUsado[origemTrecho[t]] = true;
+            noUsado[destinoTrecho[t]] = true;
+        }
+
+        numeroNosGrafo = 0;
+        w.write("{\n  \"nodes\": [");
+        for (int no = 0; no < numeroNos; no++) {
+            if (!noUsado[no]) continue;
+            w.write(numeroNosGrafo++ == 0 ? "\n" : ",\n");
+            w.write("    {\"id\": \"" + idNo[no] + "\", \"latitude\": " + latitudeNo[no] + ", \"longitude\": " + longitudeNo[no] + "}");
+        }
+
+        // Ordena os trechos pelo nó de origem (contagem)
+        int[] inicioOrigem = new int[numeroNos + 1];
+        for (int t = 0; t < numeroTrechos; t++) inicioOrigem[origemTrecho[t] + 1]++;
+        for (int no = 0; no < numeroNos; no++) inicioOrigem[no + 1] += inicioOrigem[no];
+        int[] ordem = new int[numeroTrechos];
+        int[] proximo = Arrays.copyOf(inicioOrigem, numeroNos);
+        for (int t = 0; t < numeroTrechos; t++) ordem[proximo[origemTrecho[t]]++] = t;
+
+        w.write("\n  ],\n  \"edges\": [");
+        for (int no = 0, escritas = 0; no < numeroNos; no++) {
+            for (int i = inicioOrigem[no]; i < inicioOrigem[no + 1]; i++) {
+                int t = ordem[i];
+                int paralelas = 0;
+                for (int j = inicioOrigem[no]; j < i; j++) {
+                    if (destinoTrecho[ordem[j]] == destinoTrecho[t]) paralelas++;
+                }
+                double velocidade = velocidadeVia[viaTrecho[t]];
+                double tempoViagem = comprimentoTrecho[t] / (velocidade * 1000.0 / 3600.0);
+
+                w.write(escritas++ == 0 ? "\n" : ",\n");
+                w.write("    {\"id\": \"" + idNo[no] + "-" + idNo[destinoTrecho[t]] + "-" + paralelas
+                        + "\", \"source\": \"" + idNo[no] + "\", \"target\": \"" + idNo[destinoTrecho[t]]
+                        + "\", \"length\": " + comprimentoTrecho[t] + ", \"travel_time\": " + tempoViagem
+                        + ", \"oneway\": " + (sentidoVia[viaTrecho[t]] != 0) + ", \"maxspeed\": " + velocidade);
+                if (inicioPontosTrecho[t + 1] > inicioPontosTrecho[t]) {
+                    w.write(", \"geometry\": [");
+                    for (int p = inicioPontosTrecho[t]; p < inicioPontosTrecho[t + 1]; p++) {
+                        if (p > inicioPontosTrecho[t]) w.write(", ");
+                        w.write(Double.toString(pontos[p]));
+                    }
+                    w.write("]");
+                }
+                w.write("}");
+            }
+        }
+
+        numeroSemaforos = 0;
+        w.write("\n  ],\n  \"traffic_lights\": [");
+        for (int no = 0; no < numeroNos; no++) {
+            if (!noUsado[no] || !semaforoNo[no]) continue;
+            String direcao = direcaoSemaforo.get(no);
+            w.write(numeroSemaforos++ == 0 ? "\n" : ",\n");
+            w.write("    {\"id\": \"" + idNo[no] + "\", \"latitude\": " + latitudeNo[no] + ", \"longitude\": " + longitudeNo[no]
+                    + ", \"attributes\": {\"highway\": \"traffic_signals\", \"traffic_signals:direction\": "
+                    + (direcao != null ? textoJson(direcao) : "null") + "}}");
+        }
+        w.write("\n  ]\n}\n");
+    }
+
+    private static String textoJson(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    // O mapa binário é gerado a partir do JSON, para que as duas saídas produzam o mesmo grafo
+    private void escreverBinario(File saida) throws IOException {
+        File temporario = File.createTempFile("semaflux-osm", ".json", saida.getAbsoluteFile().getParentFile());
+        try {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temporario), StandardCharsets.UTF_8), 1 << 16)) {
+                escreverJson(writer);
+            }
+            Grafo grafo;
+            try {
+                grafo = leitorJson.carregarGrafo(temporario.getPath(), new Config());
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Falha ao montar o grafo importado: " + e.getMessage(), e);
+            }
+            MapaBinario.escrever(grafo, saida);
+        } finally {
+            if (!temporario.delete()) {
+                temporario.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Importa um extrato OSM pela linha de comando.
+     * Uso: {@code ImportadorOsm entrada.osm|entrada.osm.gz|entrada.osm.pbf [saida.json|saida.smap]}
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Uso: ImportadorOsm <entrada.osm|.osm.gz|.osm.pbf> [saida.json|saida" + MapaBinario.EXTENSAO + "]");
+            System.exit(1);
+        }
+        File entrada = new File(args[0]);
+        String nomeSaida = (args.length > 1) ? args[1] : args[0].replaceFirst("\\.osm(\\.pbf|\\.gz)?$", "") + ".json";
+        File saida = new File(nomeSaida);
+        try {
+            ImportadorOsm importador = new ImportadorOsm(entrada);
+            importador.importar(saida);
+            System.out.println("Mapa importado: " + saida + " (" + importador.getNumeroNos() + " nós, "
+                    + importador.getNumeroArestas() + " arestas, " + importador.getNumeroSemaforos() + " semáforos)");
+        } catch (Exception e) {
+            System.err.println("Erro ao importar " + entrada + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package org.semaflux.sim.control;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Leitor de arquivos OSM PBF ({@code .osm.pbf}) sem dependências externas.
+ * <p>
+ * O arquivo é uma sequência de blocos independentes ({@code BlobHeader} + {@code Blob}),
+ * cada um com até alguns milhares de elementos e compactado com zlib. Cada bloco é lido,
+ * descompactado em um buffer reaproveitado e decodificado por {@link LeitorProtobuf}, de modo
+ * que a memória usada depende do tamanho de um bloco e não do arquivo. Blocos de dados são
+ * descartados sem descompactação quando o receptor não quer nós nem vias, e grupos de nós são
+ * pulados sem decodificação quando só as vias interessam.
+ * <p>
+ * São suportados nós simples e densos ({@code DenseNodes}) e vias; relações, metadados de
+ * edição e blocos compactados com outros algoritmos que não zlib não são suportados.
+ */
+final class LeitorOsmPbf {
+    private static final int TAMANHO_MAXIMO_CABECALHO = 64 * 1024;
+    private static final int TAMANHO_MAXIMO_BLOCO = 32 * 1024 * 1024; // Limite da especificação
+    private static final Set<String> RECURSOS_SUPORTADOS = Set.of("OsmSchema-V0.6", "DenseNodes");
+
+    private final ReceptorOsm receptor;
+    private final boolean querNos;
+    private final boolean querVias;
+    private final EtiquetasOsm etiquetas = new EtiquetasOsm();
+    private final Inflater inflater = new Inflater();
+
+    private byte[] compactado = new byte[1 << 16];
+    private byte[] bloco = new byte[1 << 20];
+    private long[] referencias = new long[256];
+    private final List<LeitorProtobuf> grupos = new ArrayList<>();
+
+    // Tabela de textos do bloco atual, decodificada sob demanda
+    private int[] inicioTexto = new int[1024];
+    private int[] fimTexto = new int[1024];
+    private String[] textos = new String[1024];
+    private int numeroTextos;
+
+    // Conversão de coordenadas do bloco atual: graus = (deslocamento + granularidade * valor) / 1e9
+    // (a divisão dá o mesmo double que o texto decimal equivalente de um arquivo XML)
+    private long granularidade;
+    private long deslocamentoLatitude;
+    private long deslocamentoLongitude;
+
+    private LeitorOsmPbf(ReceptorOsm receptor) {
+        this.receptor = receptor;
+        this.querNos = receptor.querNos();
+        this.querVias = receptor.querVias();
+    }
+
+    static void ler(File arquivo, ReceptorOsm receptor) throws IOException {
+        LeitorOsmPbf leitor = new LeitorOsmPbf(receptor);
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(new FileInputStream(arquivo), 1 << 16))) {
+            leitor.lerArquivo(entrada);
+        } finally {
+            leitor.inflater.end();
+        }
+    }
+
+    private void lerArquivo(DataInputStream entrada) throws IOException {
+        byte[] cabecalho = new byte[256];
+        while (true) {
+            int tamanhoCabecalho;
+            try {
+                tamanhoCabecalho = entrada.readInt();
+            } catch (EOFException e) {
+                return; // Fim do arquivo entre blocos
+            }
+            if (tamanhoCabecalho <= 0 || tamanhoCabecalho > TAMANHO_MAXIMO_CABECALHO) {
+                throw new IOException("Cabeçalho de bloco PBF inválido (" + tamanhoCabecalho + " bytes)");
+            }
+            if (cabecalho.length < tamanhoCabecalho) cabecalho = new byte[tamanhoCabecalho];
+            entrada.readFully(cabecalho, 0, tamanhoCabecalho);
+
+            String tipo = null;
+            int tamanhoDados = -1;
+            LeitorProtobuf pb = new LeitorProtobuf(cabecalho, 0, tamanhoCabecalho);
+            while (pb.temProximo()) {
+                switch (pb.proximoCampo()) {
+                    case 1: tipo = pb.texto(); break;
+                    case 3: tamanhoDados = (int) pb.varint(); break;
+                    default: pb.pular(); break;
+                }
+            }
+            if (tipo == null || tamanhoDados < 0 || tamanhoDados > TAMANHO_MAXIMO_BLOCO) {
+                throw new IOException("Cabeçalho de bloco PBF incompleto");
+            }
+
+            boolean interessa = tipo.equals("OSMHeader") || (tipo.equals("OSMData") && (querNos || querVias));
+            if (!interessa) {
+                entrada.skipNBytes(tamanhoDados);
+                continue;
+            }
+            if (compactado.length < tamanhoDados) compactado = new byte[tamanhoDados];
+            entrada.readFully(compactado, 0, tamanhoDados);
+            int tamanho = descompactar(tamanhoDados);
+
+            if (tipo.equals("OSMHeader")) {
+                verificarCabecalho(tamanho);
+            } else {
+                lerBlocoPrimitivo(tamanho);
+            }
+        }
+    }
+
+    // Extrai o conteúdo do Blob para 'bloco' e retorna seu tamanho
+    private int descompactar(int tamanhoDados) throws IOException {
+        LeitorProtobuf blob = new LeitorProtobuf(compactado, 0, tamanhoDados);
+        LeitorProtobuf bruto = null;
+        LeitorProtobuf zlib = null;
+        int tamanhoBruto = -1;
+        while (blob.temProximo()) {
+            int campo = blob.proximoCampo();
+            switch (campo) {
+                case 1: bruto = blob.mensagem(); break;
+                case 2: tamanhoBruto = (int) blob.varint(); break;
+                case 3: zlib = blob.mensagem(); break;
+                case 4: case 5: case 6: case 7:
+                    throw new IOException("Compressão de bloco PBF não suportada (campo " + campo + "); apenas zlib");
+                default: blob.pular(); break;
+            }
+        }
+
+        if (bruto != null) {
+            int n = bruto.fim() - bruto.inicio();
+            garantirBloco(n);
+            System.arraycopy(compactado, bruto.inicio(), bloco, 0, n);
+            return n;
+        }
+        if (zlib == null || tamanhoBruto < 0 || tamanhoBruto > TAMANHO_MAXIMO_BLOCO) {
+            throw new IOException("Bloco PBF sem dados");
+        }
+
+        garantirBloco(tamanhoBruto);
+        inflater.reset();
+        inflater.setInput(compactado, zlib.inicio(), zlib.fim() - zlib.inicio());
+        int total = 0;
+        try {
+            while (total < tamanhoBruto) {
+                int n = inflater.inflate(bloco, total, tamanhoBruto - total);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) break;
+                total += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Bloco PBF corrompido: " + e.getMessage(), e);
+        }
+        if (total != tamanhoBruto) {
+            throw new IOException("Bloco PBF com tamanho divergente (" + total + " de " + tamanhoBruto + " bytes)");
+        }
+        return total;
+    }
+
+    private void garantirBloco(int tamanho) {
+        if (bloco.length < tamanho) bloco = new byte[tamanho];
+    }
+
+    private void verificarCabecalho(int tamanho) throws IOException {
+        LeitorProtobuf pb = new LeitorProtobuf(bloco, 0, tamanho);
+        while (pb.temProximo()) {
+            if (pb.proximoCampo() == 4) { // required_features
+                String recurso = pb.texto();
+                if (!RECURSOS_SUPORTADOS.contains(recurso)) {
+                    throw new IOException("Recurso PBF não suportado: " + recurso);
+                }
+            } else {
+                pb.pular();
+            }
+        }
+    }
+
+    // PrimitiveBlock: a tabela de textos e a granularidade podem vir depois dos grupos
+    private void lerBlocoPrimitivo(int tamanho) throws IOException {
+        numeroTextos = 0;
+        granularidade = 100;
+        deslocamentoLatitude = 0;
+        deslocamentoLongitude = 0;
+        grupos.clear();
+
+        LeitorProtobuf pb = new LeitorProtobuf(bloco, 0, tamanho);
+        while (pb.temProximo()) {
+            switch (pb.proximoCampo()) {
+                case 1: lerTabelaTextos(pb.mensagem()); break;
+                case 2: grupos.add(pb.mensagem()); break;
+                case 17: granularidade = pb.varint(); break;
+                case 19: deslocamentoLatitude = pb.varint(); break;
+                case 20: deslocamentoLongitude = pb.varint(); break;
+                default: pb.pular(); break;
+            }
+        }
+
+        for (LeitorProtobuf grupo : grupos) {
+            lerGrupo(grupo);
+        }
+        grupos.clear();
+    }
+
+    private void lerTabelaTextos(LeitorProtobuf tabela) throws IOException {
+        while (tabela.temProximo()) {
+            if (tabela.proximoCampo() != 1) {
+                tabela.pular();
+                continue;
+            }
+            LeitorProtobuf s = tabela.mensagem();
+            if (numeroTextos == inicioTexto.length) {
+                int novo = numeroTextos * 2;
+                inicioTexto = Arrays.copyOf(inicioTexto, novo);
+                fimTexto = Arrays.copyOf(fimTexto, novo);
+                textos = Arrays.copyOf(textos, novo);
+            }
+            inicioTexto[numeroTextos] = s.inicio();
+            fimTexto[numeroTextos] = s.fim();
+            textos[numeroTextos] = null;
+            numeroTextos++;
+        }
+    }
+
+    private String texto(long indice) throws IOException {
+        if (indice < 0 || indice >= numeroTextos) {
+            throw new IOException("Índice de texto fora da tabela do bloco PBF: " + indice);
+        }
+        int i = (int) indice;
+        if (textos[i] == null) {
+            textos[i] = new String(bloco, inicioTexto[i], fimTexto[i] - inicioTexto[i], StandardCharsets.UTF_8);
+        }
+        return textos[i];
+    }
+
+    private void lerGrupo(LeitorProtobuf grupo) throws IOException {
+        while (grupo.temProximo()) {
+            int campo = grupo.proximoCampo();
+            if (campo == 1 && querNos) {
+                lerNo(grupo.mensagem());
+            } else if (campo == 2 && querNos) {
+                lerNosDensos(grupo.mensagem());
+            } else if (campo == 3 && querVias) {
+                lerVia(grupo.mensagem());
+            } else {
+                grupo.pular();
+            }
+        }
+    }
+
+    private double latitude(long valor) {
+        return (deslocamentoLatitude + granularidade * valor) / 1e9;
+    }
+
+    private double longitude(long valor) {
+        return (deslocamentoLongitude + granularidade * valor) / 1e9;
+    }
+
+    private void lerNo(LeitorProtobuf no) throws IOException {
+        long id = 0, lat = 0, lon = 0;
+        LeitorProtobuf chaves = null, valores = null;
+        while (no.temProximo()) {
+            switch (no.proximoCampo()) {
+                case 1: id = no.sint(); break;
+                case 2: chaves = no.mensagem(); break;
+                case 3: valores = no.mensagem(); break;
+                case 8: lat = no.sint(); break;
+                case 9: lon = no.sint(); break;
+                default: no.pular(); break;
+            }
+        }
+        if (!receptor.aceitaNo(id)) return;
+        lerEtiquetas(chaves, valores);
+        receptor.no(id, latitude(lat), longitude(lon), etiquetas);
+    }
+
+    // DenseNodes: IDs e coordenadas em vetores paralelos codificados por diferença
+    private void lerNosDensos(LeitorProtobuf densos) throws IOException {
+        LeitorProtobuf ids = null, lats = null, lons = null, chavesValores = null;
+        while (densos.temProximo()) {
+            switch (densos.proximoCampo()) {
+                case 1: ids = densos.mensagem(); break;
+                case 8: lats = densos.mensagem(); break;
+                case 9: lons = densos.mensagem(); break;
+                case 10: chavesValores = densos.mensagem(); break;
+                default: densos.pular(); break;
+            }
+        }
+        if (ids == null || lats == null || lons == null) return;
+
+        long id = 0, lat = 0, lon = 0;
+        while (ids.temProximo()) {
+            id += ids.sint();
+            lat += lats.sint();
+            lon += lons.sint();
+            boolean aceito = receptor.aceitaNo(id);
+            if (aceito) etiquetas.limpar();
+            if (chavesValores != null) { // Pares chave/valor de cada nó, terminados por 0
+                while (chavesValores.temProximo()) {
+                    long chave = chavesValores.varint();
+                    if (chave == 0) break;
+                    long valor = chavesValores.varint();
+                    if (aceito) etiquetas.adicionar(texto(chave), texto(valor));
+                }
+            }
+            if (aceito) receptor.no(id, latitude(lat), longitude(lon), etiquetas);
+        }
+    }
+
+    private void lerVia(LeitorProtobuf via) throws IOException {
+        long id = 0;
+        LeitorProtobuf chaves = null, valores = null, refs = null;
+        while (via.temProximo()) {
+            switch (via.proximoCampo()) {
+                case 1: id = via.varint(); break;
+                case 2: chaves = via.mensagem(); break;
+                case 3: valores = via.mensagem(); break;
+                case 8: refs = via.mensagem(); break;
+                default: via.pular(); break;
+            }
+        }
+
+        int n = 0;
+        long ref = 0;
+        if (refs != null) {
+            while (refs.temProximo()) {
+                ref += refs.sint();
+                if (n == referencias.length) referencias = Arrays.copyOf(referencias, n * 2);
+                referencias[n++] = ref;
+            }
+        }
+        lerEtiquetas(chaves, valores);
+        receptor.via(id, referencias, n, etiquetas);
+    }
+
+    private void lerEtiquetas(LeitorProtobuf chaves, LeitorProtobuf valores) throws IOException {
+        etiquetas.limpar();
+        if (chaves == null || valores == null) return;
+        while (chaves.temProximo() && valores.temProximo()) {
+            etiquetas.adicionar(texto(chaves.varint()), texto(valores.varint()));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.semaflux.sim.control;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Leitor de arquivos OSM XML ({@code .osm}, ou {@code .osm.gz} compactado) por eventos StAX.
+ * <p>
+ * O documento é percorrido uma vez, elemento a elemento, e cada nó ou via é entregue ao
+ * {@link ReceptorOsm} assim que termina; relações são ignoradas.
+ */
+final class LeitorOsmXml {
+
+    private final XMLStreamReader xml;
+    private final EtiquetasOsm etiquetas = new EtiquetasOsm();
+    private long[] referencias = new long[256];
+    private int numeroReferencias;
+
+    private LeitorOsmXml(XMLStreamReader xml) {
+        this.xml = xml;
+    }
+
+    static void ler(File arquivo, ReceptorOsm receptor) throws IOException {
+        XMLInputFactory fabrica = XMLInputFactory.newInstance();
+        fabrica.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        fabrica.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        try (InputStream entrada = abrir(arquivo)) {
+            XMLStreamReader xml = fabrica.createXMLStreamReader(entrada);
+            try {
+                new LeitorOsmXml(xml).lerElementos(receptor);
+            } finally {
+                xml.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("XML inválido em " + arquivo + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static InputStream abrir(File arquivo) throws IOException {
+        InputStream entrada = new BufferedInputStream(new FileInputStream(arquivo), 1 << 16);
+        return arquivo.getName().endsWith(".gz") ? new GZIPInputStream(entrada, 1 << 16) : entrada;
+    }
+
+    private void lerElementos(ReceptorOsm receptor) throws XMLStreamException, IOException {
+        boolean querNos = receptor.querNos();
+        boolean querVias = receptor.querVias();
+
+        while (xml.hasNext()) {
+            if (xml.next() != XMLStreamConstants.START_ELEMENT) continue;
+
+            String elemento = xml.getLocalName();
+            if (elemento.equals("node")) {
+                if (!querNos) continue;
+                long id = atributoLong(xml, "id");
+                if (!receptor.aceitaNo(id)) continue;
+                double latitude = atributoDouble(xml, "lat");
+                double longitude = atributoDouble(xml, "lon");
+                etiquetas.limpar();
+                lerFilhos(false);
+                receptor.no(id, latitude, longitude, etiquetas);
+            } else if (elemento.equals("way")) {
+                if (!querVias) continue;
+                long id = atributoLong(xml, "id");
+                etiquetas.limpar();
+                lerFilhos(true);
+                receptor.via(id, referencias, numeroReferencias, etiquetas);
+            }
+        }
+    }
+
+    // Lê as etiquetas (<tag>) e, se pedido, as referências (<nd>) até o fim do elemento atual
+    private void lerFilhos(boolean lerReferencias) throws XMLStreamException, IOException {
+        int n = 0;
+        int profundidade = 1;
+        while (profundidade > 0 && xml.hasNext()) {
+            int evento = xml.next();
+            if (evento == XMLStreamConstants.START_ELEMENT) {
+                profundidade++;
+                String filho = xml.getLocalName();
+                if (filho.equals("tag")) {
+                    String chave = xml.getAttributeValue(null, "k");
+                    String valor = xml.getAttributeValue(null, "v");
+                    if (chave != null && valor != null) etiquetas.adicionar(chave, valor);
+                } else if (filho.equals("nd") && lerReferencias) {
+                    if (n == referencias.length) referencias = Arrays.copyOf(referencias, n * 2);
+                    referencias[n++] = atributoLong(xml, "ref");
+                }
+            } else if (evento == XMLStreamConstants.END_ELEMENT) {
+                profundidade--;
+            }
+        }
+        numeroReferencias = n;
+    }
+
+    private static long atributoLong(XMLStreamReader xml, String nome) throws IOException {
+        String valor = xml.getAttributeValue(null, nome);
+        try {
+            return Long.parseLong(valor);
+        } catch (NumberFormatException | NullPointerException e) {
+            throw erro(xml, "Atributo '" + nome + "' inválido: " + valor);
+        }
+    }
+
+    private static double atributoDouble(XMLStreamReader xml, String nome) throws IOException {
+        String valor = xml.getAttributeValue(null, nome);
+        try {
+            return Double.parseDouble(valor);
+        } catch (NumberFormatException | NullPointerException e) {
+            throw erro(xml, "Atributo '" + nome + "' inválido: " + valor);
+        }
+    }
+
+    private static IOException erro(XMLStreamReader xml, String mensagem) {
+        return new IOException(mensagem + " (linha " + xml.getLocation().getLineNumber() + ")");
+    }
+}
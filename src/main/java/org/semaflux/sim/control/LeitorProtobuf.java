@@ -0,0 +1,120 @@
+package org.semaflux.sim.control;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodificador mínimo de mensagens Protocol Buffers sobre um trecho de um vetor de bytes.
+ * <p>
+ * Cobre apenas o necessário para o formato OSM PBF: varints (com e sem zigzag), campos de
+ * tamanho delimitado (textos, mensagens aninhadas e vetores compactados) e o descarte de campos
+ * desconhecidos. Mensagens aninhadas são lidas por um novo decodificador sobre o mesmo vetor,
+ * sem cópia.
+ */
+final class LeitorProtobuf {
+    static final int VARINT = 0;
+    static final int FIXO64 = 1;
+    static final int DELIMITADO = 2;
+    static final int FIXO32 = 5;
+
+    private final byte[] dados;
+    private int pos;
+    private final int fim;
+
+    private int ultimoCampo;
+    private int ultimoTipo;
+
+    LeitorProtobuf(byte[] dados, int inicio, int fim) {
+        this.dados = dados;
+        this.pos = inicio;
+        this.fim = fim;
+    }
+
+    boolean temProximo() {
+        return pos < fim;
+    }
+
+    /**
+     * Lê a chave do próximo campo.
+     * @return O número do campo; o tipo fica disponível em {@link #tipo()}
+     */
+    int proximoCampo() throws IOException {
+        int chave = (int) varint();
+        ultimoCampo = chave >>> 3;
+        ultimoTipo = chave & 7;
+        return ultimoCampo;
+    }
+
+    int tipo() {
+        return ultimoTipo;
+    }
+
+    long varint() throws IOException {
+        long resultado = 0;
+        for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+            if (pos >= fim) throw new IOException("Varint truncado no bloco PBF");
+            byte b = dados[pos++];
+            resultado |= (long) (b & 0x7f) << deslocamento;
+            if (b >= 0) return resultado;
+        }
+        throw new IOException("Varint inválido no bloco PBF");
+    }
+
+    /** Varint com codificação zigzag ({@code sint32}/{@code sint64}). */
+    long sint() throws IOException {
+        long v = varint();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * Lê um campo de tamanho delimitado (mensagem aninhada ou vetor compactado) e retorna um
+     * decodificador restrito ao seu conteúdo.
+     */
+    LeitorProtobuf mensagem() throws IOException {
+        int tamanho = tamanhoDelimitado();
+        LeitorProtobuf sub = new LeitorProtobuf(dados, pos, pos + tamanho);
+        pos += tamanho;
+        return sub;
+    }
+
+    String texto() throws IOException {
+        int tamanho = tamanhoDelimitado();
+        String s = new String(dados, pos, tamanho, StandardCharsets.UTF_8);
+        pos += tamanho;
+        return s;
+    }
+
+    /** Posição atual no vetor de dados. */
+    int inicio() {
+        return pos;
+    }
+
+    /** Fim (exclusivo) do trecho lido por este decodificador. */
+    int fim() {
+        return fim;
+    }
+
+    /** Descarta o valor do último campo lido. */
+    void pular() throws IOException {
+        switch (ultimoTipo) {
+            case VARINT: varint(); break;
+            case FIXO64: avancar(8); break;
+            case DELIMITADO: avancar(tamanhoDelimitado()); break;
+            case FIXO32: avancar(4); break;
+            default: throw new IOException("Tipo de campo protobuf não suportado: " + ultimoTipo + " (campo " + ultimoCampo + ")");
+        }
+    }
+
+    private int tamanhoDelimitado() throws IOException {
+        long tamanho = varint();
+        if (tamanho < 0 || tamanho > fim - pos) {
+            throw new IOException("Campo delimitado fora dos limites do bloco PBF");
+        }
+        return (int) tamanho;
+    }
+
+    private void avancar(int n) throws IOException {
+        if (n > fim - pos) throw new IOException("Campo truncado no bloco PBF");
+        pos += n;
+    }
+}
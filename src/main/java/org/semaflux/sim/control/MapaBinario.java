@@ -0,0 +1,367 @@
+package org.semaflux.sim.control;
+
+import org.semaflux.sim.core.*;
+import org.semaflux.sim.simulação.Config;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Formato binário compilado do mapa ({@code .smap}), carregado por mapeamento de memória.
+ * <p>
+ * Layout (big-endian, cada seção alinhada em 8 bytes):
+ * <pre>
+ *  cabeçalho  magic "SFMB", versão, nº de nós, arestas, semáforos e textos,
+ *             deslocamento de cada seção
+ *  textos     int[textos + 1] deslocamentos + bytes UTF-8; IDs de nós, arestas e direções,
+ *             cada valor distinto aparece uma única vez
+ *  nós        int[n] texto do ID, double[n] latitude, double[n] longitude
+ *  arestas    int[m] texto do ID, int[m] origem, int[m] destino (textos), double[m] comprimento,
+ *             double[m] tempo de viagem, double[m] velocidade máxima, int[m] capacidade, byte[m] mão única
+ *  adjacência int[n + 1] início das arestas de cada nó, int[] índices das arestas (CSR)
+ *  semáforos  int[s] texto do nó, int[s] texto da direção
+ *  traçados   int[m + 1] início dos pontos de cada aresta, double[] lat/lon intercalados
+ *             (a partir da versão 2; logo após os semáforos, alinhado em 8 bytes)
+ *  componentes int[n] componente fortemente conexa de cada nó ({@link ComponentesFortes})
+ *             (a partir da versão 3; logo após os traçados, alinhado em 8 bytes)
+ * </pre>
+ * Os vetores são lidos diretamente do arquivo mapeado, sem cópia intermediária, e o grafo
+ * resultante é idêntico ao produzido por {@link leitorJson} a partir do JSON de origem
+ * (mesma ordem de nós, arestas e adjacências).
+ * <p>
+ * Conversão pela linha de comando: {@code MapaBinario entrada.json [saida.smap]}.
+ */
+public class MapaBinario {
+    public static final String EXTENSAO = ".smap";
+
+    private static final int MAGICO = 0x53464d42; // "SFMB"
+    static final int VERSAO = 3; // Versão 1: sem a seção de traçados; versão 2: sem as componentes
+    private static final int TAMANHO_CABECALHO = 64;
+
+    private MapaBinario() {
+    }
+
+    /**
+     * Grava o grafo no formato binário.
+     */
+    public static void escrever(Grafo grafo, File arquivo) throws IOException {
+        // Interna os textos: cada ID ou direção distinta recebe um índice
+        Map<String, Integer> indiceTexto = new HashMap<>();
+        List<String> textos = new ArrayList<>();
+
+        List<No> nos = new ArrayList<>();
+        for (No no : grafo.getNodes()) {
+            nos.add(no);
+            internar(no.getId(), indiceTexto, textos);
+        }
+        List<Aresta> arestas = new ArrayList<>();
+        for (Aresta aresta : grafo.getEdges()) {
+            arestas.add(aresta);
+            internar(aresta.getId(), indiceTexto, textos);
+            internar(aresta.getSource(), indiceTexto, textos);
+            internar(aresta.getTarget(), indiceTexto, textos);
+        }
+        List<SinalTransito> semaforos = new ArrayList<>();
+        for (SinalTransito semaforo : grafo.getTrafficLights()) {
+            semaforos.add(semaforo);
+            internar(semaforo.getNodeId(), indiceTexto, textos);
+            internar(semaforo.getInitialJsonDirection(), indiceTexto, textos);
+        }
+        Map<Aresta, Integer> indiceAresta = new HashMap<>(arestas.size() * 2);
+        for (int i = 0; i < arestas.size(); i++) {
+            indiceAresta.put(arestas.get(i), i);
+        }
+
+        long[] deslocamentos = new long[5];
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            canal.position(TAMANHO_CABECALHO);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(canal), 1 << 16));
+            long posicao = TAMANHO_CABECALHO;
+
+            // Textos
+            deslocamentos[0] = posicao;
+            List<byte[]> bytesTextos = new ArrayList<>(textos.size());
+            int acumulado = 0;
+            out.writeInt(0);
+            for (String texto : textos) {
+                byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+                bytesTextos.add(bytes);
+                acumulado += bytes.length;
+                out.writeInt(acumulado);
+            }
+            for (byte[] bytes : bytesTextos) {
+                out.write(bytes);
+            }
+            posicao += 4L * (textos.size() + 1) + acumulado;
+            posicao = alinhar(out, posicao);
+
+            // Nós
+            deslocamentos[1] = posicao;
+            for (No no : nos) out.writeInt(indiceTexto.get(no.getId()));
+            posicao = alinhar(out, posicao + 4L * nos.size());
+            for (No no : nos) out.writeDouble(no.getLatitude());
+            for (No no : nos) out.writeDouble(no.getLongitude());
+            posicao += 16L * nos.size();
+
+            // Arestas
+            deslocamentos[2] = posicao;
+            for (Aresta a : arestas) out.writeInt(indiceTexto.get(a.getId()));
+            for (Aresta a : arestas) out.writeInt(indiceTexto.get(a.getSource()));
+            for (Aresta a : arestas) out.writeInt(indiceTexto.get(a.getTarget()));
+            posicao = alinhar(out, posicao + 12L * arestas.size());
+            for (Aresta a : arestas) out.writeDouble(a.getLength());
+            for (Aresta a : arestas) out.writeDouble(a.getTravelTime());
+            for (Aresta a : arestas) out.writeDouble(a.getMaxspeed());
+            for (Aresta a : arestas) out.writeInt(a.getCapacity());
+            for (Aresta a : arestas) out.writeByte(a.isOneway() ? 1 : 0);
+            posicao = alinhar(out, posicao + 29L * arestas.size());
+
+            // Adjacência (CSR)
+            deslocamentos[3] = posicao;
+            int totalAdjacencias = 0;
+            out.writeInt(0);
+            for (No no : nos) {
+                totalAdjacencias += no.getEdges().size();
+                out.writeInt(totalAdjacencias);
+            }
+            for (No no : nos) {
+                for (Aresta a : no.getEdges()) {
+                    Integer indice = indiceAresta.get(a);
+                    if (indice == null) {
+                        throw new IOException("Aresta " + a.getId() + " do nó " + no.getId() + " não pertence ao grafo");
+                    }
+                    out.writeInt(indice);
+                }
+            }
+            posicao = alinhar(out, posicao + 4L * (nos.size() + 1) + 4L * totalAdjacencias);
+
+            // Semáforos
+            deslocamentos[4] = posicao;
+            for (SinalTransito s : semaforos) out.writeInt(indiceTexto.get(s.getNodeId()));
+            for (SinalTransito s : semaforos) out.writeInt(indiceTexto.get(s.getInitialJsonDirection()));
+            posicao = alinhar(out, posicao + 8L * semaforos.size());
+
+            // Traçados
+            int totalPontos = 0;
+            out.writeInt(0);
+            for (Aresta a : arestas) {
+                if (a.getGeometria() != null) totalPontos += a.getGeometria().length;
+                out.writeInt(totalPontos);
+            }
+            posicao = alinhar(out, posicao + 4L * (arestas.size() + 1));
+            for (Aresta a : arestas) {
+                if (a.getGeometria() == null) continue;
+                for (double coordenada : a.getGeometria()) out.writeDouble(coordenada);
+            }
+            posicao += 8L * totalPontos;
+
+            // Componentes fortemente conexas
+            int[] componentes = ComponentesFortes.obter(grafo);
+            for (No no : nos) out.writeInt(componentes[no.getIndice()]);
+            out.flush();
+
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+            cabecalho.putInt(MAGICO).putInt(VERSAO)
+                    .putInt(nos.size()).putInt(arestas.size()).putInt(semaforos.size()).putInt(textos.size());
+            for (long deslocamento : deslocamentos) {
+                cabecalho.putLong(deslocamento);
+            }
+            cabecalho.flip();
+            while (cabecalho.hasRemaining()) {
+                canal.write(cabecalho, cabecalho.position());
+            }
+        }
+    }
+
+    private static void internar(String texto, Map<String, Integer> indiceTexto, List<String> textos) {
+        if (!indiceTexto.containsKey(texto)) {
+            indiceTexto.put(texto, textos.size());
+            textos.add(texto);
+        }
+    }
+
+    private static long alinhar(DataOutputStream out, long posicao) throws IOException {
+        while (posicao % 8 != 0) {
+            out.writeByte(0);
+            posicao++;
+        }
+        return posicao;
+    }
+
+    /**
+     * Carrega um mapa binário, mapeando o arquivo em memória.
+     * @throws IOException Se o arquivo não existir ou não estiver no formato esperado
+     */
+    public static Grafo carregar(File arquivo, Config config) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho < TAMANHO_CABECALHO || tamanho > Integer.MAX_VALUE) {
+                throw new IOException("Tamanho inválido para mapa binário: " + arquivo);
+            }
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+            return ler(buffer, config);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Mapa binário corrompido: " + arquivo, e);
+        }
+    }
+
+    private static Grafo ler(ByteBuffer buffer, Config config) throws IOException {
+        if (buffer.getInt(0) != MAGICO) throw new IOException("Arquivo não é um mapa binário do SemaFlux");
+        int versao = buffer.getInt(4);
+        if (versao < 1 || versao > VERSAO) throw new IOException("Versão de mapa binário não suportada: " + versao);
+        int numeroNos = buffer.getInt(8);
+        int numeroArestas = buffer.getInt(12);
+        int numeroSemaforos = buffer.getInt(16);
+        int numeroTextos = buffer.getInt(20);
+        int inicioTextos = (int) buffer.getLong(24);
+        int inicioNos = (int) buffer.getLong(32);
+        int inicioArestas = (int) buffer.getLong(40);
+        int inicioAdjacencia = (int) buffer.getLong(48);
+        int inicioSemaforos = (int) buffer.getLong(56);
+
+        String[] textos = lerTextos(buffer, inicioTextos, numeroTextos);
+        Grafo grafo = new Grafo();
+
+        // Nós
+        IntBuffer idsNos = buffer.slice(inicioNos, 4 * numeroNos).asIntBuffer();
+        int inicioCoordenadas = alinhar(inicioNos + 4 * numeroNos);
+        DoubleBuffer latitudes = buffer.slice(inicioCoordenadas, 8 * numeroNos).asDoubleBuffer();
+        DoubleBuffer longitudes = buffer.slice(inicioCoordenadas + 8 * numeroNos, 8 * numeroNos).asDoubleBuffer();
+        No[] nos = new No[numeroNos];
+        for (int i = 0; i < numeroNos; i++) {
+            nos[i] = new No(textos[idsNos.get(i)], latitudes.get(i), longitudes.get(i), false);
+            grafo.addNode(nos[i]);
+        }
+
+        // Arestas
+        int m = numeroArestas;
+        IntBuffer idsArestas = buffer.slice(inicioArestas, 4 * m).asIntBuffer();
+        IntBuffer origens = buffer.slice(inicioArestas + 4 * m, 4 * m).asIntBuffer();
+        IntBuffer destinos = buffer.slice(inicioArestas + 8 * m, 4 * m).asIntBuffer();
+        int inicioValores = alinhar(inicioArestas + 12 * m);
+        DoubleBuffer comprimentos = buffer.slice(inicioValores, 8 * m).asDoubleBuffer();
+        DoubleBuffer tempos = buffer.slice(inicioValores + 8 * m, 8 * m).asDoubleBuffer();
+        DoubleBuffer velocidades = buffer.slice(inicioValores + 16 * m, 8 * m).asDoubleBuffer();
+        IntBuffer capacidades = buffer.slice(inicioValores + 24 * m, 4 * m).asIntBuffer();
+        int inicioMaoUnica = inicioValores + 28 * m;
+        Aresta[] arestas = new Aresta[m];
+        for (int i = 0; i < m; i++) {
+            arestas[i] = new Aresta(textos[idsArestas.get(i)], textos[origens.get(i)], textos[destinos.get(i)],
+                    comprimentos.get(i), tempos.get(i), buffer.get(inicioMaoUnica + i) != 0,
+                    velocidades.get(i), capacidades.get(i));
+            grafo.addEdge(arestas[i]);
+        }
+        int fimTracados = -1;
+        if (versao >= 2) {
+            fimTracados = lerTracados(buffer, alinhar(inicioSemaforos + 8 * numeroSemaforos), arestas);
+        }
+
+        // Adjacência
+        IntBuffer inicioLista = buffer.slice(inicioAdjacencia, 4 * (numeroNos + 1)).asIntBuffer();
+        int totalAdjacencias = inicioLista.get(numeroNos);
+        IntBuffer adjacencias = buffer.slice(inicioAdjacencia + 4 * (numeroNos + 1), 4 * totalAdjacencias).asIntBuffer();
+        for (int i = 0; i < numeroNos; i++) {
+            for (int k = inicioLista.get(i); k < inicioLista.get(i + 1); k++) {
+                nos[i].addEdge(arestas[adjacencias.get(k)]);
+            }
+        }
+
+        // Semáforos
+        IntBuffer nosSemaforos = buffer.slice(inicioSemaforos, 4 * numeroSemaforos).asIntBuffer();
+        IntBuffer direcoes = buffer.slice(inicioSemaforos + 4 * numeroSemaforos, 4 * numeroSemaforos).asIntBuffer();
+        for (int i = 0; i < numeroSemaforos; i++) {
+            String idNo = textos[nosSemaforos.get(i)];
+            grafo.addTrafficLight(new SinalTransito(idNo, textos[direcoes.get(i)], config));
+            No noSemaforo = grafo.getNode(idNo);
+            if (noSemaforo != null) {
+                noSemaforo.isTrafficLight = true;
+            }
+        }
+
+        // Componentes (depois de todas as arestas, pois adicioná-las descarta o valor guardado no grafo)
+        if (versao >= 3) {
+            int[] componentes = new int[numeroNos];
+            buffer.slice(fimTracados, 4 * numeroNos).asIntBuffer().get(componentes);
+            grafo.setComponentes(componentes);
+        }
+        return grafo;
+    }
+
+    // Retorna a posição (alinhada) logo após a seção de traçados
+    private static int lerTracados(ByteBuffer buffer, int inicio, Aresta[] arestas) {
+        int m = arestas.length;
+        IntBuffer inicioPontos = buffer.slice(inicio, 4 * (m + 1)).asIntBuffer();
+        int totalPontos = inicioPontos.get(m);
+        int inicioCoordenadas = alinhar(inicio + 4 * (m + 1));
+        if (totalPontos == 0) return inicioCoordenadas;
+        DoubleBuffer pontos = buffer.slice(inicioCoordenadas, 8 * totalPontos).asDoubleBuffer();
+        for (int i = 0; i < m; i++) {
+            int de = inicioPontos.get(i);
+            int tamanho = inicioPontos.get(i + 1) - de;
+            if (tamanho == 0) continue;
+            double[] geometria = new double[tamanho];
+            pontos.get(de, geometria);
+            arestas[i].setGeometria(geometria);
+        }
+        return inicioCoordenadas + 8 * totalPontos;
+    }
+
+    private static String[] lerTextos(ByteBuffer buffer, int inicio, int numeroTextos) {
+        IntBuffer fins = buffer.slice(inicio, 4 * (numeroTextos + 1)).asIntBuffer();
+        int inicioBytes = inicio + 4 * (numeroTextos + 1);
+        String[] textos = new String[numeroTextos];
+        byte[] temporario = new byte[64];
+        for (int i = 0; i < numeroTextos; i++) {
+            int de = fins.get(i);
+            int tamanho = fins.get(i + 1) - de;
+            if (tamanho > temporario.length) temporario = new byte[Math.max(tamanho, temporario.length * 2)];
+            buffer.get(inicioBytes + de, temporario, 0, tamanho);
+            textos[i] = new String(temporario, 0, tamanho, StandardCharsets.UTF_8);
+        }
+        return textos;
+    }
+
+    private static int alinhar(int posicao) {
+        return (posicao + 7) & ~7;
+    }
+
+    /**
+     * Converte um mapa JSON para o formato binário.
+     * Uso: {@code MapaBinario entrada.json [saida.smap]}
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Uso: MapaBinario <entrada.json> [saida" + EXTENSAO + "]");
+            System.exit(1);
+        }
+        File entrada = new File(args[0]);
+        String nomeSaida = (args.length > 1) ? args[1] : args[0].replaceFirst("\\.json$", "") + EXTENSAO;
+        File saida = new File(nomeSaida);
+        try {
+            Config config = new Config();
+            Grafo grafo = leitorJson.carregarGrafo(entrada.getPath(), config);
+            escrever(grafo, saida);
+            System.out.println("Mapa convertido: " + saida + " (" + grafo.getNodes().size() + " nós, "
+                    + grafo.getEdges().size() + " arestas, " + grafo.getTrafficLights().size() + " semáforos, "
+                    + saida.length() + " bytes)");
+        } catch (Exception e) {
+            System.err.println("Erro ao converter " + entrada + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
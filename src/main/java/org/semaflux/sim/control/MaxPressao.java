@@ -0,0 +1,210 @@
+package org.semaflux.sim.control;
+
+import org.semaflux.sim.core.Aresta;
+import org.semaflux.sim.core.FaseDoSemaforo;
+import org.semaflux.sim.core.SinalTransito;
+import org.semaflux.sim.simulação.Config;
+import org.semaflux.sim.simulação.MudancaDeFase;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Estratégia de controle por máxima pressão (max-pressure).
+ * <p>
+ * A pressão de uma fase é a soma, para cada direção de saída servida pela fase, da demanda por
+ * essa saída menos a ocupação média das arestas de saída nessa direção. As filas do semáforo e o
+ * próprio sinal são separados pela direção de saída do veículo (a mesma de
+ * {@link SinalTransito#addVehicleToQueue}), então a demanda de uma direção é a sua fila mais os
+ * veículos que ainda se aproximam pelas arestas de entrada. Para estes, a saída só é conhecida pela
+ * rota de cada um; a estratégia os atribui à direção em que se deslocam (supõe que seguirão em
+ * frente), descontando da ocupação da aresta os veículos dela que já estão enfileirados.
+ * Ao fim de cada período de verde a fase atual é estendida enquanto sua pressão for maior ou
+ * igual à da fase concorrente (respeitando o verde máximo); caso contrário o semáforo passa
+ * pelo amarelo e abre a outra direção. As ocupações vêm dos contadores por aresta mantidos
+ * incrementalmente pelo simulador, então a decisão não percorre veículos.
+ */
+public class MaxPressao implements Semaforo {
+    private double tempoVerdeMinimo;
+    private double tempoVerdeMaximo;
+    private double tempoAmarelo;
+    private double tempoExtensao;
+
+    // Verde já concedido à fase atual (mínimo + extensões)
+    private double tempoVerdeAcumulado = 0.0;
+
+    public MaxPressao() {
+        this(8.0, 40.0, 2.0, 4.0);
+    }
+
+    public MaxPressao(double verdeMinimo, double verdeMaximo, double amarelo, double extensao) {
+        this.tempoVerdeMinimo = verdeMinimo;
+        this.tempoVerdeMaximo = Math.max(verdeMinimo, verdeMaximo);
+        this.tempoAmarelo = amarelo;
+        this.tempoExtensao = Math.max(1.0, extensao);
+    }
+
+    @Override
+    public String getEstadoSinalParaAproximacao(SinalTransito light, String approachDirection) {
+        FaseDoSemaforo currentPhase = light.getCurrentPhase();
+        if (currentPhase == null || approachDirection == null) return "red";
+        String dir = approachDirection.toLowerCase();
+
+        switch (currentPhase) {
+            case NORTE_SUL_VERDE_LESTE_OESTE_VERMELHO:
+                return (dir.equals("north") || dir.equals("south")) ? "green" : "red";
+            case NORTE_SUL_AMARELO_LESTE_OESTE_VERMELHO:
+                return (dir.equals("north") || dir.equals("south")) ? "yellow" : "red";
+            case NORTE_SUL_VERMELHO_LESTE_OESTE_VERDE:
+                return (dir.equals("east") || dir.equals("west")) ? "green" : "red";
+            case NORTE_SUL_VERMELHO_LESTE_OESTE_AMARELO:
+                return (dir.equals("east") || dir.equals("west")) ? "yellow" : "red";
+            default:
+                return "red";
+        }
+    }
+
+    @Override
+    public void inicializar(SinalTransito light) {
+        String initialJsonDir = light.getInitialJsonDirection().toLowerCase();
+        FaseDoSemaforo startPhase = FaseDoSemaforo.NORTE_SUL_VERDE_LESTE_OESTE_VERMELHO;
+
+        if (light.getConfiguration() != null) {
+            atualizarParametros(light.getConfiguration());
+        }
+
+        if (initialJsonDir.contains("east") || initialJsonDir.contains("west")) {
+            startPhase = FaseDoSemaforo.NORTE_SUL_VERMELHO_LESTE_OESTE_VERDE;
+        }
+
+        this.tempoVerdeAcumulado = this.tempoVerdeMinimo;
+        light.setCurrentPhase(startPhase, this.tempoVerdeMinimo);
+    }
+
+    @Override
+    public MudancaDeFase decidirProximaFase(SinalTransito light, double deltaTime, int[] queueSizes, boolean isPeakHour) {
+        FaseDoSemaforo currentPhase = light.getCurrentPhase();
+        FaseDoSemaforo nextPhase;
+        double duration;
+
+        if (light.getConfiguration() != null) {
+            atualizarParametros(light.getConfiguration());
+        }
+
+        switch (currentPhase) {
+            case NORTE_SUL_VERDE_LESTE_OESTE_VERMELHO:
+                if (deveEstenderVerde(light, queueSizes, false)) {
+                    nextPhase = currentPhase;
+                    duration = this.tempoExtensao;
+                    this.tempoVerdeAcumulado += duration;
+                } else {
+                    nextPhase = FaseDoSemaforo.NORTE_SUL_AMARELO_LESTE_OESTE_VERMELHO;
+                    duration = this.tempoAmarelo;
+                }
+                break;
+            case NORTE_SUL_AMARELO_LESTE_OESTE_VERMELHO:
+                nextPhase = FaseDoSemaforo.NORTE_SUL_VERMELHO_LESTE_OESTE_VERDE;
+                duration = this.tempoVerdeMinimo;
+                this.tempoVerdeAcumulado = duration;
+                break;
+            case NORTE_SUL_VERMELHO_LESTE_OESTE_VERDE:
+                if (deveEstenderVerde(light, queueSizes, true)) {
+                    nextPhase = currentPhase;
+                    duration = this.tempoExtensao;
+                    this.tempoVerdeAcumulado += duration;
+                } else {
+                    nextPhase = FaseDoSemaforo.NORTE_SUL_VERMELHO_LESTE_OESTE_AMARELO;
+                    duration = this.tempoAmarelo;
+                }
+                break;
+            case NORTE_SUL_VERMELHO_LESTE_OESTE_AMARELO:
+                nextPhase = FaseDoSemaforo.NORTE_SUL_VERDE_LESTE_OESTE_VERMELHO;
+                duration = this.tempoVerdeMinimo;
+                this.tempoVerdeAcumulado = duration;
+                break;
+            default:
+                nextPhase = FaseDoSemaforo.NORTE_SUL_VERDE_LESTE_OESTE_VERMELHO;
+                duration = this.tempoVerdeMinimo;
+                this.tempoVerdeAcumulado = duration;
+                break;
+        }
+        return new MudancaDeFase(nextPhase, duration);
+    }
+
+    /**
+     * Decide se o verde atual deve ser estendido: a fase atual precisa ter pressão maior ou igual
+     * à da fase concorrente e ainda haver margem até o verde máximo.
+     */
+    private boolean deveEstenderVerde(SinalTransito light, int[] queueSizes, boolean eixoLesteOesteVerde) {
+        if (this.tempoVerdeAcumulado + this.tempoExtensao > this.tempoVerdeMaximo) {
+            return false;
+        }
+        double pressaoAtual = calcularPressao(light, queueSizes, eixoLesteOesteVerde);
+        double pressaoConcorrente = calcularPressao(light, queueSizes, !eixoLesteOesteVerde);
+        return pressaoAtual > 0 && pressaoAtual >= pressaoConcorrente;
+    }
+
+    /**
+     * Calcula a pressão da fase que serve o eixo indicado.
+     * Para cada direção de saída do eixo com demanda possível, soma a demanda (fila da direção mais
+     * veículos a caminho nas arestas de entrada que se deslocam nessa direção e ainda não estão
+     * enfileirados) menos a ocupação média das arestas de saída na mesma direção.
+     */
+    private double calcularPressao(SinalTransito light, int[] queueSizes, boolean eixoLesteOeste) {
+        Aresta[] entradas = light.getIncomingEdges();
+        int[] direcoesEntrada = light.getIncomingDirections();
+        Aresta[] saidas = light.getOutgoingEdges();
+        int[] direcoesSaida = light.getOutgoingDirections();
+
+        double pressao = 0.0;
+        for (int d = 0; d < 4; d++) {
+            if (pertenceAoEixoLesteOeste(d) != eixoLesteOeste) continue;
+
+            int aCaminho = 0;
+            boolean temEntrada = false;
+            for (int i = 0; i < entradas.length; i++) {
+                if (direcoesEntrada[i] != d) continue;
+                aCaminho += entradas[i].getOcupacao();
+                temEntrada = true;
+            }
+            aCaminho = Math.max(0, aCaminho - light.getEnfileiradosPorChegada(d));
+            int fila = (queueSizes != null && d < queueSizes.length) ? queueSizes[d] : 0;
+            int demanda = fila + aCaminho;
+            if (demanda == 0 && !temEntrada) continue; // Nenhum veículo pode sair nesta direção
+
+            double ocupacaoJusante = 0.0;
+            int saidasPossiveis = 0;
+            for (int j = 0; j < saidas.length; j++) {
+                if (direcoesSaida[j] != d) continue;
+                ocupacaoJusante += saidas[j].getOcupacao();
+                saidasPossiveis++;
+            }
+
+            pressao += demanda - (saidasPossiveis > 0 ? ocupacaoJusante / saidasPossiveis : 0.0);
+        }
+        return pressao;
+    }
+
+    // Índices de direção: 0=norte, 1=leste, 2=sul, 3=oeste
+    private static boolean pertenceAoEixoLesteOeste(int directionIndex) {
+        return directionIndex == 1 || directionIndex == 3;
+    }
+
+    @Override
+    public void salvarEstado(DataOutput out) throws IOException {
+        out.writeDouble(tempoVerdeAcumulado);
+    }
+
+    @Override
+    public void restaurarEstado(DataInput in) throws IOException {
+        this.tempoVerdeAcumulado = in.readDouble();
+    }
+
+    private void atualizarParametros(Config config) {
+        this.tempoVerdeMinimo = config.getMaxPressaoVerdeMinimo();
+        this.tempoVerdeMaximo = Math.max(this.tempoVerdeMinimo, config.getMaxPressaoVerdeMaximo());
+        this.tempoAmarelo = config.getMaxPressaoAmarelo();
+        this.tempoExtensao = Math.max(1.0, config.getMaxPressaoExtensao());
+    }
+}
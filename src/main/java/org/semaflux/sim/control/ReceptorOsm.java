@@ -0,0 +1,33 @@
+package org.semaflux.sim.control;
+
+/**
+ * Recebe os elementos lidos de um arquivo OSM ({@link LeitorOsmXml}, {@link LeitorOsmPbf}).
+ * <p>
+ * Os vetores e etiquetas recebidos são reaproveitados pelo leitor e só são válidos durante a chamada.
+ */
+interface ReceptorOsm {
+
+    /** Indica se os nós devem ser entregues; se não, o leitor os descarta sem decodificá-los. */
+    default boolean querNos() {
+        return false;
+    }
+
+    /** Indica se as vias devem ser entregues. */
+    default boolean querVias() {
+        return false;
+    }
+
+    /** Filtro rápido por ID, consultado antes de decodificar as etiquetas do nó. */
+    default boolean aceitaNo(long id) {
+        return true;
+    }
+
+    default void no(long id, double latitude, double longitude, EtiquetasOsm etiquetas) {
+    }
+
+    /**
+     * @param referencias IDs dos nós da via, em ordem; apenas as {@code numeroReferencias} primeiras posições são válidas
+     */
+    default void via(long id, long[] referencias, int numeroReferencias, EtiquetasOsm etiquetas) {
+    }
+}
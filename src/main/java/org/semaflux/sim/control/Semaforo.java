@@ -3,6 +3,10 @@ package org.semaflux.sim.control;
 import org.semaflux.sim.core.SinalTransito;
 import org.semaflux.sim.simulação.MudancaDeFase;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 public interface Semaforo {
     /**
      * Decide a próxima fase do semáforo e sua duração.
@@ -25,4 +29,18 @@ public interface Semaforo {
     void inicializar(SinalTransito light);
 
     String getEstadoSinalParaAproximacao(SinalTransito light, String approachDirection);
+
+    /**
+     * Grava o estado interno da estratégia (ex.: históricos de filas) em um instantâneo da simulação.
+     * Estratégias que apenas leem a configuração não têm estado e não precisam sobrescrever.
+     * @param out Destino dos dados; {@link #restaurarEstado} deve ler exatamente o que foi gravado.
+     */
+    default void salvarEstado(DataOutput out) throws IOException {
+    }
+
+    /**
+     * Restaura o estado gravado por {@link #salvarEstado} em uma estratégia do mesmo tipo.
+     */
+    default void restaurarEstado(DataInput in) throws IOException {
+    }
 }
\ No newline at end of file
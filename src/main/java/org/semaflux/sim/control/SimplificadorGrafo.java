@@ -0,0 +1,209 @@
+package org.semaflux.sim.control;
+
+import org.semaflux.sim.core.*;
+
+import java.util.Arrays;
+
+/**
+ * Simplificação do grafo: remove os nós intermediários de trechos sem cruzamentos.
+ * <p>
+ * Um nó é intermediário quando não tem semáforo e apenas continua uma via: em mão dupla, tem
+ * exatamente dois vizinhos e arestas de ida e volta para ambos; em mão única, recebe arestas de
+ * um único vizinho e sai para um único outro. Cada cadeia de nós intermediários entre dois nós
+ * mantidos vira uma só aresta, com o comprimento e o tempo de viagem somados, a menor
+ * capacidade do trecho e as coordenadas dos nós removidos guardadas como traçado
+ * ({@link Aresta#getGeometria()}) para o desenho. Arestas paralelas dentro de uma cadeia
+ * (a mesma ligação repetida no mapa) são reduzidas à mais rápida.
+ * <p>
+ * Menos nós e arestas tornam as buscas de rota e a atualização do simulador mais baratas, sem
+ * alterar os tempos de viagem entre cruzamentos.
+ */
+public class SimplificadorGrafo {
+
+    private SimplificadorGrafo() {
+    }
+
+    /**
+     * Cria o grafo simplificado. O grafo original não é alterado; os semáforos são reaproveitados.
+     * @return O novo grafo, ou o próprio grafo se não houver nós a remover
+     */
+    public static Grafo simplificar(Grafo original) {
+        int n = original.getNodes().size();
+        No[] nos = new No[n];
+        for (No no : original.getNodes()) {
+            nos[no.getIndice()] = no;
+        }
+
+        boolean[] intermediario = new boolean[n];
+        int removidos = 0;
+        for (int i = 0; i < n; i++) {
+            intermediario[i] = ehIntermediario(original, nos[i]);
+            if (intermediario[i]) removidos++;
+        }
+        if (removidos == 0) return original;
+
+        // Cadeias formadas apenas por nós intermediários (anéis isolados) mantêm um dos nós
+        boolean[] alcancado = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            if (intermediario[i]) continue;
+            for (Aresta aresta : nos[i].getEdges()) {
+                marcarCadeia(original, aresta, intermediario, alcancado);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (intermediario[i] && !alcancado[i]) {
+                intermediario[i] = false;
+                removidos--;
+                for (Aresta aresta : nos[i].getEdges()) {
+                    marcarCadeia(original, aresta, intermediario, alcancado);
+                }
+            }
+        }
+
+        Grafo simplificado = new Grafo(n - removidos);
+        for (int i = 0; i < n; i++) {
+            if (!intermediario[i]) {
+                No no = nos[i];
+                simplificado.addNode(new No(no.getId(), no.getLatitude(), no.getLongitude(), no.isTrafficLight));
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (intermediario[i]) continue;
+            No novaOrigem = simplificado.getNode(nos[i].getId());
+            for (Aresta aresta : nos[i].getEdges()) {
+                Aresta resultante = percorrerCadeia(original, aresta, intermediario);
+                if (resultante != null && simplificado.containsNode(resultante.getTarget())) {
+                    simplificado.addEdge(resultante);
+                    novaOrigem.addEdge(resultante);
+                }
+            }
+        }
+        for (SinalTransito semaforo : original.getTrafficLights()) {
+            simplificado.addTrafficLight(semaforo);
+        }
+        return simplificado;
+    }
+
+    private static boolean ehIntermediario(Grafo grafo, No no) {
+        if (no.isTrafficLight) return false;
+
+        String[] saidas = vizinhos(no.getEdges(), true);
+        String[] entradas = vizinhos(grafo.getIncomingEdges(no.getId()), false);
+        if (saidas == null || entradas == null) return false;
+
+        if (saidas.length == 2 && entradas.length == 2) { // Mão dupla
+            return Arrays.equals(saidas, entradas);
+        }
+        return saidas.length == 1 && entradas.length == 1 && !saidas[0].equals(entradas[0]); // Mão única
+    }
+
+    // Vizinhos distintos (no máximo dois, ordenados), ou null se houver mais de dois ou um laço
+    private static String[] vizinhos(ListaLigada<Aresta> arestas, boolean saida) {
+        String a = null, b = null;
+        for (Aresta aresta : arestas) {
+            if (aresta.getSource().equals(aresta.getTarget())) return null;
+            String vizinho = saida ? aresta.getTarget() : aresta.getSource();
+            if (a == null || a.equals(vizinho)) {
+                a = vizinho;
+            } else if (b == null || b.equals(vizinho)) {
+                b = vizinho;
+            } else {
+                return null;
+            }
+        }
+        if (a == null) return null;
+        if (b == null) return new String[] { a };
+        return (a.compareTo(b) < 0) ? new String[] { a, b } : new String[] { b, a };
+    }
+
+    // Próxima aresta de uma cadeia: a mais rápida que sai do nó intermediário sem voltar ao anterior
+    private static Aresta proximaAresta(No no, String anterior) {
+        Aresta melhor = null;
+        for (Aresta aresta : no.getEdges()) {
+            if (aresta.getTarget().equals(anterior)) continue;
+            if (melhor == null || aresta.getTravelTime() < melhor.getTravelTime()) melhor = aresta;
+        }
+        return melhor;
+    }
+
+    private static void marcarCadeia(Grafo grafo, Aresta primeira, boolean[] intermediario, boolean[] alcancado) {
+        Aresta aresta = primeira;
+        No atual = grafo.getNode(aresta.getTarget());
+        while (atual != null && intermediario[atual.getIndice()] && !alcancado[atual.getIndice()]) {
+            alcancado[atual.getIndice()] = true;
+            aresta = proximaAresta(atual, aresta.getSource());
+            if (aresta == null) return;
+            atual = grafo.getNode(aresta.getTarget());
+        }
+    }
+
+    /**
+     * Segue a cadeia a partir da aresta informada até o próximo nó mantido e retorna a aresta
+     * equivalente (a própria aresta, se ela já termina em um nó mantido).
+     */
+    private static Aresta percorrerCadeia(Grafo grafo, Aresta primeira, boolean[] intermediario) {
+        No atual = grafo.getNode(primeira.getTarget());
+        if (atual == null) return null;
+        if (!intermediario[atual.getIndice()]) {
+            return copiar(primeira);
+        }
+
+        double comprimento = primeira.getLength();
+        double tempoViagem = primeira.getTravelTime();
+        int capacidade = primeira.getCapacity();
+        boolean maoUnica = primeira.isOneway();
+        double[] tracado = new double[32];
+        int pontos = 0;
+        tracado = acrescentar(tracado, pontos, primeira.getGeometria());
+        pontos += comprimentoGeometria(primeira);
+
+        Aresta aresta = primeira;
+        int passos = 0;
+        while (intermediario[atual.getIndice()]) {
+            if (++passos > intermediario.length) return null; // Proteção contra ciclos
+            if (pontos + 2 > tracado.length) tracado = Arrays.copyOf(tracado, tracado.length * 2);
+            tracado[pontos++] = atual.getLatitude();
+            tracado[pontos++] = atual.getLongitude();
+
+            aresta = proximaAresta(atual, aresta.getSource());
+            if (aresta == null) return null;
+            comprimento += aresta.getLength();
+            tempoViagem += aresta.getTravelTime();
+            capacidade = Math.min(capacidade, aresta.getCapacity());
+            maoUnica &= aresta.isOneway();
+            tracado = acrescentar(tracado, pontos, aresta.getGeometria());
+            pontos += comprimentoGeometria(aresta);
+
+            atual = grafo.getNode(aresta.getTarget());
+            if (atual == null) return null;
+        }
+
+        // Velocidade equivalente que mantém o tempo de viagem somado
+        double velocidade = (tempoViagem > 0 && tempoViagem != Double.POSITIVE_INFINITY)
+                ? comprimento / tempoViagem * 3.6 : primeira.getMaxspeed();
+        Aresta resultante = new Aresta(primeira.getId(), primeira.getSource(), atual.getId(),
+                comprimento, tempoViagem, maoUnica, velocidade, capacidade);
+        resultante.setGeometria(Arrays.copyOf(tracado, pontos));
+        return resultante;
+    }
+
+    private static int comprimentoGeometria(Aresta aresta) {
+        return (aresta.getGeometria() != null) ? aresta.getGeometria().length : 0;
+    }
+
+    private static double[] acrescentar(double[] destino, int tamanho, double[] pontos) {
+        if (pontos == null) return destino;
+        if (tamanho + pontos.length > destino.length) {
+            destino = Arrays.copyOf(destino, Math.max(destino.length * 2, tamanho + pontos.length));
+        }
+        System.arraycopy(pontos, 0, destino, tamanho, pontos.length);
+        return destino;
+    }
+
+    private static Aresta copiar(Aresta aresta) {
+        Aresta copia = new Aresta(aresta.getId(), aresta.getSource(), aresta.getTarget(), aresta.getLength(),
+                aresta.getTravelTime(), aresta.isOneway(), aresta.getMaxspeed(), aresta.getCapacity());
+        copia.setGeometria(aresta.getGeometria());
+        return copia;
+    }
+}
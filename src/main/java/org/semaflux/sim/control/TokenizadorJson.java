@@ -0,0 +1,318 @@
+package org.semaflux.sim.control;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Leitor de JSON por tokens, sem montar o documento em memória.
+ * <p>
+ * Lê o texto em blocos de tamanho fixo e entrega um token por vez ({@link #peek()}), de modo que
+ * a memória usada independe do tamanho do arquivo. Uma string seguida de {@code ':'} é entregue
+ * como {@link Token#NOME}. Vírgulas são tratadas como separadores e não são validadas; o
+ * objetivo é ler arquivos de mapa bem formados com o menor custo possível.
+ */
+public class TokenizadorJson implements Closeable {
+
+    public enum Token {
+        INICIO_OBJETO, FIM_OBJETO, INICIO_ARRAY, FIM_ARRAY,
+        NOME, TEXTO, NUMERO, VERDADEIRO, FALSO, NULO, FIM_DOCUMENTO
+    }
+
+    private static final int TAMANHO_BUFFER = 1 << 16;
+
+    private final Reader reader;
+    private final char[] buffer = new char[TAMANHO_BUFFER];
+    private int pos = 0;
+    private int limite = 0;
+    private long linha = 1;
+
+    private Token proximo; // Token já lido e ainda não consumido
+    private final StringBuilder valor = new StringBuilder(); // Conteúdo do último NOME, TEXTO ou NUMERO
+
+    public TokenizadorJson(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Retorna o próximo token sem consumi-lo.
+     */
+    public Token peek() throws IOException {
+        if (proximo == null) {
+            proximo = lerToken();
+        }
+        return proximo;
+    }
+
+    /** Indica se o objeto ou array atual ainda tem elementos. */
+    public boolean temProximo() throws IOException {
+        Token t = peek();
+        return t != Token.FIM_OBJETO && t != Token.FIM_ARRAY && t != Token.FIM_DOCUMENTO;
+    }
+
+    public void inicioObjeto() throws IOException {
+        esperar(Token.INICIO_OBJETO);
+    }
+
+    public void fimObjeto() throws IOException {
+        esperar(Token.FIM_OBJETO);
+    }
+
+    public void inicioArray() throws IOException {
+        esperar(Token.INICIO_ARRAY);
+    }
+
+    public void fimArray() throws IOException {
+        esperar(Token.FIM_ARRAY);
+    }
+
+    public String proximoNome() throws IOException {
+        esperar(Token.NOME);
+        return valor.toString();
+    }
+
+    /**
+     * Lê um valor como texto. Números e booleanos são convertidos para sua forma textual.
+     * @return O texto, ou null se o valor for {@code null}
+     */
+    public String proximoTexto() throws IOException {
+        Token t = peek();
+        proximo = null;
+        switch (t) {
+            case TEXTO:
+            case NUMERO:
+                return valor.toString();
+            case VERDADEIRO:
+                return "true";
+            case FALSO:
+                return "false";
+            case NULO:
+                return null;
+            default:
+                throw erro("Esperado texto, encontrado " + t);
+        }
+    }
+
+    /** Lê um valor numérico (aceita também números escritos como texto). */
+    public double proximoDouble() throws IOException {
+        Token t = peek();
+        if (t != Token.NUMERO && t != Token.TEXTO) {
+            throw erro("Esperado número, encontrado " + t);
+        }
+        proximo = null;
+        try {
+            return Double.parseDouble(valor.toString().trim());
+        } catch (NumberFormatException e) {
+            throw erro("Número inválido: " + valor);
+        }
+    }
+
+    /** Lê um valor booleano (aceita também "true"/"false" escritos como texto). */
+    public boolean proximoBoolean() throws IOException {
+        Token t = peek();
+        proximo = null;
+        if (t == Token.VERDADEIRO) return true;
+        if (t == Token.FALSO) return false;
+        if (t == Token.TEXTO) {
+            if (textoIgual("true")) return true;
+            if (textoIgual("false")) return false;
+        }
+        throw erro("Esperado booleano, encontrado " + t);
+    }
+
+    /**
+     * Descarta o próximo valor, incluindo objetos e arrays aninhados.
+     */
+    public void pularValor() throws IOException {
+        int profundidade = 0;
+        do {
+            Token t = peek();
+            proximo = null;
+            switch (t) {
+                case INICIO_OBJETO:
+                case INICIO_ARRAY:
+                    profundidade++;
+                    break;
+                case FIM_OBJETO:
+                case FIM_ARRAY:
+                    profundidade--;
+                    break;
+                case FIM_DOCUMENTO:
+                    throw erro("Fim inesperado do documento");
+                default:
+                    break;
+            }
+        } while (profundidade > 0);
+    }
+
+    /** Linha atual do texto, para mensagens de erro. */
+    public long getLinha() {
+        return linha;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void esperar(Token esperado) throws IOException {
+        Token t = peek();
+        if (t != esperado) {
+            throw erro("Esperado " + esperado + ", encontrado " + t);
+        }
+        proximo = null;
+    }
+
+    private boolean textoIgual(String s) {
+        if (valor.length() != s.length()) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (valor.charAt(i) != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private IOException erro(String mensagem) {
+        return new IOException(mensagem + " (linha " + linha + ")");
+    }
+
+    // Leitura de baixo nível
+
+    private Token lerToken() throws IOException {
+        int c = proximoCaractereSignificativo();
+        switch (c) {
+            case -1:
+                return Token.FIM_DOCUMENTO;
+            case '{':
+                return Token.INICIO_OBJETO;
+            case '}':
+                return Token.FIM_OBJETO;
+            case '[':
+                return Token.INICIO_ARRAY;
+            case ']':
+                return Token.FIM_ARRAY;
+            case '"':
+                lerString();
+                int seguinte = proximoCaractereSignificativo();
+                if (seguinte == ':') {
+                    return Token.NOME;
+                }
+                if (seguinte != -1) pos--; // Devolve o caractere lido
+                return Token.TEXTO;
+            case 't':
+                lerLiteral("rue");
+                return Token.VERDADEIRO;
+            case 'f':
+                lerLiteral("alse");
+                return Token.FALSO;
+            case 'n':
+                lerLiteral("ull");
+                return Token.NULO;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    lerNumero((char) c);
+                    return Token.NUMERO;
+                }
+                throw erro("Caractere inesperado '" + (char) c + "'");
+        }
+    }
+
+    // Pula espaços e vírgulas; retorna -1 no fim do texto
+    private int proximoCaractereSignificativo() throws IOException {
+        while (true) {
+            if (pos >= limite && !preencher()) return -1;
+            char c = buffer[pos++];
+            if (c == '\n') {
+                linha++;
+            } else if (c != ' ' && c != '\t' && c != '\r' && c != ',') {
+                return c;
+            }
+        }
+    }
+
+    private boolean preencher() throws IOException {
+        int lidos = reader.read(buffer, 0, buffer.length);
+        if (lidos <= 0) {
+            pos = limite = 0;
+            return false;
+        }
+        pos = 0;
+        limite = lidos;
+        return true;
+    }
+
+    private int lerCaractere() throws IOException {
+        if (pos >= limite && !preencher()) return -1;
+        return buffer[pos++];
+    }
+
+    private void lerString() throws IOException {
+        valor.setLength(0);
+        while (true) {
+            // Copia em bloco os trechos sem aspas nem escapes
+            int inicio = pos;
+            while (pos < limite) {
+                char c = buffer[pos];
+                if (c == '"' || c == '\\') break;
+                if (c == '\n') linha++;
+                pos++;
+            }
+            valor.append(buffer, inicio, pos - inicio);
+            if (pos >= limite) {
+                if (!preencher()) throw erro("String não terminada");
+                continue;
+            }
+            char c = buffer[pos++];
+            if (c == '"') return;
+            lerEscape();
+        }
+    }
+
+    private void lerEscape() throws IOException {
+        int c = lerCaractere();
+        switch (c) {
+            case '"': valor.append('"'); break;
+            case '\\': valor.append('\\'); break;
+            case '/': valor.append('/'); break;
+            case 'b': valor.append('\b'); break;
+            case 'f': valor.append('\f'); break;
+            case 'n': valor.append('\n'); break;
+            case 'r': valor.append('\r'); break;
+            case 't': valor.append('\t'); break;
+            case 'u': {
+                int codigo = 0;
+                for (int i = 0; i < 4; i++) {
+                    int h = Character.digit(lerCaractere(), 16);
+                    if (h < 0) throw erro("Escape unicode inválido");
+                    codigo = (codigo << 4) | h;
+                }
+                valor.append((char) codigo);
+                break;
+            }
+            default:
+                throw erro("Escape inválido");
+        }
+    }
+
+    private void lerNumero(char primeiro) throws IOException {
+        valor.setLength(0);
+        valor.append(primeiro);
+        while (true) {
+            if (pos >= limite && !preencher()) return;
+            char c = buffer[pos];
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '-' || c == '+') {
+                valor.append(c);
+                pos++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void lerLiteral(String resto) throws IOException {
+        for (int i = 0; i < resto.length(); i++) {
+            if (lerCaractere() != resto.charAt(i)) {
+                throw erro("Literal inválido");
+            }
+        }
+    }
+}
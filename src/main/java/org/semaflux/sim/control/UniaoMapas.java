@@ -0,0 +1,119 @@
+package org.semaflux.sim.control;
+
+import org.semaflux.sim.core.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * União de vários mapas em um único grafo, para simular bairros vizinhos como uma só rede.
+ * <p>
+ * Mapas extraídos do OpenStreetMap para áreas vizinhas repetem os nós e as arestas das vias na
+ * fronteira entre elas, com os mesmos IDs. A união é uma junção por hash em duas etapas:
+ * <ul>
+ *   <li>nós: o índice de IDs do grafo resultante ({@link Grafo#getNode(String)}) identifica os
+ *       nós já vistos; a primeira ocorrência de cada ID é mantida;</li>
+ *   <li>arestas: uma tabela de chaves primitivas com o par (origem, destino) nos índices do grafo
+ *       resultante aponta para a cadeia de arestas já adicionadas com esse par; uma aresta de um
+ *       mapa é descartada se um mapa anterior já tiver uma aresta com o mesmo par e o mesmo ID.</li>
+ * </ul>
+ * Arestas paralelas dentro de um mesmo mapa são preservadas, de modo que a união de um único
+ * mapa é idêntica ao mapa original. Semáforos repetidos no mesmo nó também são descartados.
+ * Os objetos de semáforo e o traçado das arestas são reaproveitados dos mapas de origem.
+ */
+public class UniaoMapas {
+
+    private UniaoMapas() {
+    }
+
+    /**
+     * Une os mapas na ordem informada.
+     * @return O grafo resultante (o próprio mapa, se houver apenas um)
+     */
+    public static Grafo unir(List<Grafo> mapas) {
+        if (mapas.size() == 1) return mapas.get(0);
+
+        int nosEsperados = 0, arestasEsperadas = 0;
+        for (Grafo mapa : mapas) {
+            nosEsperados += mapa.getNodes().size();
+            arestasEsperadas += mapa.getEdges().size();
+        }
+        Grafo uniao = new Grafo(nosEsperados);
+
+        MapaLongInt primeiraDoPar = new MapaLongInt(arestasEsperadas);
+        int[] proximaDoPar = new int[Math.max(16, arestasEsperadas)]; // Cadeia de arestas com o mesmo par
+        int[] mapaDaAresta = new int[proximaDoPar.length];
+        Aresta[] arestas = new Aresta[proximaDoPar.length];
+        int numeroArestas = 0;
+        boolean[] possuiSemaforo = new boolean[nosEsperados]; // Indexado pelos nós do grafo unido
+
+        for (int m = 0; m < mapas.size(); m++) {
+            Grafo mapa = mapas.get(m);
+
+            // Nós: cópia apenas dos IDs ainda não vistos; o índice de cada nó do mapa no grafo unido
+            int[] indiceUnido = new int[mapa.getNodes().size()];
+            for (No no : mapa.getNodes()) {
+                No existente = uniao.getNode(no.getId());
+                if (existente == null) {
+                    existente = new No(no.getId(), no.getLatitude(), no.getLongitude(), no.isTrafficLight);
+                    uniao.addNode(existente);
+                } else if (no.isTrafficLight) {
+                    existente.setIsTrafficLight(true);
+                }
+                indiceUnido[no.getIndice()] = existente.getIndice();
+            }
+
+            // Arestas, na ordem do mapa: descarta as que um mapa anterior já trouxe (mesmo par de nós e mesmo ID)
+            for (Aresta aresta : mapa.getEdges()) {
+                if (aresta == null || aresta.getIndiceOrigem() < 0 || aresta.getIndiceDestino() < 0) continue;
+                No origem = uniao.getNode(indiceUnido[aresta.getIndiceOrigem()]);
+                int destino = indiceUnido[aresta.getIndiceDestino()];
+                long par = ((long) origem.getIndice() << 32) | (destino & 0xffffffffL);
+
+                int primeira = primeiraDoPar.get(par);
+                if (repetida(aresta.getId(), primeira, m, proximaDoPar, mapaDaAresta, arestas)) continue;
+
+                if (numeroArestas == arestas.length) {
+                    int novoTamanho = arestas.length * 2;
+                    arestas = Arrays.copyOf(arestas, novoTamanho);
+                    proximaDoPar = Arrays.copyOf(proximaDoPar, novoTamanho);
+                    mapaDaAresta = Arrays.copyOf(mapaDaAresta, novoTamanho);
+                }
+                Aresta copia = copiar(aresta);
+                arestas[numeroArestas] = copia;
+                mapaDaAresta[numeroArestas] = m;
+                proximaDoPar[numeroArestas] = primeira; // AUSENTE (-1) encerra a cadeia
+                primeiraDoPar.put(par, numeroArestas);
+                numeroArestas++;
+
+                uniao.addEdge(copia);
+                origem.addEdge(copia);
+            }
+
+            for (SinalTransito semaforo : mapa.getTrafficLights()) {
+                if (semaforo == null) continue;
+                No no = uniao.getNode(semaforo.getNodeId());
+                if (no != null && possuiSemaforo[no.getIndice()]) continue;
+                if (no != null) possuiSemaforo[no.getIndice()] = true;
+                uniao.addTrafficLight(semaforo);
+            }
+        }
+        return uniao;
+    }
+
+    // A aresta já veio de um mapa anterior se a cadeia do seu par tiver o mesmo ID vindo de outro mapa
+    private static boolean repetida(String id, int primeira, int mapaAtual, int[] proximaDoPar,
+                                    int[] mapaDaAresta, Aresta[] arestas) {
+        for (int k = primeira; k != MapaLongInt.AUSENTE; k = proximaDoPar[k]) {
+            if (mapaDaAresta[k] != mapaAtual && arestas[k].getId().equals(id)) return true;
+        }
+        return false;
+    }
+
+    private static Aresta copiar(Aresta aresta) {
+        Aresta copia = new Aresta(aresta.getId(), aresta.getSource(), aresta.getTarget(), aresta.getLength(),
+                aresta.getTravelTime(), aresta.isOneway(), aresta.getMaxspeed(), aresta.getCapacity());
+        copia.setGeometria(aresta.getGeometria());
+        return copia;
+    }
+}
@@ -2,131 +2,245 @@ package org.semaflux.sim.control;
 
 import org.semaflux.sim.core.*;
 import org.semaflux.sim.simulação.Config;
-import org.json.JSONArray;
-import org.json.JSONObject;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
+/**
+ * Carrega o grafo a partir de um mapa JSON ({@code nodes}, {@code edges} e {@code traffic_lights}).
+ * <p>
+ * O arquivo é lido por tokens ({@link TokenizadorJson}) e cada nó, aresta e semáforo é criado
+ * assim que seu objeto termina de ser lido, sem montar o documento inteiro em memória. Se as
+ * arestas ou semáforos aparecerem antes dos nós no arquivo, as ligações que dependem dos nós são
+ * resolvidas ao fim da leitura.
+ */
 public class leitorJson {
 
-    public static Grafo carregarGrafoDoFluxo(InputStream inputStream, Config config) throws IOException, Exception {
+    public static Grafo carregarGrafoDoFluxo(InputStream inputStream, Config config) throws IOException {
         if (inputStream == null) {
             throw new IOException("InputStream é nulo, não foi possível localizar o arquivo JSON.");
         }
 
+        try (Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+            return carregar(reader, config);
+        }
+    }
+
+    public static Grafo carregarGrafo(String nomeArquivo, Config config) throws IOException, Exception {
+        try (Reader reader = new InputStreamReader(new FileInputStream(nomeArquivo), StandardCharsets.UTF_8)) {
+            return carregar(reader, config);
+        }
+    }
+
+    private static Grafo carregar(Reader reader, Config config) throws IOException {
         Grafo grafo = new Grafo();
-        StringBuilder conteudoJson = new StringBuilder();
+        ListaLigada<Aresta> arestasSemOrigem = new ListaLigada<>(); // Arestas lidas antes do nó de origem
+        ListaLigada<String> semaforosSemNo = new ListaLigada<>(); // Semáforos lidos antes do nó
 
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-            String linha;
-            while ((linha = reader.readLine()) != null) {
-                conteudoJson.append(linha);
+        TokenizadorJson tokens = new TokenizadorJson(reader);
+        tokens.inicioObjeto();
+        while (tokens.temProximo()) {
+            String secao = tokens.proximoNome();
+            switch (secao) {
+                case "nodes":
+                    processarNos(tokens, grafo);
+                    break;
+                case "edges":
+                    processarArestas(tokens, grafo, arestasSemOrigem);
+                    break;
+                case "traffic_lights":
+                    processarSemaforos(tokens, grafo, config, semaforosSemNo);
+                    break;
+                default:
+                    tokens.pularValor();
+                    break;
             }
         }
+        tokens.fimObjeto();
 
-        JSONObject json = new JSONObject(conteudoJson.toString());
-        processarJson(json, grafo, config);
+        for (Aresta aresta : arestasSemOrigem) {
+            No noOrigem = grafo.getNode(aresta.getSource());
+            if (noOrigem != null) {
+                noOrigem.addEdge(aresta);
+            }
+        }
+        for (String idNoSemaforo : semaforosSemNo) {
+            No noSemaforo = grafo.getNode(idNoSemaforo);
+            if (noSemaforo != null) {
+                noSemaforo.isTrafficLight = true;
+            }
+        }
+        grafo.indexarArestas(); // Arestas lidas antes dos seus nós
         return grafo;
     }
 
-    public static Grafo carregarGrafo(String nomeArquivo, Config config) throws IOException, Exception {
-        Grafo grafo = new Grafo();
-        StringBuilder conteudoJson = new StringBuilder();
+    private static void processarNos(TokenizadorJson tokens, Grafo grafo) throws IOException {
+        tokens.inicioArray();
+        while (tokens.temProximo()) {
+            grafo.addNode(lerNo(tokens));
+        }
+        tokens.fimArray();
+    }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(nomeArquivo))) {
-            String linha;
-            while ((linha = reader.readLine()) != null) {
-                conteudoJson.append(linha);
+    private static void processarArestas(TokenizadorJson tokens, Grafo grafo, ListaLigada<Aresta> arestasSemOrigem) throws IOException {
+        ListaLigada<Aresta> lidas = new ListaLigada<>();
+        tokens.inicioArray();
+        while (tokens.temProximo()) {
+            lerAresta(tokens, lidas);
+            while (!lidas.isEmpty()) {
+                adicionarAresta(grafo, lidas.removeFirst(), arestasSemOrigem);
             }
         }
+        tokens.fimArray();
+    }
 
-        JSONObject json = new JSONObject(conteudoJson.toString());
-        processarJson(json, grafo, config);
-        return grafo;
+    private static void adicionarAresta(Grafo grafo, Aresta aresta, ListaLigada<Aresta> arestasSemOrigem) {
+        grafo.addEdge(aresta);
+        No noOrigem = grafo.getNode(aresta.getSource());
+        if (noOrigem != null) {
+            noOrigem.addEdge(aresta);
+        } else {
+            arestasSemOrigem.add(aresta);
+        }
     }
 
-    private static void processarJson(JSONObject json, Grafo grafo, Config config) {
-        // Processar nós
-        processarNos(json, grafo);
-        
-        // Processar arestas
-        processarArestas(json, grafo);
-        
-        // Processar semáforos
-        processarSemaforos(json, grafo, config);
+    private static void processarSemaforos(TokenizadorJson tokens, Grafo grafo, Config config, ListaLigada<String> semaforosSemNo) throws IOException {
+        tokens.inicioArray();
+        while (tokens.temProximo()) {
+            SinalTransito semaforo = lerSemaforo(tokens, config);
+            grafo.addTrafficLight(semaforo);
+
+            No noSemaforo = grafo.getNode(semaforo.getNodeId());
+            if (noSemaforo != null) {
+                noSemaforo.isTrafficLight = true;
+            } else {
+                semaforosSemNo.add(semaforo.getNodeId());
+            }
+        }
+        tokens.fimArray();
     }
-    
-    private static void processarNos(JSONObject json, Grafo grafo) {
-        JSONArray arrayNos = json.getJSONArray("nodes");
-        for (int i = 0; i < arrayNos.length(); i++) {
-            JSONObject jsonNo = arrayNos.getJSONObject(i);
-            No novoNo = new No(
-                    jsonNo.getString("id"),
-                    jsonNo.getDouble("latitude"),
-                    jsonNo.getDouble("longitude"),
-                    false
-            );
-            grafo.addNode(novoNo);
+
+    // Leitura de um objeto de cada seção (compartilhada com o carregamento paralelo)
+
+    static No lerNo(TokenizadorJson tokens) throws IOException {
+        String id = null;
+        double latitude = Double.NaN;
+        double longitude = Double.NaN;
+
+        tokens.inicioObjeto();
+        while (tokens.temProximo()) {
+            switch (tokens.proximoNome()) {
+                case "id": id = tokens.proximoTexto(); break;
+                case "latitude": latitude = tokens.proximoDouble(); break;
+                case "longitude": longitude = tokens.proximoDouble(); break;
+                default: tokens.pularValor(); break;
+            }
+        }
+        tokens.fimObjeto();
+
+        if (id == null || Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            throw new IOException("Nó incompleto no mapa (linha " + tokens.getLinha() + ")");
         }
+        return new No(id, latitude, longitude, false);
     }
-    
-    private static void processarArestas(JSONObject json, Grafo grafo) {
-        JSONArray arrayArestas = json.getJSONArray("edges");
-        for (int i = 0; i < arrayArestas.length(); i++) {
-            JSONObject jsonAresta = arrayArestas.getJSONObject(i);
-            String idAresta = jsonAresta.getString("id");
-            String idNoOrigem = jsonAresta.getString("source");
-            String idNoDestino = jsonAresta.getString("target");
-            boolean unicaSentido = jsonAresta.getBoolean("oneway");
-            double velocidadeMax = jsonAresta.getDouble("maxspeed");
-            double comprimento = jsonAresta.getDouble("length");
-            double tempoViagem = (velocidadeMax > 0) ? (comprimento / (velocidadeMax * 1000.0 / 3600.0)) : Double.POSITIVE_INFINITY;
-            int capacidade = (int) (velocidadeMax / 10);
-
-            Aresta arestaForward = new Aresta(idAresta, idNoOrigem, idNoDestino, comprimento, tempoViagem, unicaSentido, velocidadeMax, capacidade);
-            grafo.addEdge(arestaForward);
-            No noOrigem = grafo.getNode(idNoOrigem);
-            if (noOrigem != null) {
-                noOrigem.addEdge(arestaForward);
-            } 
-
-            if (!unicaSentido) {
-                String idArestaReversa = idAresta + "_rev";
-                Aresta arestaReversa = new Aresta(idArestaReversa, idNoDestino, idNoOrigem, comprimento, tempoViagem, false, velocidadeMax, capacidade);
-                grafo.addEdge(arestaReversa);
-                No noDestino = grafo.getNode(idNoDestino);
-                if (noDestino != null) {
-                    noDestino.addEdge(arestaReversa);
-                } 
+
+    /**
+     * Lê uma aresta e adiciona a {@code destino} a aresta de ida e, se for mão dupla, a de volta.
+     */
+    static void lerAresta(TokenizadorJson tokens, ListaLigada<Aresta> destino) throws IOException {
+        String idAresta = null;
+        String idNoOrigem = null;
+        String idNoDestino = null;
+        Boolean unicaSentido = null;
+        double velocidadeMax = Double.NaN;
+        double comprimento = Double.NaN;
+        double[] geometria = null;
+
+        tokens.inicioObjeto();
+        while (tokens.temProximo()) {
+            switch (tokens.proximoNome()) {
+                case "id": idAresta = tokens.proximoTexto(); break;
+                case "source": idNoOrigem = tokens.proximoTexto(); break;
+                case "target": idNoDestino = tokens.proximoTexto(); break;
+                case "oneway": unicaSentido = tokens.proximoBoolean(); break;
+                case "maxspeed": velocidadeMax = tokens.proximoDouble(); break;
+                case "length": comprimento = tokens.proximoDouble(); break;
+                case "geometry": geometria = lerGeometria(tokens); break;
+                default: tokens.pularValor(); break;
             }
         }
+        tokens.fimObjeto();
+
+        if (idAresta == null || idNoOrigem == null || idNoDestino == null || unicaSentido == null
+                || Double.isNaN(velocidadeMax) || Double.isNaN(comprimento)) {
+            throw new IOException("Aresta incompleta no mapa (linha " + tokens.getLinha() + ")");
+        }
+
+        double tempoViagem = (velocidadeMax > 0) ? (comprimento / (velocidadeMax * 1000.0 / 3600.0)) : Double.POSITIVE_INFINITY;
+        int capacidade = (int) (velocidadeMax / 10);
+
+        Aresta ida = new Aresta(idAresta, idNoOrigem, idNoDestino, comprimento, tempoViagem, unicaSentido, velocidadeMax, capacidade);
+        ida.setGeometria(geometria);
+        destino.add(ida);
+
+        if (!unicaSentido) {
+            String idArestaReversa = idAresta + "_rev";
+            Aresta volta = new Aresta(idArestaReversa, idNoDestino, idNoOrigem, comprimento, tempoViagem, false, velocidadeMax, capacidade);
+            volta.setGeometria(Aresta.inverterGeometria(geometria));
+            destino.add(volta);
+        }
+    }
+
+    // Campo opcional "geometry": pontos intermediários como [lat0, lon0, lat1, lon1, ...]
+    private static double[] lerGeometria(TokenizadorJson tokens) throws IOException {
+        if (tokens.peek() == TokenizadorJson.Token.NULO) {
+            tokens.pularValor();
+            return null;
+        }
+        double[] pontos = new double[16];
+        int n = 0;
+        tokens.inicioArray();
+        while (tokens.temProximo()) {
+            if (n == pontos.length) pontos = Arrays.copyOf(pontos, n * 2);
+            pontos[n++] = tokens.proximoDouble();
+        }
+        tokens.fimArray();
+        if (n % 2 != 0) {
+            throw new IOException("Geometria de aresta com número ímpar de coordenadas (linha " + tokens.getLinha() + ")");
+        }
+        return (n > 0) ? Arrays.copyOf(pontos, n) : null;
     }
-    
-    private static void processarSemaforos(JSONObject json, Grafo grafo, Config config) {
-        if (json.has("traffic_lights")) {
-            JSONArray arraySemaforos = json.getJSONArray("traffic_lights");
-            for (int i = 0; i < arraySemaforos.length(); i++) {
-                JSONObject jsonSemaforo = arraySemaforos.getJSONObject(i);
-                String idNoSemaforo = jsonSemaforo.getString("id");
-                String direcao = "unknown";
-                if (jsonSemaforo.has("attributes")) {
-                    JSONObject atributos = jsonSemaforo.getJSONObject("attributes");
-                    if (atributos.has("traffic_signals:direction")) {
-                        direcao = atributos.getString("traffic_signals:direction");
-                    }
-                }
 
-                grafo.addTrafficLight(new SinalTransito(
-                        idNoSemaforo,
-                        direcao,
-                        config
-                ));
+    static SinalTransito lerSemaforo(TokenizadorJson tokens, Config config) throws IOException {
+        String idNoSemaforo = null;
+        String direcao = "unknown";
 
-                No noSemaforo = grafo.getNode(idNoSemaforo);
-                if (noSemaforo != null) {
-                    noSemaforo.isTrafficLight = true;
-                } 
+        tokens.inicioObjeto();
+        while (tokens.temProximo()) {
+            String campo = tokens.proximoNome();
+            if (campo.equals("id")) {
+                idNoSemaforo = tokens.proximoTexto();
+            } else if (campo.equals("attributes") && tokens.peek() == TokenizadorJson.Token.INICIO_OBJETO) {
+                tokens.inicioObjeto();
+                while (tokens.temProximo()) {
+                    if (tokens.proximoNome().equals("traffic_signals:direction")) {
+                        String valor = tokens.proximoTexto();
+                        if (valor != null) direcao = valor;
+                    } else {
+                        tokens.pularValor();
+                    }
+                }
+                tokens.fimObjeto();
+            } else {
+                tokens.pularValor();
             }
         }
+        tokens.fimObjeto();
+
+        if (idNoSemaforo == null) {
+            throw new IOException("Semáforo sem id no mapa (linha " + tokens.getLinha() + ")");
+        }
+        return new SinalTransito(idNoSemaforo, direcao, config);
     }
-}
\ No newline at end of file
+}
@@ -2,26 +2,37 @@ package org.semaflux.sim.core;
 
 public class Aresta {
     private String id; // Identificador único (ex.: source-target-key)
+    private int indice; // Índice denso da aresta no grafo (atribuído por Grafo.addEdge)
     private String source; // ID do nó de origem
     private String target; // ID do nó de destino
+    private int indiceOrigem; // Índice denso do nó de origem (-1 enquanto o nó não estiver no grafo)
+    private int indiceDestino; // Índice denso do nó de destino (-1 enquanto o nó não estiver no grafo)
     private double length; // Comprimento em metros
     private double travelTime; // Tempo de travessia em segundos
+    private volatile double tempoViagemEfetivo; // Tempo de travessia considerando a ocupação atual (lido também pela thread de rerotas)
     private boolean oneway; // Mão única (true) ou dupla (false)
     private double maxspeed; // Velocidade máxima em km/h
     private int capacity; // Capacidade de fluxo (veículos)
+    private int ocupacao; // Veículos atualmente na aresta (em movimento ou aguardando no nó de destino)
+    private double[] geometria; // Pontos intermediários do traçado (lat, lon intercalados), ou null se a aresta for reta
     public Aresta next; // Para lista encadeada
 
     // Construtor
     public Aresta(String id, String source, String target, double length, double travelTime,
                 boolean oneway, double maxspeed, int capacity) {
         this.id = id;
+        this.indice = -1;
         this.source = source;
         this.target = target;
+        this.indiceOrigem = -1;
+        this.indiceDestino = -1;
         this.length = length;
         this.travelTime = travelTime;
+        this.tempoViagemEfetivo = travelTime;
         this.oneway = oneway;
         this.maxspeed = maxspeed;
         this.capacity = capacity;
+        this.ocupacao = 0;
         this.next = null;
     }
 
@@ -30,6 +41,14 @@ public class Aresta {
         return id;
     }
 
+    public int getIndice() {
+        return indice;
+    }
+
+    public void setIndice(int indice) {
+        this.indice = indice;
+    }
+
     public String getSource() {
         return source;
     }
@@ -46,6 +65,22 @@ public class Aresta {
         this.target = target;
     }
 
+    public int getIndiceOrigem() {
+        return indiceOrigem;
+    }
+
+    public int getIndiceDestino() {
+        return indiceDestino;
+    }
+
+    /**
+     * Define os índices densos dos nós de origem e destino (atribuídos por Grafo ao indexar a aresta).
+     */
+    public void setIndicesNos(int indiceOrigem, int indiceDestino) {
+        this.indiceOrigem = indiceOrigem;
+        this.indiceDestino = indiceDestino;
+    }
+
     public double getLength() {
         return length;
     }
@@ -62,6 +97,18 @@ public class Aresta {
         this.travelTime = travelTime;
     }
 
+    /**
+     * Tempo de travessia atual da aresta, atualizado a partir da ocupação pelo simulador.
+     * Igual ao tempo de fluxo livre enquanto a aresta estiver vazia.
+     */
+    public double getTempoViagemEfetivo() {
+        return tempoViagemEfetivo;
+    }
+
+    public void setTempoViagemEfetivo(double tempoViagemEfetivo) {
+        this.tempoViagemEfetivo = tempoViagemEfetivo;
+    }
+
     public boolean isOneway() {
         return oneway;
     }
@@ -86,6 +133,61 @@ public class Aresta {
         this.capacity = capacity;
     }
 
+    /**
+     * Pontos intermediários do traçado da aresta, entre a origem e o destino (exclusive), no
+     * formato {@code [lat0, lon0, lat1, lon1, ...]}. Usado apenas para desenho.
+     * @return Os pontos, ou null se a aresta for um segmento reto
+     */
+    public double[] getGeometria() {
+        return geometria;
+    }
+
+    public void setGeometria(double[] geometria) {
+        this.geometria = (geometria != null && geometria.length >= 2) ? geometria : null;
+    }
+
+    /**
+     * Traçado no sentido contrário, para a aresta de volta de uma via de mão dupla.
+     */
+    public static double[] inverterGeometria(double[] geometria) {
+        if (geometria == null) return null;
+        double[] invertida = new double[geometria.length];
+        for (int i = 0, j = geometria.length - 2; j >= 0; i += 2, j -= 2) {
+            invertida[i] = geometria[j];
+            invertida[i + 1] = geometria[j + 1];
+        }
+        return invertida;
+    }
+
+    public int getOcupacao() {
+        return ocupacao;
+    }
+
+    /**
+     * Define a ocupação diretamente, ao restaurar um instantâneo da simulação.
+     */
+    public void setOcupacao(int ocupacao) {
+        this.ocupacao = Math.max(0, ocupacao);
+    }
+
+    /**
+     * Registra a entrada de um veículo na aresta.
+     * Chamado pelo simulador quando o veículo deixa o nó de origem da aresta.
+     */
+    public void registrarEntrada() {
+        this.ocupacao++;
+    }
+
+    /**
+     * Registra a saída de um veículo da aresta.
+     * Chamado pelo simulador quando o veículo segue para a próxima aresta ou chega ao destino.
+     */
+    public void registrarSaida() {
+        if (this.ocupacao > 0) {
+            this.ocupacao--;
+        }
+    }
+
     // Métodos auxiliares
     public double getAverageSpeed() {
         // Calcula a velocidade média em m/s
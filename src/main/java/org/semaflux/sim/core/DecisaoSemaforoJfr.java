@@ -0,0 +1,52 @@
+package org.semaflux.sim.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento do JDK Flight Recorder para cada decisão de fase de um semáforo. A duração do evento é o
+ * tempo gasto pela estratégia de controle para decidir.
+ */
+@Name("org.semaflux.DecisaoSemaforo")
+@Label("Decisão de Semáforo")
+@Category({"Semaflux", "Semáforos"})
+@Description("Escolha da próxima fase por uma estratégia de controle")
+@StackTrace(false)
+final class DecisaoSemaforoJfr extends Event {
+
+    @Label("Semáforo")
+    public String semaforo;
+
+    @Label("Estratégia")
+    public String estrategia;
+
+    @Label("Fase Anterior")
+    public String faseAnterior;
+
+    @Label("Nova Fase")
+    @Description("Fase escolhida, ou vazio se a estratégia manteve a fase atual")
+    public String novaFase;
+
+    @Label("Duração da Fase")
+    @Description("Duração, em segundos simulados, da fase escolhida")
+    public double duracaoFase;
+
+    @Label("Fila Norte")
+    public int filaNorte;
+
+    @Label("Fila Leste")
+    public int filaLeste;
+
+    @Label("Fila Sul")
+    public int filaSul;
+
+    @Label("Fila Oeste")
+    public int filaOeste;
+
+    DecisaoSemaforoJfr() {
+    }
+}
@@ -51,4 +51,60 @@ public class Fila {
         size--; 
         return vehicleToDequeue;
     }
-}
\ No newline at end of file
+
+    /**
+     * Remove um veículo específico da fila, preservando a ordem dos demais.
+     * @param vehicle O veículo a ser removido
+     * @return true se o veículo estava na fila
+     */
+    public boolean remove(Veiculo vehicle) {
+        if (vehicle == null || isEmpty()) {
+            return false;
+        }
+        if (front == vehicle) {
+            dequeue();
+            return true;
+        }
+        Veiculo previous = front;
+        while (previous.next != null) {
+            if (previous.next == vehicle) {
+                previous.next = vehicle.next;
+                if (back == vehicle) {
+                    back = previous;
+                }
+                vehicle.next = null;
+                size--;
+                return true;
+            }
+            previous = previous.next;
+        }
+        return false;
+    }
+
+    /**
+     * @return Os veículos da fila, da frente para o fim
+     */
+    public Veiculo[] toArray() {
+        Veiculo[] veiculos = new Veiculo[size];
+        int i = 0;
+        for (Veiculo v = front; v != null && i < veiculos.length; v = v.next) {
+            veiculos[i++] = v;
+        }
+        return veiculos;
+    }
+
+    /**
+     * Esvazia a fila, desfazendo o encadeamento dos veículos.
+     */
+    public void clear() {
+        Veiculo vehicle = front;
+        while (vehicle != null) {
+            Veiculo proximo = vehicle.next;
+            vehicle.next = null;
+            vehicle = proximo;
+        }
+        front = null;
+        back = null;
+        size = 0;
+    }
+}
@@ -1,5 +1,6 @@
 package org.semaflux.sim.core;
 
+import java.util.Arrays;
 import java.util.HashMap; 
 import java.util.Map;    
 
@@ -8,12 +9,27 @@ public class Grafo {
     private ListaLigada<Aresta> edgesList; 
     private ListaLigada<SinalTransito> trafficLightsList; 
     private Map<String, No> nodeMap;
+    private No[] nosPorIndice; // Nós indexados por No.getIndice()
+    private int[] componentes; // Componente fortemente conexa de cada nó (null se ainda não calculada)
+    private IndiceEspacial indiceEspacial; // Construído na primeira consulta
+    private Map<String, ListaLigada<Aresta>> incomingEdgesMap; // Arestas que chegam em cada nó
 
     public Grafo() {
+        this(16);
+    }
+
+    /**
+     * Cria um grafo com os índices já dimensionados para o número de nós esperado,
+     * evitando redimensionamentos durante o carregamento de mapas grandes.
+     */
+    public Grafo(int nosEsperados) {
+        int capacidade = Math.max(16, (int) (nosEsperados / 0.75f) + 1);
         this.nodesList = new ListaLigada<>();
         this.edgesList = new ListaLigada<>();
         this.trafficLightsList = new ListaLigada<>();
-        this.nodeMap = new HashMap<>();
+        this.nodeMap = new HashMap<>(capacidade);
+        this.nosPorIndice = new No[Math.max(16, nosEsperados)];
+        this.incomingEdgesMap = new HashMap<>(capacidade);
     }
 
     public No getNode(String nodeId) {
@@ -23,11 +39,28 @@ public class Grafo {
         return this.nodeMap.get(nodeId); 
     }
 
+    /**
+     * Retorna o nó pelo seu índice denso, sem consulta ao mapa de IDs.
+     * @param indice Índice do nó ({@link No#getIndice()})
+     * @return O nó, ou null se o índice for inválido
+     */
+    public No getNode(int indice) {
+        return (indice >= 0 && indice < this.nodesList.size()) ? this.nosPorIndice[indice] : null;
+    }
+
     public void addNode(No node) {
         if (node != null && node.getId() != null && !node.getId().isEmpty()) {
             if (!this.nodeMap.containsKey(node.getId())) {
+                int indice = this.nodesList.size();
+                if (indice == this.nosPorIndice.length) {
+                    this.nosPorIndice = Arrays.copyOf(this.nosPorIndice, indice * 2);
+                }
+                node.setIndice(indice);
+                this.nosPorIndice[indice] = node;
                 this.nodesList.add(node);
                 this.nodeMap.put(node.getId(), node);
+                this.componentes = null;
+                this.indiceEspacial = null;
             }
         }
     }
@@ -46,10 +79,50 @@ public class Grafo {
     // Métodos relacionados a arestas
     public void addEdge(Aresta edge) {
         if (edge != null) {
+            edge.setIndice(this.edgesList.size());
+            indexarNos(edge);
             this.edgesList.add(edge);
+            this.incomingEdgesMap.computeIfAbsent(edge.getDestination(), k -> new ListaLigada<>()).add(edge);
+            this.componentes = null;
+            this.indiceEspacial = null;
         } 
     }
 
+    /**
+     * Resolve os índices dos nós das arestas adicionadas antes dos seus nós de origem ou destino.
+     * Deve ser chamado pelos carregadores que aceitam arestas antes dos nós, ao fim da leitura.
+     */
+    public void indexarArestas() {
+        for (Aresta edge : this.edgesList) {
+            if (edge != null && (edge.getIndiceOrigem() < 0 || edge.getIndiceDestino() < 0)) {
+                indexarNos(edge);
+            }
+        }
+    }
+
+    /*
+     * Associa a aresta aos índices dos seus nós e passa a usar as instâncias de ID dos próprios
+     * nós, de modo que cada ID exista uma única vez na memória, independentemente do número de
+     * arestas que o referenciam.
+     */
+    private void indexarNos(Aresta edge) {
+        No origem = getNode(edge.getSource());
+        No destino = getNode(edge.getTarget());
+        if (origem != null) edge.setSource(origem.getId());
+        if (destino != null) edge.setTarget(destino.getId());
+        edge.setIndicesNos(origem != null ? origem.getIndice() : -1, destino != null ? destino.getIndice() : -1);
+    }
+
+    /**
+     * Retorna as arestas que terminam no nó informado.
+     * @param nodeId ID do nó de destino
+     * @return Lista de arestas de entrada (vazia se não houver)
+     */
+    public ListaLigada<Aresta> getIncomingEdges(String nodeId) {
+        ListaLigada<Aresta> incoming = (nodeId != null) ? this.incomingEdgesMap.get(nodeId) : null;
+        return (incoming != null) ? incoming : new ListaLigada<>();
+    }
+
     public ListaLigada<Aresta> getEdges() {
         return this.edgesList;
     }
@@ -68,6 +141,30 @@ public class Grafo {
         return false;
     }
 
+    /**
+     * Retorna a componente fortemente conexa de cada nó, indexada por {@link No#getIndice()},
+     * ou null se ainda não foi calculada (ver ComponentesFortes). Adicionar nós ou arestas
+     * descarta o valor guardado.
+     */
+    public int[] getComponentes() {
+        return this.componentes;
+    }
+
+    public void setComponentes(int[] componentes) {
+        this.componentes = componentes;
+    }
+
+    /**
+     * Retorna o índice espacial dos nós e das arestas, construindo-o na primeira chamada.
+     * Adicionar nós ou arestas descarta o índice, que é refeito na consulta seguinte.
+     */
+    public synchronized IndiceEspacial getIndiceEspacial() {
+        if (this.indiceEspacial == null) {
+            this.indiceEspacial = new IndiceEspacial(this);
+        }
+        return this.indiceEspacial;
+    }
+
     // Métodos relacionados a sinais de trânsito
     public void addTrafficLight(SinalTransito trafficLight) {
         if (trafficLight != null) {
@@ -78,4 +175,19 @@ public class Grafo {
     public ListaLigada<SinalTransito> getTrafficLights() {
         return this.trafficLightsList;
     }
+
+    /**
+     * Monta um vetor com o semáforo de cada nó, indexado por {@link No#getIndice()}
+     * (null nos nós sem semáforo), para consultas diretas durante a simulação.
+     */
+    public SinalTransito[] semaforosPorNo() {
+        SinalTransito[] porNo = new SinalTransito[this.nodesList.size()];
+        for (SinalTransito trafficLight : this.trafficLightsList) {
+            No node = (trafficLight != null) ? getNode(trafficLight.getNodeId()) : null;
+            if (node != null && porNo[node.getIndice()] == null) {
+                porNo[node.getIndice()] = trafficLight;
+            }
+        }
+        return porNo;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,427 @@
+package org.semaflux.sim.core;
+
+import java.util.Arrays;
+
+/**
+ * Índice espacial do grafo em grade uniforme, para consultas por região e por proximidade.
+ * <p>
+ * As coordenadas são projetadas em metros (projeção equirretangular em torno do centro do mapa,
+ * suficiente para a extensão de uma cidade) e o retângulo do mapa é dividido em células quadradas,
+ * dimensionadas para conter poucos nós cada. Nós e arestas ficam em vetores primitivos ordenados
+ * por célula (cada célula aponta para um intervalo contíguo); uma aresta é registrada em todas as
+ * células cobertas pelos segmentos do seu traçado. As consultas examinam apenas as células da
+ * região pedida, ou anéis de células ao redor do ponto, no caso das buscas do mais próximo.
+ * <p>
+ * O índice é imutável depois de construído e pode ser consultado por várias threads. Ele reflete
+ * o grafo no momento da construção; ver {@link Grafo#getIndiceEspacial()}.
+ */
+public class IndiceEspacial {
+    private static final double METROS_POR_GRAU = 6371008.8 * Math.PI / 180.0;
+    private static final int NOS_POR_CELULA = 4; // Ocupação média desejada das células
+    private static final int MAXIMO_CELULAS = 1 << 22;
+
+    private final double latitudeBase, longitudeBase; // Canto sudoeste do mapa
+    private final double metrosPorGrauLongitude;
+    private final double tamanhoCelula; // Em metros
+    private final int colunas, linhas;
+
+    private final double[] xNo, yNo; // Posição projetada de cada nó, indexada por No.getIndice()
+    private final int[] inicioNos; // Nós da célula c: nosDaCelula[inicioNos[c] .. inicioNos[c + 1])
+    private final int[] nosDaCelula;
+
+    private final Aresta[] arestas; // Indexadas por Aresta.getIndice()
+    private final int[] inicioPontos; // Traçado da aresta a: pontos inicioPontos[a] .. inicioPontos[a + 1]
+    private final double[] xPonto, yPonto;
+    private final int[] inicioArestas; // Arestas da célula c: arestasDaCelula[inicioArestas[c] .. inicioArestas[c + 1])
+    private final int[] arestasDaCelula;
+
+    /**
+     * Resultado da projeção de um ponto sobre a aresta mais próxima.
+     */
+    public static class Projecao {
+        private final Aresta aresta;
+        private final double distancia;
+        private final double fracao;
+        private final double latitude;
+        private final double longitude;
+
+        Projecao(Aresta aresta, double distancia, double fracao, double latitude, double longitude) {
+            this.aresta = aresta;
+            this.distancia = distancia;
+            this.fracao = fracao;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        public Aresta getAresta() {
+            return aresta;
+        }
+
+        /** @return Distância em metros do ponto consultado até a aresta */
+        public double getDistancia() {
+            return distancia;
+        }
+
+        /** @return Posição do ponto projetado ao longo do traçado, de 0 (origem) a 1 (destino) */
+        public double getFracao() {
+            return fracao;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+    }
+
+    /**
+     * Constrói o índice sobre os nós e as arestas do grafo.
+     */
+    public IndiceEspacial(Grafo grafo) {
+        int n = grafo.getNodes().size();
+
+        // Retângulo do mapa, incluindo os traçados das arestas
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (No no : grafo.getNodes()) {
+            minLat = Math.min(minLat, no.getLatitude());
+            maxLat = Math.max(maxLat, no.getLatitude());
+            minLon = Math.min(minLon, no.getLongitude());
+            maxLon = Math.max(maxLon, no.getLongitude());
+        }
+        for (Aresta aresta : grafo.getEdges()) {
+            double[] geometria = aresta.getGeometria();
+            if (geometria == null) continue;
+            for (int i = 0; i + 1 < geometria.length; i += 2) {
+                minLat = Math.min(minLat, geometria[i]);
+                maxLat = Math.max(maxLat, geometria[i]);
+                minLon = Math.min(minLon, geometria[i + 1]);
+                maxLon = Math.max(maxLon, geometria[i + 1]);
+            }
+        }
+        if (minLat > maxLat) { // Grafo vazio
+            minLat = maxLat = minLon = maxLon = 0.0;
+        }
+
+        latitudeBase = minLat;
+        longitudeBase = minLon;
+        metrosPorGrauLongitude = METROS_POR_GRAU * Math.cos(Math.toRadians((minLat + maxLat) / 2.0));
+        double largura = (maxLon - minLon) * metrosPorGrauLongitude;
+        double altura = (maxLat - minLat) * METROS_POR_GRAU;
+
+        // Células quadradas com cerca de NOS_POR_CELULA nós em média
+        int celulasDesejadas = Math.max(1, Math.min(MAXIMO_CELULAS, n / NOS_POR_CELULA));
+        double tamanho = (largura > 0 && altura > 0)
+                ? Math.sqrt(largura * altura / celulasDesejadas)
+                : Math.max(largura, altura) / celulasDesejadas;
+        tamanho = Math.max(1.0, tamanho);
+        while (((long) (largura / tamanho) + 1) * ((long) (altura / tamanho) + 1) > MAXIMO_CELULAS) {
+            tamanho *= 2;
+        }
+        tamanhoCelula = tamanho;
+        colunas = (int) (largura / tamanho) + 1;
+        linhas = (int) (altura / tamanho) + 1;
+        int celulas = colunas * linhas;
+
+        // Nós, ordenados por célula (contagem e preenchimento)
+        xNo = new double[n];
+        yNo = new double[n];
+        inicioNos = new int[celulas + 1];
+        for (int i = 0; i < n; i++) {
+            No no = grafo.getNode(i);
+            xNo[i] = paraX(no.getLongitude());
+            yNo[i] = paraY(no.getLatitude());
+            inicioNos[celula(xNo[i], yNo[i]) + 1]++;
+        }
+        for (int c = 0; c < celulas; c++) inicioNos[c + 1] += inicioNos[c];
+        nosDaCelula = new int[n];
+        int[] posicao = Arrays.copyOf(inicioNos, celulas);
+        for (int i = 0; i < n; i++) {
+            nosDaCelula[posicao[celula(xNo[i], yNo[i])]++] = i;
+        }
+
+        // Traçados das arestas: origem, pontos intermediários e destino
+        int m = grafo.getEdges().size();
+        arestas = new Aresta[m];
+        inicioPontos = new int[m + 1];
+        for (Aresta aresta : grafo.getEdges()) {
+            arestas[aresta.getIndice()] = aresta;
+            if (aresta.getIndiceOrigem() < 0 || aresta.getIndiceDestino() < 0) continue;
+            double[] geometria = aresta.getGeometria();
+            inicioPontos[aresta.getIndice() + 1] = 2 + (geometria != null ? geometria.length / 2 : 0);
+        }
+        for (int a = 0; a < m; a++) inicioPontos[a + 1] += inicioPontos[a];
+        xPonto = new double[inicioPontos[m]];
+        yPonto = new double[inicioPontos[m]];
+        for (int a = 0; a < m; a++) {
+            int p = inicioPontos[a];
+            if (p == inicioPontos[a + 1]) continue;
+            Aresta aresta = arestas[a];
+            xPonto[p] = xNo[aresta.getIndiceOrigem()];
+            yPonto[p++] = yNo[aresta.getIndiceOrigem()];
+            double[] geometria = aresta.getGeometria();
+            if (geometria != null) {
+                for (int i = 0; i + 1 < geometria.length; i += 2) {
+                    xPonto[p] = paraX(geometria[i + 1]);
+                    yPonto[p++] = paraY(geometria[i]);
+                }
+            }
+            xPonto[p] = xNo[aresta.getIndiceDestino()];
+            yPonto[p] = yNo[aresta.getIndiceDestino()];
+        }
+
+        // Arestas, ordenadas por célula; cada aresta entra uma vez em cada célula que seus segmentos cobrem
+        inicioArestas = new int[celulas + 1];
+        int[] ultimaAresta = new int[celulas]; // Última aresta registrada em cada célula
+        Arrays.fill(ultimaAresta, -1);
+        for (int a = 0; a < m; a++) {
+            registrarAresta(a, ultimaAresta, inicioArestas, null);
+        }
+        for (int c = 0; c < celulas; c++) inicioArestas[c + 1] += inicioArestas[c];
+        arestasDaCelula = new int[inicioArestas[celulas]];
+        Arrays.fill(ultimaAresta, -1);
+        posicao = Arrays.copyOf(inicioArestas, celulas);
+        for (int a = 0; a < m; a++) {
+            registrarAresta(a, ultimaAresta, posicao, arestasDaCelula);
+        }
+    }
+
+    // Primeira passada (destino == null): conta a aresta em cada célula; segunda: grava na posição da célula
+    private void registrarAresta(int a, int[] ultimaAresta, int[] contagemOuPosicao, int[] destino) {
+        for (int p = inicioPontos[a]; p + 1 < inicioPontos[a + 1]; p++) {
+            int i0 = coluna(Math.min(xPonto[p], xPonto[p + 1])), i1 = coluna(Math.max(xPonto[p], xPonto[p + 1]));
+            int j0 = linha(Math.min(yPonto[p], yPonto[p + 1])), j1 = linha(Math.max(yPonto[p], yPonto[p + 1]));
+            for (int j = j0; j <= j1; j++) {
+                for (int i = i0; i <= i1; i++) {
+                    int c = j * colunas + i;
+                    if (ultimaAresta[c] == a) continue;
+                    ultimaAresta[c] = a;
+                    if (destino == null) {
+                        contagemOuPosicao[c + 1]++;
+                    } else {
+                        destino[contagemOuPosicao[c]++] = a;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Nó mais próximo de um ponto.
+     * @return O índice do nó ({@link No#getIndice()}), ou -1 se o grafo não tiver nós
+     */
+    public int noMaisProximo(double latitude, double longitude) {
+        if (xNo.length == 0) return -1;
+        double x = paraX(longitude), y = paraY(latitude);
+        int cx = coluna(x), cy = linha(y);
+        int melhor = -1;
+        double melhorDistancia2 = Double.POSITIVE_INFINITY;
+
+        for (int r = 0; ; r++) {
+            for (int j = Math.max(0, cy - r); j <= Math.min(linhas - 1, cy + r); j++) {
+                int passo = (r == 0 || j == cy - r || j == cy + r) ? 1 : 2 * r; // Apenas a borda do anel
+                for (int i = cx - r; i <= cx + r; i += passo) {
+                    if (i < 0 || i >= colunas) continue;
+                    int c = j * colunas + i;
+                    for (int k = inicioNos[c]; k < inicioNos[c + 1]; k++) {
+                        int no = nosDaCelula[k];
+                        double dx = xNo[no] - x, dy = yNo[no] - y;
+                        double distancia2 = dx * dx + dy * dy;
+                        if (distancia2 < melhorDistancia2) {
+                            melhorDistancia2 = distancia2;
+                            melhor = no;
+                        }
+                    }
+                }
+            }
+            double restante = distanciaAoRestante(x, y, cx, cy, r);
+            if (restante == Double.POSITIVE_INFINITY || (melhor >= 0 && melhorDistancia2 <= restante * restante)) {
+                return melhor;
+            }
+        }
+    }
+
+    /**
+     * Nós a até {@code raioMetros} de um ponto.
+     * @return Índices dos nós, em ordem de célula
+     */
+    public int[] nosNoRaio(double latitude, double longitude, double raioMetros) {
+        double x = paraX(longitude), y = paraY(latitude);
+        double raio2 = raioMetros * raioMetros;
+        int[] resultado = new int[16];
+        int total = 0;
+        for (int j = linha(y - raioMetros); j <= linha(y + raioMetros); j++) {
+            for (int i = coluna(x - raioMetros); i <= coluna(x + raioMetros); i++) {
+                int c = j * colunas + i;
+                for (int k = inicioNos[c]; k < inicioNos[c + 1]; k++) {
+                    int no = nosDaCelula[k];
+                    double dx = xNo[no] - x, dy = yNo[no] - y;
+                    if (dx * dx + dy * dy > raio2) continue;
+                    if (total == resultado.length) resultado = Arrays.copyOf(resultado, total * 2);
+                    resultado[total++] = no;
+                }
+            }
+        }
+        return Arrays.copyOf(resultado, total);
+    }
+
+    /**
+     * Nós dentro de um retângulo geográfico.
+     * @return Índices dos nós, em ordem de célula
+     */
+    public int[] nosNaArea(double latitudeMin, double longitudeMin, double latitudeMax, double longitudeMax) {
+        double x0 = paraX(longitudeMin), x1 = paraX(longitudeMax);
+        double y0 = paraY(latitudeMin), y1 = paraY(latitudeMax);
+        int[] resultado = new int[16];
+        int total = 0;
+        if (x0 > x1 || y0 > y1) return new int[0];
+        for (int j = linha(y0); j <= linha(y1); j++) {
+            for (int i = coluna(x0); i <= coluna(x1); i++) {
+                int c = j * colunas + i;
+                for (int k = inicioNos[c]; k < inicioNos[c + 1]; k++) {
+                    int no = nosDaCelula[k];
+                    if (xNo[no] < x0 || xNo[no] > x1 || yNo[no] < y0 || yNo[no] > y1) continue;
+                    if (total == resultado.length) resultado = Arrays.copyOf(resultado, total * 2);
+                    resultado[total++] = no;
+                }
+            }
+        }
+        return Arrays.copyOf(resultado, total);
+    }
+
+    /**
+     * Arestas com algum segmento nas células que cobrem um retângulo geográfico. O resultado é
+     * conservador: pode incluir arestas que apenas passam perto do retângulo, nunca omite as que o cruzam.
+     * @return Índices das arestas ({@link Aresta#getIndice()}), em ordem crescente e sem repetição
+     */
+    public int[] arestasNaArea(double latitudeMin, double longitudeMin, double latitudeMax, double longitudeMax) {
+        double x0 = paraX(longitudeMin), x1 = paraX(longitudeMax);
+        double y0 = paraY(latitudeMin), y1 = paraY(latitudeMax);
+        if (x0 > x1 || y0 > y1) return new int[0];
+        int[] resultado = new int[16];
+        int total = 0;
+        for (int j = linha(y0); j <= linha(y1); j++) {
+            for (int i = coluna(x0); i <= coluna(x1); i++) {
+                int c = j * colunas + i;
+                int quantidade = inicioArestas[c + 1] - inicioArestas[c];
+                if (total + quantidade > resultado.length) {
+                    resultado = Arrays.copyOf(resultado, Math.max(total + quantidade, resultado.length * 2));
+                }
+                System.arraycopy(arestasDaCelula, inicioArestas[c], resultado, total, quantidade);
+                total += quantidade;
+            }
+        }
+        // Uma aresta que atravessa várias células aparece uma vez em cada uma
+        Arrays.sort(resultado, 0, total);
+        int unicos = 0;
+        for (int k = 0; k < total; k++) {
+            if (unicos == 0 || resultado[k] != resultado[unicos - 1]) resultado[unicos++] = resultado[k];
+        }
+        return Arrays.copyOf(resultado, unicos);
+    }
+
+    /**
+     * Projeta um ponto (ex.: uma coordenada de GPS ou um ponto de demanda) sobre a aresta mais
+     * próxima, considerando o traçado completo de cada aresta.
+     * @return A projeção, ou null se o grafo não tiver arestas
+     */
+    public Projecao arestaMaisProxima(double latitude, double longitude) {
+        if (arestasDaCelula.length == 0) return null;
+        double x = paraX(longitude), y = paraY(latitude);
+        int cx = coluna(x), cy = linha(y);
+        int melhor = -1, melhorSegmento = -1;
+        double melhorDistancia2 = Double.POSITIVE_INFINITY, melhorT = 0.0;
+
+        for (int r = 0; ; r++) {
+            for (int j = Math.max(0, cy - r); j <= Math.min(linhas - 1, cy + r); j++) {
+                int passo = (r == 0 || j == cy - r || j == cy + r) ? 1 : 2 * r;
+                for (int i = cx - r; i <= cx + r; i += passo) {
+                    if (i < 0 || i >= colunas) continue;
+                    int c = j * colunas + i;
+                    for (int k = inicioArestas[c]; k < inicioArestas[c + 1]; k++) {
+                        int a = arestasDaCelula[k];
+                        for (int p = inicioPontos[a]; p + 1 < inicioPontos[a + 1]; p++) {
+                            double sx = xPonto[p + 1] - xPonto[p], sy = yPonto[p + 1] - yPonto[p];
+                            double comprimento2 = sx * sx + sy * sy;
+                            double t = comprimento2 > 0
+                                    ? Math.max(0.0, Math.min(1.0, ((x - xPonto[p]) * sx + (y - yPonto[p]) * sy) / comprimento2))
+                                    : 0.0;
+                            double dx = xPonto[p] + t * sx - x, dy = yPonto[p] + t * sy - y;
+                            double distancia2 = dx * dx + dy * dy;
+                            if (distancia2 < melhorDistancia2) {
+                                melhorDistancia2 = distancia2;
+                                melhor = a;
+                                melhorSegmento = p;
+                                melhorT = t;
+                            }
+                        }
+                    }
+                }
+            }
+            // Uma aresta ainda não examinada está inteira fora das células já visitadas
+            double restante = distanciaAoRestante(x, y, cx, cy, r);
+            if (restante == Double.POSITIVE_INFINITY || (melhor >= 0 && melhorDistancia2 <= restante * restante)) {
+                break;
+            }
+        }
+        if (melhor < 0) return null;
+
+        // Fração percorrida ao longo do traçado até o ponto projetado
+        double total = 0.0, ate = 0.0;
+        for (int p = inicioPontos[melhor]; p + 1 < inicioPontos[melhor + 1]; p++) {
+            double trecho = Math.hypot(xPonto[p + 1] - xPonto[p], yPonto[p + 1] - yPonto[p]);
+            if (p < melhorSegmento) ate += trecho;
+            else if (p == melhorSegmento) ate += trecho * melhorT;
+            total += trecho;
+        }
+        double px = xPonto[melhorSegmento] + melhorT * (xPonto[melhorSegmento + 1] - xPonto[melhorSegmento]);
+        double py = yPonto[melhorSegmento] + melhorT * (yPonto[melhorSegmento + 1] - yPonto[melhorSegmento]);
+        return new Projecao(arestas[melhor], Math.sqrt(melhorDistancia2), total > 0 ? ate / total : 0.0,
+                py / METROS_POR_GRAU + latitudeBase, px / metrosPorGrauLongitude + longitudeBase);
+    }
+
+    /**
+     * Retorna a aresta pelo seu índice ({@link Aresta#getIndice()}).
+     */
+    public Aresta getAresta(int indice) {
+        return (indice >= 0 && indice < arestas.length) ? arestas[indice] : null;
+    }
+
+    /** @return Lado das células da grade, em metros */
+    public double getTamanhoCelula() {
+        return tamanhoCelula;
+    }
+
+    // Menor distância do ponto às células fora do bloco de raio r em torno de (cx, cy); infinita se o bloco cobre a grade
+    private double distanciaAoRestante(double x, double y, int cx, int cy, int r) {
+        double restante = Double.POSITIVE_INFINITY;
+        if (cx - r > 0) restante = Math.min(restante, Math.max(0.0, x - (cx - r) * tamanhoCelula));
+        if (cx + r < colunas - 1) restante = Math.min(restante, Math.max(0.0, (cx + r + 1) * tamanhoCelula - x));
+        if (cy - r > 0) restante = Math.min(restante, Math.max(0.0, y - (cy - r) * tamanhoCelula));
+        if (cy + r < linhas - 1) restante = Math.min(restante, Math.max(0.0, (cy + r + 1) * tamanhoCelula - y));
+        return restante;
+    }
+
+    private double paraX(double longitude) {
+        return (longitude - longitudeBase) * metrosPorGrauLongitude;
+    }
+
+    private double paraY(double latitude) {
+        return (latitude - latitudeBase) * METROS_POR_GRAU;
+    }
+
+    // Coluna e linha da grade, limitadas às bordas para pontos fora do mapa
+    private int coluna(double x) {
+        return (int) Math.max(0, Math.min(colunas - 1, Math.floor(x / tamanhoCelula)));
+    }
+
+    private int linha(double y) {
+        return (int) Math.max(0, Math.min(linhas - 1, Math.floor(y / tamanhoCelula)));
+    }
+
+    private int celula(double x, double y) {
+        return linha(y) * colunas + coluna(x);
+    }
+}
@@ -0,0 +1,114 @@
+package org.semaflux.sim.core;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de chaves {@code long} para valores {@code int} com endereçamento aberto (sondagem linear).
+ * <p>
+ * Guarda chaves e valores em dois vetores primitivos, sem objetos por entrada, o que permite
+ * indexar milhões de IDs (por exemplo, IDs de nós do OpenStreetMap) com poucos bytes por entrada.
+ * A chave {@link Long#MIN_VALUE} é reservada para marcar posições vazias.
+ */
+public class MapaLongInt {
+    private static final long VAZIO = Long.MIN_VALUE;
+    public static final int AUSENTE = -1;
+
+    private long[] chaves;
+    private int[] valores;
+    private int size;
+    private int limiteRedimensionamento;
+
+    public MapaLongInt() {
+        this(16);
+    }
+
+    public MapaLongInt(int capacidadeEsperada) {
+        int capacidade = Integer.highestOneBit(Math.max(16, (int) Math.min(1 << 30, capacidadeEsperada * 2L)) - 1) << 1;
+        alocar(capacidade);
+    }
+
+    private void alocar(int capacidade) {
+        chaves = new long[capacidade];
+        Arrays.fill(chaves, VAZIO);
+        valores = new int[capacidade];
+        limiteRedimensionamento = capacidade / 2 + capacidade / 4; // Fator de carga de 0,75
+    }
+
+    /** @return O valor associado à chave, ou {@link #AUSENTE} */
+    public int get(long chave) {
+        int mascara = chaves.length - 1;
+        for (int i = posicaoInicial(chave, mascara); ; i = (i + 1) & mascara) {
+            long k = chaves[i];
+            if (k == chave) return valores[i];
+            if (k == VAZIO) return AUSENTE;
+        }
+    }
+
+    public boolean containsKey(long chave) {
+        return get(chave) != AUSENTE;
+    }
+
+    public void put(long chave, int valor) {
+        int i = localizar(chave);
+        if (chaves[i] == VAZIO) {
+            chaves[i] = chave;
+            valores[i] = valor;
+            if (++size > limiteRedimensionamento) redimensionar();
+        } else {
+            valores[i] = valor;
+        }
+    }
+
+    /**
+     * Associa o valor à chave apenas se ela ainda não estiver no mapa.
+     * @return O valor já associado, ou {@link #AUSENTE} se a chave foi inserida agora
+     */
+    public int putIfAbsent(long chave, int valor) {
+        int i = localizar(chave);
+        if (chaves[i] != VAZIO) return valores[i];
+        chaves[i] = chave;
+        valores[i] = valor;
+        if (++size > limiteRedimensionamento) redimensionar();
+        return AUSENTE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private int localizar(long chave) {
+        if (chave == VAZIO) {
+            throw new IllegalArgumentException("Chave reservada: " + chave);
+        }
+        int mascara = chaves.length - 1;
+        int i = posicaoInicial(chave, mascara);
+        while (chaves[i] != VAZIO && chaves[i] != chave) {
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+
+    private static int posicaoInicial(long chave, int mascara) {
+        long h = chave * 0x9E3779B97F4A7C15L; // Espalha IDs sequenciais pela tabela
+        return (int) (h ^ (h >>> 32)) & mascara;
+    }
+
+    private void redimensionar() {
+        long[] chavesAntigas = chaves;
+        int[] valoresAntigos = valores;
+        alocar(chavesAntigas.length * 2);
+        int mascara = chaves.length - 1;
+        for (int j = 0; j < chavesAntigas.length; j++) {
+            long k = chavesAntigas[j];
+            if (k == VAZIO) continue;
+            int i = posicaoInicial(k, mascara);
+            while (chaves[i] != VAZIO) i = (i + 1) & mascara;
+            chaves[i] = k;
+            valores[i] = valoresAntigos[j];
+        }
+    }
+}
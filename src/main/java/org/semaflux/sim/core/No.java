@@ -3,6 +3,7 @@ package org.semaflux.sim.core;
 // Representa uma interseção na rede urbana
 public class No {
     public String id; // Identificador único (do OSM)
+    private int indice = -1; // Índice denso do nó no grafo (atribuído por Grafo.addNode)
     public double latitude; // Coordenada latitudinal
     public double longitude; // Coordenada longitudinal
     public boolean isTrafficLight; // Indica se tem semáforo
@@ -25,6 +26,14 @@ public class No {
         return id;
     }
 
+    public int getIndice() {
+        return indice;
+    }
+
+    public void setIndice(int indice) {
+        this.indice = indice;
+    }
+
     // Adiciona uma aresta conectada ao nó
     public void addEdge(Aresta edge) {
         if (edge != null) {
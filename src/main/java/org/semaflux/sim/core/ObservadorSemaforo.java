@@ -0,0 +1,20 @@
+package org.semaflux.sim.core;
+
+/**
+ * Recebe as mudanças de um {@link SinalTransito} no momento em que acontecem, para que métricas
+ * derivadas das filas e das fases sejam mantidas por diferenças, sem percorrer os semáforos a
+ * cada passo. Chamado na thread da simulação.
+ */
+public interface ObservadorSemaforo {
+
+    /**
+     * Veículos entraram (delta positivo) ou saíram (negativo) da fila de uma aproximação.
+     * @param direcao Índice da direção (0=norte, 1=leste, 2=sul, 3=oeste)
+     */
+    void filaAlterada(SinalTransito semaforo, int direcao, int delta);
+
+    /**
+     * O semáforo recebeu uma fase (nova ou a mesma, estendida).
+     */
+    void faseAlterada(SinalTransito semaforo);
+}
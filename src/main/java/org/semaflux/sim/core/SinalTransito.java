@@ -2,13 +2,17 @@ package org.semaflux.sim.core;
 
 import org.semaflux.sim.control.FilaAdaptativa;
 import org.semaflux.sim.control.EconomiaEnergia;
+import org.semaflux.sim.control.MaxPressao;
 import org.semaflux.sim.control.TempoFixo;
 import org.semaflux.sim.simulação.Config;
 import org.semaflux.sim.simulação.MudancaDeFase;
+import org.semaflux.sim.simulação.RegistroEventos;
 import org.semaflux.sim.control.Semaforo;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 public class SinalTransito {
     private String nodeId;
@@ -21,9 +25,20 @@ public class SinalTransito {
     private Fila[] directionQueues;
     private Map<String, Integer> directionNameToIndexMap;
 
+    // Arestas de entrada e saída do cruzamento, com a direção de deslocamento de cada uma (índice de directionQueues)
+    private Aresta[] incomingEdges = new Aresta[0];
+    private int[] incomingDirections = new int[0];
+    private Aresta[] outgoingEdges = new Aresta[0];
+    private int[] outgoingDirections = new int[0];
+    private final int[] filaPorChegada = new int[4]; // Veículos enfileirados, pela direção de deslocamento em que chegaram
+    private final AtomicIntegerArray tamanhosFila = new AtomicIntegerArray(4); // Tamanho de cada fila, legível de outras threads
+
     private Semaforo controlStrategy;
     private boolean peakHourStatus = false;
     private Config config; // Armazena a referência para a configuração
+    private RegistroEventos registroEventos; // Recebe as mudanças de fase (null quando não há registro)
+    private ObservadorSemaforo observador; // Recebe as mudanças de filas e fases (null quando não há)
+    private int indiceNo = -1;
 
     public SinalTransito(String nodeId, String jsonOriginalDirection, Config config) { // Recebe Configuration
         this.nodeId = nodeId;
@@ -73,6 +88,14 @@ public class SinalTransito {
                         config.getMaximoVermelhoEconomia()    // Adicionando o tempo vermelho máximo
                 );
                 break;
+            case 4:
+                this.controlStrategy = new MaxPressao(
+                        config.getMaxPressaoVerdeMinimo(),
+                        config.getMaxPressaoVerdeMaximo(),
+                        config.getMaxPressaoAmarelo(),
+                        config.getMaxPressaoExtensao()
+                );
+                break;
             default:
                 this.controlStrategy = new TempoFixo(
                         config.getFixedGreenTime(),
@@ -98,10 +121,35 @@ public class SinalTransito {
     public String getInitialJsonDirection() { return initialJsonDirection; }
     public boolean isPeakHourEnabled() { return peakHourStatus; }
     public Config getConfiguration() { return config; }
+    public int getMode() { return mode; }
+    public double getPhaseTimer() { return phaseTimer; }
+    public Semaforo getControlStrategy() { return controlStrategy; }
+
+    /**
+     * Passa a publicar as mudanças de fase no registro de eventos da simulação.
+     * @param indiceNo Índice do nó do semáforo no grafo, usado para identificá-lo nos eventos
+     */
+    public void setRegistroEventos(RegistroEventos registroEventos, int indiceNo) {
+        this.registroEventos = registroEventos;
+        this.indiceNo = indiceNo;
+    }
+
+    /**
+     * Passa a informar as entradas e saídas das filas e as mudanças de fase ao observador.
+     */
+    public void setObservador(ObservadorSemaforo observador) {
+        this.observador = observador;
+    }
+
+    /** @return Índice do nó do semáforo no grafo, ou -1 se ainda não foi associado */
+    public int getIndiceNo() {
+        return indiceNo;
+    }
 
     public void setCurrentPhase(FaseDoSemaforo phase, double duration) {
         this.currentPhase = phase;
         this.phaseTimer = duration;
+        if (observador != null) observador.faseAlterada(this);
     }
 
     public Integer getDirectionIndex(String directionName) {
@@ -117,6 +165,16 @@ public class SinalTransito {
         return sizes;
     }
 
+    /**
+     * Tamanho da fila de uma direção, mantido a cada entrada e saída. Pode ser lido de outras
+     * threads (ex.: servidor de métricas) sem travar o semáforo; direções diferentes podem refletir
+     * momentos diferentes do passo.
+     * @param direcao Índice da direção (0=norte, 1=leste, 2=sul, 3=oeste)
+     */
+    public int getTamanhoFila(int direcao) {
+        return tamanhosFila.get(direcao);
+    }
+
     public void addVehicleToQueue(String directionName, Veiculo vehicle) {
         Integer index = getDirectionIndex(directionName);
         if (index != null && index >= 0 && index < directionQueues.length) {
@@ -124,18 +182,144 @@ public class SinalTransito {
                 directionQueues[index] = new Fila();
             }
             directionQueues[index].enqueue(vehicle);
+            filaAlterada(vehicle, index, 1);
         }
     }
 
+    public boolean removeVehicleFromQueue(String directionName, Veiculo vehicle) {
+        Integer index = getDirectionIndex(directionName);
+        if (index != null && index >= 0 && index < directionQueues.length && directionQueues[index] != null) {
+            boolean removido = directionQueues[index].remove(vehicle);
+            if (removido) filaAlterada(vehicle, index, -1);
+            return removido;
+        }
+        return false;
+    }
+
     public Veiculo popVehicleFromQueue(String directionName) {
         Integer index = getDirectionIndex(directionName);
         if (index != null && index >= 0 && index < directionQueues.length &&
                 directionQueues[index] != null && !directionQueues[index].isEmpty()) {
-            return directionQueues[index].dequeue();
+            Veiculo vehicle = directionQueues[index].dequeue();
+            if (vehicle != null) filaAlterada(vehicle, index, -1);
+            return vehicle;
         }
         return null;
     }
 
+    /**
+     * @param index Índice da direção (0=norte, 1=leste, 2=sul, 3=oeste)
+     * @return Os veículos aguardando na fila da direção, da frente para o fim
+     */
+    public Veiculo[] getVehiclesInQueue(int index) {
+        if (index < 0 || index >= directionQueues.length || directionQueues[index] == null) return new Veiculo[0];
+        return directionQueues[index].toArray();
+    }
+
+    /**
+     * Restaura fase, tempo restante e horário de pico gravados em um instantâneo da simulação,
+     * esvaziando as filas (que são preenchidas novamente com {@link #addVehicleToQueue}).
+     */
+    public void restaurarEstado(FaseDoSemaforo phase, double timer, boolean peakHour) {
+        if (phase != null) {
+            setCurrentPhase(phase, timer);
+        } else {
+            this.phaseTimer = timer;
+        }
+        this.peakHourStatus = peakHour;
+        for (int d = 0; d < directionQueues.length; d++) {
+            Fila fila = directionQueues[d];
+            if (fila == null) continue;
+            int tamanho = fila.size();
+            fila.clear();
+            tamanhosFila.set(d, 0);
+            if (observador != null && tamanho > 0) observador.filaAlterada(this, d, -tamanho);
+        }
+        Arrays.fill(filaPorChegada, 0);
+    }
+
+    private void filaAlterada(Veiculo vehicle, int direcao, int delta) {
+        alterarFilaPorChegada(vehicle, delta);
+        tamanhosFila.addAndGet(direcao, delta);
+        if (observador != null) observador.filaAlterada(this, direcao, delta);
+    }
+
+    // A aresta atual de um veículo parado no cruzamento é a aresta de entrada por onde ele chegou
+    private void alterarFilaPorChegada(Veiculo vehicle, int delta) {
+        Aresta chegada = vehicle.getCurrentEdge();
+        if (chegada == null) return; // Gerado no próprio cruzamento
+        for (int i = 0; i < incomingEdges.length; i++) {
+            if (incomingEdges[i] == chegada) {
+                filaPorChegada[incomingDirections[i]] += delta;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Veículos enfileirados que chegaram ao cruzamento deslocando-se na direção indicada. As
+     * filas são separadas pela direção de saída; esta contagem permite descontar os enfileirados
+     * da ocupação das arestas de entrada ({@link #getIncomingDirections()}).
+     * @param direcao Índice da direção (0=norte, 1=leste, 2=sul, 3=oeste)
+     */
+    public int getEnfileiradosPorChegada(int direcao) {
+        return filaPorChegada[direcao];
+    }
+
+    /**
+     * Associa ao semáforo as arestas que chegam e saem do seu nó, classificando cada uma
+     * pela direção de deslocamento (norte, leste, sul, oeste). Usado por estratégias que
+     * consideram a ocupação das vias além das filas do próprio cruzamento.
+     * @param graph O grafo que contém o nó do semáforo
+     */
+    public void associarArestas(Grafo graph) {
+        No node = (graph != null) ? graph.getNode(nodeId) : null;
+        if (node == null) {
+            return;
+        }
+
+        ListaLigada<Aresta> incoming = graph.getIncomingEdges(nodeId);
+        this.incomingEdges = new Aresta[incoming.size()];
+        this.incomingDirections = new int[incoming.size()];
+        int i = 0;
+        for (Aresta edge : incoming) {
+            this.incomingEdges[i] = edge;
+            this.incomingDirections[i] = getDirectionIndex(calcularDirecao(graph.getNode(edge.getSource()), node));
+            i++;
+        }
+
+        ListaLigada<Aresta> outgoing = node.getEdges();
+        this.outgoingEdges = new Aresta[outgoing.size()];
+        this.outgoingDirections = new int[outgoing.size()];
+        i = 0;
+        for (Aresta edge : outgoing) {
+            this.outgoingEdges[i] = edge;
+            this.outgoingDirections[i] = getDirectionIndex(calcularDirecao(node, graph.getNode(edge.getDestination())));
+            i++;
+        }
+    }
+
+    public Aresta[] getIncomingEdges() { return incomingEdges; }
+    public int[] getIncomingDirections() { return incomingDirections; }
+    public Aresta[] getOutgoingEdges() { return outgoingEdges; }
+    public int[] getOutgoingDirections() { return outgoingDirections; }
+
+    /**
+     * Determina a direção aproximada de deslocamento entre dois nós, pela maior variação de coordenada.
+     * @return "north", "east", "south" ou "west" ("north" se algum nó for nulo)
+     */
+    public static String calcularDirecao(No from, No to) {
+        if (from == null || to == null) {
+            return "north";
+        }
+        double deltaLat = to.getLatitude() - from.getLatitude();
+        double deltaLon = to.getLongitude() - from.getLongitude();
+        if (Math.abs(deltaLat) > Math.abs(deltaLon)) {
+            return deltaLat > 0 ? "north" : "south";
+        }
+        return deltaLon > 0 ? "east" : "west";
+    }
+
     public void update(double deltaTime, boolean isPeakHour) {
         this.peakHourStatus = isPeakHour;
         this.phaseTimer -= deltaTime;
@@ -146,7 +330,25 @@ public class SinalTransito {
                 logPhaseChange();
                 return;
             }
-            MudancaDeFase decision = controlStrategy.decidirProximaFase(this, deltaTime, getAllQueueSizes(), this.peakHourStatus);
+            int[] queueSizes = getAllQueueSizes();
+            DecisaoSemaforoJfr evento = new DecisaoSemaforoJfr();
+            FaseDoSemaforo faseAnterior = this.currentPhase;
+            evento.begin();
+            MudancaDeFase decision = controlStrategy.decidirProximaFase(this, deltaTime, queueSizes, this.peakHourStatus);
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.semaforo = nodeId;
+                evento.estrategia = controlStrategy.getClass().getSimpleName();
+                evento.faseAnterior = faseAnterior != null ? faseAnterior.name() : "";
+                boolean mudou = decision != null && decision.nextPhase != null;
+                evento.novaFase = mudou ? decision.nextPhase.name() : "";
+                evento.duracaoFase = mudou ? decision.duration : 0.0;
+                evento.filaNorte = queueSizes[0];
+                evento.filaLeste = queueSizes[1];
+                evento.filaSul = queueSizes[2];
+                evento.filaOeste = queueSizes[3];
+                evento.commit();
+            }
 
             if (decision != null && decision.nextPhase != null) {
                 setCurrentPhase(decision.nextPhase, decision.duration);
@@ -169,7 +371,9 @@ public class SinalTransito {
     }
 
     private void logPhaseChange() {
-        String phaseStr = (this.currentPhase != null) ? this.currentPhase.toString() : "INDEFINIDA";
+        if (registroEventos != null) {
+            registroEventos.mudancaDeFase(indiceNo, currentPhase != null ? currentPhase.ordinal() : -1, phaseTimer);
+        }
     }
 
     public void logCurrentInternalState() {
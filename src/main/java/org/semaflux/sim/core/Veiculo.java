@@ -5,13 +5,19 @@ import java.util.Random;
 
 public class Veiculo {
     private String id; // Identificador único
-    private String origin; // Nó de origem
-    private String destination; // Nó de destino
-    private ListaLigada<String> route; // Rota calculada (lista de nós)
-    private String currentNode; // Nó atual
+    private int origin; // Índice do nó de origem
+    private int destination; // Índice do nó de destino
+    private int[] route; // Rota calculada (índices dos nós, ver Grafo.getNode(int))
+    private int routePosition; // Posição do nó atual na rota
     private double travelTime; // Tempo total de viagem (s)
     private double waitTime; // Tempo total de espera (s)
+    private int paradas; // Vezes em que o veículo entrou em fila de semáforo
     private double position; // Posição na aresta atual (0 a 1)
+    private Aresta currentEdge; // Última aresta em que o veículo entrou (ocupada até seguir para a próxima)
+    private double currentEdgeEntryTime; // Instante da simulação em que entrou na aresta atual
+    private String queuedDirection; // Direção da fila de semáforo em que o veículo aguarda (null se não estiver em fila)
+    private double ultimoRedirecionamento; // Instante da última solicitação de nova rota em andamento
+    private boolean redirecionamentoPendente; // Há uma nova rota sendo calculada para o veículo
     public Veiculo next; // Para lista encadeada
     private double fuelConsumed;
     private double fuelConsumptionRateMoving; // L/s em movimento
@@ -20,16 +26,20 @@ public class Veiculo {
     private Color cor; // Cor do veículo para visualização
     private static Random random = new Random();
     
-    // Construtor
-    public Veiculo(String id, String origin, String destination, ListaLigada<String> route) {
+    // Construtor (origem, destino e rota em índices de nós do grafo)
+    public Veiculo(String id, int origin, int destination, int[] route) {
         this.id = id;
         this.origin = origin;
         this.destination = destination;
-        this.route = (route != null) ? route : new ListaLigada<>(); // Atribuir rota válida
-        this.currentNode = origin;
+        this.route = (route != null) ? route : new int[0]; // Atribuir rota válida
+        this.routePosition = 0;
         this.travelTime = 0.0;
         this.waitTime = 0.0;
         this.position = 0.0;
+        this.currentEdge = null;
+        this.queuedDirection = null;
+        this.ultimoRedirecionamento = Double.NEGATIVE_INFINITY;
+        this.redirecionamentoPendente = false;
         this.next = null;
         this.fuelConsumed = 0.0;
         // Valores de exemplo, podem vir da Configuration ou ser fixos por tipo de veículo no futuro
@@ -116,43 +126,94 @@ public class Veiculo {
         return this.tipoVeiculo;
     }
 
+    /**
+     * Retorna a cor do veículo compactada em ARGB (8 bits por canal), como é gravada nos
+     * instantâneos da simulação
+     * @return Cor em ARGB, ou 0 se o veículo não tiver cor
+     */
+    public int getCorArgb() {
+        if (cor == null) return 0;
+        return ((int) Math.round(cor.getOpacity() * 255) << 24) | ((int) Math.round(cor.getRed() * 255) << 16)
+                | ((int) Math.round(cor.getGreen() * 255) << 8) | (int) Math.round(cor.getBlue() * 255);
+    }
+
+    /**
+     * Define tipo e cor, ao restaurar um veículo de um instantâneo da simulação
+     * @param corArgb Cor compactada como em {@link #getCorArgb()}
+     */
+    public void setAparencia(int tipoVeiculo, int corArgb) {
+        this.tipoVeiculo = tipoVeiculo;
+        this.cor = Color.rgb((corArgb >> 16) & 0xff, (corArgb >> 8) & 0xff, corArgb & 0xff, ((corArgb >>> 24) & 0xff) / 255.0);
+    }
+
     // Getters e Setters
     public String getId() {
         return id;
     }
 
-    public String getOrigin() {
+    public int getOrigin() {
         return origin;
     }
 
-    public String getDestination() {
+    public int getDestination() {
         return destination;
     }
 
-    public ListaLigada<String> getRoute() {
+    public int[] getRoute() {
         return route;
     }
 
-    public void setRoute(ListaLigada<String> route) {
-        if (route == null) {
-            this.route = new ListaLigada<>(); // Substitui por uma rota vazia
-        } else {
-            this.route = route;
-        }
+    /**
+     * Substitui a rota. A nova rota deve começar no nó atual do veículo.
+     */
+    public void setRoute(int[] route) {
+        this.route = (route != null) ? route : new int[0]; // Substitui por uma rota vazia
+        this.routePosition = 0;
     }
 
-    public String getCurrentNode() {
-        return currentNode;
+    public int getRoutePosition() {
+        return routePosition;
     }
 
-    public void setCurrentNode(String currentNode) {
-        this.currentNode = currentNode;
+    public void setRoutePosition(int routePosition) {
+        this.routePosition = Math.max(0, Math.min(routePosition, route.length - 1));
+    }
+
+    /**
+     * @return Índice do nó em que o veículo está (ou de onde partiu, se estiver em uma aresta)
+     */
+    public int getCurrentNode() {
+        return (route.length > 0) ? route[routePosition] : origin;
+    }
+
+    /**
+     * @return Índice do próximo nó da rota, ou -1 se o veículo estiver no fim da rota
+     */
+    public int getNextNode() {
+        return (routePosition + 1 < route.length) ? route[routePosition + 1] : -1;
+    }
+
+    /**
+     * Avança o veículo para o próximo nó da rota, ao concluir a aresta atual.
+     */
+    public void advanceToNextNode() {
+        if (routePosition + 1 < route.length) {
+            routePosition++;
+        }
+    }
+
+    public boolean isAtDestination() {
+        return getCurrentNode() == destination;
     }
 
     public double getTravelTime() {
         return travelTime;
     }
 
+    public void setTravelTime(double travelTime) {
+        this.travelTime = travelTime;
+    }
+
     public void incrementTravelTime(double deltaTime) {
         this.travelTime += deltaTime;
     }
@@ -161,10 +222,26 @@ public class Veiculo {
         return waitTime;
     }
 
+    public void setWaitTime(double waitTime) {
+        this.waitTime = waitTime;
+    }
+
     public void incrementWaitTime(double deltaTime) {
         this.waitTime += deltaTime;
     }
 
+    public int getParadas() {
+        return paradas;
+    }
+
+    public void setParadas(int paradas) {
+        this.paradas = paradas;
+    }
+
+    public void incrementParadas() {
+        this.paradas++;
+    }
+
     public double getPosition() {
         return position;
     }
@@ -173,10 +250,54 @@ public class Veiculo {
         this.position = position;
     }
 
+    public Aresta getCurrentEdge() {
+        return currentEdge;
+    }
+
+    public void setCurrentEdge(Aresta currentEdge) {
+        this.currentEdge = currentEdge;
+    }
+
+    public double getCurrentEdgeEntryTime() {
+        return currentEdgeEntryTime;
+    }
+
+    public void setCurrentEdgeEntryTime(double currentEdgeEntryTime) {
+        this.currentEdgeEntryTime = currentEdgeEntryTime;
+    }
+
+    public String getQueuedDirection() {
+        return queuedDirection;
+    }
+
+    public void setQueuedDirection(String queuedDirection) {
+        this.queuedDirection = queuedDirection;
+    }
+
+    public double getUltimoRedirecionamento() {
+        return ultimoRedirecionamento;
+    }
+
+    public void setUltimoRedirecionamento(double ultimoRedirecionamento) {
+        this.ultimoRedirecionamento = ultimoRedirecionamento;
+    }
+
+    public boolean isRedirecionamentoPendente() {
+        return redirecionamentoPendente;
+    }
+
+    public void setRedirecionamentoPendente(boolean redirecionamentoPendente) {
+        this.redirecionamentoPendente = redirecionamentoPendente;
+    }
+
     public double getFuelConsumed() {
         return fuelConsumed;
     }
 
+    public void setFuelConsumed(double fuelConsumed) {
+        this.fuelConsumed = fuelConsumed;
+    }
+
     public void incrementFuelConsumption(double consumption) {
         this.fuelConsumed += consumption;
     }
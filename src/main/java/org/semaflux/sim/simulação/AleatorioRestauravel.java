@@ -0,0 +1,49 @@
+package org.semaflux.sim.simulação;
+
+import java.util.Random;
+
+/**
+ * Gerador de números aleatórios cujo estado completo cabe em um {@code long} e pode ser lido e
+ * restaurado, para que uma simulação retomada de um instantâneo continue com a mesma sequência de
+ * sorteios. Usa o algoritmo SplitMix64; os métodos herdados de {@link Random} (nextInt, nextDouble
+ * etc.) passam todos por {@link #next(int)}.
+ * <p>
+ * Não é seguro para uso concorrente: cada simulação usa o seu apenas na thread da simulação.
+ */
+public class AleatorioRestauravel extends Random {
+    private static final long serialVersionUID = 1L;
+    private static final long INCREMENTO = 0x9E3779B97F4A7C15L;
+
+    private long estado; // Atribuído por setSeed, chamado pelo construtor de Random
+
+    public AleatorioRestauravel() {
+        this(System.nanoTime() * INCREMENTO ^ Double.doubleToLongBits(Math.random()));
+    }
+
+    public AleatorioRestauravel(long semente) {
+        super(semente);
+    }
+
+    @Override
+    public void setSeed(long semente) {
+        this.estado = semente;
+    }
+
+    @Override
+    protected int next(int bits) {
+        long z = (estado += INCREMENTO);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (int) (z >>> (64 - bits));
+    }
+
+    /** @return O estado atual, suficiente para reproduzir todos os sorteios seguintes */
+    public long getEstado() {
+        return estado;
+    }
+
+    public void setEstado(long estado) {
+        this.estado = estado;
+    }
+}
@@ -8,6 +8,37 @@ public class Config {
     private boolean horarioPico;
     private int modoSemaforo;
     private int redirectThreshold;
+
+    private boolean carregamentoParalelo; // Interpreta as seções do mapa JSON em paralelo
+    private boolean simplificarGrafo; // Remove os nós intermediários de trechos sem cruzamento ao carregar o mapa
+    private boolean usarCacheMapas; // Reaproveita mapas JSON já carregados e pré-processados (~/.semaflux/cache)
+
+    // Parâmetros do modelo de atraso por congestionamento (BPR)
+    private boolean usarModeloBPR;
+    private double bprAlfa;
+    private double bprBeta;
+    private boolean roteamentoPorCongestionamento;
+
+    // Perfis históricos de tempo de viagem por aresta
+    private boolean gravarPerfisTempoViagem;
+    private boolean roteamentoPorPerfilHistorico;
+
+    // Instantâneos do estado completo da simulação
+    private double intervaloInstantaneos; // Segundos de simulação entre instantâneos automáticos (0 = desativado)
+    private String arquivoInstantaneo; // Instantâneo do qual a simulação é retomada (null = começa do zero)
+
+    // Registro das viagens concluídas, uma linha por veículo
+    private boolean gravarRegistroViagens;
+
+    // Registro de eventos em arquivo (texto rotativo e/ou binário)
+    private boolean gravarEventosTexto;
+    private boolean gravarEventosBinario;
+
+    // Medição de tempo e alocação por etapa do passo da simulação
+    private boolean perfilarPasso;
+
+    // Porta do servidor HTTP de métricas em localhost (0 = desativado)
+    private int portaMetricas;
     
     // Parâmetros do modo fixo
     private double fixedGreenTime;
@@ -33,6 +64,12 @@ public class Config {
     private double MaximoVermelhoEconomia;
     private int limiarEconomia;
 
+    // Parâmetros do modo max-pressão
+    private double maxPressaoVerdeMinimo;
+    private double maxPressaoVerdeMaximo;
+    private double maxPressaoAmarelo;
+    private double maxPressaoExtensao;
+
     public Config() {
         // Inicialização de parâmetros gerais
         this.duracaoSimulacao = 1200.0;
@@ -41,6 +78,26 @@ public class Config {
         this.horarioPico = false;
         this.modoSemaforo = 1;
         this.redirectThreshold = 0;
+        this.carregamentoParalelo = true;
+        this.simplificarGrafo = false; // Opcional: muda os nós e as capacidades dos cenários existentes
+        this.usarCacheMapas = true;
+
+        // Inicialização do modelo BPR (valores clássicos do Bureau of Public Roads)
+        this.usarModeloBPR = false; // Opcional: altera tempos e rotas em relação ao modelo de tempo fixo
+        this.bprAlfa = 0.15;
+        this.bprBeta = 4.0;
+        this.roteamentoPorCongestionamento = false;
+
+        // Perfis históricos: registrados e usados no roteamento apenas se ativados
+        this.gravarPerfisTempoViagem = false;
+        this.roteamentoPorPerfilHistorico = false;
+        this.intervaloInstantaneos = 0.0;
+        this.arquivoInstantaneo = null;
+        this.gravarRegistroViagens = false;
+        this.gravarEventosTexto = false;
+        this.gravarEventosBinario = false;
+        this.perfilarPasso = false;
+        this.portaMetricas = 0;
 
         // Inicialização do modo fixo
         this.fixedGreenTime = 13.0;
@@ -65,6 +122,12 @@ public class Config {
         this.MinimoVermelhoEconomia = 10.0;
         this.MaximoVermelhoEconomia = 43.0;
         this.limiarEconomia = 1;
+
+        // Inicialização do modo max-pressão
+        this.maxPressaoVerdeMinimo = 8.0;     // Verde garantido antes de reavaliar a pressão
+        this.maxPressaoVerdeMaximo = 40.0;    // Limite para não deixar a outra direção em vermelho indefinidamente
+        this.maxPressaoAmarelo = 2.0;
+        this.maxPressaoExtensao = 4.0;        // Passo de extensão do verde enquanto a fase atual tiver maior pressão
     }
 
     // Getters e Setters para parâmetros gerais
@@ -86,6 +149,61 @@ public class Config {
     public int getRedirectThreshold() { return redirectThreshold; }
     public void setRedirectThreshold(int threshold) { this.redirectThreshold = threshold; }
 
+    public boolean isCarregamentoParalelo() { return carregamentoParalelo; }
+    public void setCarregamentoParalelo(boolean parallelLoading) { this.carregamentoParalelo = parallelLoading; }
+
+    public boolean isSimplificarGrafo() { return simplificarGrafo; }
+    public void setSimplificarGrafo(boolean simplifyGraph) { this.simplificarGrafo = simplifyGraph; }
+
+    public boolean isUsarCacheMapas() { return usarCacheMapas; }
+    public void setUsarCacheMapas(boolean useMapCache) { this.usarCacheMapas = useMapCache; }
+
+    // Getters e Setters para o modelo BPR
+    public boolean isUsarModeloBPR() { return usarModeloBPR; }
+    public void setUsarModeloBPR(boolean useBpr) { this.usarModeloBPR = useBpr; }
+
+    public double getBprAlfa() { return bprAlfa; }
+    public void setBprAlfa(double bprAlpha) { this.bprAlfa = bprAlpha; }
+
+    public double getBprBeta() { return bprBeta; }
+    public void setBprBeta(double bprBeta) { this.bprBeta = bprBeta; }
+
+    public boolean isRoteamentoPorCongestionamento() { return roteamentoPorCongestionamento; }
+    public void setRoteamentoPorCongestionamento(boolean congestionAwareRouting) { this.roteamentoPorCongestionamento = congestionAwareRouting; }
+
+    // Getters e Setters para os perfis históricos de tempo de viagem
+    public boolean isGravarPerfisTempoViagem() { return gravarPerfisTempoViagem; }
+    public void setGravarPerfisTempoViagem(boolean recordProfiles) { this.gravarPerfisTempoViagem = recordProfiles; }
+
+    public boolean isRoteamentoPorPerfilHistorico() { return roteamentoPorPerfilHistorico; }
+    public void setRoteamentoPorPerfilHistorico(boolean profileRouting) { this.roteamentoPorPerfilHistorico = profileRouting; }
+
+    // Getters e Setters para os instantâneos da simulação
+    public double getIntervaloInstantaneos() { return intervaloInstantaneos; }
+    public void setIntervaloInstantaneos(double snapshotInterval) { this.intervaloInstantaneos = snapshotInterval; }
+
+    public String getArquivoInstantaneo() { return arquivoInstantaneo; }
+    public void setArquivoInstantaneo(String snapshotFile) { this.arquivoInstantaneo = snapshotFile; }
+
+    // Getters e Setters para o registro de viagens
+    public boolean isGravarRegistroViagens() { return gravarRegistroViagens; }
+    public void setGravarRegistroViagens(boolean recordTrips) { this.gravarRegistroViagens = recordTrips; }
+
+    // Getters e Setters para o registro de eventos
+    public boolean isGravarEventosTexto() { return gravarEventosTexto; }
+    public void setGravarEventosTexto(boolean gravarEventosTexto) { this.gravarEventosTexto = gravarEventosTexto; }
+
+    public boolean isGravarEventosBinario() { return gravarEventosBinario; }
+    public void setGravarEventosBinario(boolean gravarEventosBinario) { this.gravarEventosBinario = gravarEventosBinario; }
+
+    // Getters e Setters para o perfil de desempenho do passo
+    public boolean isPerfilarPasso() { return perfilarPasso; }
+    public void setPerfilarPasso(boolean perfilarPasso) { this.perfilarPasso = perfilarPasso; }
+
+    // Getters e Setters para o servidor de métricas
+    public int getPortaMetricas() { return portaMetricas; }
+    public void setPortaMetricas(int portaMetricas) { this.portaMetricas = portaMetricas; }
+
     // Getters e Setters para modo fixo
     public double getFixedGreenTime() { return fixedGreenTime; }
     public void setFixedGreenTime(double fixedGreenTime) { this.fixedGreenTime = fixedGreenTime; }
@@ -142,4 +260,17 @@ public class Config {
 
     public int getLimiarEconomia() { return limiarEconomia; }
     public void setLimiarEconomia(int energySavingThreshold) { this.limiarEconomia = energySavingThreshold; }
+
+    // Getters e Setters para modo max-pressão
+    public double getMaxPressaoVerdeMinimo() { return maxPressaoVerdeMinimo; }
+    public void setMaxPressaoVerdeMinimo(double maxPressureMinGreen) { this.maxPressaoVerdeMinimo = maxPressureMinGreen; }
+
+    public double getMaxPressaoVerdeMaximo() { return maxPressaoVerdeMaximo; }
+    public void setMaxPressaoVerdeMaximo(double maxPressureMaxGreen) { this.maxPressaoVerdeMaximo = maxPressureMaxGreen; }
+
+    public double getMaxPressaoAmarelo() { return maxPressaoAmarelo; }
+    public void setMaxPressaoAmarelo(double maxPressureYellowTime) { this.maxPressaoAmarelo = maxPressureYellowTime; }
+
+    public double getMaxPressaoExtensao() { return maxPressaoExtensao; }
+    public void setMaxPressaoExtensao(double maxPressureExtension) { this.maxPressaoExtensao = maxPressureExtension; }
 }
\ No newline at end of file
@@ -0,0 +1,197 @@
+package org.semaflux.sim.simulação;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.semaflux.sim.core.Grafo;
+import org.semaflux.sim.core.ListaLigada;
+import org.semaflux.sim.core.No;
+import org.semaflux.sim.core.SinalTransito;
+import org.semaflux.sim.core.Veiculo;
+
+/**
+ * Mantém, de forma incremental, as contagens usadas no índice de congestionamento: veículos
+ * ativos e veículos parados em filas de semáforo, na rede inteira e em cada célula de uma grade
+ * sobre o mapa. As contagens mudam por diferenças, a cada veículo gerado, chegado ou que avança
+ * de nó, e a cada entrada e saída de fila ({@link SinalTransito}), de modo que o índice do passo
+ * sai em tempo constante, sem percorrer os semáforos.
+ * <p>
+ * A grade divide o retângulo que contém os nós em {@code linhas x colunas} células (linha 0 ao
+ * norte, coluna 0 a oeste). Cada célula tem o seu próprio índice, com a mesma fórmula do índice
+ * global ({@link Estatisticas#indiceCongestionamento}) aplicada aos nós, veículos e filas da célula.
+ * Um veículo conta na célula do nó em que está ou de onde partiu a aresta que percorre.
+ * <p>
+ * As alterações vêm apenas da thread da simulação. As contagens por célula podem ser lidas de
+ * outras threads (ex.: servidor de métricas); cada contador é lido de forma atômica, mas células
+ * diferentes não são necessariamente do mesmo passo.
+ */
+public class CongestionamentoIncremental {
+    public static final int CELULAS_PADRAO = 8; // Linhas e colunas da grade padrão
+
+    private final int linhas;
+    private final int colunas;
+    private final int totalNos;
+    private final int[] celulaDoNo; // Célula de cada nó, indexada por No.getIndice()
+    private final int[] nosPorCelula;
+    private final AtomicIntegerArray ativosPorCelula;
+    private final AtomicIntegerArray filaPorCelula;
+
+    // Totais da rede, usados só pela thread da simulação
+    private int veiculosAtivos;
+    private int veiculosEmFila;
+
+    public CongestionamentoIncremental(Grafo graph) {
+        this(graph, CELULAS_PADRAO, CELULAS_PADRAO);
+    }
+
+    /**
+     * @param graph Grafo da simulação; a grade é calculada uma vez, a partir das coordenadas dos nós
+     * @param linhas Linhas da grade (faixas de latitude)
+     * @param colunas Colunas da grade (faixas de longitude)
+     */
+    public CongestionamentoIncremental(Grafo graph, int linhas, int colunas) {
+        if (linhas < 1 || colunas < 1) {
+            throw new IllegalArgumentException("Grade de congestionamento inválida: " + linhas + "x" + colunas);
+        }
+        this.linhas = linhas;
+        this.colunas = colunas;
+        ListaLigada<No> nos = graph.getNodes();
+        this.totalNos = nos != null ? nos.size() : 0;
+
+        double latMin = Double.POSITIVE_INFINITY, latMax = Double.NEGATIVE_INFINITY;
+        double lonMin = Double.POSITIVE_INFINITY, lonMax = Double.NEGATIVE_INFINITY;
+        int maiorIndice = -1;
+        if (nos != null) {
+            for (No no : nos) {
+                if (no == null) continue;
+                latMin = Math.min(latMin, no.getLatitude());
+                latMax = Math.max(latMax, no.getLatitude());
+                lonMin = Math.min(lonMin, no.getLongitude());
+                lonMax = Math.max(lonMax, no.getLongitude());
+                maiorIndice = Math.max(maiorIndice, no.getIndice());
+            }
+        }
+
+        this.celulaDoNo = new int[maiorIndice + 1];
+        this.nosPorCelula = new int[linhas * colunas];
+        this.ativosPorCelula = new AtomicIntegerArray(linhas * colunas);
+        this.filaPorCelula = new AtomicIntegerArray(linhas * colunas);
+        if (nos != null) {
+            for (No no : nos) {
+                if (no == null) continue;
+                int linha = faixa(latMax - no.getLatitude(), latMax - latMin, linhas);
+                int coluna = faixa(no.getLongitude() - lonMin, lonMax - lonMin, colunas);
+                int celula = linha * colunas + coluna;
+                celulaDoNo[no.getIndice()] = celula;
+                nosPorCelula[celula]++;
+            }
+        }
+    }
+
+    // Faixa (0..n-1) de um deslocamento dentro de uma extensão; extensão nula cai na faixa 0
+    private static int faixa(double deslocamento, double extensao, int n) {
+        if (!(extensao > 0)) return 0;
+        return Math.min(n - 1, Math.max(0, (int) (deslocamento / extensao * n)));
+    }
+
+    private int celula(int indiceNo) {
+        return (indiceNo >= 0 && indiceNo < celulaDoNo.length) ? celulaDoNo[indiceNo] : -1;
+    }
+
+    /** Um veículo entrou na simulação no nó indicado. */
+    public void veiculoGerado(int indiceNo) {
+        veiculosAtivos++;
+        int c = celula(indiceNo);
+        if (c >= 0) ativosPorCelula.incrementAndGet(c);
+    }
+
+    /** Um veículo chegou ao destino, no nó indicado, e saiu da simulação. */
+    public void veiculoChegou(int indiceNo) {
+        veiculosAtivos--;
+        int c = celula(indiceNo);
+        if (c >= 0) ativosPorCelula.decrementAndGet(c);
+    }
+
+    /** Um veículo concluiu a aresta e passou do nó {@code de} para o nó {@code para}. */
+    public void veiculoAvancou(int de, int para) {
+        int origem = celula(de);
+        int destino = celula(para);
+        if (origem == destino) return;
+        if (origem >= 0) ativosPorCelula.decrementAndGet(origem);
+        if (destino >= 0) ativosPorCelula.incrementAndGet(destino);
+    }
+
+    /**
+     * Entrada (delta positivo) ou saída (negativo) de veículos da fila do semáforo do nó indicado.
+     */
+    public void filaAlterada(int indiceNo, int delta) {
+        veiculosEmFila += delta;
+        int c = celula(indiceNo);
+        if (c >= 0) filaPorCelula.addAndGet(c, delta);
+    }
+
+    /**
+     * Refaz todas as contagens a partir dos veículos e das filas atuais, percorrendo-os. Usado
+     * quando o estado é substituído de uma vez, como ao restaurar um instantâneo.
+     * @param veiculos Veículos ativos
+     * @param semaforoPorNo Semáforo de cada nó, indexado por {@link No#getIndice()}
+     */
+    public void recalcular(ListaLigada<Veiculo> veiculos, SinalTransito[] semaforoPorNo) {
+        for (int c = 0; c < nosPorCelula.length; c++) {
+            ativosPorCelula.set(c, 0);
+            filaPorCelula.set(c, 0);
+        }
+        veiculosAtivos = 0;
+        veiculosEmFila = 0;
+        if (veiculos != null) {
+            for (Veiculo vehicle : veiculos) {
+                if (vehicle != null) veiculoGerado(vehicle.getCurrentNode());
+            }
+        }
+        if (semaforoPorNo != null) {
+            for (int i = 0; i < semaforoPorNo.length; i++) {
+                if (semaforoPorNo[i] != null) filaAlterada(i, semaforoPorNo[i].getTotalVehiclesInQueues());
+            }
+        }
+    }
+
+    public int getVeiculosAtivos() {
+        return veiculosAtivos;
+    }
+
+    public int getVeiculosEmFila() {
+        return veiculosEmFila;
+    }
+
+    public int getTotalNos() {
+        return totalNos;
+    }
+
+    public int getLinhas() {
+        return linhas;
+    }
+
+    public int getColunas() {
+        return colunas;
+    }
+
+    public int getNos(int linha, int coluna) {
+        return nosPorCelula[linha * colunas + coluna];
+    }
+
+    public int getVeiculosAtivos(int linha, int coluna) {
+        return ativosPorCelula.get(linha * colunas + coluna);
+    }
+
+    public int getVeiculosEmFila(int linha, int coluna) {
+        return filaPorCelula.get(linha * colunas + coluna);
+    }
+
+    /**
+     * @return Índice de congestionamento da célula, de 0 a 100 (0 em células sem nós)
+     */
+    public double getIndice(int linha, int coluna) {
+        int c = linha * colunas + coluna;
+        if (nosPorCelula[c] == 0) return 0.0;
+        return Estatisticas.indiceCongestionamento(ativosPorCelula.get(c), filaPorCelula.get(c), nosPorCelula[c]);
+    }
+}
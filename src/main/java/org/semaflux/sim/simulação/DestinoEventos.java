@@ -0,0 +1,23 @@
+package org.semaflux.sim.simulação;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destino dos eventos de um {@link RegistroEventos}. Os métodos são chamados apenas pela thread
+ * de escoamento do registro, nunca pela simulação, então podem fazer E/S à vontade.
+ */
+public interface DestinoEventos extends Closeable {
+
+    /**
+     * Recebe um evento. O objeto é reaproveitado pelo registro após o retorno: copie o que
+     * precisar guardar.
+     */
+    void receber(Evento evento) throws IOException;
+
+    /**
+     * Chamado quando o buffer do registro esvazia; destinos com buffer próprio devem gravá-lo.
+     */
+    default void descarregar() throws IOException {
+    }
+}
@@ -0,0 +1,118 @@
+package org.semaflux.sim.simulação;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Grava os eventos em formato binário compacto ({@code .sfe}), um registro de tamanho fixo por
+ * evento, mais o texto dos erros.
+ * <p>
+ * Formato (big-endian): magic "SFEV" e versão; depois, por evento, tipo (byte, ordinal de
+ * {@link Evento.Tipo}), tempo (double), três inteiros, dois reais e, só nos erros, a mensagem (UTF).
+ * <p>
+ * Conversão para texto: {@link #converterParaTexto} ou pela linha de comando
+ * {@code DestinoEventosBinario entrada.sfe [saida.txt]}.
+ */
+public class DestinoEventosBinario implements DestinoEventos {
+    public static final String EXTENSAO = ".sfe";
+    private static final int MAGICO = 0x53464556; // "SFEV"
+    private static final int VERSAO = 1;
+
+    private final DataOutputStream out;
+
+    public DestinoEventosBinario(File arquivo) throws IOException {
+        File dir = arquivo.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Não foi possível criar o diretório " + dir);
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(arquivo), 1 << 16));
+        out.writeInt(MAGICO);
+        out.writeInt(VERSAO);
+    }
+
+    @Override
+    public void receber(Evento evento) throws IOException {
+        out.writeByte(evento.tipo.ordinal());
+        out.writeDouble(evento.tempo);
+        out.writeInt(evento.inteiro1);
+        out.writeInt(evento.inteiro2);
+        out.writeInt(evento.inteiro3);
+        out.writeDouble(evento.real1);
+        out.writeDouble(evento.real2);
+        if (evento.tipo == Evento.Tipo.ERRO) {
+            out.writeUTF(evento.texto != null ? evento.texto : "");
+        }
+    }
+
+    @Override
+    public void descarregar() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Converte um arquivo {@code .sfe} em texto, um evento por linha.
+     * @return Número de eventos convertidos
+     */
+    public static long converterParaTexto(File entrada, File saida) throws IOException {
+        Evento.Tipo[] tipos = Evento.Tipo.values();
+        Evento evento = new Evento();
+        StringBuilder sb = new StringBuilder(128);
+        long total = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entrada), 1 << 16));
+             Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(saida), StandardCharsets.UTF_8), 1 << 16)) {
+            if (in.readInt() != MAGICO) throw new IOException("Arquivo não é um registro de eventos: " + entrada);
+            int versao = in.readInt();
+            if (versao != VERSAO) throw new IOException("Versão de registro de eventos não suportada: " + versao);
+            while (true) {
+                int tipo;
+                try {
+                    tipo = in.readUnsignedByte();
+                } catch (EOFException fim) {
+                    break;
+                }
+                if (tipo >= tipos.length) throw new IOException("Tipo de evento inválido: " + tipo);
+                evento.definir(tipos[tipo], in.readDouble(), in.readInt(), in.readInt(), in.readInt(),
+                        in.readDouble(), in.readDouble(), null);
+                if (evento.tipo == Evento.Tipo.ERRO) evento.texto = in.readUTF();
+                sb.setLength(0);
+                evento.formatar(sb);
+                w.append(sb).append('\n');
+                total++;
+            }
+        }
+        return total;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Uso: DestinoEventosBinario <entrada" + EXTENSAO + "> [saida.txt]");
+            System.exit(1);
+        }
+        File entrada = new File(args[0]);
+        String nomeSaida = (args.length > 1) ? args[1] : args[0].replaceFirst("\\" + EXTENSAO + "$", "") + ".txt";
+        File saida = new File(nomeSaida);
+        try {
+            long total = converterParaTexto(entrada, saida);
+            System.out.println("Registro convertido: " + saida + " (" + total + " eventos)");
+        } catch (Exception e) {
+            System.err.println("Erro ao converter " + entrada + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.semaflux.sim.simulação;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mantém em memória os últimos eventos recebidos, para consulta pela interface ou ao
+ * diagnosticar uma simulação sem gravar arquivos.
+ */
+public class DestinoEventosMemoria implements DestinoEventos {
+    private final Evento[] eventos;
+    private long recebidos;
+
+    public DestinoEventosMemoria(int capacidade) {
+        if (capacidade < 1) throw new IllegalArgumentException("Capacidade deve ser positiva: " + capacidade);
+        this.eventos = new Evento[capacidade];
+        for (int i = 0; i < capacidade; i++) {
+            eventos[i] = new Evento();
+        }
+    }
+
+    @Override
+    public synchronized void receber(Evento evento) {
+        eventos[(int) (recebidos % eventos.length)].copiarDe(evento);
+        recebidos++;
+    }
+
+    /**
+     * @return Cópia dos últimos eventos, do mais antigo ao mais recente
+     */
+    public synchronized List<Evento> getUltimos() {
+        int n = (int) Math.min(recebidos, eventos.length);
+        List<Evento> copia = new ArrayList<>(n);
+        for (long i = recebidos - n; i < recebidos; i++) {
+            Evento e = new Evento();
+            e.copiarDe(eventos[(int) (i % eventos.length)]);
+            copia.add(e);
+        }
+        return copia;
+    }
+
+    /** @return Total de eventos recebidos desde a criação */
+    public synchronized long getRecebidos() {
+        return recebidos;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,106 @@
+package org.semaflux.sim.simulação;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Grava os eventos como texto legível, um por linha.
+ * <p>
+ * Em arquivo, o destino é rotativo: quando o arquivo atual passa de {@code limiteBytes}, ele é
+ * renomeado para {@code nome.1} (o {@code .1} anterior vira {@code .2}, e assim por diante até
+ * {@code arquivosAntigos}) e um novo arquivo é aberto. Também pode escrever em um {@link Writer}
+ * já aberto, como o console, filtrando os tipos de evento; nesse caso o Writer não é fechado.
+ */
+public class DestinoEventosTexto implements DestinoEventos {
+    private final File arquivo;
+    private final long limiteBytes;
+    private final int arquivosAntigos;
+    private final Set<Evento.Tipo> tipos;
+    private final StringBuilder linha = new StringBuilder(128);
+    private Writer saida;
+    private long bytesEscritos;
+
+    /**
+     * @param arquivo Arquivo atual; os antigos recebem os sufixos .1, .2, ...
+     * @param limiteBytes Tamanho aproximado a partir do qual o arquivo é rotacionado
+     * @param arquivosAntigos Quantos arquivos rotacionados manter
+     */
+    public DestinoEventosTexto(File arquivo, long limiteBytes, int arquivosAntigos) throws IOException {
+        if (limiteBytes <= 0) throw new IllegalArgumentException("Limite do arquivo de eventos deve ser positivo: " + limiteBytes);
+        this.arquivo = arquivo;
+        this.limiteBytes = limiteBytes;
+        this.arquivosAntigos = Math.max(0, arquivosAntigos);
+        this.tipos = EnumSet.allOf(Evento.Tipo.class);
+        File dir = arquivo.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Não foi possível criar o diretório " + dir);
+        }
+        abrir();
+    }
+
+    /**
+     * Escreve em um Writer existente (por exemplo, o console), apenas os tipos indicados.
+     */
+    public DestinoEventosTexto(Writer saida, Set<Evento.Tipo> tipos) {
+        this.arquivo = null;
+        this.limiteBytes = Long.MAX_VALUE;
+        this.arquivosAntigos = 0;
+        this.tipos = EnumSet.copyOf(tipos);
+        this.saida = saida;
+    }
+
+    private void abrir() throws IOException {
+        saida = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(arquivo), StandardCharsets.UTF_8), 1 << 16);
+        bytesEscritos = 0;
+    }
+
+    @Override
+    public void receber(Evento evento) throws IOException {
+        if (!tipos.contains(evento.tipo)) return;
+        linha.setLength(0);
+        evento.formatar(linha);
+        linha.append('\n');
+        saida.append(linha);
+        bytesEscritos += linha.length();
+        if (bytesEscritos >= limiteBytes) {
+            rotacionar();
+        }
+    }
+
+    private void rotacionar() throws IOException {
+        saida.close();
+        String nome = arquivo.getPath();
+        if (arquivosAntigos == 0) {
+            if (!arquivo.delete()) throw new IOException("Não foi possível remover " + arquivo);
+        } else {
+            File maisAntigo = new File(nome + "." + arquivosAntigos);
+            if (maisAntigo.exists() && !maisAntigo.delete()) throw new IOException("Não foi possível remover " + maisAntigo);
+            for (int i = arquivosAntigos - 1; i >= 1; i--) {
+                File f = new File(nome + "." + i);
+                if (f.exists() && !f.renameTo(new File(nome + "." + (i + 1)))) {
+                    throw new IOException("Não foi possível renomear " + f);
+                }
+            }
+            if (!arquivo.renameTo(new File(nome + ".1"))) throw new IOException("Não foi possível renomear " + arquivo);
+        }
+        abrir();
+    }
+
+    @Override
+    public void descarregar() throws IOException {
+        saida.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (arquivo != null) saida.close();
+        else saida.flush();
+    }
+}
@@ -0,0 +1,179 @@
+package org.semaflux.sim.simulação;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Distribuição de valores não negativos em memória constante, para estimar quantis (p50, p95, p99)
+ * de tempos de viagem, tempos de espera e consumo por viagem.
+ * <p>
+ * Os valores são contados em faixas logarítmicas: a faixa {@code i} cobre
+ * {@code (gama^(i-1), gama^i]} com {@code gama = (1 + erro) / (1 - erro)}, de modo que o quantil
+ * estimado pelo centro da faixa tem erro relativo de no máximo {@code erro} (1% por padrão).
+ * Valores abaixo de {@value #VALOR_MINIMO} caem na faixa zero e valores acima de
+ * {@value #VALOR_MAXIMO} na última faixa; mínimo e máximo são guardados exatos.
+ * <p>
+ * Duas distribuições com o mesmo erro relativo podem ser unidas somando as contagens
+ * ({@link #mesclar}), o que permite combinar os resultados de várias simulações sem guardar as
+ * amostras. Os métodos são sincronizados na própria distribuição: a simulação registra e a
+ * interface consulta.
+ */
+public class DistribuicaoQuantis {
+    public static final double ERRO_RELATIVO_PADRAO = 0.01;
+    static final double VALOR_MINIMO = 1e-3;
+    static final double VALOR_MAXIMO = 1e7;
+
+    private final double erroRelativo;
+    private final double gama;
+    private final double logGama;
+    private final long[] contagens; // Faixa 0: valores até VALOR_MINIMO
+    private long total;
+    private double minimo = Double.POSITIVE_INFINITY;
+    private double maximo = Double.NEGATIVE_INFINITY;
+
+    public DistribuicaoQuantis() {
+        this(ERRO_RELATIVO_PADRAO);
+    }
+
+    /**
+     * @param erroRelativo Erro relativo máximo dos quantis estimados, entre 0 e 1 (ex.: 0.01 para 1%)
+     */
+    public DistribuicaoQuantis(double erroRelativo) {
+        if (!(erroRelativo > 0.0 && erroRelativo < 1.0)) {
+            throw new IllegalArgumentException("Erro relativo deve estar entre 0 e 1: " + erroRelativo);
+        }
+        this.erroRelativo = erroRelativo;
+        this.gama = (1.0 + erroRelativo) / (1.0 - erroRelativo);
+        this.logGama = Math.log(gama);
+        int faixas = (int) Math.ceil(Math.log(VALOR_MAXIMO / VALOR_MINIMO) / logGama) + 2;
+        this.contagens = new long[faixas];
+    }
+
+    /**
+     * Conta um valor. Valores negativos ou não numéricos são ignorados.
+     */
+    public synchronized void registrar(double valor) {
+        if (!(valor >= 0.0)) return;
+        contagens[faixa(valor)]++;
+        total++;
+        if (valor < minimo) minimo = valor;
+        if (valor > maximo) maximo = valor;
+    }
+
+    private int faixa(double valor) {
+        if (valor <= VALOR_MINIMO) return 0;
+        int i = (int) Math.ceil(Math.log(valor / VALOR_MINIMO) / logGama);
+        return Math.min(Math.max(i, 1), contagens.length - 1);
+    }
+
+    // Valor representativo da faixa: o ponto de erro relativo mínimo entre seus limites
+    private double valorDaFaixa(int i) {
+        if (i == 0) return 0.0;
+        return VALOR_MINIMO * Math.pow(gama, i) * 2.0 / (gama + 1.0);
+    }
+
+    /**
+     * Estima o quantil {@code q} (ex.: 0.95 para o p95) dos valores registrados.
+     * @return O valor estimado, limitado ao mínimo e máximo exatos, ou 0 se não houver valores
+     */
+    public synchronized double quantil(double q) {
+        if (total == 0) return 0.0;
+        if (q <= 0.0) return minimo;
+        if (q >= 1.0) return maximo;
+        long posicao = (long) Math.floor(q * (total - 1)); // Posição do valor na ordem crescente
+        long acumulado = 0;
+        for (int i = 0; i < contagens.length; i++) {
+            acumulado += contagens[i];
+            if (acumulado > posicao) {
+                return Math.min(Math.max(valorDaFaixa(i), minimo), maximo);
+            }
+        }
+        return maximo;
+    }
+
+    /**
+     * Soma a esta distribuição as contagens de outra com o mesmo erro relativo.
+     * @throws IllegalArgumentException se os erros relativos forem diferentes
+     */
+    public void mesclar(DistribuicaoQuantis outra) {
+        if (outra == this) return;
+        if (outra.erroRelativo != erroRelativo) {
+            throw new IllegalArgumentException("Distribuições com erros relativos diferentes: "
+                    + erroRelativo + " e " + outra.erroRelativo);
+        }
+        long[] contagensOutra;
+        long totalOutra;
+        double minimoOutra, maximoOutra;
+        synchronized (outra) {
+            contagensOutra = outra.contagens.clone();
+            totalOutra = outra.total;
+            minimoOutra = outra.minimo;
+            maximoOutra = outra.maximo;
+        }
+        synchronized (this) {
+            for (int i = 0; i < contagens.length; i++) {
+                contagens[i] += contagensOutra[i];
+            }
+            total += totalOutra;
+            minimo = Math.min(minimo, minimoOutra);
+            maximo = Math.max(maximo, maximoOutra);
+        }
+    }
+
+    public synchronized long getContagem() {
+        return total;
+    }
+
+    /** @return O menor valor registrado, ou 0 se não houver valores */
+    public synchronized double getMinimo() {
+        return total > 0 ? minimo : 0.0;
+    }
+
+    /** @return O maior valor registrado, ou 0 se não houver valores */
+    public synchronized double getMaximo() {
+        return total > 0 ? maximo : 0.0;
+    }
+
+    public double getErroRelativo() {
+        return erroRelativo;
+    }
+
+    /**
+     * Grava as contagens em um instantâneo da simulação, apenas as faixas não vazias.
+     */
+    synchronized void salvarEstado(DataOutput out) throws IOException {
+        out.writeLong(total);
+        out.writeDouble(minimo);
+        out.writeDouble(maximo);
+        for (int i = 0; i < contagens.length; i++) {
+            if (contagens[i] == 0) continue;
+            out.writeInt(i);
+            out.writeLong(contagens[i]);
+        }
+        out.writeInt(-1);
+    }
+
+    /**
+     * Substitui as contagens pelas gravadas em {@link #salvarEstado}.
+     */
+    synchronized void restaurarEstado(DataInput in) throws IOException {
+        long totalGravado = in.readLong();
+        double minimoGravado = in.readDouble();
+        double maximoGravado = in.readDouble();
+        Arrays.fill(contagens, 0);
+        long soma = 0;
+        int i;
+        while ((i = in.readInt()) >= 0) {
+            if (i >= contagens.length) throw new IOException("Faixa de distribuição inválida: " + i);
+            long contagem = in.readLong();
+            contagens[i] = contagem;
+            soma += contagem;
+        }
+        if (soma != totalGravado) throw new IOException("Distribuição inconsistente no instantâneo");
+        total = totalGravado;
+        minimo = minimoGravado;
+        maximo = maximoGravado;
+    }
+}
@@ -1,7 +1,11 @@
 package org.semaflux.sim.simulação;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.semaflux.sim.core.Grafo;
 import org.semaflux.sim.core.ListaLigada;
@@ -13,55 +17,78 @@ import org.semaflux.sim.core.Veiculo;
  * Esta classe rastreia o número de veículos gerados, veículos que chegaram ao destino,
  * tempos totais de viagem e espera, consumo total de combustível, e um índice de
  * congestionamento dinâmico.
+ * <p>
+ * Os contadores e somas são acumuladores sem bloqueio ({@link LongAdder}, {@link DoubleAdder} e
+ * {@link DoubleAccumulator} para os máximos), que podem ser atualizados de várias threads. Ao fim
+ * de cada passo ({@link #calculateCurrentCongestion}) os valores são publicados em um
+ * {@link RetratoEstatisticas} imutável, que a interface e o servidor de métricas leem sem bloquear.
+ * Os getters individuais leem os acumuladores diretamente e servem para consultas fora do passo
+ * (ex.: resumo final).
+ * <p>
+ * Os históricos para gráficos são {@link SerieTemporal}s de capacidade fixa, que agregam as
+ * amostras em faixas cada vez mais largas em simulações longas. As distribuições por viagem (tempo
+ * de viagem, tempo de espera e consumo) são {@link DistribuicaoQuantis}, de onde saem os
+ * percentis p50, p95 e p99. Estas estruturas não são sem bloqueio: cada uma é sincronizada em si
+ * mesma, e a simulação toma o monitor a cada chegada (distribuições) e a cada passo (históricos).
+ * Só o resumo final as consulta, com a simulação já encerrada, de modo que durante a simulação os
+ * monitores não são disputados.
  */
 public class Estatisticas {
-    private int vehiclesGenerated;
-    private int vehiclesArrived;
-    private double totalTravelTime;
-    private double totalWaitTime;
-    private double totalFuelConsumed;
-    private double currentTime;
-
-    private double currentCongestionIndex;
-    private double maxRecordedCongestionRatio; // Para guardar o pico de congestionamento normalizado
-    
-    // Histórico de dados para gráficos
-    private List<Double> timeHistory = new ArrayList<>();
-    private List<Double> congestionHistory = new ArrayList<>();
-    private List<Integer> activeVehiclesHistory = new ArrayList<>();
-    private List<Double> waitTimeHistory = new ArrayList<>();
-    private List<Double> fuelConsumptionHistory = new ArrayList<>();
-    private double maxTravelTime = 0.0;
-    private double maxWaitTime = 0.0;
+    private final LongAdder vehiclesGenerated = new LongAdder();
+    private final LongAdder vehiclesArrived = new LongAdder();
+    private final DoubleAdder totalTravelTime = new DoubleAdder();
+    private final DoubleAdder totalWaitTime = new DoubleAdder();
+    private final DoubleAdder totalFuelConsumed = new DoubleAdder();
+    private volatile double currentTime;
+    private final LongAdder vehiclesRerouted = new LongAdder(); // Veículos que receberam nova rota durante o trajeto
+
+    private volatile double currentCongestionIndex;
+    private final DoubleAccumulator maxRecordedCongestionRatio = new DoubleAccumulator(Math::max, 0.0); // Pico de congestionamento normalizado
+    private final DoubleAccumulator maxTravelTime = new DoubleAccumulator(Math::max, 0.0);
+    private final DoubleAccumulator maxWaitTime = new DoubleAccumulator(Math::max, 0.0);
+    private volatile RetratoEstatisticas retrato; // Último retrato publicado ao fim de um passo
+
+    // Histórico de dados para gráficos, uma amostra por passo
+    private final SerieTemporal congestionHistory = new SerieTemporal();
+    private final SerieTemporal activeVehiclesHistory = new SerieTemporal();
+    private final SerieTemporal waitTimeHistory = new SerieTemporal();
+    private final SerieTemporal fuelConsumptionHistory = new SerieTemporal();
+
+    // Distribuições por veículo que chegou ao destino, para percentis
+    private final DistribuicaoQuantis travelTimeDistribution = new DistribuicaoQuantis();
+    private final DistribuicaoQuantis waitTimeDistribution = new DistribuicaoQuantis();
+    private final DistribuicaoQuantis fuelDistribution = new DistribuicaoQuantis();
 
     /**
      * Construtor padrão para a classe Statistics.
      * Inicializa todas as contagens e totais em zero.
      */
     public Estatisticas() {
-        this.vehiclesGenerated = 0;
-        this.vehiclesArrived = 0;
-        this.totalTravelTime = 0.0;
-        this.totalWaitTime = 0.0;
-        this.totalFuelConsumed = 0.0;
         this.currentTime = 0.0;
         this.currentCongestionIndex = 0.0;
-        this.maxRecordedCongestionRatio = 0.0;
         
         // Inicializar os históricos com um ponto zero
-        this.timeHistory.add(0.0);
-        this.congestionHistory.add(0.0);
-        this.activeVehiclesHistory.add(0);
-        this.waitTimeHistory.add(0.0);
-        this.fuelConsumptionHistory.add(0.0);
+        this.congestionHistory.registrar(0.0, 0.0);
+        this.activeVehiclesHistory.registrar(0.0, 0);
+        this.waitTimeHistory.registrar(0.0, 0.0);
+        this.fuelConsumptionHistory.registrar(0.0, 0.0);
+        publicarRetrato(0);
     }
 
     /**
      * Incrementa o contador de veículos gerados.
      * Deve ser chamado sempre que um novo veículo é introduzido na simulação.
      */
-    public synchronized void vehicleGenerated() {
-        this.vehiclesGenerated++;
+    public void vehicleGenerated() {
+        vehiclesGenerated.increment();
+    }
+
+    /**
+     * Incrementa o contador de redirecionamentos.
+     * Deve ser chamado quando um veículo em trânsito passa a seguir uma nova rota.
+     */
+    public void vehicleRerouted() {
+        vehiclesRerouted.increment();
     }
 
     /**
@@ -71,27 +98,26 @@ public class Estatisticas {
      * @param waitTime O tempo total que o veículo passou esperando.
      * @param fuelConsumedByVehicle O total de combustível consumido pelo veículo.
      */
-    public synchronized void vehicleArrived(double travelTime, double waitTime, double fuelConsumedByVehicle) {
-        this.vehiclesArrived++;
-        this.totalTravelTime += travelTime;
-        this.totalWaitTime += waitTime;
-        this.totalFuelConsumed += fuelConsumedByVehicle;
+    public void vehicleArrived(double travelTime, double waitTime, double fuelConsumedByVehicle) {
+        vehiclesArrived.increment();
+        totalTravelTime.add(travelTime);
+        totalWaitTime.add(waitTime);
+        totalFuelConsumed.add(fuelConsumedByVehicle);
         
         // Atualiza valores máximos
-        if (travelTime > maxTravelTime) {
-            maxTravelTime = travelTime;
-        }
-        
-        if (waitTime > maxWaitTime) {
-            maxWaitTime = waitTime;
-        }
+        maxTravelTime.accumulate(travelTime);
+        maxWaitTime.accumulate(waitTime);
+
+        travelTimeDistribution.registrar(travelTime);
+        waitTimeDistribution.registrar(waitTime);
+        fuelDistribution.registrar(fuelConsumedByVehicle);
     }
 
     /**
      * Atualiza o tempo corrente da simulação para referência nas estatísticas.
      * @param time O tempo atual da simulação.
      */
-    public synchronized void updateCurrentTime(double time) {
+    public void updateCurrentTime(double time) {
         this.currentTime = time;
     }
 
@@ -109,14 +135,16 @@ public class Estatisticas {
      * para gerar um índice de congestionamento normalizado (idealmente entre 0 e 1, mas pode exceder 1
      * em situações extremas se a normalização não for perfeita ou se a rede estiver supersaturada).
      * <p>
-     * O método também rastreia o {@code maxRecordedCongestionRatio}.
+     * O método também rastreia o {@code maxRecordedCongestionRatio} e, por ser chamado ao fim de
+     * cada passo, publica o {@link RetratoEstatisticas} do passo.
      *
      * @param activeVehicles Lista de todos os veículos atualmente ativos na simulação.
      * @param graph          O grafo da rede urbana, usado para acessar semáforos e o número total de nós.
      */
-    public synchronized void calculateCurrentCongestion(ListaLigada<Veiculo> activeVehicles, Grafo graph) {
+    public void calculateCurrentCongestion(ListaLigada<Veiculo> activeVehicles, Grafo graph) {
         if (graph == null || graph.getNodes() == null || graph.getNodes().isEmpty() || activeVehicles == null) {
             this.currentCongestionIndex = 0.0;
+            publicarRetrato(0);
             return;
         }
 
@@ -131,12 +159,55 @@ public class Estatisticas {
                 }
             }
         }
+        registrarCongestionamento(numberOfActiveVehicles, totalQueuedVehicles, totalNodes);
+    }
+
+    /**
+     * Mesmo cálculo de {@link #calculateCurrentCongestion(ListaLigada, Grafo)}, com as contagens
+     * mantidas de forma incremental: não percorre os semáforos nem os nós, e custa o mesmo
+     * qualquer que seja o tamanho da rede.
+     *
+     * @param congestionamento Contagens de veículos ativos e enfileirados atualizadas pela simulação
+     */
+    public void calculateCurrentCongestion(CongestionamentoIncremental congestionamento) {
+        if (congestionamento == null || congestionamento.getTotalNos() == 0) {
+            this.currentCongestionIndex = 0.0;
+            publicarRetrato(0);
+            return;
+        }
+        registrarCongestionamento(congestionamento.getVeiculosAtivos(), congestionamento.getVeiculosEmFila(),
+                congestionamento.getTotalNos());
+    }
 
+    private void registrarCongestionamento(int numberOfActiveVehicles, int totalQueuedVehicles, int totalNodes) {
         if (totalNodes == 0) { // Evita divisão por zero se, por algum motivo, não houver nós
             this.currentCongestionIndex = numberOfActiveVehicles + totalQueuedVehicles; // Fallback para a métrica antiga
+            publicarRetrato(numberOfActiveVehicles);
             return;
         }
 
+        double congestionIndex = indiceCongestionamento(numberOfActiveVehicles, totalQueuedVehicles, totalNodes);
+        this.currentCongestionIndex = congestionIndex;
+
+        // Atualiza o pico de congestionamento
+        maxRecordedCongestionRatio.accumulate(congestionIndex);
+        RetratoEstatisticas atual = publicarRetrato(numberOfActiveVehicles);
+        
+        // Registrar dados para histórico a cada segundo para ter mais pontos nos gráficos
+        if (Math.round(currentTime) % 1 == 0) {
+            double tempo = atual.getTempo();
+            congestionHistory.registrar(tempo, congestionIndex);
+            activeVehiclesHistory.registrar(tempo, numberOfActiveVehicles);
+            waitTimeHistory.registrar(tempo, atual.getTempoMedioEspera());
+            fuelConsumptionHistory.registrar(tempo, atual.getCombustivelTotal());
+        }
+    }
+
+    /**
+     * Índice de congestionamento, de 0 a 100, de uma rede (ou parte dela) com o número de nós,
+     * veículos ativos e veículos enfileirados indicados. {@code totalNodes} deve ser positivo.
+     */
+    static double indiceCongestionamento(int numberOfActiveVehicles, int totalQueuedVehicles, int totalNodes) {
         // Componente 1: Densidade de veículos na rede (0 a 1, pode ser > 1 se muitos carros por nó)
         double vehicleDensityRatio = (double) numberOfActiveVehicles / totalNodes;
         
@@ -154,21 +225,92 @@ public class Estatisticas {
         double rawCongestionScore = (0.4 * vehicleDensityRatio) + (0.6 * queuedVehicleRatio);
 
         // Garante um valor entre 0 e 100%
-        this.currentCongestionIndex = Math.min(100.0, rawCongestionScore * 100);
+        return Math.min(100.0, rawCongestionScore * 100);
+    }
 
-        // Atualiza o pico de congestionamento
-        if (this.currentCongestionIndex > this.maxRecordedCongestionRatio) {
-            this.maxRecordedCongestionRatio = this.currentCongestionIndex;
-        }
-        
-        // Registrar dados para histórico a cada segundo para ter mais pontos nos gráficos
-        if (Math.round(currentTime) % 1 == 0) {
-            timeHistory.add(currentTime);
-            congestionHistory.add(currentCongestionIndex);
-            activeVehiclesHistory.add(numberOfActiveVehicles);
-            waitTimeHistory.add(getAverageWaitTime());
-            fuelConsumptionHistory.add(totalFuelConsumed);
-        }
+    // Lê os acumuladores e publica o retrato do passo (uma escrita volátil)
+    private RetratoEstatisticas publicarRetrato(int veiculosAtivos) {
+        RetratoEstatisticas atual = new RetratoEstatisticas(currentTime, vehiclesGenerated.intValue(),
+                vehiclesArrived.intValue(), vehiclesRerouted.intValue(), veiculosAtivos,
+                totalTravelTime.sum(), totalWaitTime.sum(), totalFuelConsumed.sum(), currentCongestionIndex,
+                maxRecordedCongestionRatio.get(), maxTravelTime.get(), maxWaitTime.get());
+        this.retrato = atual;
+        return atual;
+    }
+
+    /**
+     * Retorna o retrato publicado ao fim do último passo da simulação. Não bloqueia e pode ser
+     * chamado de qualquer thread; todos os valores do retrato são do mesmo instante.
+     */
+    public RetratoEstatisticas getRetrato() {
+        return retrato;
+    }
+
+    /**
+     * Grava contadores, máximos e históricos em um instantâneo da simulação.
+     */
+    void salvarEstado(DataOutput out) throws IOException {
+        RetratoEstatisticas atual = retrato;
+        out.writeInt(vehiclesGenerated.intValue());
+        out.writeInt(vehiclesArrived.intValue());
+        out.writeInt(vehiclesRerouted.intValue());
+        out.writeDouble(totalTravelTime.sum());
+        out.writeDouble(totalWaitTime.sum());
+        out.writeDouble(totalFuelConsumed.sum());
+        out.writeDouble(currentTime);
+        out.writeDouble(currentCongestionIndex);
+        out.writeDouble(maxRecordedCongestionRatio.get());
+        out.writeDouble(maxTravelTime.get());
+        out.writeDouble(maxWaitTime.get());
+        out.writeInt(atual.getVeiculosAtivos());
+        congestionHistory.salvarEstado(out);
+        activeVehiclesHistory.salvarEstado(out);
+        waitTimeHistory.salvarEstado(out);
+        fuelConsumptionHistory.salvarEstado(out);
+        travelTimeDistribution.salvarEstado(out);
+        waitTimeDistribution.salvarEstado(out);
+        fuelDistribution.salvarEstado(out);
+    }
+
+    /**
+     * Substitui todo o estado pelo gravado em {@link #salvarEstado}.
+     */
+    void restaurarEstado(DataInput in) throws IOException {
+        redefinir(vehiclesGenerated, in.readInt());
+        redefinir(vehiclesArrived, in.readInt());
+        redefinir(vehiclesRerouted, in.readInt());
+        redefinir(totalTravelTime, in.readDouble());
+        redefinir(totalWaitTime, in.readDouble());
+        redefinir(totalFuelConsumed, in.readDouble());
+        this.currentTime = in.readDouble();
+        this.currentCongestionIndex = in.readDouble();
+        redefinir(maxRecordedCongestionRatio, in.readDouble());
+        redefinir(maxTravelTime, in.readDouble());
+        redefinir(maxWaitTime, in.readDouble());
+        int veiculosAtivos = in.readInt();
+        congestionHistory.restaurarEstado(in);
+        activeVehiclesHistory.restaurarEstado(in);
+        waitTimeHistory.restaurarEstado(in);
+        fuelConsumptionHistory.restaurarEstado(in);
+        travelTimeDistribution.restaurarEstado(in);
+        waitTimeDistribution.restaurarEstado(in);
+        fuelDistribution.restaurarEstado(in);
+        publicarRetrato(veiculosAtivos);
+    }
+
+    private static void redefinir(LongAdder contador, long valor) {
+        contador.reset();
+        contador.add(valor);
+    }
+
+    private static void redefinir(DoubleAdder soma, double valor) {
+        soma.reset();
+        soma.add(valor);
+    }
+
+    private static void redefinir(DoubleAccumulator maximo, double valor) {
+        maximo.reset();
+        maximo.accumulate(valor);
     }
 
     /**
@@ -176,18 +318,16 @@ public class Estatisticas {
      * @return String com informações de depuração
      */
     public String getDebugInfo() {
-        return "Pontos coletados: Tempo=" + timeHistory.size() + 
-               ", Congestionamento=" + congestionHistory.size() + 
-               ", Veículos=" + activeVehiclesHistory.size() + 
-               ", Espera=" + waitTimeHistory.size() + 
-               ", Combustível=" + fuelConsumptionHistory.size();
+        return "Amostras coletadas: " + congestionHistory.getTotalAmostras() +
+               ", Pontos por série: " + congestionHistory.tamanho() +
+               ", Amostras por ponto: " + congestionHistory.getAmostrasPorFaixa();
     }
 
     /**
      * Retorna o índice de congestionamento calculado mais recentemente, como uma porcentagem (0-100).
      * @return O índice de congestionamento atual como porcentagem.
      */
-    public synchronized double getCurrentCongestionIndex() {
+    public double getCurrentCongestionIndex() {
         return this.currentCongestionIndex;
     }
 
@@ -195,69 +335,80 @@ public class Estatisticas {
      * Retorna o maior índice de congestionamento (como porcentagem) registrado durante a simulação.
      * @return O pico de congestionamento registrado.
      */
-    public synchronized double getMaxRecordedCongestionRatio() {
-        return maxRecordedCongestionRatio;
+    public double getMaxRecordedCongestionRatio() {
+        return maxRecordedCongestionRatio.get();
     }
 
     /**
      * Retorna o número total de veículos gerados durante a simulação.
      * @return O total de veículos gerados.
      */
-    public synchronized int getTotalVehiclesGenerated() {
-        return vehiclesGenerated;
+    public int getTotalVehiclesGenerated() {
+        return vehiclesGenerated.intValue();
     }
 
     /**
      * Retorna o número de veículos que chegaram aos seus destinos.
      * @return O total de veículos que chegaram.
      */
-    public synchronized int getArrivedCount() {
-        return vehiclesArrived;
+    public int getArrivedCount() {
+        return vehiclesArrived.intValue();
     }
 
     /**
      * Calcula e retorna o tempo médio de viagem para os veículos que chegaram ao destino.
      * @return O tempo médio de viagem em segundos, ou 0.0 se nenhum veículo chegou.
      */
-    public synchronized double getAverageTravelTime() {
-        if (vehiclesArrived == 0) {
+    public double getAverageTravelTime() {
+        long chegados = vehiclesArrived.sum();
+        if (chegados == 0) {
             return 0.0;
         }
-        return totalTravelTime / vehiclesArrived;
+        return totalTravelTime.sum() / chegados;
     }
 
     /**
      * Calcula e retorna o tempo médio de espera para os veículos que chegaram ao destino.
      * @return O tempo médio de espera em segundos, ou 0.0 se nenhum veículo chegou.
      */
-    public synchronized double getAverageWaitTime() {
-        if (vehiclesArrived == 0) {
+    public double getAverageWaitTime() {
+        long chegados = vehiclesArrived.sum();
+        if (chegados == 0) {
             return 0.0;
         }
-        return totalWaitTime / vehiclesArrived;
+        return totalWaitTime.sum() / chegados;
     }
 
     /**
      * Retorna o consumo total de combustível acumulado de todos os veículos que chegaram ao destino.
      * @return O consumo total de combustível na unidade definida (ex: litros).
      */
-    public synchronized double getTotalFuelConsumed() {
-        return totalFuelConsumed;
+    public double getTotalFuelConsumed() {
+        return totalFuelConsumed.sum();
     }
 
     /**
      * Calcula e retorna o consumo médio de combustível por veículo que chegou ao destino.
      * @return O consumo médio de combustível (ex: em litros), ou 0.0 se nenhum veículo chegou.
      */
-    public synchronized double getAverageFuelConsumptionPerVehicle() {
-        if (vehiclesArrived == 0) {
+    public double getAverageFuelConsumptionPerVehicle() {
+        long chegados = vehiclesArrived.sum();
+        if (chegados == 0) {
             return 0.0;
         }
-        return totalFuelConsumed / vehiclesArrived;
+        return totalFuelConsumed.sum() / chegados;
+    }
+
+    /**
+     * Retorna o número de redirecionamentos aplicados a veículos em trânsito.
+     * @return O total de redirecionamentos.
+     */
+    public int getTotalVehiclesRerouted() {
+        return vehiclesRerouted.intValue();
     }
 
     public int getVehiclesArrived() {
-        return vehiclesArrived;
+        return vehiclesArrived.intValue();
     }
 
     public double getCurrentTime() {
@@ -268,91 +419,96 @@ public class Estatisticas {
      * Retorna o tempo máximo de viagem de qualquer veículo durante a simulação.
      * @return O tempo máximo de viagem em segundos.
      */
-    public synchronized double getMaxTravelTime() {
-        return maxTravelTime;
+    public double getMaxTravelTime() {
+        return maxTravelTime.get();
     }
     
     /**
      * Retorna o tempo máximo de espera de qualquer veículo durante a simulação.
      * @return O tempo máximo de espera em segundos.
      */
-    public synchronized double getMaxWaitTime() {
-        return maxWaitTime;
-    }
-    
-    /**
-     * Retorna o histórico de tempos da simulação para gráficos.
-     * @return Lista com pontos de tempo da simulação.
-     */
-    public List<Double> getTimeHistory() {
-        return new ArrayList<>(timeHistory); // Retorna uma cópia para evitar modificações externas
+    public double getMaxWaitTime() {
+        return maxWaitTime.get();
     }
     
     /**
-     * Retorna o histórico de valores de congestionamento para gráficos.
-     * @return Lista com níveis de congestionamento ao longo do tempo.
+     * Retorna o histórico do índice de congestionamento (0-100%) para gráficos.
+     * @return A série, lida sem cópia por {@link SerieTemporal#percorrer}.
      */
-    public List<Double> getCongestionHistory() {
-        return new ArrayList<>(congestionHistory);
+    public SerieTemporal getCongestionHistory() {
+        return congestionHistory;
     }
     
     /**
      * Retorna o histórico de veículos ativos para gráficos.
-     * @return Lista com quantidade de veículos ativos ao longo do tempo.
      */
-    public List<Integer> getActiveVehiclesHistory() {
-        return new ArrayList<>(activeVehiclesHistory);
+    public SerieTemporal getActiveVehiclesHistory() {
+        return activeVehiclesHistory;
     }
     
     /**
-     * Retorna o histórico de tempo médio de espera para gráficos.
-     * @return Lista com tempo médio de espera ao longo do tempo.
+     * Retorna o histórico do tempo médio de espera para gráficos.
      */
-    public List<Double> getWaitTimeHistory() {
-        return new ArrayList<>(waitTimeHistory);
+    public SerieTemporal getWaitTimeHistory() {
+        return waitTimeHistory;
     }
     
     /**
-     * Retorna o histórico de consumo de combustível para gráficos.
-     * @return Lista com consumo acumulado de combustível ao longo do tempo.
+     * Retorna o histórico do consumo acumulado de combustível para gráficos.
      */
-    public List<Double> getFuelConsumptionHistory() {
-        return new ArrayList<>(fuelConsumptionHistory);
+    public SerieTemporal getFuelConsumptionHistory() {
+        return fuelConsumptionHistory;
     }
     
     /**
      * Calcula e retorna a taxa de veículos que chegaram ao destino em relação aos gerados.
      * @return Taxa de chegada como percentual (0-100%).
      */
-    public synchronized double getArrivalRate() {
-        if (vehiclesGenerated == 0) {
+    public double getArrivalRate() {
+        long gerados = vehiclesGenerated.sum();
+        if (gerados == 0) {
             return 0.0;
         }
-        return (double) vehiclesArrived / vehiclesGenerated * 100.0;
+        return (double) vehiclesArrived.sum() / gerados * 100.0;
     }
 
     /**
      * Imprime um resumo das estatísticas da simulação no console.
      * Inclui informações sobre veículos, tempos médios, consumo de combustível e pico de congestionamento.
      */
-    public synchronized void printSummary() {
+    public void printSummary() {
         // Resumo das estatísticas da simulação disponível através dos métodos getters
     }
 
+    /**
+     * Distribuição dos tempos de viagem dos veículos que chegaram ao destino.
+     * @return A distribuição, para consultar percentis (ex.: {@code quantil(0.95)})
+     */
+    public DistribuicaoQuantis getTravelTimeDistribution() {
+        return travelTimeDistribution;
+    }
+
+    /**
+     * Distribuição dos tempos de espera dos veículos que chegaram ao destino.
+     * @return A distribuição, para consultar percentis
+     */
+    public DistribuicaoQuantis getWaitTimeDistribution() {
+        return waitTimeDistribution;
+    }
+
+    /**
+     * Distribuição do combustível consumido por viagem dos veículos que chegaram ao destino.
+     * @return A distribuição, para consultar percentis
+     */
+    public DistribuicaoQuantis getFuelDistribution() {
+        return fuelDistribution;
+    }
+
     /**
      * Calcula e retorna a média de congestionamento durante a simulação
      * @return A média de congestionamento como porcentagem (0-100%)
      */
-    public synchronized double getAverageCongestionRatio() {
-        if (congestionHistory.isEmpty()) {
-            return 0.0;
-        }
-        
-        double sum = 0.0;
-        for (Double value : congestionHistory) {
-            sum += value;
-        }
-        
-        return sum / congestionHistory.size();
+    public double getAverageCongestionRatio() {
+        return congestionHistory.getMediaGeral();
     }
 }
\ No newline at end of file
@@ -0,0 +1,130 @@
+package org.semaflux.sim.simulação;
+
+import org.semaflux.sim.core.FaseDoSemaforo;
+
+/**
+ * Evento da simulação, como passa pelo {@link RegistroEventos}.
+ * <p>
+ * Os eventos ocupam posições pré-alocadas do buffer circular e são reaproveitados: um
+ * {@link DestinoEventos} deve copiar o que precisar durante {@link DestinoEventos#receber} e
+ * não guardar a referência. Os campos têm significado conforme o tipo:
+ * <pre>
+ *  ESTADO           inteiro1 = veículos ativos, real1 = congestionamento (%)
+ *  MUDANCA_FASE     inteiro1 = nó do semáforo, inteiro2 = fase (ordinal de FaseDoSemaforo), real1 = duração (s)
+ *  GERACAO          inteiro1 = veículo, inteiro2 = nó de origem, inteiro3 = nó de destino
+ *  CHEGADA          inteiro1 = veículo, real1 = tempo de viagem (s), real2 = tempo de espera (s)
+ *  REDIRECIONAMENTO inteiro1 = veículo, inteiro2 = nó a partir do qual a rota mudou
+ *  ERRO             inteiro1 = veículo (-1 se não houver), texto = mensagem
+ * </pre>
+ * Veículos são identificados pelo número do ID ("V123" -> 123) e nós pelo índice no grafo.
+ */
+public final class Evento {
+
+    public enum Tipo {
+        ESTADO(false),
+        MUDANCA_FASE(true),
+        GERACAO(false),
+        CHEGADA(false),
+        REDIRECIONAMENTO(true),
+        ERRO(true);
+
+        private final boolean essencial;
+
+        Tipo(boolean essencial) {
+            this.essencial = essencial;
+        }
+
+        /** Eventos essenciais não são amostrados sob pressão; só se perdem com o buffer cheio. */
+        public boolean isEssencial() {
+            return essencial;
+        }
+    }
+
+    Tipo tipo;
+    double tempo;
+    int inteiro1;
+    int inteiro2;
+    int inteiro3;
+    double real1;
+    double real2;
+    String texto;
+
+    Evento() {
+    }
+
+    void definir(Tipo tipo, double tempo, int inteiro1, int inteiro2, int inteiro3,
+                 double real1, double real2, String texto) {
+        this.tipo = tipo;
+        this.tempo = tempo;
+        this.inteiro1 = inteiro1;
+        this.inteiro2 = inteiro2;
+        this.inteiro3 = inteiro3;
+        this.real1 = real1;
+        this.real2 = real2;
+        this.texto = texto;
+    }
+
+    void copiarDe(Evento outro) {
+        definir(outro.tipo, outro.tempo, outro.inteiro1, outro.inteiro2, outro.inteiro3,
+                outro.real1, outro.real2, outro.texto);
+    }
+
+    public Tipo getTipo() { return tipo; }
+    public double getTempo() { return tempo; }
+    public int getInteiro1() { return inteiro1; }
+    public int getInteiro2() { return inteiro2; }
+    public int getInteiro3() { return inteiro3; }
+    public double getReal1() { return real1; }
+    public double getReal2() { return real2; }
+    public String getTexto() { return texto; }
+
+    /**
+     * Descrição legível do evento, usada pelos destinos de texto.
+     */
+    public void formatar(StringBuilder sb) {
+        sb.append('[');
+        anexarTempo(sb, tempo);
+        sb.append("] ").append(tipo).append(' ');
+        switch (tipo) {
+            case ESTADO:
+                sb.append("veiculos=").append(inteiro1).append(" congestionamento=");
+                anexarTempo(sb, real1);
+                sb.append('%');
+                break;
+            case MUDANCA_FASE:
+                sb.append("no=").append(inteiro1).append(" fase=");
+                FaseDoSemaforo[] fases = FaseDoSemaforo.values();
+                if (inteiro2 >= 0 && inteiro2 < fases.length) sb.append(fases[inteiro2].name());
+                else sb.append(inteiro2);
+                sb.append(" duracao=");
+                anexarTempo(sb, real1);
+                break;
+            case GERACAO:
+                sb.append("veiculo=V").append(inteiro1).append(" origem=").append(inteiro2).append(" destino=").append(inteiro3);
+                break;
+            case CHEGADA:
+                sb.append("veiculo=V").append(inteiro1).append(" viagem=");
+                anexarTempo(sb, real1);
+                sb.append(" espera=");
+                anexarTempo(sb, real2);
+                break;
+            case REDIRECIONAMENTO:
+                sb.append("veiculo=V").append(inteiro1).append(" a_partir_de=").append(inteiro2);
+                break;
+            case ERRO:
+                if (inteiro1 >= 0) sb.append("veiculo=V").append(inteiro1).append(' ');
+                sb.append(texto);
+                break;
+        }
+    }
+
+    // Valor com 2 casas decimais, sem String.format
+    private static void anexarTempo(StringBuilder sb, double valor) {
+        long centesimos = Math.round(Math.abs(valor) * 100.0);
+        if (valor < 0 && centesimos != 0) sb.append('-');
+        sb.append(centesimos / 100).append('.');
+        long fracao = centesimos % 100;
+        if (fracao < 10) sb.append('0');
+        sb.append(fracao);
+    }
+}
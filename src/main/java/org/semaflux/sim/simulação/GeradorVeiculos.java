@@ -1,11 +1,11 @@
 package org.semaflux.sim.simulação;
 
-import org.semaflux.sim.control.Dijkstra;
+import org.semaflux.sim.control.BuscaRotas;
+import org.semaflux.sim.control.ComponentesFortes;
 import org.semaflux.sim.core.Grafo;
-import org.semaflux.sim.core.ListaLigada;
-import org.semaflux.sim.core.No;
 import org.semaflux.sim.core.Veiculo;
 
+import java.util.Arrays;
 import java.util.Random;
 
 // Gera veículos aleatoriamente
@@ -13,60 +13,88 @@ public class GeradorVeiculos {
     private Grafo graph;
     private double generationRate; // Veículos por segundo
     private Random random;
+    private boolean roteamentoPorCongestionamento; // Rotas pelo tempo efetivo das arestas em vez do tempo livre
+    private PerfilTempoViagem perfilHistorico; // Quando definido, rotas dependentes do horário de partida
+    private BuscaRotas busca; // Criada na primeira rota calculada e reaproveitada
+    private int[] componentes; // Componente fortemente conexa de cada nó
+    private int[] membros; // Nós agrupados por componente
+    private int[] inicioComponente; // Nós da componente c ficam em membros[inicioComponente[c], inicioComponente[c + 1])
+    private RegistroEventos registroEventos; // Destino das mensagens de erro (console quando null)
 
     public GeradorVeiculos(Grafo graph, double generationRate) {
+        this(graph, generationRate, new Random());
+    }
+
+    /**
+     * @param random Fonte dos sorteios de origem e destino (compartilhada com o simulador para
+     *               que o estado aleatório possa ser gravado em um instantâneo)
+     */
+    public GeradorVeiculos(Grafo graph, double generationRate, Random random) {
         this.graph = graph;
         this.generationRate = generationRate;
-        this.random = new Random();
+        this.random = random;
     }
 
 
 
+    /**
+     * Envia as falhas de geração ao registro de eventos da simulação em vez de escrevê-las no
+     * console durante o passo.
+     */
+    public void setRegistroEventos(RegistroEventos registroEventos) {
+        this.registroEventos = registroEventos;
+    }
+
+    private void erro(int id, String mensagem) {
+        if (registroEventos != null) {
+            registroEventos.erro(id, mensagem);
+        } else {
+            System.err.println(mensagem);
+        }
+    }
+
     public Veiculo generateVehicle(int id) {
+        return generateVehicle(id, 0.0);
+    }
+
+    /**
+     * Gera um veículo com origem e destino aleatórios.
+     * @param id Número sequencial do veículo
+     * @param tempoPartida Instante de partida no tempo simulado, usado no roteamento por perfil histórico
+     * @return O veículo com rota válida, ou null se não for possível gerá-lo
+     */
+    public Veiculo generateVehicle(int id, double tempoPartida) {
         // Verificar se o grafo contém nós e não está vazio
         if (graph == null || graph.getNodes() == null || graph.getNodes().isEmpty()) {
-            System.err.println("Erro: Grafo está vazio ou não foi inicializado. Não é possível gerar veículo.");
+            erro(-1, "Erro: Grafo está vazio ou não foi inicializado. Não é possível gerar veículo.");
             return null;
         }
 
-        // Criar uma lista com os IDs de todos os nós no grafo
-        ListaLigada<String> nodeIds = new ListaLigada<>();
-        for (No node : graph.getNodes()) {
-            nodeIds.add(node.getId());
-        }
-
-        int size = nodeIds.size();
+        // Os nós são sorteados pelo índice denso (0 a size - 1), sem percorrer a lista de IDs
+        int size = graph.getNodes().size();
         if (size <= 1) {
-            System.err.println("Erro: Grafo não possui nós suficientes para origem e destino. Não é possível gerar veículo.");
+            erro(-1, "Erro: Grafo não possui nós suficientes para origem e destino. Não é possível gerar veículo.");
             return null;
         }
 
         // Fazer várias tentativas para encontrar um par origem-destino com rota válida
         int maxAttempts = 50; // Máximo de tentativas
         for (int attempt = 0; attempt < maxAttempts; attempt++) {
-            // Escolher origem e destino aleatórios
-            String origin = getRandomNodeId(nodeIds, size);
-            String destination = getRandomNodeId(nodeIds, size);
-
-            // Garantir que origem e destino sejam diferentes
-            int retries = 0; // Evitar loop infinito
-            while (destination.equals(origin) && retries < 20) {
-                destination = getRandomNodeId(nodeIds, size);
-                retries++;
+            // Escolher a origem aleatoriamente e o destino entre os demais nós da sua componente
+            // fortemente conexa, que sempre têm rota a partir da origem
+            int origin = random.nextInt(size);
+            int destination = sortearDestino(origin);
+            if (destination < 0) {
+                continue; // Origem isolada: tentar novo par
             }
 
-            // Verificar se origem e destino existem de fato no grafo
-            if (!nodeIds.contains(origin) || !nodeIds.contains(destination)) {
-                continue; // Tentar novo par
-            }
-
-            // Calcular a rota com Dijkstra
-            ListaLigada<String> route = Dijkstra.calcularRota(graph, origin, destination);
+            // Calcular a rota
+            int[] route = calcularRota(origin, destination, tempoPartida);
 
             // Verificar se a rota foi calculada corretamente
-            if (route == null || route.isEmpty()) {
+            if (route == null || route.length == 0) {
                 if (attempt == maxAttempts - 1) {
-                    System.err.println("Erro ao gerar veículo V" + id + ": não foi possível encontrar uma rota válida após " + maxAttempts + " tentativas.");
+                    erro(id, "Erro ao gerar veículo V" + id + ": não foi possível encontrar uma rota válida após " + maxAttempts + " tentativas.");
                 }
                 continue; // Tentar novo par
             }
@@ -76,25 +104,52 @@ public class GeradorVeiculos {
             return vehicle;
         }
         
-        System.err.println("Não foi possível gerar veículo V" + id + " após várias tentativas.");
+        erro(id, "Não foi possível gerar veículo V" + id + " após várias tentativas.");
         return null; // Falha após todas as tentativas
     }
 
-    private String getRandomNodeId(ListaLigada<String> nodeIds, int size) {
-        if (size <= 0) {
-            throw new IllegalArgumentException("Lista de IDs de nós está vazia. Não é possível selecionar um nó aleatório.");
+    private int sortearDestino(int origin) {
+        if (componentes == null) {
+            agruparComponentes();
         }
+        int c = componentes[origin];
+        int inicio = inicioComponente[c];
+        int tamanho = inicioComponente[c + 1] - inicio;
+        if (tamanho < 2) return -1;
+        int destination = membros[inicio + random.nextInt(tamanho - 1)];
+        return (destination != origin) ? destination : membros[inicio + tamanho - 1]; // Sorteio uniforme entre os outros nós
+    }
 
-        int index = random.nextInt(size); // Escolhe um índice aleatório
-        int currentIndex = 0;
-
-        for (String nodeId : nodeIds) {
-            if (currentIndex++ == index) {
-                return nodeId;
-            }
+    // Agrupa os nós por componente (contagem + prefixo), uma única vez por gerador
+    private void agruparComponentes() {
+        componentes = ComponentesFortes.obter(graph);
+        int numeroComponentes = 0;
+        for (int c : componentes) numeroComponentes = Math.max(numeroComponentes, c + 1);
+        inicioComponente = new int[numeroComponentes + 1];
+        for (int c : componentes) inicioComponente[c + 1]++;
+        for (int c = 0; c < numeroComponentes; c++) inicioComponente[c + 1] += inicioComponente[c];
+        membros = new int[componentes.length];
+        int[] posicao = Arrays.copyOf(inicioComponente, numeroComponentes);
+        for (int i = 0; i < componentes.length; i++) {
+            membros[posicao[componentes[i]]++] = i;
         }
+    }
 
-        throw new IllegalStateException("Erro na seleção de nó aleatório: índice fora do intervalo.");
+    /**
+     * Calcula a rota do veículo (índices dos nós): pelos perfis históricos, se houver observações,
+     * ou pelo menor tempo de viagem em fluxo livre ou efetivo.
+     */
+    private int[] calcularRota(int origin, int destination, double tempoPartida) {
+        if (busca == null) {
+            busca = new BuscaRotas(graph);
+        }
+        if (perfilHistorico != null && perfilHistorico.possuiObservacoes()) {
+            return busca.menorCaminhoDependenteDoTempo(origin, destination, tempoPartida, perfilHistorico);
+        }
+        if (roteamentoPorCongestionamento) {
+            return busca.menorCaminho(origin, destination, null, -1);
+        }
+        return busca.menorCaminhoFluxoLivre(origin, destination);
     }
 
     public double getGenerationRate() {
@@ -104,4 +159,20 @@ public class GeradorVeiculos {
     public void setGenerationRate(double rate) {
         this.generationRate = rate;
     }
+
+    public boolean isRoteamentoPorCongestionamento() {
+        return roteamentoPorCongestionamento;
+    }
+
+    public void setRoteamentoPorCongestionamento(boolean congestionAware) {
+        this.roteamentoPorCongestionamento = congestionAware;
+    }
+
+    public PerfilTempoViagem getPerfilHistorico() {
+        return perfilHistorico;
+    }
+
+    public void setPerfilHistorico(PerfilTempoViagem perfil) {
+        this.perfilHistorico = perfil;
+    }
 }
\ No newline at end of file
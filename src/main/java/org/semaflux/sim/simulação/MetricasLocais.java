@@ -0,0 +1,385 @@
+package org.semaflux.sim.simulação;
+
+import org.semaflux.sim.core.Aresta;
+import org.semaflux.sim.core.FaseDoSemaforo;
+import org.semaflux.sim.core.Grafo;
+import org.semaflux.sim.core.No;
+import org.semaflux.sim.core.SinalTransito;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Métricas por cruzamento semaforizado e por aresta, para localizar onde uma mudança de
+ * estratégia de controle faz diferença (as {@link Estatisticas} só têm agregados da rede).
+ * <p>
+ * Por semáforo: veículos atendidos em cada fase, fila média e máxima, atraso total (tempo
+ * parado na fila) e uso do verde, isto é, a fração dos segundos de verde de cada aproximação
+ * em que algum veículo efetivamente atravessou. Por aresta: ocupação média (integral da
+ * ocupação no tempo), ocupação máxima e atraso total em relação ao tempo de viagem livre.
+ * <p>
+ * Os semáforos recebem posições compactas (na ordem de {@link Grafo#getTrafficLights()}) e as
+ * arestas são indexadas por {@link Aresta#getIndice()}; todos os valores ficam em vetores
+ * primitivos. O simulador atualiza os contadores incrementalmente: cada espera, travessia,
+ * entrada e saída de aresta custa O(1). Fila e tempo de verde dos semáforos também mudam só por
+ * eventos: as entradas e saídas das filas e as mudanças de fase chegam de cada
+ * {@link SinalTransito} ({@link #filaAlterada}, {@link #faseAlterada}), e as integrais no tempo
+ * são fechadas apenas quando o valor muda. O fim do passo não percorre os semáforos.
+ * <p>
+ * Como na amostragem ao fim de cada passo, a fila e a fase deixadas por um passo valem para o
+ * passo inteiro: uma mudança ocorrida durante o passo conta a partir do início dele.
+ * <p>
+ * Apenas o simulador altera as métricas (métodos de pacote). Leituras durante a simulação
+ * podem misturar valores de passos consecutivos.
+ */
+public class MetricasLocais {
+    private static final int FASES = FaseDoSemaforo.values().length;
+    private static final int DIRECOES = Simulador.DIRECOES.length;
+
+    // Semáforos, por posição compacta
+    private final SinalTransito[] semaforos;
+    private final int[] posicaoPorNo; // Posição do semáforo de cada nó, -1 se o nó não tiver semáforo
+    private final long[] atendidosPorFase; // [posição * FASES + fase]
+    private final double[] filaAcumulada; // Soma de (veículos em fila × duração do passo)
+    private final int[] filaMaxima;
+    private final double[] atrasoTotal;
+    private final double[] tempoVerde; // Segundos de verde somados nas aproximações
+    private final double[] tempoVerdeUtilizado; // Segundos de verde em que algum veículo atravessou
+    private final int[] fila; // Veículos nas filas do semáforo agora
+    private final double[] ultimaMudancaFila; // Até onde filaAcumulada já foi integrada
+    private final int[] verdes; // Aproximações em verde na fase atual, um bit por direção
+    private final double[] ultimaMudancaVerde; // Até onde tempoVerde já foi integrado
+    private final long[] passoTravessia; // [posição * DIRECOES + direção], último passo com travessia contada
+    private double tempoObservado;
+    private long passoAtual = 1;
+
+    // Arestas, por índice
+    private final double[] ocupacaoAcumulada; // Integral da ocupação até ultimaMudanca
+    private final double[] ultimaMudanca;
+    private final int[] ocupacaoMaxima;
+    private final double[] atrasoArestas;
+
+    public MetricasLocais(Grafo graph) {
+        int numeroSemaforos = graph.getTrafficLights() != null ? graph.getTrafficLights().size() : 0;
+        this.semaforos = new SinalTransito[numeroSemaforos];
+        this.posicaoPorNo = new int[graph.getNodes().size()];
+        Arrays.fill(posicaoPorNo, -1);
+        int p = 0;
+        if (graph.getTrafficLights() != null) {
+            for (SinalTransito tl : graph.getTrafficLights()) {
+                semaforos[p] = tl;
+                No node = tl != null ? graph.getNode(tl.getNodeId()) : null;
+                int no = node != null ? node.getIndice() : -1;
+                if (no >= 0 && no < posicaoPorNo.length) {
+                    posicaoPorNo[no] = p;
+                }
+                p++;
+            }
+        }
+        this.atendidosPorFase = new long[numeroSemaforos * FASES];
+        this.filaAcumulada = new double[numeroSemaforos];
+        this.filaMaxima = new int[numeroSemaforos];
+        this.atrasoTotal = new double[numeroSemaforos];
+        this.tempoVerde = new double[numeroSemaforos];
+        this.tempoVerdeUtilizado = new double[numeroSemaforos];
+        this.fila = new int[numeroSemaforos];
+        this.ultimaMudancaFila = new double[numeroSemaforos];
+        this.verdes = new int[numeroSemaforos];
+        this.ultimaMudancaVerde = new double[numeroSemaforos];
+        this.passoTravessia = new long[numeroSemaforos * DIRECOES];
+        for (p = 0; p < numeroSemaforos; p++) {
+            if (semaforos[p] == null) continue;
+            fila[p] = semaforos[p].getTotalVehiclesInQueues();
+            verdes[p] = aproximacoesVerdes(semaforos[p]);
+        }
+
+        int numeroArestas = graph.getEdges().size();
+        this.ocupacaoAcumulada = new double[numeroArestas];
+        this.ultimaMudanca = new double[numeroArestas];
+        this.ocupacaoMaxima = new int[numeroArestas];
+        this.atrasoArestas = new double[numeroArestas];
+    }
+
+    /**
+     * Registra um passo de espera de um veículo na fila do semáforo do nó.
+     */
+    void registrarEspera(int noIndice, double deltaTime) {
+        int p = posicao(noIndice);
+        if (p >= 0) {
+            atrasoTotal[p] += deltaTime;
+        }
+    }
+
+    /**
+     * Registra um veículo atravessando o cruzamento do nó pela aproximação {@code direcao}. O
+     * passo conta como verde utilizado da aproximação se ela estiver em verde.
+     */
+    void registrarTravessia(int noIndice, int direcao, FaseDoSemaforo fase, double deltaTime) {
+        int p = posicao(noIndice);
+        if (p < 0) return;
+        if (fase != null) {
+            atendidosPorFase[p * FASES + fase.ordinal()]++;
+        }
+        if (direcao >= 0 && direcao < DIRECOES && (verdes[p] & (1 << direcao)) != 0) {
+            int k = p * DIRECOES + direcao;
+            if (passoTravessia[k] != passoAtual) { // Uma vez por passo e aproximação
+                passoTravessia[k] = passoAtual;
+                tempoVerdeUtilizado[p] += deltaTime;
+            }
+        }
+    }
+
+    /**
+     * Entrada (delta positivo) ou saída (negativo) de veículos das filas do semáforo do nó.
+     */
+    void filaAlterada(int noIndice, int delta) {
+        int p = posicao(noIndice);
+        if (p < 0) return;
+        fecharFila(p);
+        fila[p] += delta;
+    }
+
+    /**
+     * O semáforo do nó recebeu uma fase: o verde passa a ser contado nas aproximações da fase.
+     */
+    void faseAlterada(int noIndice, SinalTransito tl) {
+        int p = posicao(noIndice);
+        if (p < 0) return;
+        fecharVerde(p);
+        verdes[p] = aproximacoesVerdes(tl);
+    }
+
+    /**
+     * Fecha o passo.
+     */
+    void registrarPasso(double deltaTime) {
+        tempoObservado += deltaTime;
+        passoAtual++;
+    }
+
+    private static int aproximacoesVerdes(SinalTransito tl) {
+        int bits = 0;
+        for (int d = 0; d < DIRECOES; d++) {
+            if ("green".equalsIgnoreCase(tl.getLightStateForApproach(Simulador.DIRECOES[d]))) bits |= 1 << d;
+        }
+        return bits;
+    }
+
+    // Integra a fila até o início do passo em andamento. O valor anterior, se veio de um passo
+    // já fechado, é a fila ao fim daquele passo e entra no máximo.
+    private void fecharFila(int p) {
+        if (ultimaMudancaFila[p] < tempoObservado) {
+            filaAcumulada[p] += fila[p] * (tempoObservado - ultimaMudancaFila[p]);
+            if (fila[p] > filaMaxima[p]) filaMaxima[p] = fila[p];
+            ultimaMudancaFila[p] = tempoObservado;
+        }
+    }
+
+    private void fecharVerde(int p) {
+        if (ultimaMudancaVerde[p] < tempoObservado) {
+            tempoVerde[p] += Integer.bitCount(verdes[p]) * (tempoObservado - ultimaMudancaVerde[p]);
+            ultimaMudancaVerde[p] = tempoObservado;
+        }
+    }
+
+    /**
+     * Registra a entrada de um veículo na aresta. Chamado antes de a ocupação da aresta mudar.
+     */
+    void registrarEntradaAresta(Aresta edge, double tempo) {
+        int i = indiceValido(edge);
+        if (i < 0) return;
+        int ocupacao = edge.getOcupacao();
+        acumularOcupacao(i, ocupacao, tempo);
+        if (ocupacao + 1 > ocupacaoMaxima[i]) ocupacaoMaxima[i] = ocupacao + 1;
+    }
+
+    /**
+     * Registra a saída de um veículo da aresta, acumulando o atraso em relação ao tempo de
+     * viagem livre. Chamado antes de a ocupação da aresta mudar.
+     */
+    void registrarSaidaAresta(Aresta edge, double tempoEntrada, double tempo) {
+        int i = indiceValido(edge);
+        if (i < 0) return;
+        acumularOcupacao(i, edge.getOcupacao(), tempo);
+        atrasoArestas[i] += Math.max(0.0, (tempo - tempoEntrada) - edge.getTravelTime());
+    }
+
+    private void acumularOcupacao(int i, int ocupacao, double tempo) {
+        if (tempo > ultimaMudanca[i]) {
+            ocupacaoAcumulada[i] += ocupacao * (tempo - ultimaMudanca[i]);
+            ultimaMudanca[i] = tempo;
+        }
+    }
+
+    private int posicao(int noIndice) {
+        return (noIndice >= 0 && noIndice < posicaoPorNo.length) ? posicaoPorNo[noIndice] : -1;
+    }
+
+    private int indiceValido(Aresta edge) {
+        if (edge == null) return -1;
+        int i = edge.getIndice();
+        return (i >= 0 && i < ocupacaoMaxima.length) ? i : -1;
+    }
+
+    /**
+     * Grava as métricas em um instantâneo da simulação.
+     */
+    void salvarEstado(DataOutput out) throws IOException {
+        // Fecha as integrais no instante gravado; chamado entre passos, quando a fila atual já é final
+        for (int p = 0; p < semaforos.length; p++) {
+            fecharFila(p);
+            if (fila[p] > filaMaxima[p]) filaMaxima[p] = fila[p];
+            fecharVerde(p);
+        }
+        out.writeInt(semaforos.length);
+        out.writeInt(ocupacaoMaxima.length);
+        out.writeDouble(tempoObservado);
+        for (int p = 0; p < semaforos.length; p++) {
+            for (int f = 0; f < FASES; f++) {
+                out.writeLong(atendidosPorFase[p * FASES + f]);
+            }
+            out.writeDouble(filaAcumulada[p]);
+            out.writeInt(filaMaxima[p]);
+            out.writeDouble(atrasoTotal[p]);
+            out.writeDouble(tempoVerde[p]);
+            out.writeDouble(tempoVerdeUtilizado[p]);
+        }
+        for (int i = 0; i < ocupacaoMaxima.length; i++) {
+            if (ocupacaoMaxima[i] == 0) continue; // Aresta nunca percorrida
+            out.writeInt(i);
+            out.writeDouble(ocupacaoAcumulada[i]);
+            out.writeDouble(ultimaMudanca[i]);
+            out.writeInt(ocupacaoMaxima[i]);
+            out.writeDouble(atrasoArestas[i]);
+        }
+        out.writeInt(-1); // Fim das arestas
+    }
+
+    /**
+     * Substitui as métricas pelas gravadas em {@link #salvarEstado}.
+     */
+    void restaurarEstado(DataInput in) throws IOException {
+        int numeroSemaforos = in.readInt();
+        int numeroArestas = in.readInt();
+        if (numeroSemaforos != semaforos.length || numeroArestas != ocupacaoMaxima.length) {
+            throw new IOException("Métricas gravadas para outro mapa");
+        }
+        tempoObservado = in.readDouble();
+        for (int p = 0; p < semaforos.length; p++) {
+            for (int f = 0; f < FASES; f++) {
+                atendidosPorFase[p * FASES + f] = in.readLong();
+            }
+            filaAcumulada[p] = in.readDouble();
+            filaMaxima[p] = in.readInt();
+            atrasoTotal[p] = in.readDouble();
+            tempoVerde[p] = in.readDouble();
+            tempoVerdeUtilizado[p] = in.readDouble();
+        }
+        // Filas e fases atuais continuam valendo: são as dos semáforos, avisadas ao serem restauradas
+        Arrays.fill(ultimaMudancaFila, tempoObservado);
+        Arrays.fill(ultimaMudancaVerde, tempoObservado);
+        Arrays.fill(passoTravessia, 0L);
+        Arrays.fill(ocupacaoAcumulada, 0.0);
+        Arrays.fill(ultimaMudanca, 0.0);
+        Arrays.fill(ocupacaoMaxima, 0);
+        Arrays.fill(atrasoArestas, 0.0);
+        int i;
+        while ((i = in.readInt()) >= 0) {
+            if (i >= numeroArestas) throw new IOException("Índice de aresta inválido: " + i);
+            ocupacaoAcumulada[i] = in.readDouble();
+            ultimaMudanca[i] = in.readDouble();
+            ocupacaoMaxima[i] = in.readInt();
+            atrasoArestas[i] = in.readDouble();
+        }
+    }
+
+    // Métodos de leitura: semáforos
+
+    public int getNumeroSemaforos() {
+        return semaforos.length;
+    }
+
+    public SinalTransito getSemaforo(int posicao) {
+        return semaforos[posicao];
+    }
+
+    /** @return A posição do semáforo do nó nas métricas, ou -1 se o nó não tiver semáforo */
+    public int getPosicaoSemaforo(int noIndice) {
+        return posicao(noIndice);
+    }
+
+    public long getVeiculosAtendidos(int posicao, FaseDoSemaforo fase) {
+        return atendidosPorFase[posicao * FASES + fase.ordinal()];
+    }
+
+    public long getVeiculosAtendidos(int posicao) {
+        long total = 0;
+        for (int f = 0; f < FASES; f++) {
+            total += atendidosPorFase[posicao * FASES + f];
+        }
+        return total;
+    }
+
+    /** @return Média no tempo do total de veículos nas filas do semáforo */
+    public double getFilaMedia(int posicao) {
+        if (tempoObservado <= 0) return 0.0;
+        double pendente = fila[posicao] * (tempoObservado - ultimaMudancaFila[posicao]);
+        return (filaAcumulada[posicao] + pendente) / tempoObservado;
+    }
+
+    public int getFilaMaxima(int posicao) {
+        return Math.max(filaMaxima[posicao], fila[posicao]);
+    }
+
+    /** @return Soma dos segundos que os veículos passaram parados nas filas do semáforo */
+    public double getAtrasoTotal(int posicao) {
+        return atrasoTotal[posicao];
+    }
+
+    /** @return Atraso total dividido pelos veículos atendidos, ou 0 se nenhum foi atendido */
+    public double getAtrasoPorVeiculo(int posicao) {
+        long atendidos = getVeiculosAtendidos(posicao);
+        return atendidos > 0 ? atrasoTotal[posicao] / atendidos : 0.0;
+    }
+
+    /** @return Fração (0-1) dos segundos de verde das aproximações em que algum veículo atravessou */
+    public double getUsoVerde(int posicao) {
+        double verde = tempoVerde[posicao] + Integer.bitCount(verdes[posicao]) * (tempoObservado - ultimaMudancaVerde[posicao]);
+        return verde > 0 ? tempoVerdeUtilizado[posicao] / verde : 0.0;
+    }
+
+    /**
+     * @return Posições dos semáforos em ordem decrescente de atraso total, os mais críticos primeiro
+     */
+    public int[] semaforosPorAtraso() {
+        Integer[] ordem = new Integer[semaforos.length];
+        for (int p = 0; p < ordem.length; p++) ordem[p] = p;
+        Arrays.sort(ordem, (a, b) -> Double.compare(atrasoTotal[b], atrasoTotal[a]));
+        int[] resultado = new int[ordem.length];
+        for (int p = 0; p < ordem.length; p++) resultado[p] = ordem[p];
+        return resultado;
+    }
+
+    // Métodos de leitura: arestas
+
+    /**
+     * Ocupação média da aresta desde o início da simulação até {@code tempo}.
+     */
+    public double getOcupacaoMedia(Aresta edge, double tempo) {
+        int i = indiceValido(edge);
+        if (i < 0 || tempo <= 0) return 0.0;
+        double acumulada = ocupacaoAcumulada[i] + edge.getOcupacao() * Math.max(0.0, tempo - ultimaMudanca[i]);
+        return acumulada / tempo;
+    }
+
+    public int getOcupacaoMaxima(int indiceAresta) {
+        return ocupacaoMaxima[indiceAresta];
+    }
+
+    /** @return Soma, nos veículos que já deixaram a aresta, do tempo além do tempo de viagem livre */
+    public double getAtrasoAresta(int indiceAresta) {
+        return atrasoArestas[indiceAresta];
+    }
+}
@@ -0,0 +1,53 @@
+package org.semaflux.sim.simulação;
+
+import org.semaflux.sim.core.Aresta;
+
+/**
+ * Função volume-atraso do Bureau of Public Roads (BPR):
+ * <pre>
+ *     t = t0 * (1 + alfa * (v / c) ^ beta)
+ * </pre>
+ * onde {@code t0} é o tempo de fluxo livre da aresta, {@code v} a ocupação atual e
+ * {@code c} a capacidade da aresta. O resultado é gravado no próprio {@link Aresta}
+ * sempre que a ocupação muda, de modo que simulação e roteamento leem um valor já pronto.
+ */
+public class ModeloBPR {
+    // Limita o fator de atraso para evitar tempos de travessia irreais em arestas muito pequenas
+    private static final double FATOR_MAXIMO = 10.0;
+
+    private final double alfa;
+    private final double beta;
+
+    public ModeloBPR(double alfa, double beta) {
+        this.alfa = alfa;
+        this.beta = beta;
+    }
+
+    /**
+     * Calcula o fator multiplicativo sobre o tempo de fluxo livre para a ocupação informada.
+     */
+    public double calcularFator(int ocupacao, int capacidade) {
+        if (ocupacao <= 0) {
+            return 1.0;
+        }
+        double razao = (double) ocupacao / Math.max(1, capacidade);
+        double fator = 1.0 + alfa * Math.pow(razao, beta);
+        return Math.min(FATOR_MAXIMO, fator);
+    }
+
+    /**
+     * Recalcula o tempo de viagem efetivo da aresta a partir da sua ocupação atual.
+     */
+    public void atualizar(Aresta edge) {
+        if (edge == null) return;
+        edge.setTempoViagemEfetivo(edge.getTravelTime() * calcularFator(edge.getOcupacao(), edge.getCapacity()));
+    }
+
+    public double getAlfa() {
+        return alfa;
+    }
+
+    public double getBeta() {
+        return beta;
+    }
+}
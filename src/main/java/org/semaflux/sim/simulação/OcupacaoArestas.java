@@ -0,0 +1,231 @@
+package org.semaflux.sim.simulação;
+
+import org.semaflux.sim.core.Aresta;
+import org.semaflux.sim.core.Grafo;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Contadores de ocupação por aresta, mantidos incrementalmente pelo simulador.
+ * <p>
+ * Cada entrada ou saída de veículo atualiza apenas a aresta envolvida, de modo que
+ * consultas como "quantos veículos estão nesta via" ou "quanto tempo os veículos levaram
+ * para atravessá-la" não exigem percorrer a lista de veículos. Os dados são indexados por
+ * {@link Aresta#getIndice()} e guardados em vetores primitivos.
+ * <p>
+ * Apenas o simulador altera os contadores (métodos de pacote); os demais componentes
+ * (controladores, estatísticas, visualização) usam somente os métodos de leitura.
+ */
+public class OcupacaoArestas {
+    private final Aresta[] arestas;
+    private final long[] totalEntradas;
+    private final long[] totalSaidas;
+    private final double[] ultimaEntrada;
+    private final double[] ultimaSaida;
+    private final double[] tempoPermanenciaTotal; // Soma dos tempos de permanência dos veículos que já saíram
+    private int veiculosEmArestas;
+    private final ModeloBPR modeloAtraso; // Atualiza o tempo efetivo da aresta a cada mudança de ocupação (null = desativado)
+    private PerfilTempoViagem perfilTempos; // Recebe cada travessia concluída (null = não registrar)
+
+    public OcupacaoArestas(Grafo graph) {
+        this(graph, null);
+    }
+
+    public OcupacaoArestas(Grafo graph, ModeloBPR modeloAtraso) {
+        this.modeloAtraso = modeloAtraso;
+        int numeroArestas = graph.getEdges().size();
+        this.arestas = new Aresta[numeroArestas];
+        for (Aresta edge : graph.getEdges()) {
+            if (edge != null && edge.getIndice() >= 0 && edge.getIndice() < numeroArestas) {
+                this.arestas[edge.getIndice()] = edge;
+            }
+        }
+        this.totalEntradas = new long[numeroArestas];
+        this.totalSaidas = new long[numeroArestas];
+        this.ultimaEntrada = new double[numeroArestas];
+        this.ultimaSaida = new double[numeroArestas];
+        this.tempoPermanenciaTotal = new double[numeroArestas];
+        Arrays.fill(this.ultimaEntrada, -1.0);
+        Arrays.fill(this.ultimaSaida, -1.0);
+        this.veiculosEmArestas = 0;
+    }
+
+    /**
+     * Registra a entrada de um veículo na aresta no instante informado.
+     */
+    void registrarEntrada(Aresta edge, double tempo) {
+        int i = indiceValido(edge);
+        if (i < 0) return;
+        edge.registrarEntrada();
+        if (modeloAtraso != null) {
+            modeloAtraso.atualizar(edge);
+        }
+        totalEntradas[i]++;
+        ultimaEntrada[i] = tempo;
+        veiculosEmArestas++;
+    }
+
+    /**
+     * Registra a saída de um veículo da aresta, acumulando o tempo que ele permaneceu nela.
+     */
+    void registrarSaida(Aresta edge, double tempoEntrada, double tempo) {
+        int i = indiceValido(edge);
+        if (i < 0) return;
+        edge.registrarSaida();
+        if (modeloAtraso != null) {
+            modeloAtraso.atualizar(edge);
+        }
+        totalSaidas[i]++;
+        ultimaSaida[i] = tempo;
+        tempoPermanenciaTotal[i] += Math.max(0.0, tempo - tempoEntrada);
+        if (perfilTempos != null) {
+            perfilTempos.registrar(edge, tempoEntrada, tempo - tempoEntrada);
+        }
+        if (veiculosEmArestas > 0) {
+            veiculosEmArestas--;
+        }
+    }
+
+    /**
+     * Define o perfil histórico que recebe o tempo de cada travessia concluída.
+     */
+    void setPerfilTempos(PerfilTempoViagem perfilTempos) {
+        this.perfilTempos = perfilTempos;
+    }
+
+    /**
+     * Grava os contadores das arestas já usadas (e a ocupação atual de cada uma) em um
+     * instantâneo da simulação. Arestas nunca percorridas ficam de fora.
+     */
+    void salvarEstado(DataOutput out) throws IOException {
+        out.writeInt(arestas.length);
+        out.writeInt(veiculosEmArestas);
+        for (int i = 0; i < arestas.length; i++) {
+            int ocupacao = arestas[i] != null ? arestas[i].getOcupacao() : 0;
+            if (totalEntradas[i] == 0 && ocupacao == 0) continue;
+            out.writeInt(i);
+            out.writeInt(ocupacao);
+            out.writeLong(totalEntradas[i]);
+            out.writeLong(totalSaidas[i]);
+            out.writeDouble(ultimaEntrada[i]);
+            out.writeDouble(ultimaSaida[i]);
+            out.writeDouble(tempoPermanenciaTotal[i]);
+        }
+        out.writeInt(-1); // Fim das arestas
+    }
+
+    /**
+     * Substitui os contadores e a ocupação das arestas pelos gravados em {@link #salvarEstado},
+     * recalculando o tempo efetivo de travessia de cada aresta.
+     */
+    void restaurarEstado(DataInput in) throws IOException {
+        int numeroArestas = in.readInt();
+        if (numeroArestas != arestas.length) {
+            throw new IOException("Número de arestas diferente: " + numeroArestas + " (esperado " + arestas.length + ")");
+        }
+        Arrays.fill(totalEntradas, 0);
+        Arrays.fill(totalSaidas, 0);
+        Arrays.fill(ultimaEntrada, -1.0);
+        Arrays.fill(ultimaSaida, -1.0);
+        Arrays.fill(tempoPermanenciaTotal, 0.0);
+        int[] ocupacoes = new int[arestas.length];
+        veiculosEmArestas = in.readInt();
+        int i;
+        while ((i = in.readInt()) >= 0) {
+            if (i >= arestas.length) throw new IOException("Índice de aresta inválido: " + i);
+            ocupacoes[i] = in.readInt();
+            totalEntradas[i] = in.readLong();
+            totalSaidas[i] = in.readLong();
+            ultimaEntrada[i] = in.readDouble();
+            ultimaSaida[i] = in.readDouble();
+            tempoPermanenciaTotal[i] = in.readDouble();
+        }
+        for (int k = 0; k < arestas.length; k++) {
+            if (arestas[k] == null) continue;
+            arestas[k].setOcupacao(ocupacoes[k]);
+            if (modeloAtraso != null) {
+                modeloAtraso.atualizar(arestas[k]);
+            }
+        }
+    }
+
+    private int indiceValido(Aresta edge) {
+        if (edge == null) return -1;
+        int i = edge.getIndice();
+        return (i >= 0 && i < arestas.length && arestas[i] == edge) ? i : -1;
+    }
+
+    // Métodos de leitura
+
+    public int getNumeroArestas() {
+        return arestas.length;
+    }
+
+    public Aresta getAresta(int indice) {
+        return arestas[indice];
+    }
+
+    /** Veículos atualmente na aresta (percorrendo-a ou aguardando no nó de destino). */
+    public int getVeiculos(int indice) {
+        Aresta edge = arestas[indice];
+        return edge != null ? edge.getOcupacao() : 0;
+    }
+
+    /** Total de veículos em todas as arestas, mantido incrementalmente. */
+    public int getTotalVeiculosEmArestas() {
+        return veiculosEmArestas;
+    }
+
+    /**
+     * Densidade atual da aresta em veículos por quilômetro.
+     * @return A densidade, ou 0 se a aresta não tiver comprimento válido.
+     */
+    public double getDensidade(int indice) {
+        Aresta edge = arestas[indice];
+        if (edge == null || edge.getLength() <= 0) return 0.0;
+        return edge.getOcupacao() / (edge.getLength() / 1000.0);
+    }
+
+    /**
+     * Ocupação relativa à capacidade da aresta (1.0 = na capacidade).
+     */
+    public double getTaxaOcupacao(int indice) {
+        Aresta edge = arestas[indice];
+        if (edge == null) return 0.0;
+        return (double) edge.getOcupacao() / Math.max(1, edge.getCapacity());
+    }
+
+    public long getTotalEntradas(int indice) {
+        return totalEntradas[indice];
+    }
+
+    public long getTotalSaidas(int indice) {
+        return totalSaidas[indice];
+    }
+
+    /** Instante da última entrada na aresta, ou -1 se nenhum veículo entrou. */
+    public double getUltimaEntrada(int indice) {
+        return ultimaEntrada[indice];
+    }
+
+    /** Instante da última saída da aresta, ou -1 se nenhum veículo saiu. */
+    public double getUltimaSaida(int indice) {
+        return ultimaSaida[indice];
+    }
+
+    /**
+     * Tempo médio de permanência na aresta (travessia mais espera no nó de destino)
+     * dos veículos que já a deixaram.
+     * @return O tempo médio em segundos, ou o tempo de viagem livre se nenhum veículo saiu.
+     */
+    public double getTempoMedioPermanencia(int indice) {
+        if (totalSaidas[indice] == 0) {
+            Aresta edge = arestas[indice];
+            return edge != null ? edge.getTravelTime() : 0.0;
+        }
+        return tempoPermanenciaTotal[indice] / totalSaidas[indice];
+    }
+}
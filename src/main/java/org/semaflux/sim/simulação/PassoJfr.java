@@ -0,0 +1,41 @@
+package org.semaflux.sim.simulação;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento do JDK Flight Recorder para cada passo da simulação. A duração do evento é o tempo de
+ * processamento do passo.
+ */
+@Name("org.semaflux.Passo")
+@Label("Passo da Simulação")
+@Category({"Semaflux", "Simulação"})
+@Description("Processamento de um passo da simulação")
+@StackTrace(false)
+final class PassoJfr extends Event {
+
+    @Label("Tempo Simulado")
+    @Description("Instante da simulação ao fim do passo, em segundos")
+    public double tempoSimulado;
+
+    @Label("Veículos Movidos")
+    @Description("Veículos atualizados no passo")
+    public int veiculosMovidos;
+
+    @Label("Veículos Gerados")
+    public int veiculosGerados;
+
+    @Label("Veículos Chegaram")
+    public int veiculosChegaram;
+
+    @Label("Veículos Ativos")
+    @Description("Veículos na rede ao fim do passo")
+    public int veiculosAtivos;
+
+    PassoJfr() {
+    }
+}
@@ -0,0 +1,206 @@
+package org.semaflux.sim.simulação;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Perfil de desempenho do passo da simulação: tempo (em microssegundos) e memória alocada (em
+ * bytes) de cada etapa do passo, em distribuições das quais se tiram média e percentis.
+ * <p>
+ * Pode ser ligado e desligado durante a simulação ({@link #setAtivo}). Desligado, o custo por
+ * passo é a leitura de um campo volátil; ligado, cada etapa custa duas leituras de relógio e, onde
+ * a JVM oferece, uma consulta aos bytes alocados pela thread da simulação.
+ * <p>
+ * Uso pela thread da simulação, a cada passo:
+ * <pre>
+ *  boolean medir = perfil.isAtivo();
+ *  if (medir) perfil.iniciarPasso();
+ *  ... etapa ...
+ *  if (medir) perfil.marcar(PerfilPasso.Etapa.GERACAO);
+ *  ...
+ *  if (medir) perfil.concluirPasso();
+ * </pre>
+ */
+public class PerfilPasso {
+
+    public enum Etapa {
+        GERACAO("Geração de veículos"),
+        SEMAFOROS("Semáforos"),
+        REDIRECIONAMENTO("Redirecionamento"),
+        MOVIMENTO("Movimento dos veículos"),
+        METRICAS("Métricas por cruzamento"),
+        EVENTOS("Registro de eventos"),
+        CONGESTIONAMENTO("Índice de congestionamento");
+
+        private final String descricao;
+
+        Etapa(String descricao) {
+            this.descricao = descricao;
+        }
+
+        public String getDescricao() {
+            return descricao;
+        }
+    }
+
+    private static final Etapa[] ETAPAS = Etapa.values();
+    private static final int PASSO = ETAPAS.length; // Posição do passo inteiro nos totais
+
+    private final DistribuicaoQuantis[] tempos = new DistribuicaoQuantis[ETAPAS.length];
+    private final DistribuicaoQuantis[] alocacoes = new DistribuicaoQuantis[ETAPAS.length];
+    private final DistribuicaoQuantis tempoPasso = new DistribuicaoQuantis();
+    private final DistribuicaoQuantis alocacaoPasso = new DistribuicaoQuantis();
+    private final AtomicLongArray nanosTotais = new AtomicLongArray(PASSO + 1);
+    private final AtomicLongArray bytesTotais = new AtomicLongArray(PASSO + 1);
+    private final com.sun.management.ThreadMXBean medidorAlocacao; // null se a JVM não oferecer a medição
+
+    private volatile boolean ativo;
+
+    // Estado do passo em andamento, usado só pela thread da simulação
+    private long ultimaMarca, nanosNoPasso;
+    private long alocadoUltimaMarca, bytesNoPasso;
+
+    public PerfilPasso() {
+        for (int i = 0; i < ETAPAS.length; i++) {
+            tempos[i] = new DistribuicaoQuantis();
+            alocacoes[i] = new DistribuicaoQuantis();
+        }
+        this.medidorAlocacao = criarMedidorAlocacao();
+    }
+
+    private static com.sun.management.ThreadMXBean criarMedidorAlocacao() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean medidor = (com.sun.management.ThreadMXBean) bean;
+                if (medidor.isThreadAllocatedMemorySupported()) {
+                    if (!medidor.isThreadAllocatedMemoryEnabled()) medidor.setThreadAllocatedMemoryEnabled(true);
+                    return medidor;
+                }
+            }
+        } catch (UnsupportedOperationException | SecurityException e) {
+            // Sem medição de alocação; os tempos continuam sendo medidos
+        }
+        return null;
+    }
+
+    public boolean isAtivo() {
+        return ativo;
+    }
+
+    /**
+     * Liga ou desliga a medição. Vale a partir do próximo passo; as distribuições são mantidas.
+     */
+    public void setAtivo(boolean ativo) {
+        this.ativo = ativo;
+    }
+
+    /** @return Se os bytes alocados por etapa estão sendo medidos nesta JVM */
+    public boolean isMedindoAlocacao() {
+        return medidorAlocacao != null;
+    }
+
+    public void iniciarPasso() {
+        nanosNoPasso = 0;
+        bytesNoPasso = 0;
+        alocadoUltimaMarca = alocado();
+        ultimaMarca = System.nanoTime();
+    }
+
+    /**
+     * Atribui à etapa o tempo e a alocação desde a marca anterior (ou do início do passo).
+     */
+    public void marcar(Etapa etapa) {
+        long agora = System.nanoTime();
+        long alocado = alocado();
+        int i = etapa.ordinal();
+        long nanos = agora - ultimaMarca;
+        tempos[i].registrar(nanos / 1000.0);
+        nanosTotais.addAndGet(i, nanos);
+        nanosNoPasso += nanos;
+        if (medidorAlocacao != null) {
+            long bytes = alocado - alocadoUltimaMarca;
+            alocacoes[i].registrar(bytes);
+            bytesTotais.addAndGet(i, bytes);
+            bytesNoPasso += bytes;
+        }
+        // A própria medição fica fora da próxima etapa
+        alocadoUltimaMarca = alocado();
+        ultimaMarca = System.nanoTime();
+    }
+
+    /**
+     * Registra o total do passo: a soma das etapas, sem o custo da medição entre elas.
+     */
+    public void concluirPasso() {
+        tempoPasso.registrar(nanosNoPasso / 1000.0);
+        nanosTotais.addAndGet(PASSO, nanosNoPasso);
+        if (medidorAlocacao != null) {
+            alocacaoPasso.registrar(bytesNoPasso);
+            bytesTotais.addAndGet(PASSO, bytesNoPasso);
+        }
+    }
+
+    private long alocado() {
+        return medidorAlocacao != null ? medidorAlocacao.getCurrentThreadAllocatedBytes() : 0L;
+    }
+
+    /** @return Passos medidos */
+    public long getPassos() {
+        return tempoPasso.getContagem();
+    }
+
+    /** Tempo por passo da etapa, em microssegundos. */
+    public DistribuicaoQuantis getTempo(Etapa etapa) {
+        return tempos[etapa.ordinal()];
+    }
+
+    /** Bytes alocados por passo na etapa (vazia se a JVM não oferecer a medição). */
+    public DistribuicaoQuantis getAlocacao(Etapa etapa) {
+        return alocacoes[etapa.ordinal()];
+    }
+
+    /** Tempo total do passo (soma das etapas), em microssegundos. */
+    public DistribuicaoQuantis getTempoPasso() {
+        return tempoPasso;
+    }
+
+    /** Bytes alocados no passo inteiro. */
+    public DistribuicaoQuantis getAlocacaoPasso() {
+        return alocacaoPasso;
+    }
+
+    /** Tempo médio por passo da etapa, em microssegundos. */
+    public double getTempoMedio(Etapa etapa) {
+        return media(nanosTotais.get(etapa.ordinal())) / 1000.0;
+    }
+
+    /** Tempo médio do passo inteiro, em microssegundos. */
+    public double getTempoMedioPasso() {
+        return media(nanosTotais.get(PASSO)) / 1000.0;
+    }
+
+    /** Bytes alocados em média por passo na etapa. */
+    public double getAlocacaoMedia(Etapa etapa) {
+        return media(bytesTotais.get(etapa.ordinal()));
+    }
+
+    /** Bytes alocados em média por passo. */
+    public double getAlocacaoMediaPasso() {
+        return media(bytesTotais.get(PASSO));
+    }
+
+    /**
+     * Fração do tempo total do passo gasta na etapa, de 0 a 1.
+     */
+    public double getFracao(Etapa etapa) {
+        long total = nanosTotais.get(PASSO);
+        return total > 0 ? (double) nanosTotais.get(etapa.ordinal()) / total : 0.0;
+    }
+
+    private double media(long total) {
+        long passos = getPassos();
+        return passos > 0 ? (double) total / passos : 0.0;
+    }
+}
@@ -0,0 +1,247 @@
+package org.semaflux.sim.simulação;
+
+import org.semaflux.sim.core.Aresta;
+import org.semaflux.sim.core.Grafo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Perfis históricos de tempo de viagem por aresta, agrupados em faixas do tempo simulado.
+ * <p>
+ * Cada saída de aresta registra o tempo que o veículo levou (travessia mais espera no nó de
+ * destino) na faixa correspondente ao instante de entrada. Os perfis são gravados em arquivo
+ * binário ao fim da simulação e carregados nas execuções seguintes sobre o mesmo mapa e o mesmo
+ * cenário ({@link #arquivoPadrao}), acumulando as observações dessas execuções. A estimativa de uma faixa combina a média observada com o
+ * tempo de fluxo livre da aresta, de modo que faixas com poucas amostras não dominem o roteamento.
+ * <p>
+ * Formato do arquivo: cabeçalho ({@code SFTP}, versão, número de arestas, assinatura do mapa,
+ * largura e número de faixas) seguido, para cada aresta com observações, do índice da aresta e
+ * das somas e contagens de cada faixa.
+ */
+public class PerfilTempoViagem {
+    public static final double LARGURA_FAIXA_PADRAO = 300.0; // 5 minutos de tempo simulado
+
+    private static final int MAGICO = 0x53465450; // "SFTP"
+    private static final int VERSAO = 1;
+    private static final double AMOSTRAS_FLUXO_LIVRE = 2.0; // Peso do tempo de fluxo livre na estimativa
+
+    private final Aresta[] arestas;
+    private final long assinaturaMapa;
+    private final double larguraFaixa;
+    private final int numeroFaixas;
+    private final double[] somaTempos; // [indiceAresta * numeroFaixas + faixa]
+    private final int[] contagens;
+    private long totalObservacoes;
+
+    public PerfilTempoViagem(Grafo graph, double larguraFaixa, int numeroFaixas) {
+        int numeroArestas = graph.getEdges().size();
+        this.arestas = new Aresta[numeroArestas];
+        for (Aresta edge : graph.getEdges()) {
+            if (edge != null && edge.getIndice() >= 0 && edge.getIndice() < numeroArestas) {
+                arestas[edge.getIndice()] = edge;
+            }
+        }
+        this.assinaturaMapa = calcularAssinatura(arestas);
+        this.larguraFaixa = larguraFaixa > 0 ? larguraFaixa : LARGURA_FAIXA_PADRAO;
+        this.numeroFaixas = Math.max(1, numeroFaixas);
+        this.somaTempos = new double[numeroArestas * this.numeroFaixas];
+        this.contagens = new int[numeroArestas * this.numeroFaixas];
+        this.totalObservacoes = 0;
+    }
+
+    /**
+     * Cria um perfil vazio cobrindo a duração informada.
+     */
+    public static PerfilTempoViagem paraDuracao(Grafo graph, double duracaoSimulacao) {
+        int faixas = (int) Math.ceil(Math.max(1.0, duracaoSimulacao) / LARGURA_FAIXA_PADRAO);
+        return new PerfilTempoViagem(graph, LARGURA_FAIXA_PADRAO, faixas);
+    }
+
+    /**
+     * Registra uma travessia da aresta iniciada em {@code tempoEntrada} e com a duração informada.
+     */
+    public void registrar(Aresta edge, double tempoEntrada, double duracao) {
+        if (edge == null || duracao <= 0) return;
+        int i = edge.getIndice();
+        if (i < 0 || i >= arestas.length || arestas[i] != edge) return;
+        int pos = i * numeroFaixas + faixa(tempoEntrada);
+        somaTempos[pos] += duracao;
+        contagens[pos]++;
+        totalObservacoes++;
+    }
+
+    /**
+     * Estima o tempo de travessia da aresta para um veículo que entra nela no instante informado.
+     * Sem observações na faixa, retorna o tempo de fluxo livre.
+     */
+    public double estimar(Aresta edge, double tempoEntrada) {
+        double livre = edge.getTravelTime();
+        int i = edge.getIndice();
+        if (i < 0 || i >= arestas.length) return livre;
+        int pos = i * numeroFaixas + faixa(tempoEntrada);
+        int n = contagens[pos];
+        if (n == 0) return livre;
+        return (somaTempos[pos] + AMOSTRAS_FLUXO_LIVRE * livre) / (n + AMOSTRAS_FLUXO_LIVRE);
+    }
+
+    private int faixa(double tempo) {
+        int f = (int) (Math.max(0.0, tempo) / larguraFaixa);
+        return Math.min(f, numeroFaixas - 1);
+    }
+
+    public boolean possuiObservacoes() {
+        return totalObservacoes > 0;
+    }
+
+    public long getTotalObservacoes() {
+        return totalObservacoes;
+    }
+
+    public double getLarguraFaixa() {
+        return larguraFaixa;
+    }
+
+    public int getNumeroFaixas() {
+        return numeroFaixas;
+    }
+
+    /**
+     * Arquivo padrão do perfil de um mapa em um cenário:
+     * {@code ~/.semaflux/perfis/perfil-<assinatura do mapa>-<assinatura do cenário>.bin}.
+     * Execuções com outro modo de semáforo, taxa de geração, horário de pico, modelo de atraso ou
+     * limiar de redirecionamento observam outros tempos e gravam perfis separados.
+     */
+    public static File arquivoPadrao(Grafo graph, Config config) {
+        File dir = new File(new File(System.getProperty("user.home"), ".semaflux"), "perfis");
+        return new File(dir, String.format("perfil-%016x-%08x.bin", assinaturaDoMapa(graph), assinaturaDoCenario(config)));
+    }
+
+    // Parâmetros da configuração que mudam os tempos de travessia observados
+    private static int assinaturaDoCenario(Config config) {
+        String cenario = "modo=" + config.getModoSemaforo()
+                + ";taxa=" + config.getTaxaGeracaoVeiculos()
+                + ";pico=" + config.isHorarioPico()
+                + ";bpr=" + (config.isUsarModeloBPR() ? config.getBprAlfa() + "/" + config.getBprBeta() : "nao")
+                + ";redirecionamento=" + config.getRedirectThreshold();
+        return cenario.hashCode();
+    }
+
+    /**
+     * Grava o perfil em formato binário, substituindo o arquivo existente.
+     */
+    public void salvar(File arquivo) throws IOException {
+        File dir = arquivo.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Não foi possível criar o diretório " + dir);
+        }
+        File temporario = new File(arquivo.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporario)))) {
+            out.writeInt(MAGICO);
+            out.writeInt(VERSAO);
+            out.writeInt(arestas.length);
+            out.writeLong(assinaturaMapa);
+            out.writeDouble(larguraFaixa);
+            out.writeInt(numeroFaixas);
+            for (int i = 0; i < arestas.length; i++) {
+                int base = i * numeroFaixas;
+                boolean temDados = false;
+                for (int f = 0; f < numeroFaixas && !temDados; f++) {
+                    temDados = contagens[base + f] > 0;
+                }
+                if (!temDados) continue;
+                out.writeInt(i);
+                for (int f = 0; f < numeroFaixas; f++) {
+                    out.writeDouble(somaTempos[base + f]);
+                    out.writeInt(contagens[base + f]);
+                }
+            }
+            out.writeInt(-1); // Fim das arestas
+        }
+        if (!temporario.renameTo(arquivo)) {
+            arquivo.delete();
+            if (!temporario.renameTo(arquivo)) {
+                throw new IOException("Não foi possível substituir " + arquivo);
+            }
+        }
+    }
+
+    /**
+     * Carrega o perfil gravado para o mapa e o cenário da configuração, ou cria um perfil vazio
+     * se não houver arquivo compatível. O perfil resultante cobre ao menos a duração simulada.
+     */
+    public static PerfilTempoViagem carregarOuCriar(Grafo graph, Config config) {
+        double duracaoSimulacao = config.getDuracaoSimulacao();
+        PerfilTempoViagem vazio = paraDuracao(graph, duracaoSimulacao);
+        File arquivo = arquivoPadrao(graph, config);
+        if (!arquivo.isFile()) return vazio;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(arquivo)))) {
+            if (in.readInt() != MAGICO || in.readInt() != VERSAO) {
+                System.err.println("Perfil de tempos ignorado (formato desconhecido): " + arquivo);
+                return vazio;
+            }
+            int numeroArestas = in.readInt();
+            long assinatura = in.readLong();
+            double largura = in.readDouble();
+            int faixasSalvas = in.readInt();
+            if (numeroArestas != vazio.arestas.length || assinatura != vazio.assinaturaMapa || largura <= 0 || faixasSalvas <= 0) {
+                System.err.println("Perfil de tempos ignorado (mapa diferente): " + arquivo);
+                return vazio;
+            }
+
+            int faixasNecessarias = (int) Math.ceil(Math.max(1.0, duracaoSimulacao) / largura);
+            PerfilTempoViagem perfil = new PerfilTempoViagem(graph, largura, Math.max(faixasSalvas, faixasNecessarias));
+            int i;
+            while ((i = in.readInt()) >= 0) {
+                if (i >= numeroArestas) throw new IOException("Índice de aresta inválido: " + i);
+                int base = i * perfil.numeroFaixas;
+                for (int f = 0; f < faixasSalvas; f++) {
+                    perfil.somaTempos[base + f] = in.readDouble();
+                    perfil.contagens[base + f] = in.readInt();
+                    perfil.totalObservacoes += perfil.contagens[base + f];
+                }
+            }
+            return perfil;
+        } catch (IOException e) {
+            System.err.println("Erro ao carregar perfil de tempos " + arquivo + ": " + e.getMessage());
+            return vazio;
+        }
+    }
+
+    /**
+     * Assinatura do mapa usada para reconhecer arquivos gravados para ele (perfis, instantâneos):
+     * muda se qualquer aresta mudar de origem, destino, ID ou índice.
+     */
+    static long assinaturaDoMapa(Grafo graph) {
+        Aresta[] arestas = new Aresta[graph.getEdges().size()];
+        for (Aresta edge : graph.getEdges()) {
+            if (edge != null && edge.getIndice() >= 0 && edge.getIndice() < arestas.length) {
+                arestas[edge.getIndice()] = edge;
+            }
+        }
+        return calcularAssinatura(arestas);
+    }
+
+    // Hash FNV-1a de 64 bits sobre origem, destino e ID das arestas, na ordem dos índices
+    private static long calcularAssinatura(Aresta[] arestas) {
+        long hash = 0xcbf29ce484222325L;
+        for (Aresta edge : arestas) {
+            String chave = (edge == null) ? "" : edge.getSource() + ">" + edge.getTarget() + "#" + edge.getId();
+            for (byte b : chave.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= (b & 0xff);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= '\n';
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,392 @@
+package org.semaflux.sim.simulação;
+
+import org.semaflux.sim.control.BuscaRotas;
+import org.semaflux.sim.core.Aresta;
+import org.semaflux.sim.core.Grafo;
+import org.semaflux.sim.core.ListaLigada;
+import org.semaflux.sim.core.No;
+import org.semaflux.sim.core.SinalTransito;
+import org.semaflux.sim.core.Veiculo;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Redirecionamento de veículos em trânsito quando a rota restante passa por vias ou
+ * semáforos congestionados.
+ * <p>
+ * Uma aresta é considerada congestionada quando sua ocupação atinge o limiar de
+ * redirecionamento ({@link Config#getRedirectThreshold()}); um semáforo, quando o total de
+ * veículos em suas filas atinge o mesmo limiar. Periodicamente a thread da simulação marca os
+ * elementos congestionados e verifica apenas os próximos trechos da rota de cada veículo. Os
+ * veículos afetados são enviados em lote para uma thread de busca, que recalcula a rota restante
+ * com os tempos efetivos e a espera estimada nos semáforos retratados no momento do envio.
+ * <p>
+ * As novas rotas são aplicadas na thread da simulação, na avaliação seguinte, que espera o lote
+ * terminar se preciso, e apenas se ainda forem válidas para a posição do veículo. Como o lote
+ * depende só do retrato e é aplicado em um passo fixo, o redirecionamento não depende da
+ * velocidade da thread de busca: com a mesma semente, simulações e instantâneos retomados se
+ * repetem. O lote pendente é gravado nos instantâneos ({@link #salvarEstado}).
+ * <p>
+ * Para limitar o custo, cada avaliação envia no máximo {@value #MAXIMO_SOLICITACOES_POR_AVALIACAO}
+ * veículos, cada veículo tem um intervalo mínimo entre solicitações e só há um lote em cálculo
+ * por vez.
+ */
+public class Redirecionamento {
+    private static final double INTERVALO_AVALIACAO = 5.0; // Segundos entre avaliações de congestionamento
+    private static final double INTERVALO_MINIMO_VEICULO = 30.0; // Segundos entre solicitações do mesmo veículo
+    private static final int MAXIMO_SOLICITACOES_POR_AVALIACAO = 64;
+    private static final int TRECHOS_VERIFICADOS = 6; // Arestas à frente verificadas na rota de cada veículo
+    private static final double GANHO_MINIMO = 0.10; // A nova rota precisa ser ao menos 10% mais rápida
+    private static final double ESPERA_POR_VEICULO_NA_FILA = 2.0; // Espera estimada (s) por veículo em fila de semáforo
+
+    private final Grafo graph;
+    private final Estatisticas stats;
+    private final int limiar;
+    private final SinalTransito[] semaforoPorNo; // Indexado por No.getIndice()
+    private final boolean[] arestaCongestionada; // Indexado por Aresta.getIndice()
+    private final boolean[] noCongestionado; // Indexado por No.getIndice()
+
+    // Usada apenas pela thread de busca
+    private final BuscaRotas busca;
+    private final ExecutorService executor;
+
+    // Lote enviado na última avaliação, aplicado na próxima (null quando não há)
+    private List<Solicitacao> loteEnviado;
+    private Future<List<Resultado>> loteEmCalculo;
+
+    private double proximaAvaliacao;
+    private RegistroEventos registroEventos; // null quando não há registro de eventos
+
+    /** Pedido de nova rota, com a rota restante capturada na thread da simulação. */
+    private static final class Solicitacao {
+        final Veiculo veiculo;
+        final int[] rotaRestante; // Índices dos nós, começando no nó a partir do qual a rota pode mudar
+        final int noProibido; // Nó que o veículo acabou de deixar (-1 se estiver parado em um nó)
+
+        Solicitacao(Veiculo veiculo, int[] rotaRestante, int noProibido) {
+            this.veiculo = veiculo;
+            this.rotaRestante = rotaRestante;
+            this.noProibido = noProibido;
+        }
+    }
+
+    /** Resposta da thread de busca; {@code novoCaminho} é null se não houver rota melhor. */
+    private static final class Resultado {
+        final Veiculo veiculo;
+        final int noPartida;
+        final int[] novoCaminho;
+
+        Resultado(Veiculo veiculo, int noPartida, int[] novoCaminho) {
+            this.veiculo = veiculo;
+            this.noPartida = noPartida;
+            this.novoCaminho = novoCaminho;
+        }
+    }
+
+    public Redirecionamento(Grafo graph, Estatisticas stats, int limiar) {
+        this.graph = graph;
+        this.stats = stats;
+        this.limiar = limiar;
+        this.semaforoPorNo = graph.semaforosPorNo();
+        this.arestaCongestionada = new boolean[graph.getEdges().size()];
+        this.noCongestionado = new boolean[graph.getNodes().size()];
+        this.busca = new BuscaRotas(graph);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "semaflux-redirecionamento");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.proximaAvaliacao = INTERVALO_AVALIACAO;
+    }
+
+    /**
+     * Executado a cada passo pela thread da simulação. No intervalo de avaliação, aplica as rotas
+     * do lote enviado na avaliação anterior e envia os veículos afetados para recálculo.
+     */
+    public void atualizar(ListaLigada<Veiculo> vehicles, double tempo) {
+        if (tempo < proximaAvaliacao) return;
+        proximaAvaliacao = tempo + INTERVALO_AVALIACAO;
+        aplicarResultados(aguardarLote(), tempo);
+
+        double[] penalidades = new double[noCongestionado.length];
+        if (!marcarCongestionamentos(penalidades)) return;
+
+        List<Solicitacao> lote = new ArrayList<>();
+        for (Veiculo vehicle : vehicles) {
+            if (lote.size() >= MAXIMO_SOLICITACOES_POR_AVALIACAO) break;
+            if (vehicle == null || vehicle.isRedirecionamentoPendente()) continue;
+            if (tempo - vehicle.getUltimoRedirecionamento() < INTERVALO_MINIMO_VEICULO) continue;
+
+            Solicitacao solicitacao = avaliarVeiculo(vehicle);
+            if (solicitacao != null) {
+                vehicle.setRedirecionamentoPendente(true);
+                vehicle.setUltimoRedirecionamento(tempo);
+                lote.add(solicitacao);
+            }
+        }
+        if (lote.isEmpty()) return;
+
+        double[] tempos = new double[arestaCongestionada.length];
+        for (Aresta edge : graph.getEdges()) {
+            if (edge != null && edge.getIndice() >= 0 && edge.getIndice() < tempos.length) {
+                tempos[edge.getIndice()] = edge.getTempoViagemEfetivo();
+            }
+        }
+        try {
+            loteEmCalculo = executor.submit(() -> calcularLote(lote, tempos, penalidades));
+            loteEnviado = lote;
+        } catch (RejectedExecutionException e) {
+            for (Solicitacao solicitacao : lote) {
+                solicitacao.veiculo.setRedirecionamentoPendente(false);
+            }
+        }
+    }
+
+    /**
+     * Espera o lote em cálculo e devolve os seus resultados. Se o cálculo falhou ou foi
+     * interrompido, os veículos do lote voltam a poder ser avaliados.
+     */
+    private List<Resultado> aguardarLote() {
+        if (loteEmCalculo == null) return Collections.emptyList();
+        List<Solicitacao> lote = loteEnviado;
+        Future<List<Resultado>> futuro = loteEmCalculo;
+        loteEnviado = null;
+        loteEmCalculo = null;
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException e) {
+            // Lote descartado
+        }
+        for (Solicitacao solicitacao : lote) {
+            solicitacao.veiculo.setRedirecionamentoPendente(false);
+        }
+        return Collections.emptyList();
+    }
+
+    public void setRegistroEventos(RegistroEventos registroEventos) {
+        this.registroEventos = registroEventos;
+    }
+
+    /** Instante da próxima avaliação de congestionamento (gravado nos instantâneos da simulação). */
+    double getProximaAvaliacao() {
+        return proximaAvaliacao;
+    }
+
+    void setProximaAvaliacao(double proximaAvaliacao) {
+        this.proximaAvaliacao = proximaAvaliacao;
+    }
+
+    /**
+     * Grava em um instantâneo da simulação as rotas do lote ainda não aplicado, esperando o seu
+     * cálculo, para que a simulação retomada as aplique no mesmo passo.
+     * @param posicaoNaLista Posição de cada veículo ativo na lista gravada no instantâneo
+     */
+    void salvarEstado(DataOutput out, Map<Veiculo, Integer> posicaoNaLista) throws IOException {
+        List<Resultado> lote = aguardarLote();
+        int gravados = 0;
+        for (Resultado resultado : lote) {
+            if (posicaoNaLista.containsKey(resultado.veiculo)) gravados++;
+        }
+        out.writeInt(gravados);
+        for (Resultado resultado : lote) {
+            Integer posicao = posicaoNaLista.get(resultado.veiculo);
+            if (posicao == null) continue; // Já saiu da simulação
+            out.writeInt(posicao);
+            out.writeInt(resultado.noPartida);
+            int[] caminho = resultado.novoCaminho;
+            out.writeInt(caminho != null ? caminho.length : -1);
+            if (caminho != null) {
+                for (int node : caminho) out.writeInt(node);
+            }
+        }
+        retomarLote(lote);
+    }
+
+    /**
+     * Substitui o lote pendente pelo gravado em {@link #salvarEstado}.
+     * @param restaurados Veículos do instantâneo, na ordem da lista gravada
+     */
+    void restaurarEstado(DataInput in, Veiculo[] restaurados) throws IOException {
+        aguardarLote();
+        int total = in.readInt();
+        if (total < 0) throw new IOException("Número de rotas pendentes inválido: " + total);
+        List<Resultado> lote = new ArrayList<>(total);
+        int numeroNos = noCongestionado.length;
+        for (int k = 0; k < total; k++) {
+            int posicao = in.readInt();
+            if (posicao < 0 || posicao >= restaurados.length) throw new IOException("Veículo inválido no lote: " + posicao);
+            int noPartida = in.readInt();
+            int tamanho = in.readInt();
+            int[] caminho = null;
+            if (tamanho >= 0) {
+                caminho = new int[tamanho];
+                for (int i = 0; i < tamanho; i++) {
+                    caminho[i] = in.readInt();
+                    if (caminho[i] < 0 || caminho[i] >= numeroNos) throw new IOException("Nó inválido no lote: " + caminho[i]);
+                }
+            }
+            lote.add(new Resultado(restaurados[posicao], noPartida, caminho));
+        }
+        retomarLote(lote);
+    }
+
+    // Deixa resultados já calculados pendentes até a próxima avaliação
+    private void retomarLote(List<Resultado> resultados) {
+        if (resultados.isEmpty()) return;
+        List<Solicitacao> lote = new ArrayList<>(resultados.size());
+        for (Resultado resultado : resultados) {
+            resultado.veiculo.setRedirecionamentoPendente(true);
+            lote.add(new Solicitacao(resultado.veiculo, null, -1));
+        }
+        loteEnviado = lote;
+        loteEmCalculo = CompletableFuture.completedFuture(resultados);
+    }
+
+    /**
+     * Encerra a thread de busca. Resultados ainda não aplicados são descartados.
+     */
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Marca arestas e semáforos acima do limiar e preenche a espera estimada em cada semáforo.
+     * @return true se houver algum elemento congestionado
+     */
+    private boolean marcarCongestionamentos(double[] penalidades) {
+        boolean algum = false;
+        for (Aresta edge : graph.getEdges()) {
+            if (edge == null || edge.getIndice() < 0 || edge.getIndice() >= arestaCongestionada.length) continue;
+            boolean congestionada = edge.getOcupacao() >= limiar;
+            arestaCongestionada[edge.getIndice()] = congestionada;
+            algum |= congestionada;
+        }
+        for (int i = 0; i < semaforoPorNo.length && i < noCongestionado.length; i++) {
+            SinalTransito tl = semaforoPorNo[i];
+            if (tl == null) continue;
+            int emFila = tl.getTotalVehiclesInQueues();
+            boolean congestionado = emFila >= limiar;
+            noCongestionado[i] = congestionado;
+            penalidades[i] = emFila * ESPERA_POR_VEICULO_NA_FILA;
+            algum |= congestionado;
+        }
+        return algum;
+    }
+
+    /**
+     * Verifica os próximos trechos da rota do veículo e, se algum estiver congestionado,
+     * monta a solicitação com a rota restante a partir do próximo ponto de decisão.
+     */
+    private Solicitacao avaliarVeiculo(Veiculo vehicle) {
+        int[] route = vehicle.getRoute();
+        if (route.length == 0 || vehicle.isAtDestination()) {
+            return null;
+        }
+        boolean emMovimento = vehicle.getPosition() > 0.0;
+
+        // Nós da rota a partir do nó atual; em movimento, a rota só pode mudar a partir do fim da aresta atual
+        int atual = vehicle.getRoutePosition();
+        int inicio = atual + (emMovimento ? 1 : 0);
+        if (route.length - inicio < 3) return null; // Sem alternativa possível para um único trecho
+
+        boolean afetado = false;
+        int limite = Math.min(route.length - 1, inicio + TRECHOS_VERIFICADOS);
+        for (int i = inicio; i < limite && !afetado; i++) {
+            No de = graph.getNode(route[i]);
+            if (de == null) return null;
+            Aresta edge = buscarAresta(de, route[i + 1]);
+            afetado = (edge != null && arestaCongestionada[edge.getIndice()])
+                    || (i + 1 < route.length - 1 && noCongestionado[route[i + 1]]);
+        }
+        if (!afetado) return null;
+
+        int[] rotaRestante = Arrays.copyOfRange(route, inicio, route.length);
+        int noProibido = emMovimento ? route[atual] : -1;
+        return new Solicitacao(vehicle, rotaRestante, noProibido);
+    }
+
+    private static Aresta buscarAresta(No origem, int destino) {
+        for (Aresta edge : origem.getEdges()) {
+            if (edge != null && edge.getIndiceDestino() == destino) return edge;
+        }
+        return null;
+    }
+
+    /**
+     * Executado na thread de busca: recalcula cada rota restante sobre os tempos e penalidades
+     * retratados no envio do lote.
+     */
+    private List<Resultado> calcularLote(List<Solicitacao> lote, double[] tempos, double[] penalidades) {
+        List<Resultado> resultados = new ArrayList<>(lote.size());
+        for (Solicitacao solicitacao : lote) {
+            int[] atual = solicitacao.rotaRestante;
+            int partida = atual[0];
+            int destino = atual[atual.length - 1];
+
+            int[] novo = busca.menorCaminho(partida, destino, tempos, penalidades, solicitacao.noProibido);
+            double custoAtual = busca.custoCaminho(atual, tempos, penalidades);
+            double custoNovo = busca.custoCaminho(novo, tempos, penalidades);
+            boolean melhor = novo != null && custoNovo < custoAtual * (1.0 - GANHO_MINIMO);
+
+            resultados.add(new Resultado(solicitacao.veiculo, partida, melhor ? novo : null));
+        }
+        return resultados;
+    }
+
+    /**
+     * Aplica as rotas calculadas aos veículos cuja posição ainda é compatível com o ponto de partida.
+     */
+    private void aplicarResultados(List<Resultado> resultados, double tempo) {
+        for (Resultado resultado : resultados) {
+            Veiculo vehicle = resultado.veiculo;
+            vehicle.setRedirecionamentoPendente(false);
+            if (resultado.novoCaminho == null) continue;
+
+            int currentNode = vehicle.getCurrentNode();
+            boolean emMovimento = vehicle.getPosition() > 0.0;
+            int partidaAtual = emMovimento ? vehicle.getNextNode() : currentNode;
+            if (partidaAtual != resultado.noPartida) continue; // Veículo já passou do ponto
+
+            int[] novaRota;
+            if (emMovimento) {
+                novaRota = new int[resultado.novoCaminho.length + 1];
+                novaRota[0] = currentNode;
+                System.arraycopy(resultado.novoCaminho, 0, novaRota, 1, resultado.novoCaminho.length);
+            } else {
+                novaRota = resultado.novoCaminho;
+            }
+
+            // Parado em semáforo: sai da fila, pois a direção de saída pode ter mudado
+            if (!emMovimento && vehicle.getQueuedDirection() != null) {
+                SinalTransito tl = semaforoPorNo[currentNode];
+                if (tl != null) {
+                    tl.removeVehicleFromQueue(vehicle.getQueuedDirection(), vehicle);
+                }
+                vehicle.setQueuedDirection(null);
+            }
+
+            vehicle.setRoute(novaRota);
+            vehicle.setUltimoRedirecionamento(tempo);
+            stats.vehicleRerouted();
+            if (registroEventos != null) {
+                registroEventos.redirecionamento(RegistroViagens.numeroDoId(vehicle.getId()), resultado.noPartida);
+            }
+        }
+    }
+}
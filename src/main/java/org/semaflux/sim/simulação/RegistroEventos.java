@@ -0,0 +1,256 @@
+package org.semaflux.sim.simulação;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Registro assíncrono de eventos da simulação (mudanças de fase, gerações, chegadas,
+ * redirecionamentos, erros e o estado periódico).
+ * <p>
+ * Quem produz um evento apenas preenche uma posição de um buffer circular pré-alocado; a
+ * formatação e a gravação ficam com uma thread de escoamento, que entrega os eventos aos
+ * {@link DestinoEventos} registrados. Vários produtores podem publicar ao mesmo tempo: cada um
+ * reserva uma posição com compare-and-set na cauda e a libera atualizando o número de sequência
+ * da posição, sem travas.
+ * <p>
+ * Publicar nunca bloqueia o passo da simulação. Com o buffer acima de 3/4 da capacidade, eventos
+ * não essenciais ({@link Evento.Tipo#isEssencial()}) passam a ser amostrados 1 a cada
+ * {@value #TAXA_AMOSTRAGEM}; com o buffer cheio, qualquer evento é descartado. As duas perdas são
+ * contadas por tipo e informadas ao fechar o registro.
+ */
+public class RegistroEventos implements AutoCloseable {
+    public static final int CAPACIDADE_PADRAO = 1 << 14;
+    static final int TAXA_AMOSTRAGEM = 8;
+    private static final long ESPERA_OCIOSA_NANOS = 1_000_000L;
+
+    private final Evento[] posicoes;
+    private final AtomicLongArray sequencias;
+    private final int mascara;
+    private final int limiteAmostragem;
+    private final AtomicLong cauda = new AtomicLong();
+    private volatile long cabeca; // Escrita só pela thread de escoamento
+
+    private final AtomicLongArray publicados = new AtomicLongArray(Evento.Tipo.values().length);
+    private final AtomicLongArray amostrados = new AtomicLongArray(Evento.Tipo.values().length);
+    private final AtomicLongArray descartados = new AtomicLongArray(Evento.Tipo.values().length);
+    private final AtomicLong contadorAmostragem = new AtomicLong();
+
+    private final List<DestinoEventos> destinos = new ArrayList<>();
+    private final Thread escoamento;
+    private volatile boolean encerrado;
+    private volatile double tempoAtual;
+
+    public RegistroEventos() {
+        this(CAPACIDADE_PADRAO);
+    }
+
+    /**
+     * @param capacidade Número de eventos no buffer, arredondado para a próxima potência de 2
+     */
+    public RegistroEventos(int capacidade) {
+        if (capacidade < 2) throw new IllegalArgumentException("Capacidade do registro de eventos deve ser ao menos 2: " + capacidade);
+        int tamanho = Integer.highestOneBit(capacidade - 1) << 1;
+        this.posicoes = new Evento[tamanho];
+        this.sequencias = new AtomicLongArray(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            posicoes[i] = new Evento();
+            sequencias.set(i, i);
+        }
+        this.mascara = tamanho - 1;
+        this.limiteAmostragem = tamanho - tamanho / 4;
+        this.escoamento = new Thread(this::escoar, "semaflux-eventos");
+        this.escoamento.setDaemon(true);
+    }
+
+    /**
+     * Adiciona um destino. Deve ser chamado antes de {@link #iniciar()}.
+     */
+    public void adicionarDestino(DestinoEventos destino) {
+        if (escoamento.isAlive()) throw new IllegalStateException("Registro de eventos já iniciado");
+        destinos.add(destino);
+    }
+
+    public void iniciar() {
+        escoamento.start();
+    }
+
+    /**
+     * Tempo de simulação atribuído aos próximos eventos; atualizado pela simulação a cada passo.
+     */
+    public void setTempoAtual(double tempo) {
+        this.tempoAtual = tempo;
+    }
+
+    public double getTempoAtual() {
+        return tempoAtual;
+    }
+
+    public void estado(int veiculos, double congestionamento) {
+        publicar(Evento.Tipo.ESTADO, veiculos, 0, 0, congestionamento, 0.0, null);
+    }
+
+    public void mudancaDeFase(int no, int fase, double duracao) {
+        publicar(Evento.Tipo.MUDANCA_FASE, no, fase, 0, duracao, 0.0, null);
+    }
+
+    public void geracao(int veiculo, int origem, int destino) {
+        publicar(Evento.Tipo.GERACAO, veiculo, origem, destino, 0.0, 0.0, null);
+    }
+
+    public void chegada(int veiculo, double tempoViagem, double tempoEspera) {
+        publicar(Evento.Tipo.CHEGADA, veiculo, 0, 0, tempoViagem, tempoEspera, null);
+    }
+
+    public void redirecionamento(int veiculo, int aPartirDe) {
+        publicar(Evento.Tipo.REDIRECIONAMENTO, veiculo, aPartirDe, 0, 0.0, 0.0, null);
+    }
+
+    /**
+     * @param veiculo Número do veículo envolvido, ou -1
+     */
+    public void erro(int veiculo, String mensagem) {
+        publicar(Evento.Tipo.ERRO, veiculo, 0, 0, 0.0, 0.0, mensagem);
+    }
+
+    private void publicar(Evento.Tipo tipo, int inteiro1, int inteiro2, int inteiro3,
+                          double real1, double real2, String texto) {
+        if (encerrado) {
+            descartados.incrementAndGet(tipo.ordinal());
+            return;
+        }
+        if (!tipo.isEssencial() && cauda.get() - cabeca >= limiteAmostragem
+                && contadorAmostragem.incrementAndGet() % TAXA_AMOSTRAGEM != 0) {
+            amostrados.incrementAndGet(tipo.ordinal());
+            return;
+        }
+        long posicao;
+        while (true) {
+            posicao = cauda.get();
+            long diferenca = sequencias.get((int) posicao & mascara) - posicao;
+            if (diferenca == 0) {
+                if (cauda.compareAndSet(posicao, posicao + 1)) break;
+            } else if (diferenca < 0) {
+                // A posição ainda não foi consumida: buffer cheio
+                descartados.incrementAndGet(tipo.ordinal());
+                return;
+            }
+            // diferenca > 0: outro produtor reservou esta posição; tenta a seguinte
+        }
+        int indice = (int) posicao & mascara;
+        posicoes[indice].definir(tipo, tempoAtual, inteiro1, inteiro2, inteiro3, real1, real2, texto);
+        sequencias.set(indice, posicao + 1);
+        publicados.incrementAndGet(tipo.ordinal());
+    }
+
+    private void escoar() {
+        boolean[] ativos = new boolean[destinos.size()];
+        Arrays.fill(ativos, true);
+        boolean pendente = false; // Há eventos entregues e ainda não descarregados
+        while (true) {
+            long posicao = cabeca;
+            int indice = (int) posicao & mascara;
+            if (sequencias.get(indice) == posicao + 1) {
+                Evento evento = posicoes[indice];
+                for (int i = 0; i < ativos.length; i++) {
+                    if (!ativos[i]) continue;
+                    try {
+                        destinos.get(i).receber(evento);
+                    } catch (IOException | RuntimeException e) {
+                        ativos[i] = false;
+                        System.err.println("Destino de eventos desativado após erro: " + e.getMessage());
+                    }
+                }
+                evento.texto = null;
+                sequencias.set(indice, posicao + posicoes.length);
+                cabeca = posicao + 1;
+                pendente = true;
+                continue;
+            }
+            if (pendente) {
+                for (int i = 0; i < ativos.length; i++) {
+                    if (!ativos[i]) continue;
+                    try {
+                        destinos.get(i).descarregar();
+                    } catch (IOException | RuntimeException e) {
+                        ativos[i] = false;
+                        System.err.println("Destino de eventos desativado após erro: " + e.getMessage());
+                    }
+                }
+                pendente = false;
+            }
+            if (encerrado && cabeca == cauda.get()) break;
+            LockSupport.parkNanos(ESPERA_OCIOSA_NANOS);
+        }
+    }
+
+    /**
+     * Impede novos eventos, espera a entrega dos pendentes e fecha os destinos.
+     */
+    @Override
+    public void close() {
+        if (encerrado) return;
+        encerrado = true;
+        if (escoamento.isAlive()) {
+            LockSupport.unpark(escoamento);
+            try {
+                escoamento.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (DestinoEventos destino : destinos) {
+            try {
+                destino.close();
+            } catch (IOException e) {
+                System.err.println("Erro ao fechar destino de eventos: " + e.getMessage());
+            }
+        }
+        long perdidos = getTotalDescartados() + getTotalAmostrados();
+        if (perdidos > 0) {
+            System.err.println("Registro de eventos: " + getTotalDescartados() + " eventos descartados e "
+                    + getTotalAmostrados() + " omitidos por amostragem com o buffer sob pressão.");
+        }
+    }
+
+    public int getCapacidade() {
+        return posicoes.length;
+    }
+
+    /** @return Eventos publicados e ainda não entregues aos destinos */
+    public int getPendentes() {
+        return (int) Math.max(0, cauda.get() - cabeca);
+    }
+
+    public long getPublicados(Evento.Tipo tipo) {
+        return publicados.get(tipo.ordinal());
+    }
+
+    public long getAmostrados(Evento.Tipo tipo) {
+        return amostrados.get(tipo.ordinal());
+    }
+
+    public long getDescartados(Evento.Tipo tipo) {
+        return descartados.get(tipo.ordinal());
+    }
+
+    public long getTotalAmostrados() {
+        return somar(amostrados);
+    }
+
+    public long getTotalDescartados() {
+        return somar(descartados);
+    }
+
+    private static long somar(AtomicLongArray contadores) {
+        long soma = 0;
+        for (int i = 0; i < contadores.length(); i++) {
+            soma += contadores.get(i);
+        }
+        return soma;
+    }
+}
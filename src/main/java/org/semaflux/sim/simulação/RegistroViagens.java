@@ -0,0 +1,473 @@
+package org.semaflux.sim.simulação;
+
+import org.semaflux.sim.core.Grafo;
+import org.semaflux.sim.core.No;
+import org.semaflux.sim.core.Veiculo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Registro das viagens concluídas, uma linha por veículo que chegou ao destino, gravado em
+ * formato colunar compactado ({@code .sfv}) por uma thread de gravação.
+ * <p>
+ * A thread da simulação apenas copia os campos da viagem para os vetores primitivos de um bloco
+ * de {@value #LINHAS_POR_BLOCO} linhas; blocos cheios são entregues à thread de gravação, que
+ * codifica e compacta cada coluna separadamente e escreve com um buffer de 1 MiB. Os blocos são
+ * reaproveitados, de modo que registrar centenas de milhares de viagens não aloca memória por
+ * viagem nem espera pelo disco, a não ser que a gravação fique {@value #BLOCOS} blocos atrás.
+ * <p>
+ * Formato (big-endian):
+ * <pre>
+ *  cabeçalho  magic "SFVG", versão, nº de nós e o ID de cada nó (UTF), nº de colunas e,
+ *             para cada uma, nome (UTF) e tipo ('I' inteiro, 'D' real)
+ *  blocos     nº de linhas (0 encerra o arquivo) e, para cada coluna, tamanho codificado,
+ *             tamanho compactado e os bytes compactados (Deflate)
+ * </pre>
+ * Colunas inteiras são gravadas como diferenças entre linhas consecutivas em varint zigzag.
+ * Nas colunas reais os bytes de cada valor são separados por posição (todos os primeiros bytes,
+ * depois todos os segundos...), o que agrupa os bytes de sinal e expoente, muito repetitivos,
+ * antes da compactação. Origem e destino são índices na tabela de nós do cabeçalho.
+ * <p>
+ * Conversão para CSV: {@link #converterParaCsv} ou pela linha de comando
+ * {@code RegistroViagens entrada.sfv [saida.csv.gz]}.
+ */
+public class RegistroViagens implements Closeable {
+    public static final String EXTENSAO = ".sfv";
+    static final int LINHAS_POR_BLOCO = 16384;
+    private static final int BLOCOS = 4; // Blocos em uso antes de a simulação esperar pela gravação
+    private static final int MAGICO = 0x53465647; // "SFVG"
+    private static final int VERSAO = 1;
+
+    private static final String[] COLUNAS = {
+        "id", "tipo", "origem", "destino", "partida", "chegada", "viagem", "espera", "combustivel", "paradas"
+    };
+    private static final char[] TIPOS = {'I', 'I', 'I', 'I', 'D', 'D', 'D', 'D', 'D', 'I'};
+    private static final int ID = 0, TIPO = 1, ORIGEM = 2, DESTINO = 3, PARTIDA = 4, CHEGADA = 5,
+            VIAGEM = 6, ESPERA = 7, COMBUSTIVEL = 8, PARADAS = 9;
+
+    /** Linhas de um bloco, uma coluna por vetor (só o vetor do tipo da coluna é alocado). */
+    private static final class Bloco {
+        final int[][] inteiros = new int[COLUNAS.length][];
+        final double[][] reais = new double[COLUNAS.length][];
+        int linhas;
+
+        Bloco(int capacidade) {
+            for (int c = 0; c < COLUNAS.length; c++) {
+                if (TIPOS[c] == 'I') inteiros[c] = new int[capacidade];
+                else reais[c] = new double[capacidade];
+            }
+        }
+    }
+
+    private static final Bloco FIM = new Bloco(0); // Encerra a thread de gravação
+
+    private final File arquivo;
+    private final DataOutputStream out;
+    private final LinkedBlockingQueue<Bloco> cheios = new LinkedBlockingQueue<>();
+    private final ArrayBlockingQueue<Bloco> livres = new ArrayBlockingQueue<>(BLOCOS);
+    private final Thread gravador;
+    private Bloco atual;
+    private int blocosCriados;
+    private long viagens;
+    private boolean fechado;
+    private volatile IOException falha;
+
+    // Usados apenas pela thread de gravação
+    private final Deflater compactador = new Deflater(Deflater.BEST_SPEED);
+    private byte[] codificado = new byte[LINHAS_POR_BLOCO * 8];
+    private byte[] compactado = new byte[LINHAS_POR_BLOCO * 8];
+
+    /**
+     * Cria o arquivo, grava o cabeçalho com a tabela de nós do mapa e inicia a thread de gravação.
+     */
+    public RegistroViagens(File arquivo, Grafo graph) throws IOException {
+        File dir = arquivo.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Não foi possível criar o diretório " + dir);
+        }
+        this.arquivo = arquivo;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(arquivo), 1 << 20));
+        try {
+            out.writeInt(MAGICO);
+            out.writeInt(VERSAO);
+            out.writeInt(graph.getNodes().size());
+            for (int i = 0; i < graph.getNodes().size(); i++) {
+                No node = graph.getNode(i);
+                out.writeUTF(node != null ? node.getId() : "");
+            }
+            out.writeInt(COLUNAS.length);
+            for (int c = 0; c < COLUNAS.length; c++) {
+                out.writeUTF(COLUNAS[c]);
+                out.writeByte(TIPOS[c]);
+            }
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+        this.atual = new Bloco(LINHAS_POR_BLOCO);
+        this.blocosCriados = 1;
+        this.gravador = new Thread(this::gravar, "semaflux-registro-viagens");
+        this.gravador.setDaemon(true);
+        this.gravador.start();
+    }
+
+    /**
+     * Arquivo padrão de um novo registro: {@code ~/.semaflux/viagens/viagens-<data e hora>.sfv}.
+     */
+    public static File arquivoPadrao() {
+        File dir = new File(new File(System.getProperty("user.home"), ".semaflux"), "viagens");
+        return new File(dir, "viagens-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + EXTENSAO);
+    }
+
+    public File getArquivo() {
+        return arquivo;
+    }
+
+    /** @return Viagens registradas até agora */
+    public long getViagens() {
+        return viagens;
+    }
+
+    /**
+     * Registra a viagem de um veículo que chegou ao destino. Chamado pela thread da simulação.
+     * Depois de uma falha de gravação as viagens são descartadas.
+     */
+    public void registrar(Veiculo vehicle, double chegada) {
+        if (fechado || falha != null) return;
+        Bloco b = atual;
+        int i = b.linhas++;
+        b.inteiros[ID][i] = numeroDoId(vehicle.getId());
+        b.inteiros[TIPO][i] = vehicle.getTipoVeiculo();
+        b.inteiros[ORIGEM][i] = vehicle.getOrigin();
+        b.inteiros[DESTINO][i] = vehicle.getDestination();
+        b.reais[PARTIDA][i] = chegada - vehicle.getTravelTime();
+        b.reais[CHEGADA][i] = chegada;
+        b.reais[VIAGEM][i] = vehicle.getTravelTime();
+        b.reais[ESPERA][i] = vehicle.getWaitTime();
+        b.reais[COMBUSTIVEL][i] = vehicle.getFuelConsumed();
+        b.inteiros[PARADAS][i] = vehicle.getParadas();
+        viagens++;
+        if (b.linhas == LINHAS_POR_BLOCO) {
+            cheios.add(b);
+            atual = proximoBloco();
+        }
+    }
+
+    // Reaproveita um bloco já gravado; só espera pela gravação se todos os blocos estiverem em uso
+    private Bloco proximoBloco() {
+        Bloco livre = livres.poll();
+        if (livre != null) return livre;
+        if (blocosCriados < BLOCOS) {
+            blocosCriados++;
+            return new Bloco(LINHAS_POR_BLOCO);
+        }
+        try {
+            return livres.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Bloco(LINHAS_POR_BLOCO);
+        }
+    }
+
+    // Número do ID do veículo ("V123" -> 123), ou -1 se não houver dígitos
+    static int numeroDoId(String id) {
+        int numero = -1;
+        if (id == null) return numero;
+        for (int k = 0; k < id.length(); k++) {
+            char ch = id.charAt(k);
+            if (ch >= '0' && ch <= '9') {
+                numero = (numero < 0 ? 0 : numero * 10) + (ch - '0');
+            }
+        }
+        return numero;
+    }
+
+    /**
+     * Grava as viagens pendentes, encerra o arquivo e espera a thread de gravação terminar.
+     * @throws IOException Se alguma gravação tiver falhado
+     */
+    @Override
+    public void close() throws IOException {
+        if (fechado) return;
+        fechado = true;
+        if (atual.linhas > 0) {
+            cheios.add(atual);
+        }
+        cheios.add(FIM);
+        try {
+            gravador.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrompido ao encerrar o registro de viagens");
+        }
+        if (falha != null) throw falha;
+    }
+
+    // Laço da thread de gravação
+    private void gravar() {
+        try (DataOutputStream saida = out) {
+            Bloco b;
+            while ((b = cheios.take()) != FIM) {
+                escreverBloco(saida, b);
+                b.linhas = 0;
+                livres.offer(b);
+            }
+            saida.writeInt(0); // Fim do arquivo
+        } catch (IOException e) {
+            falha = e;
+            System.err.println("Erro ao gravar o registro de viagens: " + e.getMessage());
+            descartarPendentes();
+        } catch (InterruptedException e) {
+            falha = new IOException("Gravação do registro de viagens interrompida");
+        } finally {
+            compactador.end();
+        }
+    }
+
+    // Após uma falha, devolve os blocos sem gravar para que a simulação nunca fique esperando
+    private void descartarPendentes() {
+        try {
+            Bloco b;
+            while ((b = cheios.take()) != FIM) {
+                b.linhas = 0;
+                livres.offer(b);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void escreverBloco(DataOutputStream saida, Bloco b) throws IOException {
+        int n = b.linhas;
+        saida.writeInt(n);
+        for (int c = 0; c < COLUNAS.length; c++) {
+            int tamanho = TIPOS[c] == 'I' ? codificarInteiros(b.inteiros[c], n) : codificarReais(b.reais[c], n);
+            int tamanhoCompactado = compactar(tamanho);
+            saida.writeInt(tamanho);
+            saida.writeInt(tamanhoCompactado);
+            saida.write(compactado, 0, tamanhoCompactado);
+        }
+    }
+
+    private int codificarInteiros(int[] valores, int n) {
+        int pos = 0;
+        int anterior = 0;
+        for (int i = 0; i < n; i++) {
+            int diferenca = valores[i] - anterior;
+            anterior = valores[i];
+            int z = (diferenca << 1) ^ (diferenca >> 31); // Zigzag: diferenças pequenas, negativas ou não, ficam curtas
+            while ((z & ~0x7f) != 0) {
+                codificado[pos++] = (byte) ((z & 0x7f) | 0x80);
+                z >>>= 7;
+            }
+            codificado[pos++] = (byte) z;
+        }
+        return pos;
+    }
+
+    private int codificarReais(double[] valores, int n) {
+        for (int i = 0; i < n; i++) {
+            long bits = Double.doubleToRawLongBits(valores[i]);
+            for (int k = 0; k < 8; k++) {
+                codificado[k * n + i] = (byte) (bits >>> (56 - 8 * k));
+            }
+        }
+        return 8 * n;
+    }
+
+    private int compactar(int tamanho) {
+        compactador.reset();
+        compactador.setInput(codificado, 0, tamanho);
+        compactador.finish();
+        int pos = 0;
+        while (!compactador.finished()) {
+            if (pos == compactado.length) {
+                compactado = Arrays.copyOf(compactado, compactado.length * 2);
+            }
+            pos += compactador.deflate(compactado, pos, compactado.length - pos);
+        }
+        return pos;
+    }
+
+    /**
+     * Converte um registro de viagens para CSV (compactado com GZIP se o nome terminar em
+     * {@code .gz}), com os IDs dos nós de origem e destino.
+     * @return O número de viagens convertidas
+     */
+    public static long converterParaCsv(File registro, File csv) throws IOException {
+        long total = 0;
+        OutputStream arquivoCsv = new FileOutputStream(csv);
+        if (csv.getName().endsWith(".gz")) {
+            arquivoCsv = new GZIPOutputStream(arquivoCsv, 1 << 16);
+        }
+        Inflater descompactador = new Inflater();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(registro), 1 << 20));
+             Writer w = new BufferedWriter(new OutputStreamWriter(arquivoCsv, StandardCharsets.UTF_8), 1 << 16)) {
+            if (in.readInt() != MAGICO) {
+                throw new IOException("Arquivo não é um registro de viagens: " + registro);
+            }
+            int versao = in.readInt();
+            if (versao != VERSAO) {
+                throw new IOException("Versão de registro de viagens não suportada: " + versao);
+            }
+            String[] nos = new String[in.readInt()];
+            for (int i = 0; i < nos.length; i++) {
+                nos[i] = in.readUTF();
+            }
+            int colunas = in.readInt();
+            char[] tipos = new char[colunas];
+            String[] nomes = new String[colunas];
+            for (int c = 0; c < colunas; c++) {
+                nomes[c] = in.readUTF();
+                tipos[c] = (char) in.readByte();
+            }
+            w.write(String.join(",", nomes));
+            w.write('\n');
+
+            int[][] inteiros = new int[colunas][];
+            double[][] reais = new double[colunas][];
+            byte[] bytes = new byte[0];
+            byte[] codificados = new byte[0];
+            StringBuilder linha = new StringBuilder(128);
+            int n;
+            while ((n = in.readInt()) > 0) {
+                for (int c = 0; c < colunas; c++) {
+                    int tamanho = in.readInt();
+                    int tamanhoCompactado = in.readInt();
+                    if (bytes.length < tamanhoCompactado) bytes = new byte[tamanhoCompactado];
+                    if (codificados.length < tamanho) codificados = new byte[tamanho];
+                    in.readFully(bytes, 0, tamanhoCompactado);
+                    descompactar(descompactador, bytes, tamanhoCompactado, codificados, tamanho);
+                    if (tipos[c] == 'I') {
+                        inteiros[c] = decodificarInteiros(codificados, n, inteiros[c]);
+                    } else {
+                        reais[c] = decodificarReais(codificados, n, reais[c]);
+                    }
+                }
+                for (int i = 0; i < n; i++) {
+                    linha.setLength(0);
+                    for (int c = 0; c < colunas; c++) {
+                        if (c > 0) linha.append(',');
+                        if (tipos[c] != 'I') {
+                            anexarReal(linha, reais[c][i]);
+                        } else if (("origem".equals(nomes[c]) || "destino".equals(nomes[c]))
+                                && inteiros[c][i] >= 0 && inteiros[c][i] < nos.length) {
+                            linha.append(nos[inteiros[c][i]]);
+                        } else {
+                            linha.append(inteiros[c][i]);
+                        }
+                    }
+                    linha.append('\n');
+                    w.append(linha);
+                }
+                total += n;
+            }
+        } finally {
+            descompactador.end();
+        }
+        return total;
+    }
+
+    private static void descompactar(Inflater descompactador, byte[] entrada, int tamanhoEntrada,
+                                     byte[] saida, int tamanho) throws IOException {
+        descompactador.reset();
+        descompactador.setInput(entrada, 0, tamanhoEntrada);
+        try {
+            int pos = 0;
+            while (pos < tamanho && !descompactador.finished()) {
+                int lidos = descompactador.inflate(saida, pos, tamanho - pos);
+                if (lidos == 0 && descompactador.needsInput()) break;
+                pos += lidos;
+            }
+            if (pos != tamanho) throw new IOException("Bloco do registro de viagens truncado");
+        } catch (DataFormatException e) {
+            throw new IOException("Bloco do registro de viagens corrompido: " + e.getMessage());
+        }
+    }
+
+    private static int[] decodificarInteiros(byte[] dados, int n, int[] valores) {
+        if (valores == null || valores.length < n) valores = new int[n];
+        int pos = 0;
+        int anterior = 0;
+        for (int i = 0; i < n; i++) {
+            int z = 0;
+            int deslocamento = 0;
+            byte b;
+            do {
+                b = dados[pos++];
+                z |= (b & 0x7f) << deslocamento;
+                deslocamento += 7;
+            } while ((b & 0x80) != 0);
+            anterior += (z >>> 1) ^ -(z & 1);
+            valores[i] = anterior;
+        }
+        return valores;
+    }
+
+    private static double[] decodificarReais(byte[] dados, int n, double[] valores) {
+        if (valores == null || valores.length < n) valores = new double[n];
+        for (int i = 0; i < n; i++) {
+            long bits = 0;
+            for (int k = 0; k < 8; k++) {
+                bits = (bits << 8) | (dados[k * n + i] & 0xffL);
+            }
+            valores[i] = Double.longBitsToDouble(bits);
+        }
+        return valores;
+    }
+
+    // Valor com 4 casas decimais, sem depender da localidade e sem String.format por campo
+    private static void anexarReal(StringBuilder sb, double valor) {
+        long escalado = Math.round(Math.abs(valor) * 10000.0);
+        if (valor < 0 && escalado != 0) sb.append('-');
+        sb.append(escalado / 10000).append('.');
+        long fracao = escalado % 10000;
+        if (fracao < 1000) sb.append('0');
+        if (fracao < 100) sb.append('0');
+        if (fracao < 10) sb.append('0');
+        sb.append(fracao);
+    }
+
+    /**
+     * Converte um registro de viagens para CSV.
+     * Uso: {@code RegistroViagens entrada.sfv [saida.csv.gz]}
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Uso: RegistroViagens <entrada" + EXTENSAO + "> [saida.csv.gz]");
+            System.exit(1);
+        }
+        File entrada = new File(args[0]);
+        String nomeSaida = (args.length > 1) ? args[1] : args[0].replaceFirst("\\" + EXTENSAO + "$", "") + ".csv.gz";
+        File saida = new File(nomeSaida);
+        try {
+            long total = converterParaCsv(entrada, saida);
+            System.out.println("Registro convertido: " + saida + " (" + total + " viagens, " + saida.length() + " bytes)");
+        } catch (Exception e) {
+            System.err.println("Erro ao converter " + entrada + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.semaflux.sim.simulação;
+
+/**
+ * Retrato imutável das estatísticas da simulação ao fim de um passo.
+ * <p>
+ * Publicado pela thread da simulação em {@link Estatisticas#getRetrato()}; a interface lê um
+ * retrato por quadro, sem bloqueios e com todos os valores do mesmo instante (ex.: o total de
+ * chegadas e a soma dos tempos de viagem usados na média são sempre do mesmo passo).
+ */
+public final class RetratoEstatisticas {
+    private final double tempo;
+    private final int veiculosGerados;
+    private final int veiculosChegaram;
+    private final int redirecionamentos;
+    private final int veiculosAtivos;
+    private final double tempoTotalViagem;
+    private final double tempoTotalEspera;
+    private final double combustivelTotal;
+    private final double congestionamento; // Índice atual (0-100%)
+    private final double picoCongestionamento;
+    private final double tempoMaximoViagem;
+    private final double tempoMaximoEspera;
+
+    RetratoEstatisticas(double tempo, int veiculosGerados, int veiculosChegaram, int redirecionamentos,
+                        int veiculosAtivos, double tempoTotalViagem, double tempoTotalEspera,
+                        double combustivelTotal, double congestionamento, double picoCongestionamento,
+                        double tempoMaximoViagem, double tempoMaximoEspera) {
+        this.tempo = tempo;
+        this.veiculosGerados = veiculosGerados;
+        this.veiculosChegaram = veiculosChegaram;
+        this.redirecionamentos = redirecionamentos;
+        this.veiculosAtivos = veiculosAtivos;
+        this.tempoTotalViagem = tempoTotalViagem;
+        this.tempoTotalEspera = tempoTotalEspera;
+        this.combustivelTotal = combustivelTotal;
+        this.congestionamento = congestionamento;
+        this.picoCongestionamento = picoCongestionamento;
+        this.tempoMaximoViagem = tempoMaximoViagem;
+        this.tempoMaximoEspera = tempoMaximoEspera;
+    }
+
+    public double getTempo() { return tempo; }
+    public int getVeiculosGerados() { return veiculosGerados; }
+    public int getVeiculosChegaram() { return veiculosChegaram; }
+    public int getRedirecionamentos() { return redirecionamentos; }
+    public int getVeiculosAtivos() { return veiculosAtivos; }
+    public double getCombustivelTotal() { return combustivelTotal; }
+    public double getCongestionamento() { return congestionamento; }
+    public double getPicoCongestionamento() { return picoCongestionamento; }
+    public double getTempoMaximoViagem() { return tempoMaximoViagem; }
+    public double getTempoMaximoEspera() { return tempoMaximoEspera; }
+
+    /** @return Tempo médio de viagem dos veículos que chegaram, ou 0 se nenhum chegou */
+    public double getTempoMedioViagem() {
+        return veiculosChegaram > 0 ? tempoTotalViagem / veiculosChegaram : 0.0;
+    }
+
+    /** @return Tempo médio de espera dos veículos que chegaram, ou 0 se nenhum chegou */
+    public double getTempoMedioEspera() {
+        return veiculosChegaram > 0 ? tempoTotalEspera / veiculosChegaram : 0.0;
+    }
+
+    /** @return Consumo médio por veículo que chegou, ou 0 se nenhum chegou */
+    public double getConsumoMedio() {
+        return veiculosChegaram > 0 ? combustivelTotal / veiculosChegaram : 0.0;
+    }
+
+    /** @return Veículos que chegaram em relação aos gerados (0-100%) */
+    public double getTaxaChegada() {
+        return veiculosGerados > 0 ? (double) veiculosChegaram / veiculosGerados * 100.0 : 0.0;
+    }
+}
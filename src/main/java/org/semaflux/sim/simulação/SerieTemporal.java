@@ -0,0 +1,177 @@
+package org.semaflux.sim.simulação;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Série temporal de capacidade fixa em vetores primitivos, para os históricos da simulação.
+ * <p>
+ * Cada ponto da série é uma faixa que agrega um número fixo de amostras consecutivas, guardando
+ * mínimo, máximo e média dos valores e o instante médio das amostras. No início cada faixa tem uma
+ * única amostra; quando a capacidade se esgota, as faixas são unidas duas a duas e a largura das
+ * faixas dobra. Assim a memória é constante para qualquer duração de simulação (uma simulação de
+ * 24 horas com uma amostra por segundo ocupa no máximo {@code capacidade} faixas), os picos
+ * continuam visíveis pelo máximo de cada faixa e a média geral é exata.
+ * <p>
+ * Escrita pela thread da simulação e lida pela interface: os métodos são sincronizados na própria
+ * série, e {@link #percorrer} entrega os pontos diretamente dos vetores, sem cópia.
+ */
+public class SerieTemporal {
+    public static final int CAPACIDADE_PADRAO = 1024;
+
+    /** Recebe os pontos da série em ordem de tempo. */
+    public interface Visitante {
+        void ponto(double tempo, double minimo, double media, double maximo);
+    }
+
+    private final double[] somaTempos;
+    private final double[] minimos;
+    private final double[] maximos;
+    private final double[] somas;
+    private final int[] amostras; // Amostras em cada faixa (a última pode estar incompleta)
+    private int tamanho;
+    private int amostrasPorFaixa = 1;
+    private double somaTotal;
+    private long totalAmostras;
+    private double ultimoValor;
+
+    public SerieTemporal() {
+        this(CAPACIDADE_PADRAO);
+    }
+
+    /**
+     * @param capacidade Número máximo de faixas (arredondado para cima para um número par)
+     */
+    public SerieTemporal(int capacidade) {
+        int faixas = Math.max(2, capacidade + (capacidade & 1));
+        this.somaTempos = new double[faixas];
+        this.minimos = new double[faixas];
+        this.maximos = new double[faixas];
+        this.somas = new double[faixas];
+        this.amostras = new int[faixas];
+    }
+
+    /**
+     * Acrescenta uma amostra. Amostras devem chegar em ordem crescente de tempo.
+     */
+    public synchronized void registrar(double tempo, double valor) {
+        if (tamanho == 0 || amostras[tamanho - 1] >= amostrasPorFaixa) {
+            if (tamanho == somas.length) {
+                compactar();
+            }
+            int f = tamanho++;
+            somaTempos[f] = tempo;
+            minimos[f] = valor;
+            maximos[f] = valor;
+            somas[f] = valor;
+            amostras[f] = 1;
+        } else {
+            int f = tamanho - 1;
+            somaTempos[f] += tempo;
+            if (valor < minimos[f]) minimos[f] = valor;
+            if (valor > maximos[f]) maximos[f] = valor;
+            somas[f] += valor;
+            amostras[f]++;
+        }
+        somaTotal += valor;
+        totalAmostras++;
+        ultimoValor = valor;
+    }
+
+    // Une as faixas duas a duas; só é chamado com todas as faixas completas
+    private void compactar() {
+        int metade = tamanho / 2;
+        for (int f = 0; f < metade; f++) {
+            int a = 2 * f, b = a + 1;
+            somaTempos[f] = somaTempos[a] + somaTempos[b];
+            minimos[f] = Math.min(minimos[a], minimos[b]);
+            maximos[f] = Math.max(maximos[a], maximos[b]);
+            somas[f] = somas[a] + somas[b];
+            amostras[f] = amostras[a] + amostras[b];
+        }
+        tamanho = metade;
+        amostrasPorFaixa *= 2;
+    }
+
+    /**
+     * Entrega cada ponto da série ao visitante, em ordem de tempo, sem copiar os vetores.
+     * O visitante é chamado com a série bloqueada e não deve demorar.
+     */
+    public synchronized void percorrer(Visitante visitante) {
+        for (int f = 0; f < tamanho; f++) {
+            visitante.ponto(somaTempos[f] / amostras[f], minimos[f], somas[f] / amostras[f], maximos[f]);
+        }
+    }
+
+    /** @return Número de pontos (faixas) da série */
+    public synchronized int tamanho() {
+        return tamanho;
+    }
+
+    /** @return Amostras agregadas em cada ponto (1 enquanto não houve compactação) */
+    public synchronized int getAmostrasPorFaixa() {
+        return amostrasPorFaixa;
+    }
+
+    /** @return Média de todas as amostras já registradas, ou 0 se não houver amostras */
+    public synchronized double getMediaGeral() {
+        return totalAmostras > 0 ? somaTotal / totalAmostras : 0.0;
+    }
+
+    public synchronized long getTotalAmostras() {
+        return totalAmostras;
+    }
+
+    /** @return O último valor registrado, ou 0 se não houver amostras */
+    public synchronized double getUltimoValor() {
+        return ultimoValor;
+    }
+
+    /**
+     * Grava a série em um instantâneo da simulação.
+     */
+    synchronized void salvarEstado(DataOutput out) throws IOException {
+        out.writeInt(amostrasPorFaixa);
+        out.writeLong(totalAmostras);
+        out.writeDouble(somaTotal);
+        out.writeDouble(ultimoValor);
+        out.writeInt(tamanho);
+        for (int f = 0; f < tamanho; f++) {
+            out.writeDouble(somaTempos[f]);
+            out.writeDouble(minimos[f]);
+            out.writeDouble(maximos[f]);
+            out.writeDouble(somas[f]);
+            out.writeInt(amostras[f]);
+        }
+    }
+
+    /**
+     * Substitui a série pela gravada em {@link #salvarEstado}. Se a série gravada tiver mais
+     * pontos que a capacidade desta, é compactada até caber.
+     */
+    synchronized void restaurarEstado(DataInput in) throws IOException {
+        int largura = in.readInt();
+        long total = in.readLong();
+        double soma = in.readDouble();
+        double ultimo = in.readDouble();
+        int pontos = in.readInt();
+        if (largura < 1 || pontos < 0) throw new IOException("Série temporal inválida");
+        tamanho = 0;
+        amostrasPorFaixa = largura;
+        for (int k = 0; k < pontos; k++) {
+            if (tamanho == somas.length) {
+                compactar();
+            }
+            int f = tamanho++;
+            somaTempos[f] = in.readDouble();
+            minimos[f] = in.readDouble();
+            maximos[f] = in.readDouble();
+            somas[f] = in.readDouble();
+            amostras[f] = in.readInt();
+        }
+        totalAmostras = total;
+        somaTotal = soma;
+        ultimoValor = ultimo;
+    }
+}
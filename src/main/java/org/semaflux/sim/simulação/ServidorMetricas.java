@@ -0,0 +1,300 @@
+package org.semaflux.sim.simulação;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.semaflux.sim.core.SinalTransito;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Servidor HTTP local com os contadores da simulação em andamento, para acompanhar execuções
+ * longas sem a interface gráfica.
+ * <ul>
+ *   <li>{@code /metrics}: formato de texto do Prometheus</li>
+ *   <li>{@code /metrics.json}: os mesmos valores em JSON</li>
+ * </ul>
+ * O servidor atende só em {@code localhost}, por uma thread própria. As respostas são montadas, na
+ * thread do servidor, a partir do {@link RetratoEstatisticas} publicado ao fim de cada passo e dos
+ * contadores atômicos das filas de cada semáforo ({@link SinalTransito#getTamanhoFila}); a cada
+ * passo a simulação só informa a sua duração ({@link #publicarPasso}), que vai para um histograma
+ * de contadores atômicos. Nenhuma consulta trava estruturas usadas pelo passo.
+ * <p>
+ * Com {@link #setCongestionamento}, inclui também o índice de congestionamento de cada célula da
+ * grade sobre o mapa que contém nós.
+ */
+public class ServidorMetricas implements Closeable {
+    public static final String CAMINHO_PROMETHEUS = "/metrics";
+    public static final String CAMINHO_JSON = "/metrics.json";
+    private static final String TIPO_PROMETHEUS = "text/plain; version=0.0.4; charset=utf-8";
+
+    // Limites (em segundos) das faixas do histograma de duração do passo
+    private static final double[] LIMITES_PASSO = {0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1};
+
+    private final Estatisticas stats;
+    private final SinalTransito[] semaforos;
+    private final String[] idsSemaforos;
+    private final HttpServer servidor;
+    private final ExecutorService executor;
+
+    private final AtomicLongArray faixasPasso = new AtomicLongArray(LIMITES_PASSO.length + 1); // Última: +Inf
+    private final AtomicLong nanosPassos = new AtomicLong();
+    private final AtomicLong passos = new AtomicLong();
+    private volatile long nanosUltimoPasso;
+    private volatile CongestionamentoIncremental congestionamento; // Índice por célula (null se não houver)
+
+    /**
+     * Cria o servidor, já escutando na porta. Use {@link #iniciar()} para registrar os caminhos e
+     * começar a atender.
+     * @param porta Porta em localhost; 0 escolhe uma porta livre ({@link #getPorta()})
+     */
+    public ServidorMetricas(Estatisticas stats, Iterable<SinalTransito> semaforos, int porta) throws IOException {
+        this.stats = stats;
+        int n = 0;
+        if (semaforos != null) {
+            for (SinalTransito tl : semaforos) if (tl != null) n++;
+        }
+        this.semaforos = new SinalTransito[n];
+        this.idsSemaforos = new String[n];
+        if (semaforos != null) {
+            int i = 0;
+            for (SinalTransito tl : semaforos) {
+                if (tl == null) continue;
+                this.semaforos[i] = tl;
+                this.idsSemaforos[i] = escaparRotulo(tl.getNodeId());
+                i++;
+            }
+        }
+
+        this.servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), porta), 0);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "semaflux-metricas");
+            t.setDaemon(true);
+            return t;
+        });
+        servidor.setExecutor(executor);
+    }
+
+    /**
+     * Passa a publicar o índice de congestionamento por célula da grade.
+     */
+    public void setCongestionamento(CongestionamentoIncremental congestionamento) {
+        this.congestionamento = congestionamento;
+    }
+
+    public void iniciar() {
+        servidor.createContext(CAMINHO_PROMETHEUS, troca -> responder(troca, CAMINHO_PROMETHEUS, TIPO_PROMETHEUS, false));
+        servidor.createContext(CAMINHO_JSON, troca -> responder(troca, CAMINHO_JSON, "application/json; charset=utf-8", true));
+        servidor.start();
+    }
+
+    /** @return A porta em que o servidor escuta */
+    public int getPorta() {
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Chamado pela simulação ao fim de cada passo: registra a duração do passo.
+     */
+    void publicarPasso(long nanos) {
+        double segundos = nanos / 1e9;
+        int faixa = 0;
+        while (faixa < LIMITES_PASSO.length && segundos > LIMITES_PASSO[faixa]) faixa++;
+        faixasPasso.incrementAndGet(faixa);
+        nanosPassos.addAndGet(nanos);
+        passos.incrementAndGet();
+        nanosUltimoPasso = nanos;
+    }
+
+    private void responder(HttpExchange troca, String caminho, String tipo, boolean json) throws IOException {
+        try {
+            if (!"GET".equals(troca.getRequestMethod()) && !"HEAD".equals(troca.getRequestMethod())) {
+                troca.getResponseHeaders().set("Allow", "GET, HEAD");
+                troca.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (!caminho.equals(troca.getRequestURI().getPath())) {
+                troca.sendResponseHeaders(404, -1);
+                return;
+            }
+            byte[] corpo = (json ? gerarJson() : gerarPrometheus()).getBytes(StandardCharsets.UTF_8);
+            troca.getResponseHeaders().set("Content-Type", tipo);
+            if ("HEAD".equals(troca.getRequestMethod())) {
+                troca.sendResponseHeaders(200, -1);
+                return;
+            }
+            troca.sendResponseHeaders(200, corpo.length);
+            try (OutputStream out = troca.getResponseBody()) {
+                out.write(corpo);
+            }
+        } finally {
+            troca.close();
+        }
+    }
+
+    /**
+     * Métricas no formato de texto do Prometheus (versão 0.0.4).
+     */
+    public String gerarPrometheus() {
+        RetratoEstatisticas r = stats.getRetrato();
+        StringBuilder sb = new StringBuilder(1024 + semaforos.length * 256);
+
+        metrica(sb, "semaflux_tempo_simulado_segundos", "gauge", "Tempo simulado decorrido", r.getTempo());
+        metrica(sb, "semaflux_veiculos_ativos", "gauge", "Veículos na rede", r.getVeiculosAtivos());
+        metrica(sb, "semaflux_veiculos_gerados_total", "counter", "Veículos gerados", r.getVeiculosGerados());
+        metrica(sb, "semaflux_veiculos_chegaram_total", "counter", "Veículos que chegaram ao destino", r.getVeiculosChegaram());
+        metrica(sb, "semaflux_redirecionamentos_total", "counter", "Rotas recalculadas por congestionamento", r.getRedirecionamentos());
+        metrica(sb, "semaflux_congestionamento_percentual", "gauge", "Índice de congestionamento atual (0-100)", r.getCongestionamento());
+        metrica(sb, "semaflux_congestionamento_pico_percentual", "gauge", "Maior índice de congestionamento registrado", r.getPicoCongestionamento());
+        metrica(sb, "semaflux_tempo_viagem_medio_segundos", "gauge", "Tempo médio de viagem dos veículos que chegaram", r.getTempoMedioViagem());
+        metrica(sb, "semaflux_tempo_espera_medio_segundos", "gauge", "Tempo médio de espera dos veículos que chegaram", r.getTempoMedioEspera());
+        metrica(sb, "semaflux_combustivel_total", "counter", "Combustível consumido pelos veículos que chegaram", r.getCombustivelTotal());
+
+        sb.append("# HELP semaflux_fila_semaforo Veículos na fila de cada aproximação dos semáforos\n");
+        sb.append("# TYPE semaflux_fila_semaforo gauge\n");
+        for (int s = 0; s < idsSemaforos.length; s++) {
+            for (int d = 0; d < 4; d++) {
+                sb.append("semaflux_fila_semaforo{semaforo=\"").append(idsSemaforos[s])
+                  .append("\",direcao=\"").append(Simulador.DIRECOES[d]).append("\"} ")
+                  .append(semaforos[s].getTamanhoFila(d)).append('\n');
+            }
+        }
+
+        CongestionamentoIncremental grade = congestionamento;
+        if (grade != null) {
+            sb.append("# HELP semaflux_congestionamento_celula_percentual Índice de congestionamento de cada célula da grade sobre o mapa (0-100)\n");
+            sb.append("# TYPE semaflux_congestionamento_celula_percentual gauge\n");
+            for (int l = 0; l < grade.getLinhas(); l++) {
+                for (int c = 0; c < grade.getColunas(); c++) {
+                    if (grade.getNos(l, c) == 0) continue;
+                    sb.append("semaflux_congestionamento_celula_percentual{linha=\"").append(l)
+                      .append("\",coluna=\"").append(c).append("\"} ")
+                      .append(numero(grade.getIndice(l, c))).append('\n');
+                }
+            }
+        }
+
+        sb.append("# HELP semaflux_passo_duracao_segundos Tempo de processamento de cada passo da simulação\n");
+        sb.append("# TYPE semaflux_passo_duracao_segundos histogram\n");
+        long acumulado = 0;
+        for (int f = 0; f <= LIMITES_PASSO.length; f++) {
+            acumulado += faixasPasso.get(f);
+            sb.append("semaflux_passo_duracao_segundos_bucket{le=\"")
+              .append(f < LIMITES_PASSO.length ? numero(LIMITES_PASSO[f]) : "+Inf").append("\"} ")
+              .append(acumulado).append('\n');
+        }
+        sb.append("semaflux_passo_duracao_segundos_sum ").append(numero(nanosPassos.get() / 1e9)).append('\n');
+        sb.append("semaflux_passo_duracao_segundos_count ").append(acumulado).append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * Os mesmos valores de {@link #gerarPrometheus()} em um objeto JSON.
+     */
+    public String gerarJson() {
+        RetratoEstatisticas r = stats.getRetrato();
+        StringBuilder sb = new StringBuilder(512 + semaforos.length * 96);
+        sb.append('{');
+        campo(sb, "tempoSimulado", r.getTempo()).append(',');
+        campo(sb, "veiculosAtivos", r.getVeiculosAtivos()).append(',');
+        campo(sb, "veiculosGerados", r.getVeiculosGerados()).append(',');
+        campo(sb, "veiculosChegaram", r.getVeiculosChegaram()).append(',');
+        campo(sb, "redirecionamentos", r.getRedirecionamentos()).append(',');
+        campo(sb, "congestionamento", r.getCongestionamento()).append(',');
+        campo(sb, "picoCongestionamento", r.getPicoCongestionamento()).append(',');
+        campo(sb, "tempoMedioViagem", r.getTempoMedioViagem()).append(',');
+        campo(sb, "tempoMedioEspera", r.getTempoMedioEspera()).append(',');
+        campo(sb, "combustivelTotal", r.getCombustivelTotal()).append(',');
+
+        long n = passos.get();
+        sb.append("\"passo\":{");
+        campo(sb, "quantidade", n).append(',');
+        campo(sb, "duracaoMedia", n > 0 ? nanosPassos.get() / 1e9 / n : 0.0).append(',');
+        campo(sb, "duracaoUltimo", nanosUltimoPasso / 1e9);
+        sb.append("},");
+
+        CongestionamentoIncremental grade = congestionamento;
+        if (grade != null) {
+            sb.append("\"celulas\":[");
+            boolean primeira = true;
+            for (int l = 0; l < grade.getLinhas(); l++) {
+                for (int c = 0; c < grade.getColunas(); c++) {
+                    if (grade.getNos(l, c) == 0) continue;
+                    if (!primeira) sb.append(',');
+                    primeira = false;
+                    sb.append('{');
+                    campo(sb, "linha", l).append(',');
+                    campo(sb, "coluna", c).append(',');
+                    campo(sb, "nos", grade.getNos(l, c)).append(',');
+                    campo(sb, "veiculosAtivos", grade.getVeiculosAtivos(l, c)).append(',');
+                    campo(sb, "veiculosEmFila", grade.getVeiculosEmFila(l, c)).append(',');
+                    campo(sb, "congestionamento", grade.getIndice(l, c));
+                    sb.append('}');
+                }
+            }
+            sb.append("],");
+        }
+
+        sb.append("\"semaforos\":[");
+        for (int s = 0; s < idsSemaforos.length; s++) {
+            if (s > 0) sb.append(',');
+            sb.append("{\"id\":\"").append(idsSemaforos[s]).append("\",\"filas\":{");
+            for (int d = 0; d < 4; d++) {
+                if (d > 0) sb.append(',');
+                sb.append('"').append(Simulador.DIRECOES[d]).append("\":").append(semaforos[s].getTamanhoFila(d));
+            }
+            sb.append("}}");
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    private static void metrica(StringBuilder sb, String nome, String tipo, String ajuda, double valor) {
+        sb.append("# HELP ").append(nome).append(' ').append(ajuda).append('\n');
+        sb.append("# TYPE ").append(nome).append(' ').append(tipo).append('\n');
+        sb.append(nome).append(' ').append(numero(valor)).append('\n');
+    }
+
+    private static StringBuilder campo(StringBuilder sb, String nome, double valor) {
+        return sb.append('"').append(nome).append("\":").append(Double.isFinite(valor) ? numero(valor) : "null");
+    }
+
+    private static StringBuilder campo(StringBuilder sb, String nome, long valor) {
+        return sb.append('"').append(nome).append("\":").append(valor);
+    }
+
+    private static String numero(double valor) {
+        if (valor == Math.rint(valor) && Math.abs(valor) < 1e15) return Long.toString((long) valor);
+        return Double.toString(valor);
+    }
+
+    // Escapa o ID para uso entre aspas tanto nos rótulos do Prometheus quanto nas strings JSON
+    private static String escaparRotulo(String valor) {
+        if (valor == null) return "";
+        StringBuilder sb = new StringBuilder(valor.length());
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '\\' || c == '"') sb.append('\\').append(c);
+            else if (c == '\n') sb.append("\\n");
+            else if (c >= ' ') sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Para de atender e libera a porta.
+     */
+    @Override
+    public void close() {
+        servidor.stop(0);
+        executor.shutdownNow();
+    }
+}
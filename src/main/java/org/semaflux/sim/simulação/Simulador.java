@@ -3,15 +3,68 @@ package org.semaflux.sim.simulação;
 import org.semaflux.sim.core.*;
 import org.semaflux.sim.visualization.ResumoSimulacao;
 
-import java.util.HashMap;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Laço principal da simulação.
+ * <p>
+ * O estado completo (tempo, veículos com suas rotas e posições, fases e filas dos semáforos,
+ * estado interno dos controladores, estatísticas, ocupação das arestas e estado do gerador
+ * aleatório) pode ser gravado em um instantâneo binário compactado e retomado depois, para
+ * testar variações a partir de uma rede já aquecida sem simular de novo o aquecimento. Como
+ * todos os sorteios passam por um único {@link AleatorioRestauravel}, uma simulação retomada
+ * segue exatamente o mesmo caminho da original enquanto a configuração for a mesma. Ficam de
+ * fora os perfis históricos de tempo de viagem, gravados à parte entre execuções, e as rotas
+ * alternativas ainda em cálculo, que são descartadas e avaliadas de novo.
+ * <p>
+ * Formato do instantâneo (GZIP): cabeçalho ({@code SFIS}, versão, assinatura do mapa e número de
+ * nós, arestas e semáforos), tempo e estado aleatório, estatísticas, ocupação das arestas, os
+ * veículos na ordem da lista e, para cada semáforo, fase, tempo restante, filas (posições dos
+ * veículos na lista) e um bloco com o estado do controlador, ignorado se o modo mudar.
+ */
 public class Simulador implements Runnable {
+    private static final int MAGICO_INSTANTANEO = 0x53464953; // "SFIS"
+    private static final int VERSAO_INSTANTANEO = 6;
+    static final String[] DIRECOES = {"north", "east", "south", "west"}; // Índices das filas dos semáforos
+    private static final int EVENTOS_RECENTES = 1024; // Eventos mantidos em memória
+    private static final long LIMITE_ARQUIVO_EVENTOS = 16L << 20; // Tamanho de cada arquivo de eventos em texto
+    private static final int ARQUIVOS_EVENTOS_ANTIGOS = 4; // Arquivos de texto rotacionados mantidos
+
     private Grafo graph;
     private Config config;
     private ListaLigada<Veiculo> vehicles;
     private Estatisticas stats;
     private GeradorVeiculos generator;
+    private OcupacaoArestas edgeOccupancy;
+    private MetricasLocais metricasLocais; // Métricas por semáforo e por aresta
+    private CongestionamentoIncremental congestionamento; // Contagens do índice de congestionamento, na rede e por célula
+    private RegistroViagens registroViagens; // Viagens concluídas (null quando desativado)
+    private RegistroEventos registroEventos; // Eventos da simulação, gravados fora da thread da simulação
+    private DestinoEventosMemoria eventosRecentes; // Últimos eventos, para consulta
+    private final PerfilPasso perfilPasso = new PerfilPasso(); // Tempo e alocação por etapa do passo (desligado por padrão)
+    private ServidorMetricas servidorMetricas; // Métricas por HTTP em localhost (null quando desativado)
+    private Redirecionamento redirecionamento; // null quando o redirecionamento está desativado
+    private PerfilTempoViagem perfilTempos; // Perfis históricos de tempo por aresta (null quando desativados)
+    private SinalTransito[] semaforoPorNo; // Semáforo de cada nó, indexado por No.getIndice()
+    private AleatorioRestauravel aleatorio; // Fonte única dos sorteios da simulação (gravada nos instantâneos)
+    private double proximoInstantaneo; // Instante do próximo instantâneo automático
     private double time;
     private volatile boolean running = true;
     private boolean generationStopped = false; // Adicione esta flag
@@ -20,15 +73,56 @@ public class Simulador implements Runnable {
     private double speedFactor = 1.0;
 
     public Simulador(Grafo graph, Config config) {
+        this(graph, config, new AleatorioRestauravel());
+    }
+
+    /**
+     * @param aleatorio Gerador de todos os sorteios da simulação; com a mesma semente, o mesmo
+     *                  mapa e a mesma configuração, duas simulações são idênticas, inclusive com
+     *                  redirecionamento de rotas, e uma simulação retomada de um instantâneo
+     *                  ({@link #salvarInstantaneo}) segue igual à que não foi interrompida
+     */
+    public Simulador(Grafo graph, Config config, AleatorioRestauravel aleatorio) {
         this.graph = graph;
         this.config = config;
+        this.aleatorio = aleatorio;
         this.vehicles = new ListaLigada<>();
         this.stats = new Estatisticas();
-        this.generator = new GeradorVeiculos(graph, config.getTaxaGeracaoVeiculos());
+        this.generator = new GeradorVeiculos(graph, config.getTaxaGeracaoVeiculos(), aleatorio);
+        this.generator.setRoteamentoPorCongestionamento(config.isUsarModeloBPR() && config.isRoteamentoPorCongestionamento());
         this.time = 0.0;
+        this.proximoInstantaneo = config.getIntervaloInstantaneos();
+        this.perfilPasso.setAtivo(config.isPerfilarPasso());
         // this.generationStopped = false; // Inicializada na declaração do campo
 
         validateGraph();
+        abrirRegistroEventos();
+        this.generator.setRegistroEventos(registroEventos);
+        this.congestionamento = new CongestionamentoIncremental(graph);
+        prepararSemaforos();
+        ModeloBPR modeloAtraso = config.isUsarModeloBPR() ? new ModeloBPR(config.getBprAlfa(), config.getBprBeta()) : null;
+        this.edgeOccupancy = new OcupacaoArestas(graph, modeloAtraso);
+        this.metricasLocais = new MetricasLocais(graph);
+        observarSemaforos();
+        if (config.isGravarPerfisTempoViagem() || config.isRoteamentoPorPerfilHistorico()) {
+            this.perfilTempos = PerfilTempoViagem.carregarOuCriar(graph, config);
+            if (config.isGravarPerfisTempoViagem()) {
+                this.edgeOccupancy.setPerfilTempos(perfilTempos);
+            }
+            if (config.isRoteamentoPorPerfilHistorico()) {
+                this.generator.setPerfilHistorico(perfilTempos);
+            }
+        }
+        if (config.isGravarRegistroViagens()) {
+            abrirRegistroViagens();
+        }
+        if (config.getPortaMetricas() > 0) {
+            abrirServidorMetricas(config.getPortaMetricas());
+        }
+        if (config.getRedirectThreshold() > 0) {
+            this.redirecionamento = new Redirecionamento(graph, stats, config.getRedirectThreshold());
+            this.redirecionamento.setRegistroEventos(registroEventos);
+        }
         
         // Verificamos se o grafo é conectado, mas não lançamos exceção
         boolean isConnected = isGraphConnected();
@@ -44,47 +138,390 @@ public class Simulador implements Runnable {
         while (running && time < config.getDuracaoSimulacao()) {
             // Aplicar o fator de velocidade ao deltaTime para ajustar a velocidade da simulação
             double adjustedDeltaTime = deltaTime * speedFactor;
-            
-            time += adjustedDeltaTime;
-            stats.updateCurrentTime(time);
 
             if (Thread.currentThread().isInterrupted()) {
                 this.running = false;
                 break;
             }
 
-            // Verifica se deve parar de gerar veículos e atualiza a flag
-            if (!generationStopped && time > config.getParadaGeracao()) {
-                generationStopped = true; // Seta a flag para parar futuras gerações
-            }
-
-            // Gera veículos APENAS SE a flag generationStopped for false
-            if (!generationStopped) {
-                generateVehicles(adjustedDeltaTime);
-            }
-
-            updateTrafficLights(adjustedDeltaTime);
-            moveVehicles(adjustedDeltaTime);
-            logSimulationState();
-            stats.calculateCurrentCongestion(this.vehicles, this.graph);
+            executarPasso(adjustedDeltaTime);
+            salvarInstantaneoPeriodico();
 
             if (running) {
                 sleep(deltaTime); // Mantém o intervalo de sleep fixo para controlar a velocidade
             }
         }
         
+        if (redirecionamento != null) {
+            redirecionamento.encerrar();
+        }
+        // Simulação interrompida antes do fim: guarda o ponto em que parou para poder retomá-la
+        if (config.getIntervaloInstantaneos() > 0 && time < config.getDuracaoSimulacao()) {
+            salvarInstantaneoPadrao();
+        }
+        salvarPerfis();
+        fecharRegistroViagens();
+        fecharServidorMetricas();
+        registroEventos.close();
         stats.printSummary();
         
         // Mostrar resumo gráfico ao final da simulação
         mostrarResumoGrafico();
     }
     
+    /**
+     * Avança a simulação um passo. Sincronizado com a gravação de instantâneos, que pode ser
+     * pedida por outra thread (ex.: interface) e precisa de um estado consistente. Visível no
+     * pacote para os testes avançarem a simulação sem a espera de {@link #run()}.
+     */
+    synchronized void executarPasso(double deltaTime) {
+        boolean medir = perfilPasso.isAtivo();
+        if (medir) perfilPasso.iniciarPasso();
+        long inicioPasso = (servidorMetricas != null) ? System.nanoTime() : 0L;
+        PassoJfr evento = new PassoJfr();
+        boolean gravarEvento = evento.isEnabled();
+        int geradosAntes = 0, chegadosAntes = 0, movidos = 0;
+        if (gravarEvento) {
+            evento.begin();
+            geradosAntes = stats.getTotalVehiclesGenerated();
+            chegadosAntes = stats.getVehiclesArrived();
+        }
+        time += deltaTime;
+        stats.updateCurrentTime(time);
+        registroEventos.setTempoAtual(time);
+
+        // Verifica se deve parar de gerar veículos e atualiza a flag
+        if (!generationStopped && time > config.getParadaGeracao()) {
+            generationStopped = true; // Seta a flag para parar futuras gerações
+        }
+
+        // Gera veículos APENAS SE a flag generationStopped for false
+        if (!generationStopped) {
+            generateVehicles(deltaTime);
+        }
+        if (medir) perfilPasso.marcar(PerfilPasso.Etapa.GERACAO);
+
+        updateTrafficLights(deltaTime);
+        if (medir) perfilPasso.marcar(PerfilPasso.Etapa.SEMAFOROS);
+        redirectVehicles();
+        if (medir) perfilPasso.marcar(PerfilPasso.Etapa.REDIRECIONAMENTO);
+        if (gravarEvento) movidos = vehicles.size();
+        moveVehicles(deltaTime);
+        if (medir) perfilPasso.marcar(PerfilPasso.Etapa.MOVIMENTO);
+        metricasLocais.registrarPasso(deltaTime);
+        if (medir) perfilPasso.marcar(PerfilPasso.Etapa.METRICAS);
+        logSimulationState();
+        if (medir) perfilPasso.marcar(PerfilPasso.Etapa.EVENTOS);
+        stats.calculateCurrentCongestion(congestionamento);
+        if (medir) {
+            perfilPasso.marcar(PerfilPasso.Etapa.CONGESTIONAMENTO);
+            perfilPasso.concluirPasso();
+        }
+        if (servidorMetricas != null) {
+            servidorMetricas.publicarPasso(System.nanoTime() - inicioPasso);
+        }
+        if (gravarEvento) {
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.tempoSimulado = time;
+                evento.veiculosMovidos = movidos;
+                evento.veiculosGerados = stats.getTotalVehiclesGenerated() - geradosAntes;
+                evento.veiculosChegaram = stats.getVehiclesArrived() - chegadosAntes;
+                evento.veiculosAtivos = vehicles.size();
+                evento.commit();
+            }
+        }
+    }
+
+    private void salvarInstantaneoPeriodico() {
+        double intervalo = config.getIntervaloInstantaneos();
+        if (intervalo <= 0 || time < proximoInstantaneo) return;
+        proximoInstantaneo = time + intervalo;
+        salvarInstantaneoPadrao();
+    }
+
+    private void salvarInstantaneoPadrao() {
+        try {
+            salvarInstantaneo(arquivoInstantaneoPadrao());
+        } catch (IOException e) {
+            System.err.println("Erro ao salvar instantâneo da simulação: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Arquivo padrão dos instantâneos automáticos de um mapa:
+     * {@code ~/.semaflux/instantaneos/instantaneo-<assinatura>.snap}, substituído a cada gravação.
+     */
+    public File arquivoInstantaneoPadrao() {
+        File dir = new File(new File(System.getProperty("user.home"), ".semaflux"), "instantaneos");
+        return new File(dir, String.format("instantaneo-%016x.snap", PerfilTempoViagem.assinaturaDoMapa(graph)));
+    }
+
+    /**
+     * Grava o estado completo da simulação no arquivo, substituindo-o.
+     * Pode ser chamado de qualquer thread; o passo em andamento termina antes da gravação.
+     */
+    public synchronized void salvarInstantaneo(File arquivo) throws IOException {
+        File dir = arquivo.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Não foi possível criar o diretório " + dir);
+        }
+        File temporario = new File(arquivo.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(temporario), 1 << 16)))) {
+            out.writeInt(MAGICO_INSTANTANEO);
+            out.writeInt(VERSAO_INSTANTANEO);
+            out.writeLong(PerfilTempoViagem.assinaturaDoMapa(graph));
+            out.writeInt(graph.getNodes().size());
+            out.writeInt(graph.getEdges().size());
+            out.writeInt(numeroSemaforos());
+            out.writeDouble(time);
+            out.writeBoolean(generationStopped);
+            out.writeLong(aleatorio.getEstado());
+            stats.salvarEstado(out);
+            edgeOccupancy.salvarEstado(out);
+            metricasLocais.salvarEstado(out);
+            out.writeDouble(redirecionamento != null ? redirecionamento.getProximaAvaliacao() : -1.0);
+
+            Map<Veiculo, Integer> posicaoNaLista = escreverVeiculos(out);
+            escreverSemaforos(out, posicaoNaLista);
+            escreverLoteRedirecionamento(out, posicaoNaLista);
+        } catch (IOException e) {
+            temporario.delete();
+            throw e;
+        }
+        if (!temporario.renameTo(arquivo)) {
+            arquivo.delete();
+            if (!temporario.renameTo(arquivo)) {
+                throw new IOException("Não foi possível substituir " + arquivo);
+            }
+        }
+    }
+
+    /**
+     * Substitui o estado da simulação pelo gravado no instantâneo. Deve ser chamado antes de
+     * iniciar a simulação; o mapa precisa ser o mesmo da gravação. A configuração pode ser
+     * outra (ex.: modo de semáforo ou taxa de geração), o que permite ramificar a simulação a
+     * partir de um mesmo estado aquecido.
+     * @throws IOException Se o arquivo for ilegível ou de outro mapa. Se o erro ocorrer depois
+     *                     do cabeçalho, o simulador fica em estado parcial e deve ser descartado.
+     */
+    public synchronized void restaurarInstantaneo(File arquivo) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(arquivo), 1 << 16)))) {
+            if (in.readInt() != MAGICO_INSTANTANEO) {
+                throw new IOException("Arquivo não é um instantâneo da simulação: " + arquivo);
+            }
+            int versao = in.readInt();
+            if (versao != VERSAO_INSTANTANEO) {
+                throw new IOException("Versão de instantâneo não suportada: " + versao);
+            }
+            long assinatura = in.readLong();
+            int nos = in.readInt();
+            int arestas = in.readInt();
+            int semaforos = in.readInt();
+            if (assinatura != PerfilTempoViagem.assinaturaDoMapa(graph) || nos != graph.getNodes().size()
+                    || arestas != graph.getEdges().size() || semaforos != numeroSemaforos()) {
+                throw new IOException("Instantâneo gravado para outro mapa: " + arquivo);
+            }
+
+            this.time = in.readDouble();
+            this.generationStopped = in.readBoolean();
+            aleatorio.setEstado(in.readLong());
+            stats.restaurarEstado(in);
+            edgeOccupancy.restaurarEstado(in);
+            metricasLocais.restaurarEstado(in);
+            double proximaAvaliacao = in.readDouble();
+            if (redirecionamento != null && proximaAvaliacao >= 0) {
+                redirecionamento.setProximaAvaliacao(proximaAvaliacao);
+            }
+
+            Veiculo[] restaurados = lerVeiculos(in);
+            ListaLigada<Veiculo> lista = new ListaLigada<>();
+            for (Veiculo vehicle : restaurados) {
+                lista.add(vehicle);
+            }
+            this.vehicles = lista;
+            lerSemaforos(in, restaurados);
+            lerLoteRedirecionamento(in, restaurados);
+            congestionamento.recalcular(vehicles, semaforoPorNo);
+        }
+        this.proximoInstantaneo = time + config.getIntervaloInstantaneos();
+    }
+
+    private int numeroSemaforos() {
+        return graph.getTrafficLights() != null ? graph.getTrafficLights().size() : 0;
+    }
+
+    // Veículos na ordem da lista; devolve a posição de cada um, usada nas filas dos semáforos
+    private Map<Veiculo, Integer> escreverVeiculos(DataOutputStream out) throws IOException {
+        Map<Veiculo, Integer> posicaoNaLista = new IdentityHashMap<>(vehicles.size() * 2);
+        out.writeInt(vehicles.size());
+        for (Veiculo vehicle : vehicles) {
+            posicaoNaLista.put(vehicle, posicaoNaLista.size());
+            out.writeUTF(vehicle.getId());
+            out.writeInt(vehicle.getOrigin());
+            out.writeInt(vehicle.getDestination());
+            int[] route = vehicle.getRoute();
+            out.writeInt(route.length);
+            for (int node : route) {
+                out.writeInt(node);
+            }
+            out.writeInt(vehicle.getRoutePosition());
+            out.writeDouble(vehicle.getPosition());
+            out.writeDouble(vehicle.getTravelTime());
+            out.writeDouble(vehicle.getWaitTime());
+            out.writeDouble(vehicle.getFuelConsumed());
+            out.writeInt(vehicle.getParadas());
+            Aresta edge = vehicle.getCurrentEdge();
+            out.writeInt(edge != null ? edge.getIndice() : -1);
+            out.writeDouble(vehicle.getCurrentEdgeEntryTime());
+            Integer direcao = vehicle.getQueuedDirection() != null ? indiceDirecao(vehicle.getQueuedDirection()) : null;
+            out.writeByte(direcao != null ? direcao : -1);
+            out.writeDouble(vehicle.getUltimoRedirecionamento());
+            out.writeByte(vehicle.getTipoVeiculo());
+            out.writeInt(vehicle.getCorArgb());
+        }
+        return posicaoNaLista;
+    }
+
+    private Veiculo[] lerVeiculos(DataInputStream in) throws IOException {
+        int total = in.readInt();
+        if (total < 0) throw new IOException("Número de veículos inválido: " + total);
+        Veiculo[] restaurados = new Veiculo[total];
+        int numeroNos = graph.getNodes().size();
+        for (int v = 0; v < total; v++) {
+            String id = in.readUTF();
+            int origin = in.readInt();
+            int destination = in.readInt();
+            int[] route = new int[in.readInt()];
+            for (int k = 0; k < route.length; k++) {
+                route[k] = in.readInt();
+                if (route[k] < 0 || route[k] >= numeroNos) throw new IOException("Nó inválido na rota do veículo " + id);
+            }
+            Veiculo vehicle = new Veiculo(id, origin, destination, route);
+            vehicle.setRoutePosition(in.readInt());
+            vehicle.setPosition(in.readDouble());
+            vehicle.setTravelTime(in.readDouble());
+            vehicle.setWaitTime(in.readDouble());
+            vehicle.setFuelConsumed(in.readDouble());
+            vehicle.setParadas(in.readInt());
+            int edge = in.readInt();
+            double entrada = in.readDouble();
+            if (edge >= 0) {
+                if (edge >= edgeOccupancy.getNumeroArestas()) throw new IOException("Aresta inválida no veículo " + id);
+                vehicle.setCurrentEdge(edgeOccupancy.getAresta(edge));
+            }
+            vehicle.setCurrentEdgeEntryTime(entrada);
+            int direcao = in.readByte();
+            vehicle.setQueuedDirection(direcao >= 0 && direcao < DIRECOES.length ? DIRECOES[direcao] : null);
+            vehicle.setUltimoRedirecionamento(in.readDouble());
+            int tipo = in.readByte();
+            vehicle.setAparencia(tipo, in.readInt());
+            restaurados[v] = vehicle;
+        }
+        return restaurados;
+    }
+
+    private void escreverSemaforos(DataOutputStream out, Map<Veiculo, Integer> posicaoNaLista) throws IOException {
+        if (graph.getTrafficLights() == null) return;
+        ByteArrayOutputStream bloco = new ByteArrayOutputStream();
+        for (SinalTransito tl : graph.getTrafficLights()) {
+            out.writeUTF(tl.getNodeId());
+            out.writeByte(tl.getCurrentPhase() != null ? tl.getCurrentPhase().ordinal() : -1);
+            out.writeDouble(tl.getPhaseTimer());
+            out.writeBoolean(tl.isPeakHourEnabled());
+            for (int d = 0; d < DIRECOES.length; d++) {
+                Veiculo[] fila = tl.getVehiclesInQueue(d);
+                int naLista = 0;
+                for (Veiculo vehicle : fila) {
+                    if (posicaoNaLista.containsKey(vehicle)) naLista++;
+                }
+                out.writeInt(naLista);
+                for (Veiculo vehicle : fila) {
+                    Integer posicao = posicaoNaLista.get(vehicle);
+                    if (posicao != null) out.writeInt(posicao);
+                }
+            }
+            // Estado do controlador com tamanho prefixado, para poder ser pulado na leitura
+            bloco.reset();
+            if (tl.getControlStrategy() != null) {
+                tl.getControlStrategy().salvarEstado(new DataOutputStream(bloco));
+            }
+            out.writeInt(tl.getMode());
+            out.writeInt(bloco.size());
+            bloco.writeTo(out);
+        }
+    }
+
+    private void lerSemaforos(DataInputStream in, Veiculo[] restaurados) throws IOException {
+        if (graph.getTrafficLights() == null) return;
+        FaseDoSemaforo[] fases = FaseDoSemaforo.values();
+        for (SinalTransito tl : graph.getTrafficLights()) {
+            String nodeId = in.readUTF();
+            if (!nodeId.equals(tl.getNodeId())) {
+                throw new IOException("Semáforo " + nodeId + " fora de ordem (esperado " + tl.getNodeId() + ")");
+            }
+            int fase = in.readByte();
+            double timer = in.readDouble();
+            boolean pico = in.readBoolean();
+            tl.restaurarEstado(fase >= 0 && fase < fases.length ? fases[fase] : null, timer, pico);
+            for (int d = 0; d < DIRECOES.length; d++) {
+                int tamanho = in.readInt();
+                for (int k = 0; k < tamanho; k++) {
+                    int posicao = in.readInt();
+                    if (posicao < 0 || posicao >= restaurados.length) throw new IOException("Veículo inválido na fila de " + nodeId);
+                    tl.addVehicleToQueue(DIRECOES[d], restaurados[posicao]);
+                }
+            }
+            int modo = in.readInt();
+            byte[] bloco = new byte[in.readInt()];
+            in.readFully(bloco);
+            // Com outro modo de semáforo, o controlador novo começa do seu estado inicial
+            if (modo == tl.getMode() && tl.getControlStrategy() != null) {
+                tl.getControlStrategy().restaurarEstado(new DataInputStream(new ByteArrayInputStream(bloco)));
+            }
+        }
+    }
+
+    // Rotas do lote de redirecionamento ainda não aplicado, com tamanho prefixado como o estado dos controladores
+    private void escreverLoteRedirecionamento(DataOutputStream out, Map<Veiculo, Integer> posicaoNaLista) throws IOException {
+        ByteArrayOutputStream bloco = new ByteArrayOutputStream();
+        if (redirecionamento != null) {
+            redirecionamento.salvarEstado(new DataOutputStream(bloco), posicaoNaLista);
+        }
+        out.writeInt(bloco.size());
+        bloco.writeTo(out);
+    }
+
+    private void lerLoteRedirecionamento(DataInputStream in, Veiculo[] restaurados) throws IOException {
+        byte[] bloco = new byte[in.readInt()];
+        in.readFully(bloco);
+        // Sem redirecionamento na configuração atual, as rotas pendentes são descartadas
+        if (redirecionamento != null && bloco.length > 0) {
+            redirecionamento.restaurarEstado(new DataInputStream(new ByteArrayInputStream(bloco)), restaurados);
+        }
+    }
+
+    private static Integer indiceDirecao(String direcao) {
+        for (int d = 0; d < DIRECOES.length; d++) {
+            if (DIRECOES[d].equalsIgnoreCase(direcao)) return d;
+        }
+        return null;
+    }
+
     /**
      * Mostra a janela de resumo com gráficos detalhados ao final da simulação.
      */
     private void mostrarResumoGrafico() {
         try {
-            ResumoSimulacao resumo = new ResumoSimulacao(stats);
+            ResumoSimulacao resumo = new ResumoSimulacao(stats, metricasLocais);
+            if (perfilPasso.getPassos() > 0) {
+                resumo.setPerfilPasso(perfilPasso);
+            }
+            if (registroViagens != null) {
+                resumo.setArquivoViagens(registroViagens.getArquivo());
+            }
             resumo.mostrarResumo();
         } catch (Exception e) {
             System.err.println("Erro ao mostrar resumo gráfico: " + e.getMessage());
@@ -92,6 +529,95 @@ public class Simulador implements Runnable {
         }
     }
 
+    /**
+     * Cria o registro de eventos com os destinos configurados. Erros vão sempre para o console,
+     * escritos pela thread do registro, e os últimos eventos ficam em memória.
+     */
+    private void abrirRegistroEventos() {
+        this.registroEventos = new RegistroEventos();
+        this.eventosRecentes = new DestinoEventosMemoria(EVENTOS_RECENTES);
+        registroEventos.adicionarDestino(eventosRecentes);
+        registroEventos.adicionarDestino(new DestinoEventosTexto(new PrintWriter(System.err, false),
+                EnumSet.of(Evento.Tipo.ERRO)));
+        String base = "eventos-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File dir = new File(new File(System.getProperty("user.home"), ".semaflux"), "eventos");
+        try {
+            if (config.isGravarEventosTexto()) {
+                registroEventos.adicionarDestino(new DestinoEventosTexto(new File(dir, base + ".log"),
+                        LIMITE_ARQUIVO_EVENTOS, ARQUIVOS_EVENTOS_ANTIGOS));
+            }
+            if (config.isGravarEventosBinario()) {
+                registroEventos.adicionarDestino(new DestinoEventosBinario(new File(dir, base + DestinoEventosBinario.EXTENSAO)));
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao criar o arquivo de eventos: " + e.getMessage());
+        }
+        registroEventos.iniciar();
+    }
+
+    /**
+     * Inicia o servidor HTTP de métricas em localhost. Também pode ser chamado com a simulação
+     * em andamento, por exemplo em execuções sem interface; porta 0 escolhe uma porta livre
+     * (consulte {@link ServidorMetricas#getPorta()}).
+     * @return O servidor iniciado, ou null se não foi possível abrir a porta
+     */
+    public final synchronized ServidorMetricas abrirServidorMetricas(int porta) {
+        if (servidorMetricas != null) return servidorMetricas;
+        try {
+            ServidorMetricas servidor = new ServidorMetricas(stats, graph.getTrafficLights(), porta);
+            servidor.setCongestionamento(congestionamento);
+            servidor.iniciar();
+            this.servidorMetricas = servidor;
+        } catch (IOException e) {
+            System.err.println("Erro ao iniciar o servidor de métricas na porta " + porta + ": " + e.getMessage());
+        }
+        return servidorMetricas;
+    }
+
+    private synchronized void fecharServidorMetricas() {
+        if (servidorMetricas == null) return;
+        servidorMetricas.close();
+        servidorMetricas = null;
+    }
+
+    public ServidorMetricas getServidorMetricas() {
+        return servidorMetricas;
+    }
+
+    private void abrirRegistroViagens() {
+        try {
+            this.registroViagens = new RegistroViagens(RegistroViagens.arquivoPadrao(), graph);
+        } catch (IOException e) {
+            System.err.println("Erro ao criar o registro de viagens: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Encerra o registro de viagens, esperando a gravação das viagens pendentes.
+     */
+    private void fecharRegistroViagens() {
+        if (registroViagens == null) return;
+        try {
+            registroViagens.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao gravar o registro de viagens: " + e.getMessage());
+            registroViagens = null;
+        }
+    }
+
+    /**
+     * Grava os perfis de tempo de viagem observados nesta execução (somados aos anteriores do
+     * mesmo cenário) para uso no roteamento das próximas simulações sobre o mesmo mapa.
+     */
+    private void salvarPerfis() {
+        if (perfilTempos == null || !config.isGravarPerfisTempoViagem() || !perfilTempos.possuiObservacoes()) return;
+        try {
+            perfilTempos.salvar(PerfilTempoViagem.arquivoPadrao(graph, config));
+        } catch (IOException e) {
+            System.err.println("Erro ao salvar perfis de tempo de viagem: " + e.getMessage());
+        }
+    }
+
     /**
      * Para a simulação completamente.
      */
@@ -110,6 +636,46 @@ public class Simulador implements Runnable {
     public ListaLigada<Veiculo> getVehicles() {
         return vehicles;
     }
+
+    /**
+     * Retorna as contagens incrementais do índice de congestionamento, com o índice por célula
+     * da grade sobre o mapa.
+     */
+    public CongestionamentoIncremental getCongestionamento() {
+        return congestionamento;
+    }
+
+    /**
+     * Retorna os contadores de ocupação por aresta mantidos pelo simulador (somente leitura).
+     */
+    public OcupacaoArestas getEdgeOccupancy() {
+        return edgeOccupancy;
+    }
+    
+    /**
+     * Retorna as métricas por semáforo e por aresta mantidas pelo simulador (somente leitura).
+     */
+    public MetricasLocais getMetricasLocais() {
+        return metricasLocais;
+    }
+
+    /**
+     * Retorna o perfil de desempenho do passo, que pode ser ligado e desligado durante a simulação.
+     */
+    public PerfilPasso getPerfilPasso() {
+        return perfilPasso;
+    }
+
+    public RegistroEventos getRegistroEventos() {
+        return registroEventos;
+    }
+
+    /**
+     * Retorna os últimos eventos entregues pelo registro de eventos.
+     */
+    public DestinoEventosMemoria getEventosRecentes() {
+        return eventosRecentes;
+    }
     
     /**
      * Valida o grafo antes da simulação.
@@ -129,6 +695,37 @@ public class Simulador implements Runnable {
         }
     }
     
+    /**
+     * Associa a cada semáforo as arestas de entrada e saída do seu cruzamento,
+     * usadas por estratégias que avaliam a ocupação das vias (ex.: max-pressão).
+     */
+    private void prepararSemaforos() {
+        this.semaforoPorNo = graph.semaforosPorNo();
+        for (int i = 0; i < semaforoPorNo.length; i++) {
+            if (semaforoPorNo[i] != null) {
+                semaforoPorNo[i].setRegistroEventos(registroEventos, i);
+            }
+        }
+        if (graph.getTrafficLights() == null) return;
+        for (SinalTransito tl : graph.getTrafficLights()) {
+            if (tl != null) {
+                tl.associarArestas(graph);
+            }
+        }
+    }
+
+    /**
+     * Liga os semáforos às contagens do índice de congestionamento e às métricas por cruzamento,
+     * mantidas por diferenças, que passam a receber cada mudança de fila e de fase no momento em
+     * que acontece.
+     */
+    private void observarSemaforos() {
+        ObservadorSemaforo observador = new ObservadorFilas(congestionamento, metricasLocais);
+        for (SinalTransito tl : semaforoPorNo) {
+            if (tl != null) tl.setObservador(observador);
+        }
+    }
+
     /**
      * Verifica se o grafo é conectado usando BFS.
      * 
@@ -139,49 +736,51 @@ public class Simulador implements Runnable {
             return false;
         }
         
-        Map<String, Boolean> visited = new HashMap<>();
-        ListaLigada<String> queue = new ListaLigada<>();
+        int numberOfNodes = graph.getNodes().size();
+        boolean[] visited = new boolean[numberOfNodes];
+        int[] queue = new int[numberOfNodes]; // Cada nó entra na fila uma única vez
+        int head = 0, tail = 0, visitedCount = 0;
         
         // Começar de qualquer nó
-        String startNodeId = graph.getNodes().iterator().next().getId();
-        queue.add(startNodeId);
-        visited.put(startNodeId, true);
+        queue[tail++] = 0;
+        visited[0] = true;
+        visitedCount++;
         
-        while (!queue.isEmpty()) {
-            String currentNodeId = queue.iterator().next();
-            queue.remove(currentNodeId);
-            
-            No currentNode = graph.getNode(currentNodeId);
+        while (head < tail) {
+            No currentNode = graph.getNode(queue[head++]);
             if (currentNode == null || currentNode.getEdges() == null) continue;
             
             for (Aresta edge : currentNode.getEdges()) {
                 if (edge == null) continue;
-                String destNodeId = edge.getDestination();
-                if (!visited.containsKey(destNodeId)) {
-                    visited.put(destNodeId, true);
-                    queue.add(destNodeId);
+                int destNode = edge.getIndiceDestino();
+                if (destNode >= 0 && !visited[destNode]) {
+                    visited[destNode] = true;
+                    visitedCount++;
+                    queue[tail++] = destNode;
                 }
             }
         }
         
-        boolean connected = visited.size() == graph.getNodes().size();
+        boolean connected = visitedCount == numberOfNodes;
         return connected;
     }
 
     private void generateVehicles(double deltaTime) {
         double numExpectedVehicles = deltaTime * config.getTaxaGeracaoVeiculos();
         int numToGenerate = (int) numExpectedVehicles;
-        if (Math.random() < (numExpectedVehicles - numToGenerate)) {
+        if (aleatorio.nextDouble() < (numExpectedVehicles - numToGenerate)) {
             numToGenerate++;
         }
 
         for (int i = 0; i < numToGenerate; i++) {
             int vehicleId = stats.getTotalVehiclesGenerated() + 1;
-            Veiculo vehicle = generator.generateVehicle(vehicleId);
+            Veiculo vehicle = generator.generateVehicle(vehicleId, time);
 
             if (vehicle != null) {
                 vehicles.add(vehicle);
+                congestionamento.veiculoGerado(vehicle.getCurrentNode());
                 stats.vehicleGenerated();
+                registroEventos.geracao(vehicleId, vehicle.getOrigin(), vehicle.getDestination());
             }
         }
     }
@@ -195,14 +794,30 @@ public class Simulador implements Runnable {
         }
     }
 
+    /**
+     * Aplica as novas rotas já calculadas e solicita recálculo para veículos
+     * cuja rota à frente passa por vias ou semáforos congestionados.
+     */
+    private void redirectVehicles() {
+        if (redirecionamento != null) {
+            redirecionamento.atualizar(vehicles, time);
+        }
+    }
+
     private void moveVehicles(double deltaTime) {
         ListaLigada<Veiculo> vehiclesStillActive = new ListaLigada<>();
         for (Veiculo vehicle : vehicles) {
             if (vehicle == null) continue;
             updateVehicle(vehicle, deltaTime);
 
-            if (running && vehicle.getCurrentNode().equals(vehicle.getDestination()) && vehicle.getPosition() == 0.0) {
+            if (running && vehicle.isAtDestination() && vehicle.getPosition() == 0.0) {
+                leaveCurrentEdge(vehicle);
+                congestionamento.veiculoChegou(vehicle.getCurrentNode());
                 stats.vehicleArrived(vehicle.getTravelTime(), vehicle.getWaitTime(), vehicle.getFuelConsumed());
+                if (registroViagens != null) {
+                    registroViagens.registrar(vehicle, time);
+                }
+                registroEventos.chegada(RegistroViagens.numeroDoId(vehicle.getId()), vehicle.getTravelTime(), vehicle.getWaitTime());
             } else if (running) {
                 vehiclesStillActive.add(vehicle);
             }
@@ -222,44 +837,57 @@ public class Simulador implements Runnable {
             SinalTransito trafficLight = findTrafficLight(vehicle.getCurrentNode());
             
             if (trafficLight != null) {
-                String nextNodeId = getNextNodeInRoute(vehicle);
-                if (nextNodeId == null) return;  // Veículo já está no destino
+                int nextNode = vehicle.getNextNode();
+                if (nextNode < 0) return;  // Veículo já está no destino
                 
                 // Determinar a direção em que o veículo está viajando
-                String direction = determineDirection(vehicle.getCurrentNode(), nextNodeId);
+                String direction = determineDirection(vehicle.getCurrentNode(), nextNode);
                 
                 // Verificar se o veículo pode prosseguir com base no estado do semáforo
                 if (checkIfVehicleCanProceed(trafficLight, direction)) {
-                    // Se houver veículo na fila, remover (não é necessário chamar explicitamente)
+                    // Sai da fila do semáforo, caso estivesse aguardando
+                    if (vehicle.getQueuedDirection() != null) {
+                        trafficLight.removeVehicleFromQueue(vehicle.getQueuedDirection(), vehicle);
+                        vehicle.setQueuedDirection(null);
+                    }
+                    Integer indice = indiceDirecao(direction);
+                    metricasLocais.registrarTravessia(vehicle.getCurrentNode(), indice != null ? indice : -1,
+                            trafficLight.getCurrentPhase(), deltaTime);
+                    enterEdge(vehicle, findEdge(vehicle.getCurrentNode(), nextNode));
                     vehicle.setPosition(vehicle.getPosition() + (deltaTime / 2.0));  // Começa a mover imediatamente
                     vehicleIsMoving = true;
                 } else {
-                    // Adicionar veículo à fila do semáforo
-                    trafficLight.addVehicleToQueue(direction, vehicle);
+                    // Adicionar veículo à fila do semáforo (apenas uma vez enquanto aguarda)
+                    if (vehicle.getQueuedDirection() == null) {
+                        trafficLight.addVehicleToQueue(direction, vehicle);
+                        vehicle.setQueuedDirection(direction);
+                        vehicle.incrementParadas();
+                    }
                     vehicle.incrementWaitTime(deltaTime);
+                    metricasLocais.registrarEspera(vehicle.getCurrentNode(), deltaTime);
                 }
             } else {
                 // Não há semáforo, o veículo pode avançar normalmente
-                String nextNodeId = getNextNodeInRoute(vehicle);
-                if (nextNodeId != null) {
+                int nextNode = vehicle.getNextNode();
+                if (nextNode >= 0) {
+                    enterEdge(vehicle, findEdge(vehicle.getCurrentNode(), nextNode));
                     vehicle.setPosition(vehicle.getPosition() + (deltaTime / 2.0));  // Começa a mover imediatamente
                     vehicleIsMoving = true;
                 }
             }
         } else {
             vehicleIsMoving = true;
-            String sourceNodeOfCurrentSegment = vehicle.getCurrentNode();
-            String targetNodeOfCurrentSegment = getNextNodeInRoute(vehicle);
+            int sourceNodeOfCurrentSegment = vehicle.getCurrentNode();
+            int targetNodeOfCurrentSegment = vehicle.getNextNode();
 
-            if (targetNodeOfCurrentSegment == null) {
-                System.err.println("UPDATE_VEHICLE (EM ARESTA): Veículo " + vehicle.getId() + " na aresta de " + sourceNodeOfCurrentSegment +
-                        " mas getNextNodeInRoute é nulo. Posição: " + String.format("%.2f",vehicle.getPosition()));
+            if (targetNodeOfCurrentSegment < 0) {
+                registroEventos.erro(RegistroViagens.numeroDoId(vehicle.getId()), "UPDATE_VEHICLE (EM ARESTA): Veículo " + vehicle.getId()
+                        + " na aresta de " + nodeId(sourceNodeOfCurrentSegment) + " mas não há próximo nó na rota. Posição: " + String.format("%.2f", vehicle.getPosition()));
                 vehicle.setPosition(0.0);
                 vehicleIsMoving = false;
-                if (!sourceNodeOfCurrentSegment.equals(vehicle.getDestination())) {
-                    System.err.println("    Veículo " + vehicle.getId() + " parou em " + sourceNodeOfCurrentSegment + " pois a rota terminou inesperadamente.");
-                }
-                if (!vehicle.getCurrentNode().equals(vehicle.getDestination())) {
+                if (!vehicle.isAtDestination()) {
+                    registroEventos.erro(RegistroViagens.numeroDoId(vehicle.getId()), "Veículo " + vehicle.getId() + " parou em "
+                            + nodeId(sourceNodeOfCurrentSegment) + " pois a rota terminou inesperadamente.");
                     vehicle.incrementFuelConsumption(vehicle.getFuelConsumptionRateIdle() * deltaTime);
                 }
                 return;
@@ -267,18 +895,20 @@ public class Simulador implements Runnable {
 
             Aresta currentEdge = findEdge(sourceNodeOfCurrentSegment, targetNodeOfCurrentSegment);
             if (currentEdge == null) {
-                System.err.println("UPDATE_VEHICLE (EM ARESTA): Veículo " + vehicle.getId() +
-                        ". Não foi possível encontrar a aresta entre " + sourceNodeOfCurrentSegment + " e " + targetNodeOfCurrentSegment);
+                registroEventos.erro(RegistroViagens.numeroDoId(vehicle.getId()), "UPDATE_VEHICLE (EM ARESTA): Veículo " + vehicle.getId()
+                        + ". Não foi possível encontrar a aresta entre " + nodeId(sourceNodeOfCurrentSegment) + " e " + nodeId(targetNodeOfCurrentSegment));
                 this.running = false;
                 return;
             }
-            double edgeTravelTime = currentEdge.getTravelTime();
+            // Com o modelo BPR ativo, o tempo de travessia cresce com a ocupação atual da aresta
+            double edgeTravelTime = config.isUsarModeloBPR() ? currentEdge.getTempoViagemEfetivo() : currentEdge.getTravelTime();
             if (edgeTravelTime <= 0) edgeTravelTime = deltaTime;
 
             vehicle.setPosition(vehicle.getPosition() + (deltaTime / edgeTravelTime));
 
             if (vehicle.getPosition() >= 1.0) {
-                vehicle.setCurrentNode(targetNodeOfCurrentSegment);
+                vehicle.advanceToNextNode();
+                congestionamento.veiculoAvancou(sourceNodeOfCurrentSegment, vehicle.getCurrentNode());
                 vehicle.setPosition(0.0);
                 vehicleIsMoving = false;
             }
@@ -287,37 +917,61 @@ public class Simulador implements Runnable {
         if (vehicleIsMoving) {
             vehicle.incrementFuelConsumption(vehicle.getFuelConsumptionRateMoving() * deltaTime);
         } else {
-            if (!vehicle.getCurrentNode().equals(vehicle.getDestination()) || vehicle.getPosition() > 0) {
+            if (!vehicle.isAtDestination() || vehicle.getPosition() > 0) {
                 vehicle.incrementFuelConsumption(vehicle.getFuelConsumptionRateIdle() * deltaTime);
             }
         }
     }
 
-    private Aresta findEdge(String sourceNodeId, String targetNodeId) {
-        if (sourceNodeId == null || targetNodeId == null) return null;
-        No sourceNode = graph.getNode(sourceNodeId);
-        if (sourceNode == null || sourceNode.getEdges() == null) return null;
-        for (Aresta edge : sourceNode.getEdges()) {
-            if (edge != null && edge.getDestination() != null && edge.getDestination().equals(targetNodeId)) {
+    /**
+     * Move o veículo para uma nova aresta, atualizando os contadores de ocupação
+     * da aresta anterior e da nova de forma incremental.
+     */
+    private void enterEdge(Veiculo vehicle, Aresta edge) {
+        leaveCurrentEdge(vehicle);
+        if (edge != null) {
+            metricasLocais.registrarEntradaAresta(edge, time);
+            edgeOccupancy.registrarEntrada(edge, time);
+            vehicle.setCurrentEdge(edge);
+            vehicle.setCurrentEdgeEntryTime(time);
+        }
+    }
+
+    private void leaveCurrentEdge(Veiculo vehicle) {
+        Aresta previousEdge = vehicle.getCurrentEdge();
+        if (previousEdge != null) {
+            metricasLocais.registrarSaidaAresta(previousEdge, vehicle.getCurrentEdgeEntryTime(), time);
+            edgeOccupancy.registrarSaida(previousEdge, vehicle.getCurrentEdgeEntryTime(), time);
+            vehicle.setCurrentEdge(null);
+        }
+    }
+
+    private Aresta findEdge(int sourceNode, int targetNode) {
+        No source = graph.getNode(sourceNode);
+        if (source == null || source.getEdges() == null || targetNode < 0) return null;
+        for (Aresta edge : source.getEdges()) {
+            if (edge != null && edge.getIndiceDestino() == targetNode) {
                 return edge;
             }
         }
         return null;
     }
+
+    // ID do nó (do mapa) para mensagens; a simulação trabalha apenas com os índices
+    private String nodeId(int node) {
+        No n = graph.getNode(node);
+        return (n != null) ? n.getId() : String.valueOf(node);
+    }
     
     /**
      * Determina a direção aproximada entre dois nós, baseada em suas coordenadas geográficas.
-     * @param fromNodeId O nó de origem
-     * @param toNodeId O nó de destino
+     * @param fromNodeIndex Índice do nó de origem
+     * @param toNodeIndex Índice do nó de destino
      * @return A direção em formato de string ("north", "east", "south", "west")
      */
-    private String determineDirection(String fromNodeId, String toNodeId) {
-        if (fromNodeId == null || toNodeId == null) {
-            return "north"; // Valor padrão se os IDs forem nulos
-        }
-        
-        No fromNode = graph.getNode(fromNodeId);
-        No toNode = graph.getNode(toNodeId);
+    private String determineDirection(int fromNodeIndex, int toNodeIndex) {
+        No fromNode = graph.getNode(fromNodeIndex);
+        No toNode = graph.getNode(toNodeIndex);
         
         if (fromNode == null || toNode == null) {
             return "north"; // Valor padrão se os nós não forem encontrados
@@ -338,18 +992,12 @@ public class Simulador implements Runnable {
     
     /**
      * Procura o semáforo associado a um nó.
-     * @param nodeId ID do nó
+     * @param nodeIndex Índice do nó
      * @return O semáforo associado ao nó, ou null se não houver
      */
-    private SinalTransito findTrafficLight(String nodeId) {
-        if (graph.getTrafficLights() == null || nodeId == null) return null;
-        
-        for (SinalTransito trafficLight : graph.getTrafficLights()) {
-            if (trafficLight != null && nodeId.equals(trafficLight.getNodeId())) {
-                return trafficLight;
-            }
-        }
-        return null;
+    private SinalTransito findTrafficLight(int nodeIndex) {
+        if (semaforoPorNo == null || nodeIndex < 0 || nodeIndex >= semaforoPorNo.length) return null;
+        return semaforoPorNo[nodeIndex];
     }
     
     /**
@@ -368,29 +1016,8 @@ public class Simulador implements Runnable {
         return "green".equalsIgnoreCase(lightState);
     }
 
-    private String getNextNodeInRoute(Veiculo vehicle) {
-        if (vehicle == null || vehicle.getRoute() == null || vehicle.getRoute().isEmpty()) {
-            return null;
-        }
-
-        String currentNodeId = vehicle.getCurrentNode();
-        boolean foundCurrent = false;
-        
-        for (String nodeId : vehicle.getRoute()) {
-            if (foundCurrent) {
-                return nodeId;
-            }
-            if (nodeId.equals(currentNodeId)) {
-                foundCurrent = true;
-            }
-        }
-        
-        return null; // Não há próximo nó (fim da rota ou nó atual não encontrado)
-    }
-
     private void logSimulationState() {
-        System.out.println("Tempo: " + String.format("%.2f", time) + "s, Veículos: " + (vehicles != null ? vehicles.size() : 0) +
-                ", Congestionamento: " + String.format("%.0f", stats.getCurrentCongestionIndex()));
+        registroEventos.estado(vehicles != null ? vehicles.size() : 0, stats.getCurrentCongestionIndex());
     }
 
     private void sleep(double deltaTime) {
@@ -433,4 +1060,29 @@ public class Simulador implements Runnable {
     public double getSpeedFactor() {
         return this.speedFactor;
     }
-}
\ No newline at end of file
+
+    /**
+     * Repassa as mudanças de fila dos semáforos às contagens do índice de congestionamento e às
+     * métricas por cruzamento, e as mudanças de fase às métricas por cruzamento.
+     */
+    private static final class ObservadorFilas implements ObservadorSemaforo {
+        private final CongestionamentoIncremental congestionamento;
+        private final MetricasLocais metricasLocais;
+
+        ObservadorFilas(CongestionamentoIncremental congestionamento, MetricasLocais metricasLocais) {
+            this.congestionamento = congestionamento;
+            this.metricasLocais = metricasLocais;
+        }
+
+        @Override
+        public void filaAlterada(SinalTransito semaforo, int direcao, int delta) {
+            congestionamento.filaAlterada(semaforo.getIndiceNo(), delta);
+            metricasLocais.filaAlterada(semaforo.getIndiceNo(), delta);
+        }
+
+        @Override
+        public void faseAlterada(SinalTransito semaforo) {
+            metricasLocais.faseAlterada(semaforo.getIndiceNo(), semaforo);
+        }
+    }
+}
@@ -14,9 +14,12 @@ import javafx.stage.Stage;
 import javafx.stage.FileChooser;
 import java.io.File;
 import org.semaflux.sim.InicioSis;
+import org.semaflux.sim.control.MapaBinario;
 import org.semaflux.sim.simulação.Config;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 public class ConfigurationScreen {
     private Config config;
@@ -26,7 +29,7 @@ public class ConfigurationScreen {
     // Componente para seleção de mapa
     private ComboBox<String> mapaCombo;
     private TextField arquivoJsonField;
-    private File arquivoJsonSelecionado;
+    private List<File> arquivosJsonSelecionados; // Mais de um arquivo: mapas unidos em uma só rede
 
     // Componentes para configuração geral
     private ComboBox<String> modoSemaforoCombo;
@@ -34,6 +37,19 @@ public class ConfigurationScreen {
     private CheckBox horarioPicoCheck;
     private Spinner<Double> duracaoSimulacaoSpinner;
     private Spinner<Double> pararGeracaoVeiculosSpinner;
+    private CheckBox modeloBPRCheck;
+    private CheckBox roteamentoCongestionamentoCheck;
+    private Spinner<Integer> redirectThresholdSpinner;
+    private CheckBox gravarPerfisCheck;
+    private CheckBox roteamentoHistoricoCheck;
+    private CheckBox simplificarGrafoCheck;
+    private Spinner<Double> intervaloInstantaneosSpinner;
+    private TextField arquivoInstantaneoField;
+    private CheckBox registroViagensCheck;
+    private CheckBox eventosTextoCheck;
+    private CheckBox eventosBinarioCheck;
+    private CheckBox perfilPassoCheck;
+    private Spinner<Integer> portaMetricasSpinner;
 
     // Componentes para modo fixo
     private Spinner<Double> fixedGreenTimeSpinner;
@@ -59,6 +75,12 @@ public class ConfigurationScreen {
     private Spinner<Double> energySavingMaxGreenTimeSpinner;
     private Spinner<Integer> energySavingThresholdSpinner;
 
+    // Componentes para modo max-pressão
+    private Spinner<Double> maxPressureMinGreenSpinner;
+    private Spinner<Double> maxPressureMaxGreenSpinner;
+    private Spinner<Double> maxPressureYellowTimeSpinner;
+    private Spinner<Double> maxPressureExtensionSpinner;
+
     // Tema de cores
     private final String BACKGROUND_COLOR = "#f0f4f8";
     private final String PRIMARY_COLOR = "#2b6cb0";
@@ -95,11 +117,12 @@ public class ConfigurationScreen {
         TitledPane configFixoPane = criarSecaoModoFixo();
         TitledPane configAdaptativoPane = criarSecaoModoAdaptativo();
         TitledPane configEconomiaPane = criarSecaoModoEconomia();
+        TitledPane configMaxPressaoPane = criarSecaoModoMaxPressao();
 
         // Accordion para organizar as seções
         Accordion accordion = new Accordion();
         accordion.getPanes().addAll(mapSelectionPane, configGeralPane, configFixoPane, configAdaptativoPane,
-                configEconomiaPane);
+                configEconomiaPane, configMaxPressaoPane);
         accordion.setExpandedPane(mapSelectionPane);
 
         mainContent.getChildren().add(accordion);
@@ -190,7 +213,7 @@ public class ConfigurationScreen {
         grid.add(mapaLabel, 0, 1);
 
         mapaCombo = new ComboBox<>();
-        mapaCombo.getItems().addAll("Jóquei - Teresina, Piauí", "Personalizado");
+        mapaCombo.getItems().addAll("Jóquei - Teresina, Piauí", InicioSis.MAPA_TODOS_BAIRROS, "Personalizado");
         mapaCombo.setValue("Jóquei - Teresina, Piauí");
         mapaCombo.setMaxWidth(Double.MAX_VALUE);
         mapaCombo.setTooltip(new Tooltip("Selecione o mapa da cidade para a simulação"));
@@ -213,14 +236,21 @@ public class ConfigurationScreen {
         Button procurarButton = new Button("Procurar");
         procurarButton.setOnAction(e -> {
             FileChooser fileChooser = new FileChooser();
-            fileChooser.setTitle("Selecionar arquivo JSON");
-            fileChooser.getExtensionFilters().add(
-                new FileChooser.ExtensionFilter("Arquivos JSON", "*.json")
+            fileChooser.setTitle("Selecionar arquivos de mapa (vários arquivos são unidos)");
+            fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Mapas (JSON ou compilados)", "*.json", "*" + MapaBinario.EXTENSAO),
+                new FileChooser.ExtensionFilter("Arquivos JSON", "*.json"),
+                new FileChooser.ExtensionFilter("Mapas compilados", "*" + MapaBinario.EXTENSAO)
             );
-            File selectedFile = fileChooser.showOpenDialog(primaryStage);
-            if (selectedFile != null) {
-                arquivoJsonField.setText(selectedFile.getAbsolutePath());
-                arquivoJsonSelecionado = selectedFile;
+            List<File> selectedFiles = fileChooser.showOpenMultipleDialog(primaryStage);
+            if (selectedFiles != null && !selectedFiles.isEmpty()) {
+                StringBuilder nomes = new StringBuilder();
+                for (File selectedFile : selectedFiles) {
+                    if (nomes.length() > 0) nomes.append("; ");
+                    nomes.append(selectedFiles.size() == 1 ? selectedFile.getAbsolutePath() : selectedFile.getName());
+                }
+                arquivoJsonField.setText(nomes.toString());
+                arquivosJsonSelecionados = new ArrayList<>(selectedFiles);
                 mapaCombo.setValue("Personalizado");
             }
         });
@@ -245,9 +275,12 @@ public class ConfigurationScreen {
             if (selectedMap.contains("Jóquei")) {
                 descricaoMapa.setText(
                         "Mapa do bairro Jóquei em Teresina, Piauí, Brasil. Este mapa contém múltiplas avenidas e semáforos, adequado para simular o tráfego urbano em diferentes condições.");
+            } else if (selectedMap.equals(InicioSis.MAPA_TODOS_BAIRROS)) {
+                descricaoMapa.setText(
+                        "Todos os bairros de Teresina distribuídos com o simulador (Dirceu, Fátima, Jóquei, Mocambinho, Monte Castelo, Morada do Sol e Santa Isabel) unidos em uma só rede. Nós e vias repetidos nas fronteiras entre bairros são unificados.");
             } else if (selectedMap.equals("Personalizado")) {
                 descricaoMapa.setText(
-                        "Mapa personalizado carregado do arquivo JSON selecionado. Certifique-se de que o arquivo segue o formato esperado com nós, arestas e sinais de trânsito corretamente definidos.");
+                        "Mapa personalizado carregado do arquivo JSON selecionado. Certifique-se de que o arquivo segue o formato esperado com nós, arestas e sinais de trânsito corretamente definidos. Selecionando vários arquivos, os mapas são unidos em uma só rede.");
             }
         });
 
@@ -281,11 +314,11 @@ public class ConfigurationScreen {
         grid.add(modoLabel, 0, row);
 
         modoSemaforoCombo = new ComboBox<>();
-        modoSemaforoCombo.getItems().addAll("Fixo", "Adaptativo", "Economia de Energia");
+        modoSemaforoCombo.getItems().addAll("Fixo", "Adaptativo", "Economia de Energia", "Max-Pressão");
         modoSemaforoCombo.setValue("Fixo");
         modoSemaforoCombo.setMaxWidth(Double.MAX_VALUE);
         modoSemaforoCombo.setTooltip(new Tooltip(
-                "Fixo: Tempo constante | Adaptativo: Ajusta com tráfego | Economia: Otimiza em baixo tráfego"));
+                "Fixo: Tempo constante | Adaptativo: Ajusta com tráfego | Economia: Otimiza em baixo tráfego | Max-Pressão: Prioriza a fase com maior pressão"));
         grid.add(modoSemaforoCombo, 1, row);
         row++;
 
@@ -354,6 +387,181 @@ public class ConfigurationScreen {
         grid.add(pararGeracaoVeiculosSpinner, 1, row);
         row++;
 
+        // Atraso por congestionamento (BPR)
+        Label bprLabel = new Label("Atraso por Congestionamento:");
+        bprLabel.setTextFill(Color.web(TEXT_COLOR));
+        grid.add(bprLabel, 0, row);
+
+        modeloBPRCheck = new CheckBox();
+        modeloBPRCheck.setSelected(config.isUsarModeloBPR());
+        modeloBPRCheck.setTooltip(new Tooltip("Aumenta o tempo de travessia das vias conforme sua ocupação (função BPR)"));
+        grid.add(modeloBPRCheck, 1, row);
+        row++;
+
+        // Roteamento considerando congestionamento
+        Label roteamentoLabel = new Label("Rotas Evitam Congestionamento:");
+        roteamentoLabel.setTextFill(Color.web(TEXT_COLOR));
+        grid.add(roteamentoLabel, 0, row);
+
+        roteamentoCongestionamentoCheck = new CheckBox();
+        roteamentoCongestionamentoCheck.setSelected(config.isRoteamentoPorCongestionamento());
+        roteamentoCongestionamentoCheck.setTooltip(new Tooltip("Calcula as rotas de novos veículos com o tempo de travessia atual das vias"));
+        roteamentoCongestionamentoCheck.disableProperty().bind(modeloBPRCheck.selectedProperty().not());
+        grid.add(roteamentoCongestionamentoCheck, 1, row);
+        row++;
+
+        // Limiar de redirecionamento em trânsito
+        Label redirecionamentoLabel = new Label("Limiar de Redirecionamento:");
+        redirecionamentoLabel.setTextFill(Color.web(TEXT_COLOR));
+        grid.add(redirecionamentoLabel, 0, row);
+
+        redirectThresholdSpinner = new Spinner<>(0, 50, config.getRedirectThreshold(), 1);
+        redirectThresholdSpinner.setEditable(true);
+        redirectThresholdSpinner.setPrefWidth(150);
+        redirectThresholdSpinner.setTooltip(new Tooltip(
+                "Veículos em via ou fila de semáforo a partir do qual os veículos à frente recalculam a rota (0 = desativado)"));
+        grid.add(redirectThresholdSpinner, 1, row);
+        row++;
+
+        // Gravação dos tempos de travessia observados, para o roteamento por histórico
+        Label gravarPerfisLabel = new Label("Gravar Histórico de Tempos:");
+        gravarPerfisLabel.setTextFill(Color.web(TEXT_COLOR));
+        grid.add(gravarPerfisLabel, 0, row);
+
+        gravarPerfisCheck = new CheckBox();
+        gravarPerfisCheck.setSelected(config.isGravarPerfisTempoViagem());
+        gravarPerfisCheck.setTooltip(new Tooltip(
+                "Soma os tempos de travessia desta simulação ao histórico do mapa, separado por modo, taxa, pico, BPR e redirecionamento"));
+        grid.add(gravarPerfisCheck, 1, row);
+        row++;
+
+        // Roteamento pelos tempos históricos das execuções anteriores
+        Label historicoLabel = new Label("Rotas por Histórico de Tempos:");
+        historicoLabel.setTextFill(Color.web(TEXT_COLOR));
+        grid.add(historicoLabel, 0, row);
+
+        roteamentoHistoricoCheck = new CheckBox();
+        roteamentoHistoricoCheck.setSelected(config.isRoteamentoPorPerfilHistorico());
+        roteamentoHistoricoCheck.setTooltip(new Tooltip(
+                "Calcula as rotas com os tempos de travessia observados em simulações anteriores no mesmo horário"));
+        grid.add(roteamentoHistoricoCheck, 1, row);
+        row++;
+
+        // Simplificação do mapa ao carregar
+        Label simplificarLabel = new Label("Simplificar Mapa:");
+        simplificarLabel.setTextFill(Color.web(TEXT_COLOR));
+        grid.add(simplificarLabel, 0, row);
+
+        simplificarGrafoCheck = new CheckBox();
+        simplificarGrafoCheck.setSelected(config.isSimplificarGrafo());
+        simplificarGrafoCheck.setTooltip(new Tooltip(
+                "Une os trechos de via entre cruzamentos em uma única aresta, mantendo o traçado no desenho"));
+        grid.add(simplificarGrafoCheck, 1, row);
+        row++;
+
+        // Instantâneos automáticos do estado da simulação
+        Label instantaneoLabel = new Label("Instantâneo a Cada (s):");
+        instantaneoLabel.setTextFill(Color.web(TEXT_COLOR));
+        grid.add(instantaneoLabel, 0, row);
+
+        intervaloInstantaneosSpinner = new Spinner<>(0.0, 3600.0, config.getIntervaloInstantaneos(), 60.0);
+        intervaloInstantaneosSpinner.setEditable(true);
+        intervaloInstantaneosSpinner.setPrefWidth(150);
+        intervaloInstantaneosSpinner.setTooltip(new Tooltip(
+                "Grava o estado completo da simulação em ~/.semaflux/instantaneos a cada intervalo e ao interromper (0 = desativado)"));
+        grid.add(intervaloInstantaneosSpinner, 1, row);
+        row++;
+
+        // Retomada a partir de um instantâneo gravado
+        Label retomarLabel = new Label("Continuar de Instantâneo:");
+        retomarLabel.setTextFill(Color.web(TEXT_COLOR));
+        grid.add(retomarLabel, 0, row);
+
+        HBox instantaneoBox = new HBox(10);
+        arquivoInstantaneoField = new TextField(config.getArquivoInstantaneo() != null ? config.getArquivoInstantaneo() : "");
+        arquivoInstantaneoField.setEditable(false);
+        arquivoInstantaneoField.setPromptText("Começar do zero");
+        arquivoInstantaneoField.setTooltip(new Tooltip(
+                "Retoma a simulação do estado gravado (o mapa deve ser o mesmo; os demais parâmetros podem mudar)"));
+        HBox.setHgrow(arquivoInstantaneoField, Priority.ALWAYS);
+
+        Button procurarInstantaneoButton = new Button("Procurar");
+        procurarInstantaneoButton.setOnAction(e -> {
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.setTitle("Selecionar instantâneo da simulação");
+            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Instantâneos", "*.snap"));
+            File pasta = new File(new File(System.getProperty("user.home"), ".semaflux"), "instantaneos");
+            if (pasta.isDirectory()) {
+                fileChooser.setInitialDirectory(pasta);
+            }
+            File selecionado = fileChooser.showOpenDialog(primaryStage);
+            if (selecionado != null) {
+                arquivoInstantaneoField.setText(selecionado.getAbsolutePath());
+            }
+        });
+        Button limparInstantaneoButton = new Button("Limpar");
+        limparInstantaneoButton.setOnAction(e -> arquivoInstantaneoField.clear());
+
+        instantaneoBox.getChildren().addAll(arquivoInstantaneoField, procurarInstantaneoButton, limparInstantaneoButton);
+        grid.add(instantaneoBox, 1, row);
+        row++;
+
+        // Registro de cada viagem concluída
+        Label registroViagensLabel = new Label("Registrar Viagens:");
+        registroViagensLabel.setTextFill(Color.web(TEXT_COLOR));
+        grid.add(registroViagensLabel, 0, row);
+
+        registroViagensCheck = new CheckBox();
+        registroViagensCheck.setSelected(config.isGravarRegistroViagens());
+        registroViagensCheck.setTooltip(new Tooltip(
+                "Grava cada viagem concluída em ~/.semaflux/viagens, exportável para CSV no resumo final"));
+        grid.add(registroViagensCheck, 1, row);
+        row++;
+
+        // Registro de eventos (mudanças de fase, chegadas, redirecionamentos...)
+        Label eventosLabel = new Label("Registrar Eventos:");
+        eventosLabel.setTextFill(Color.web(TEXT_COLOR));
+        grid.add(eventosLabel, 0, row);
+
+        eventosTextoCheck = new CheckBox("Texto");
+        eventosTextoCheck.setTextFill(Color.web(TEXT_COLOR));
+        eventosTextoCheck.setSelected(config.isGravarEventosTexto());
+        eventosTextoCheck.setTooltip(new Tooltip(
+                "Grava os eventos em texto em ~/.semaflux/eventos, com rotação dos arquivos a cada 16 MiB"));
+        eventosBinarioCheck = new CheckBox("Binário");
+        eventosBinarioCheck.setTextFill(Color.web(TEXT_COLOR));
+        eventosBinarioCheck.setSelected(config.isGravarEventosBinario());
+        eventosBinarioCheck.setTooltip(new Tooltip(
+                "Grava os eventos em formato binário compacto (.sfe) em ~/.semaflux/eventos"));
+        HBox eventosBox = new HBox(10, eventosTextoCheck, eventosBinarioCheck);
+        grid.add(eventosBox, 1, row);
+        row++;
+
+        // Perfil de desempenho do passo (também pode ser ligado durante a simulação)
+        Label perfilPassoLabel = new Label("Perfil do Passo:");
+        perfilPassoLabel.setTextFill(Color.web(TEXT_COLOR));
+        grid.add(perfilPassoLabel, 0, row);
+
+        perfilPassoCheck = new CheckBox();
+        perfilPassoCheck.setSelected(config.isPerfilarPasso());
+        perfilPassoCheck.setTooltip(new Tooltip(
+                "Mede o tempo e a memória alocada em cada etapa do passo desde o início da simulação"));
+        grid.add(perfilPassoCheck, 1, row);
+        row++;
+
+        // Servidor HTTP de métricas (Prometheus e JSON) em localhost
+        Label portaMetricasLabel = new Label("Porta de Métricas HTTP:");
+        portaMetricasLabel.setTextFill(Color.web(TEXT_COLOR));
+        grid.add(portaMetricasLabel, 0, row);
+
+        portaMetricasSpinner = new Spinner<>(0, 65535, config.getPortaMetricas(), 1);
+        portaMetricasSpinner.setEditable(true);
+        portaMetricasSpinner.setPrefWidth(150);
+        portaMetricasSpinner.setTooltip(new Tooltip(
+                "Publica os contadores da simulação em http://localhost:<porta>/metrics (Prometheus) e /metrics.json (0 = desativado)"));
+        grid.add(portaMetricasSpinner, 1, row);
+        row++;
+
         TitledPane titledPane = new TitledPane("Configuração Geral", grid);
         titledPane.setExpanded(false);
         return titledPane;
@@ -673,6 +881,86 @@ public class ConfigurationScreen {
         return titledPane;
     }
 
+    private TitledPane criarSecaoModoMaxPressao() {
+        GridPane grid = new GridPane();
+        grid.setHgap(15);
+        grid.setVgap(15);
+        grid.setPadding(new Insets(15));
+        grid.getStyleClass().add("panel");
+        grid.getStyleClass().add("config-grid");
+
+        // Configurar colunas
+        ColumnConstraints column1 = new ColumnConstraints();
+        column1.setPercentWidth(45);
+        ColumnConstraints column2 = new ColumnConstraints();
+        column2.setPercentWidth(55);
+        grid.getColumnConstraints().addAll(column1, column2);
+
+        int row = 0;
+
+        // Tempo verde mínimo
+        Label minGreenLabel = new Label("Tempo Verde Mínimo (s):");
+        minGreenLabel.setTextFill(Color.web(TEXT_COLOR));
+        grid.add(minGreenLabel, 0, row);
+
+        maxPressureMinGreenSpinner = new Spinner<>(3.0, 30.0, config.getMaxPressaoVerdeMinimo(), 1.0);
+        maxPressureMinGreenSpinner.setEditable(true);
+        maxPressureMinGreenSpinner.setMaxWidth(Double.MAX_VALUE);
+        maxPressureMinGreenSpinner.setTooltip(new Tooltip("Verde garantido a cada fase antes de reavaliar a pressão"));
+        grid.add(maxPressureMinGreenSpinner, 1, row);
+        row++;
+
+        // Tempo verde máximo
+        Label maxGreenLabel = new Label("Tempo Verde Máximo (s):");
+        maxGreenLabel.setTextFill(Color.web(TEXT_COLOR));
+        grid.add(maxGreenLabel, 0, row);
+
+        maxPressureMaxGreenSpinner = new Spinner<>(10.0, 90.0, config.getMaxPressaoVerdeMaximo(), 1.0);
+        maxPressureMaxGreenSpinner.setEditable(true);
+        maxPressureMaxGreenSpinner.setMaxWidth(Double.MAX_VALUE);
+        maxPressureMaxGreenSpinner.setTooltip(new Tooltip("Limite de verde contínuo de uma fase, mesmo com pressão maior"));
+        grid.add(maxPressureMaxGreenSpinner, 1, row);
+        row++;
+
+        // Tempo amarelo
+        Label yellowLabel = new Label("Tempo Amarelo (s):");
+        yellowLabel.setTextFill(Color.web(TEXT_COLOR));
+        grid.add(yellowLabel, 0, row);
+
+        maxPressureYellowTimeSpinner = new Spinner<>(1.0, 10.0, config.getMaxPressaoAmarelo(), 0.5);
+        maxPressureYellowTimeSpinner.setEditable(true);
+        maxPressureYellowTimeSpinner.setMaxWidth(Double.MAX_VALUE);
+        maxPressureYellowTimeSpinner.setTooltip(new Tooltip("Duração da fase amarela (transição)"));
+        grid.add(maxPressureYellowTimeSpinner, 1, row);
+        row++;
+
+        // Passo de extensão
+        Label extensionLabel = new Label("Extensão do Verde (s):");
+        extensionLabel.setTextFill(Color.web(TEXT_COLOR));
+        grid.add(extensionLabel, 0, row);
+
+        maxPressureExtensionSpinner = new Spinner<>(1.0, 15.0, config.getMaxPressaoExtensao(), 1.0);
+        maxPressureExtensionSpinner.setEditable(true);
+        maxPressureExtensionSpinner.setMaxWidth(Double.MAX_VALUE);
+        maxPressureExtensionSpinner.setTooltip(new Tooltip("Tempo adicionado ao verde a cada reavaliação em que a fase atual mantém a maior pressão"));
+        grid.add(maxPressureExtensionSpinner, 1, row);
+        row++;
+
+        // Texto informativo
+        TextArea infoText = new TextArea(
+                "No modo max-pressão, cada semáforo compara a ocupação das vias que chegam ao cruzamento com a ocupação das vias para onde os veículos seguirão, e mantém o verde na direção de maior pressão até o limite máximo.");
+        infoText.setWrapText(true);
+        infoText.setEditable(false);
+        infoText.setPrefRowCount(3);
+        infoText.getStyleClass().add("info-box");
+        GridPane.setColumnSpan(infoText, 2);
+        grid.add(infoText, 0, row);
+
+        TitledPane titledPane = new TitledPane("Modo Max-Pressão", grid);
+        titledPane.setExpanded(false);
+        return titledPane;
+    }
+
     private void showHelpDialog() {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Ajuda do SemaFlux");
@@ -689,7 +977,8 @@ public class ConfigurationScreen {
                         "MODOS DE SEMÁFORO:\n\n" +
                         "- Fixo: Semáforos alternam com tempos constantes\n" +
                         "- Adaptativo: Semáforos ajustam tempos com base no tráfego\n" +
-                        "- Economia: Otimiza energia em horários de baixo tráfego\n\n" +
+                        "- Economia: Otimiza energia em horários de baixo tráfego\n" +
+                        "- Max-Pressão: Mantém verde a direção com maior pressão (ocupação de entrada menos ocupação de saída)\n\n" +
                         "ARQUIVOS JSON PERSONALIZADOS:\n\n" +
                         "Os arquivos JSON devem seguir o mesmo formato dos mapas pré-definidos, contendo:\n" +
                         "- Nós (intersecções) com coordenadas geográficas\n" +
@@ -711,18 +1000,32 @@ public class ConfigurationScreen {
         String selectedMap = mapaCombo.getValue();
 
         // Iniciar a simulação com a configuração atualizada e o mapa selecionado
-        application.iniciarSimulacao(config, primaryStage, selectedMap, arquivoJsonSelecionado);
+        application.iniciarSimulacao(config, primaryStage, selectedMap, arquivosJsonSelecionados);
     }
 
     private void atualizarConfiguracao() {
         // Configuração geral
         int modoSemaforo = modoSemaforoCombo.getSelectionModel().getSelectedIndex() + 1; // 1=Fixo, 2=Adaptativo,
-                                                                                         // 3=Economia
+                                                                                         // 3=Economia, 4=Max-Pressão
         config.setModoSemaforo(modoSemaforo);
         config.setTaxaGeracaoVeiculos(taxaGeracaoVeiculosSlider.getValue());
         config.setHorarioPico(horarioPicoCheck.isSelected());
         config.setDuracaoSimulacao(duracaoSimulacaoSpinner.getValue());
         config.setParadaGeracao(pararGeracaoVeiculosSpinner.getValue());
+        config.setUsarModeloBPR(modeloBPRCheck.isSelected());
+        config.setRoteamentoPorCongestionamento(roteamentoCongestionamentoCheck.isSelected());
+        config.setRedirectThreshold(redirectThresholdSpinner.getValue());
+        config.setGravarPerfisTempoViagem(gravarPerfisCheck.isSelected());
+        config.setRoteamentoPorPerfilHistorico(roteamentoHistoricoCheck.isSelected());
+        config.setSimplificarGrafo(simplificarGrafoCheck.isSelected());
+        config.setIntervaloInstantaneos(intervaloInstantaneosSpinner.getValue());
+        String instantaneo = arquivoInstantaneoField.getText();
+        config.setArquivoInstantaneo(instantaneo == null || instantaneo.isBlank() ? null : instantaneo);
+        config.setGravarRegistroViagens(registroViagensCheck.isSelected());
+        config.setGravarEventosTexto(eventosTextoCheck.isSelected());
+        config.setGravarEventosBinario(eventosBinarioCheck.isSelected());
+        config.setPerfilarPasso(perfilPassoCheck.isSelected());
+        config.setPortaMetricas(portaMetricasSpinner.getValue());
 
         // Modo fixo
         config.setFixedGreenTime(fixedGreenTimeSpinner.getValue());
@@ -747,5 +1050,11 @@ public class ConfigurationScreen {
         config.setMinimoVerdeEconomia(energySavingMinGreenSpinner.getValue());
         config.setTempoMaximoVerdeEconomia(energySavingMaxGreenTimeSpinner.getValue());
         config.setLimiarEconomia(energySavingThresholdSpinner.getValue());
+
+        // Modo max-pressão
+        config.setMaxPressaoVerdeMinimo(maxPressureMinGreenSpinner.getValue());
+        config.setMaxPressaoVerdeMaximo(maxPressureMaxGreenSpinner.getValue());
+        config.setMaxPressaoAmarelo(maxPressureYellowTimeSpinner.getValue());
+        config.setMaxPressaoExtensao(maxPressureExtensionSpinner.getValue());
     }
 }
\ No newline at end of file
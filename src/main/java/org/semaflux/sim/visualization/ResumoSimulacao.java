@@ -33,14 +33,24 @@ import javafx.stage.StageStyle;
 import javafx.stage.FileChooser;
 import javafx.stage.FileChooser.ExtensionFilter;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import org.semaflux.sim.simulação.DistribuicaoQuantis;
 import org.semaflux.sim.simulação.Estatisticas;
+import org.semaflux.sim.simulação.MetricasLocais;
+import org.semaflux.sim.simulação.PerfilPasso;
+import org.semaflux.sim.simulação.RegistroViagens;
+import org.semaflux.sim.simulação.SerieTemporal;
 
 /**
  * Classe responsável por mostrar uma janela de resumo com gráficos 
@@ -48,7 +58,12 @@ import org.semaflux.sim.simulação.Estatisticas;
  */
 public class ResumoSimulacao {
     
+    private static final int CRUZAMENTOS_LISTADOS = 15; // Semáforos mais críticos listados no resumo
+    
     private Estatisticas estatisticas;
+    private MetricasLocais metricas; // Métricas por semáforo (pode ser null)
+    private File arquivoViagens; // Registro de viagens da simulação (null se não foi gravado)
+    private PerfilPasso perfilPasso; // Tempo por etapa do passo (null se não foi medido)
     private Stage stage;
     
     // Tema de cores
@@ -60,7 +75,30 @@ public class ResumoSimulacao {
     private final String TEXT_COLOR = "#2d3748";
     
     public ResumoSimulacao(Estatisticas estatisticas) {
+        this(estatisticas, null);
+    }
+    
+    /**
+     * @param metricas Métricas por semáforo da simulação; quando presentes, o resumo lista os
+     *                 cruzamentos com maior atraso
+     */
+    public ResumoSimulacao(Estatisticas estatisticas, MetricasLocais metricas) {
         this.estatisticas = estatisticas;
+        this.metricas = metricas;
+    }
+    
+    /**
+     * Define o registro de viagens gravado pela simulação, que passa a poder ser exportado em CSV.
+     */
+    public void setArquivoViagens(File arquivoViagens) {
+        this.arquivoViagens = arquivoViagens;
+    }
+    
+    /**
+     * Define o perfil de desempenho do passo, mostrado em uma aba própria e no relatório.
+     */
+    public void setPerfilPasso(PerfilPasso perfilPasso) {
+        this.perfilPasso = perfilPasso;
     }
     
     /**
@@ -97,6 +135,20 @@ public class ResumoSimulacao {
             graficosTab.setContent(criarPainelGraficos());
             
             tabPane.getTabs().addAll(resumoTab, graficosTab);
+            
+            // Aba de Cruzamentos
+            if (metricas != null && metricas.getNumeroSemaforos() > 0) {
+                Tab cruzamentosTab = new Tab("Cruzamentos");
+                cruzamentosTab.setContent(criarPainelCruzamentos());
+                tabPane.getTabs().add(cruzamentosTab);
+            }
+            
+            // Aba de Desempenho
+            if (perfilPasso != null && perfilPasso.getPassos() > 0) {
+                Tab desempenhoTab = new Tab("Desempenho");
+                desempenhoTab.setContent(criarPainelDesempenho());
+                tabPane.getTabs().add(desempenhoTab);
+            }
             root.setCenter(tabPane);
             
             // Rodapé com botões
@@ -173,11 +225,13 @@ public class ResumoSimulacao {
         criarLabel(grid, "Total de Veículos Gerados:", 0, 1);
         criarLabel(grid, "Veículos Chegados ao Destino:", 0, 2);
         criarLabel(grid, "Taxa de Chegada:", 0, 3);
+        criarLabel(grid, "Redirecionamentos:", 0, 4);
         
         criarValor(grid, String.format("%.2f segundos", estatisticas.getCurrentTime()), 1, 0);
         criarValor(grid, String.format("%d", estatisticas.getTotalVehiclesGenerated()), 1, 1);
         criarValor(grid, String.format("%d", estatisticas.getVehiclesArrived()), 1, 2);
         criarValor(grid, String.format("%.2f%%", estatisticas.getArrivalRate()), 1, 3);
+        criarValor(grid, String.format("%d", estatisticas.getTotalVehiclesRerouted()), 1, 4);
         
         // Segunda coluna - Tempos
         criarLabel(grid, "Tempo Médio de Viagem:", 2, 0);
@@ -189,6 +243,11 @@ public class ResumoSimulacao {
         criarValor(grid, String.format("%.2f segundos", estatisticas.getMaxTravelTime()), 3, 1);
         criarValor(grid, String.format("%.2f segundos", estatisticas.getAverageWaitTime()), 3, 2);
         criarValor(grid, String.format("%.2f segundos", estatisticas.getMaxWaitTime()), 3, 3);
+        criarLabel(grid, "Viagem p50 / p95 / p99:", 2, 4);
+        criarLabel(grid, "Espera p50 / p95 / p99:", 2, 5);
+        
+        criarValor(grid, formatarPercentis(estatisticas.getTravelTimeDistribution(), "%.1f") + " s", 3, 4);
+        criarValor(grid, formatarPercentis(estatisticas.getWaitTimeDistribution(), "%.1f") + " s", 3, 5);
         
         // Terceira coluna - Combustível e congestionamento
         criarLabel(grid, "Consumo Total de Combustível:", 4, 0);
@@ -200,11 +259,19 @@ public class ResumoSimulacao {
         criarValor(grid, String.format("%.3f litros", estatisticas.getAverageFuelConsumptionPerVehicle()), 5, 1);
         criarValor(grid, String.format("%.2f%%", estatisticas.getMaxRecordedCongestionRatio()), 5, 2);
         criarValor(grid, String.format("%.2f%%", estatisticas.getAverageCongestionRatio()), 5, 3);
+        criarLabel(grid, "Consumo p50 / p95 / p99:", 4, 4);
+        criarValor(grid, formatarPercentis(estatisticas.getFuelDistribution(), "%.3f") + " litros", 5, 4);
         
         secao.getChildren().addAll(tituloSecao, grid);
         return secao;
     }
     
+    // Percentis 50, 95 e 99 no formato "a / b / c"
+    private static String formatarPercentis(DistribuicaoQuantis distribuicao, String formato) {
+        return String.format(formato + " / " + formato + " / " + formato,
+                distribuicao.quantil(0.50), distribuicao.quantil(0.95), distribuicao.quantil(0.99));
+    }
+    
     private void criarLabel(GridPane grid, String texto, int coluna, int linha) {
         Label label = new Label(texto);
         label.setFont(Font.font("System", FontWeight.BOLD, 12));
@@ -278,6 +345,87 @@ public class ResumoSimulacao {
         return container;
     }
     
+    private ScrollPane criarPainelCruzamentos() {
+        VBox secao = new VBox(15);
+        secao.setPadding(new Insets(15));
+        secao.setStyle("-fx-background-color: " + PANEL_COLOR + "; -fx-border-color: #DDDDDD; -fx-border-radius: 5;");
+        
+        Text tituloSecao = new Text("Cruzamentos com Maior Atraso");
+        tituloSecao.setFont(Font.font("System", FontWeight.BOLD, 18));
+        tituloSecao.setFill(Color.web(PRIMARY_COLOR));
+        
+        GridPane grid = new GridPane();
+        grid.setHgap(30);
+        grid.setVgap(8);
+        
+        String[] colunas = {"Semáforo", "Atendidos", "Fila Média", "Fila Máx.", "Atraso Total", "Atraso/Veículo", "Uso do Verde"};
+        for (int c = 0; c < colunas.length; c++) {
+            criarLabel(grid, colunas[c], c, 0);
+        }
+        
+        int[] ordem = metricas.semaforosPorAtraso();
+        for (int k = 0; k < ordem.length && k < CRUZAMENTOS_LISTADOS; k++) {
+            int p = ordem[k];
+            int linha = k + 1;
+            criarValor(grid, metricas.getSemaforo(p).getNodeId(), 0, linha);
+            criarValor(grid, String.format("%d", metricas.getVeiculosAtendidos(p)), 1, linha);
+            criarValor(grid, String.format("%.2f", metricas.getFilaMedia(p)), 2, linha);
+            criarValor(grid, String.format("%d", metricas.getFilaMaxima(p)), 3, linha);
+            criarValor(grid, String.format("%.0f s", metricas.getAtrasoTotal(p)), 4, linha);
+            criarValor(grid, String.format("%.1f s", metricas.getAtrasoPorVeiculo(p)), 5, linha);
+            criarValor(grid, String.format("%.1f%%", metricas.getUsoVerde(p) * 100.0), 6, linha);
+        }
+        
+        secao.getChildren().addAll(tituloSecao, grid);
+        
+        ScrollPane scrollPane = new ScrollPane(secao);
+        scrollPane.setFitToWidth(true);
+        return scrollPane;
+    }
+    
+    private ScrollPane criarPainelDesempenho() {
+        VBox secao = new VBox(15);
+        secao.setPadding(new Insets(15));
+        secao.setStyle("-fx-background-color: " + PANEL_COLOR + "; -fx-border-color: #DDDDDD; -fx-border-radius: 5;");
+        
+        Text tituloSecao = new Text("Tempo por Etapa do Passo (" + perfilPasso.getPassos() + " passos medidos)");
+        tituloSecao.setFont(Font.font("System", FontWeight.BOLD, 18));
+        tituloSecao.setFill(Color.web(PRIMARY_COLOR));
+        
+        GridPane grid = new GridPane();
+        grid.setHgap(30);
+        grid.setVgap(8);
+        
+        String[] colunas = {"Etapa", "Média", "p50 / p95 / p99", "Máximo", "% do Passo", "Alocação Média"};
+        for (int c = 0; c < colunas.length; c++) {
+            criarLabel(grid, colunas[c], c, 0);
+        }
+        
+        PerfilPasso.Etapa[] etapas = PerfilPasso.Etapa.values();
+        for (int k = 0; k <= etapas.length; k++) {
+            boolean passo = k == etapas.length;
+            DistribuicaoQuantis tempo = passo ? perfilPasso.getTempoPasso() : perfilPasso.getTempo(etapas[k]);
+            int linha = k + 1;
+            criarValor(grid, passo ? "Passo completo" : etapas[k].getDescricao(), 0, linha);
+            criarValor(grid, String.format("%.1f µs", passo ? perfilPasso.getTempoMedioPasso() : perfilPasso.getTempoMedio(etapas[k])), 1, linha);
+            criarValor(grid, formatarPercentis(tempo, "%.1f") + " µs", 2, linha);
+            criarValor(grid, String.format("%.1f µs", tempo.getMaximo()), 3, linha);
+            criarValor(grid, String.format("%.1f%%", passo ? 100.0 : perfilPasso.getFracao(etapas[k]) * 100.0), 4, linha);
+            criarValor(grid, formatarAlocacao(passo ? perfilPasso.getAlocacaoMediaPasso() : perfilPasso.getAlocacaoMedia(etapas[k])), 5, linha);
+        }
+        
+        secao.getChildren().addAll(tituloSecao, grid);
+        
+        ScrollPane scrollPane = new ScrollPane(secao);
+        scrollPane.setFitToWidth(true);
+        return scrollPane;
+    }
+    
+    private String formatarAlocacao(double bytes) {
+        if (!perfilPasso.isMedindoAlocacao()) return "N/D";
+        return String.format("%.1f KiB", bytes / 1024.0);
+    }
+    
     private ScrollPane criarPainelGraficos() {
         VBox conteudo = new VBox(20);
         conteudo.setPadding(new Insets(20));
@@ -312,11 +460,10 @@ public class ResumoSimulacao {
         titulo.setFont(Font.font("System", FontWeight.BOLD, 14));
         
         // Obter dados
-        List<Double> tempos = estatisticas.getTimeHistory();
-        List<Double> congestionamento = estatisticas.getCongestionHistory();
+        SerieTemporal congestionamento = estatisticas.getCongestionHistory();
         
         // Verificar se há dados suficientes
-        if (tempos.isEmpty() || congestionamento.isEmpty()) {
+        if (congestionamento.tamanho() == 0) {
             Text semDados = new Text("Não há dados suficientes para exibir o gráfico.");
             semDados.setFill(Color.RED);
             container.getChildren().addAll(titulo, semDados);
@@ -338,11 +485,19 @@ public class ResumoSimulacao {
         XYChart.Series<Number, Number> series = new XYChart.Series<>();
         series.setName("Nível de Congestionamento");
         
-        for (int i = 0; i < tempos.size() && i < congestionamento.size(); i++) {
-            series.getData().add(new XYChart.Data<>(tempos.get(i), congestionamento.get(i)));
-        }
+        preencherSerie(series, congestionamento);
         
         grafico.getData().add(series);
+
+        // Em simulações longas cada ponto resume várias amostras: mostra também o pico de cada trecho
+        if (congestionamento.getAmostrasPorFaixa() > 1) {
+            XYChart.Series<Number, Number> picos = new XYChart.Series<>();
+            picos.setName("Pico no Intervalo");
+            List<XYChart.Data<Number, Number>> pontos = new ArrayList<>(congestionamento.tamanho());
+            congestionamento.percorrer((tempo, minimo, media, maximo) -> pontos.add(new XYChart.Data<>(tempo, maximo)));
+            picos.getData().setAll(pontos);
+            grafico.getData().add(picos);
+        }
         
         container.getChildren().addAll(titulo, grafico);
         VBox.setVgrow(grafico, Priority.ALWAYS);
@@ -359,11 +514,10 @@ public class ResumoSimulacao {
         titulo.setFont(Font.font("System", FontWeight.BOLD, 14));
         
         // Obter dados
-        List<Double> tempos = estatisticas.getTimeHistory();
-        List<Integer> veiculos = estatisticas.getActiveVehiclesHistory();
+        SerieTemporal veiculos = estatisticas.getActiveVehiclesHistory();
         
         // Verificar se há dados suficientes
-        if (tempos.isEmpty() || veiculos.isEmpty()) {
+        if (veiculos.tamanho() == 0) {
             Text semDados = new Text("Não há dados suficientes para exibir o gráfico.");
             semDados.setFill(Color.RED);
             container.getChildren().addAll(titulo, semDados);
@@ -386,9 +540,7 @@ public class ResumoSimulacao {
         XYChart.Series<Number, Number> series = new XYChart.Series<>();
         series.setName("Veículos Ativos");
         
-        for (int i = 0; i < tempos.size() && i < veiculos.size(); i++) {
-            series.getData().add(new XYChart.Data<>(tempos.get(i), veiculos.get(i)));
-        }
+        preencherSerie(series, veiculos);
         
         grafico.getData().add(series);
         
@@ -407,11 +559,10 @@ public class ResumoSimulacao {
         titulo.setFont(Font.font("System", FontWeight.BOLD, 14));
         
         // Obter dados
-        List<Double> tempos = estatisticas.getTimeHistory();
-        List<Double> combustivel = estatisticas.getFuelConsumptionHistory();
+        SerieTemporal combustivel = estatisticas.getFuelConsumptionHistory();
         
         // Verificar se há dados suficientes
-        if (tempos.isEmpty() || combustivel.isEmpty()) {
+        if (combustivel.tamanho() == 0) {
             Text semDados = new Text("Não há dados suficientes para exibir o gráfico.");
             semDados.setFill(Color.RED);
             container.getChildren().addAll(titulo, semDados);
@@ -434,9 +585,7 @@ public class ResumoSimulacao {
         XYChart.Series<Number, Number> series = new XYChart.Series<>();
         series.setName("Combustível Consumido");
         
-        for (int i = 0; i < tempos.size() && i < combustivel.size(); i++) {
-            series.getData().add(new XYChart.Data<>(tempos.get(i), combustivel.get(i)));
-        }
+        preencherSerie(series, combustivel);
         
         grafico.getData().add(series);
         
@@ -455,11 +604,10 @@ public class ResumoSimulacao {
         titulo.setFont(Font.font("System", FontWeight.BOLD, 14));
         
         // Obter dados
-        List<Double> tempos = estatisticas.getTimeHistory();
-        List<Double> esperas = estatisticas.getWaitTimeHistory();
+        SerieTemporal esperas = estatisticas.getWaitTimeHistory();
         
         // Verificar se há dados suficientes
-        if (tempos.isEmpty() || esperas.isEmpty()) {
+        if (esperas.tamanho() == 0) {
             Text semDados = new Text("Não há dados suficientes para exibir o gráfico.");
             semDados.setFill(Color.RED);
             container.getChildren().addAll(titulo, semDados);
@@ -482,9 +630,7 @@ public class ResumoSimulacao {
         XYChart.Series<Number, Number> series = new XYChart.Series<>();
         series.setName("Tempo Médio de Espera");
         
-        for (int i = 0; i < tempos.size() && i < esperas.size(); i++) {
-            series.getData().add(new XYChart.Data<>(tempos.get(i), esperas.get(i)));
-        }
+        preencherSerie(series, esperas);
         
         grafico.getData().add(series);
         
@@ -494,6 +640,13 @@ public class ResumoSimulacao {
         return container;
     }
     
+    // Pontos do gráfico a partir da média de cada faixa da série, lidos sem copiar o histórico
+    private static void preencherSerie(XYChart.Series<Number, Number> series, SerieTemporal serie) {
+        List<XYChart.Data<Number, Number>> pontos = new ArrayList<>(serie.tamanho());
+        serie.percorrer((tempo, minimo, media, maximo) -> pontos.add(new XYChart.Data<>(tempo, media)));
+        series.getData().setAll(pontos);
+    }
+
     private HBox criarRodape() {
         HBox footer = new HBox(15);
         footer.setPadding(new Insets(15));
@@ -506,11 +659,72 @@ public class ResumoSimulacao {
         Button fecharButton = new Button("Fechar");
         fecharButton.setOnAction(e -> stage.close());
         
-        footer.getChildren().addAll(exportarButton, fecharButton);
+        footer.getChildren().add(exportarButton);
+        
+        if (arquivoViagens != null) {
+            Button viagensButton = new Button("Exportar Viagens (CSV)");
+            viagensButton.setStyle("-fx-background-color: " + SECONDARY_COLOR + "; -fx-text-fill: white;");
+            viagensButton.setOnAction(e -> exportarViagens());
+            footer.getChildren().add(viagensButton);
+        }
+        
+        footer.getChildren().add(fecharButton);
         
         return footer;
     }
     
+    /**
+     * Converte o registro de viagens para CSV compactado em uma thread separada, já que o
+     * registro pode ter centenas de milhares de viagens.
+     */
+    private void exportarViagens() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Exportar Viagens da Simulação");
+        fileChooser.getExtensionFilters().add(new ExtensionFilter("CSV compactado", "*.csv.gz"));
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+        fileChooser.setInitialFileName("simulacao_viagens_" + timestamp + ".csv.gz");
+        
+        File arquivoSelecionado = fileChooser.showSaveDialog(stage);
+        if (arquivoSelecionado == null) {
+            return;
+        }
+        final File arquivo = arquivoSelecionado.getName().toLowerCase().endsWith(".gz")
+            ? arquivoSelecionado
+            : new File(arquivoSelecionado.getAbsolutePath() + ".csv.gz");
+        
+        Thread conversao = new Thread(() -> {
+            String mensagem;
+            String estilo;
+            try {
+                long total = RegistroViagens.converterParaCsv(arquivoViagens, arquivo);
+                mensagem = total + " viagens exportadas: " + arquivo.getName();
+                estilo = "-fx-text-fill: green;";
+            } catch (IOException e) {
+                System.err.println("Erro ao exportar viagens: " + e.getMessage());
+                mensagem = "Erro ao exportar viagens: " + e.getMessage();
+                estilo = "-fx-text-fill: red;";
+            }
+            final String texto = mensagem;
+            final String cor = estilo;
+            Platform.runLater(() -> {
+                Label aviso = new Label(texto);
+                aviso.setStyle(cor);
+                if (stage.getScene().getRoot() instanceof BorderPane) {
+                    BorderPane root = (BorderPane) stage.getScene().getRoot();
+                    if (root.getBottom() instanceof HBox) {
+                        HBox footer = (HBox) root.getBottom();
+                        if (footer.getChildren().get(0) instanceof Label) {
+                            footer.getChildren().remove(0);
+                        }
+                        footer.getChildren().add(0, aviso);
+                    }
+                }
+            });
+        }, "semaflux-exportar-viagens");
+        conversao.setDaemon(true);
+        conversao.start();
+    }
+    
     private void exportarRelatorio() {
         try {
             // Criar FileChooser
@@ -540,7 +754,7 @@ public class ResumoSimulacao {
                 ? arquivoSelecionado 
                 : new File(arquivoSelecionado.getAbsolutePath() + ".txt");
             
-            FileWriter writer = new FileWriter(arquivo);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(arquivo), StandardCharsets.UTF_8), 1 << 16);
             
             // Escrever cabeçalho
             writer.write("=================================================================\n");
@@ -554,7 +768,8 @@ public class ResumoSimulacao {
             writer.write(String.format("Tempo Total de Simulação: %.2f segundos\n", estatisticas.getCurrentTime()));
             writer.write(String.format("Total de Veículos Gerados: %d\n", estatisticas.getTotalVehiclesGenerated()));
             writer.write(String.format("Veículos Chegados ao Destino: %d\n", estatisticas.getVehiclesArrived()));
-            writer.write(String.format("Taxa de Chegada: %.2f%%\n\n", estatisticas.getArrivalRate()));
+            writer.write(String.format("Taxa de Chegada: %.2f%%\n", estatisticas.getArrivalRate()));
+            writer.write(String.format("Redirecionamentos: %d\n\n", estatisticas.getTotalVehiclesRerouted()));
             
             // Escrever tempos
             writer.write("MÉTRICAS DE TEMPO\n");
@@ -562,29 +777,69 @@ public class ResumoSimulacao {
             writer.write(String.format("Tempo Médio de Viagem: %.2f segundos\n", estatisticas.getAverageTravelTime()));
             writer.write(String.format("Tempo Máximo de Viagem: %.2f segundos\n", estatisticas.getMaxTravelTime()));
             writer.write(String.format("Tempo Médio de Espera: %.2f segundos\n", estatisticas.getAverageWaitTime()));
-            writer.write(String.format("Tempo Máximo de Espera: %.2f segundos\n\n", estatisticas.getMaxWaitTime()));
+            writer.write(String.format("Tempo Máximo de Espera: %.2f segundos\n", estatisticas.getMaxWaitTime()));
+            writer.write("Tempo de Viagem p50 / p95 / p99: " + formatarPercentis(estatisticas.getTravelTimeDistribution(), "%.2f") + " segundos\n");
+            writer.write("Tempo de Espera p50 / p95 / p99: " + formatarPercentis(estatisticas.getWaitTimeDistribution(), "%.2f") + " segundos\n\n");
             
             // Escrever combustível e congestionamento
             writer.write("COMBUSTÍVEL E CONGESTIONAMENTO\n");
             writer.write("-----------------------------------------------------------------\n");
             writer.write(String.format("Consumo Total de Combustível: %.3f litros\n", estatisticas.getTotalFuelConsumed()));
             writer.write(String.format("Consumo Médio por Veículo: %.3f litros\n", estatisticas.getAverageFuelConsumptionPerVehicle()));
+            writer.write("Consumo por Veículo p50 / p95 / p99: " + formatarPercentis(estatisticas.getFuelDistribution(), "%.3f") + " litros\n");
             writer.write(String.format("Pico de Congestionamento: %.2f%%\n", estatisticas.getMaxRecordedCongestionRatio()));
             writer.write(String.format("Média de Congestionamento: %.2f%%\n\n", estatisticas.getAverageCongestionRatio()));
             
             // Incluir dados de série temporal se houver muitos pontos
-            List<Double> tempos = estatisticas.getTimeHistory();
-            List<Double> congestionamento = estatisticas.getCongestionHistory();
+            SerieTemporal congestionamento = estatisticas.getCongestionHistory();
             
-            if (tempos.size() > 5) {
+            if (congestionamento.tamanho() > 5) {
                 writer.write("DADOS DE CONGESTIONAMENTO AO LONGO DO TEMPO (AMOSTRA)\n");
                 writer.write("-----------------------------------------------------------------\n");
-                writer.write("Tempo (s) | Congestionamento (%)\n");
+                writer.write("Tempo (s) | Congestionamento (%) | Mínimo | Máximo\n");
                 
                 // Escrever apenas alguns pontos representativos
-                int step = Math.max(1, tempos.size() / 20); // No máximo 20 pontos
-                for (int i = 0; i < tempos.size() && i < congestionamento.size(); i += step) {
-                    writer.write(String.format("%.2f | %.2f\n", tempos.get(i), congestionamento.get(i)));
+                int step = Math.max(1, congestionamento.tamanho() / 20); // No máximo 20 pontos
+                StringBuilder amostra = new StringBuilder();
+                int[] indice = {0};
+                congestionamento.percorrer((tempo, minimo, media, maximo) -> {
+                    if (indice[0]++ % step == 0) {
+                        amostra.append(String.format("%.2f | %.2f | %.2f | %.2f\n", tempo, media, minimo, maximo));
+                    }
+                });
+                writer.write(amostra.toString());
+            }
+            
+            // Cruzamentos mais críticos
+            if (metricas != null && metricas.getNumeroSemaforos() > 0) {
+                writer.write("\nCRUZAMENTOS COM MAIOR ATRASO\n");
+                writer.write("-----------------------------------------------------------------\n");
+                writer.write("Semáforo | Atendidos | Fila Média | Fila Máx. | Atraso Total (s) | Atraso/Veículo (s) | Uso do Verde (%)\n");
+                int[] ordem = metricas.semaforosPorAtraso();
+                for (int k = 0; k < ordem.length && k < CRUZAMENTOS_LISTADOS; k++) {
+                    int p = ordem[k];
+                    writer.write(String.format("%s | %d | %.2f | %d | %.0f | %.1f | %.1f\n",
+                            metricas.getSemaforo(p).getNodeId(), metricas.getVeiculosAtendidos(p),
+                            metricas.getFilaMedia(p), metricas.getFilaMaxima(p), metricas.getAtrasoTotal(p),
+                            metricas.getAtrasoPorVeiculo(p), metricas.getUsoVerde(p) * 100.0));
+                }
+            }
+            
+            // Tempo por etapa do passo, quando medido
+            if (perfilPasso != null && perfilPasso.getPassos() > 0) {
+                writer.write("\nDESEMPENHO DO PASSO (" + perfilPasso.getPassos() + " passos medidos)\n");
+                writer.write("-----------------------------------------------------------------\n");
+                writer.write("Etapa | Média (µs) | p50 / p95 / p99 (µs) | Máximo (µs) | % do Passo | Alocação Média\n");
+                PerfilPasso.Etapa[] etapas = PerfilPasso.Etapa.values();
+                for (int k = 0; k <= etapas.length; k++) {
+                    boolean passo = k == etapas.length;
+                    DistribuicaoQuantis tempo = passo ? perfilPasso.getTempoPasso() : perfilPasso.getTempo(etapas[k]);
+                    writer.write(String.format("%s | %.1f | %s | %.1f | %.1f | %s\n",
+                            passo ? "Passo completo" : etapas[k].getDescricao(),
+                            passo ? perfilPasso.getTempoMedioPasso() : perfilPasso.getTempoMedio(etapas[k]),
+                            formatarPercentis(tempo, "%.1f"), tempo.getMaximo(),
+                            passo ? 100.0 : perfilPasso.getFracao(etapas[k]) * 100.0,
+                            formatarAlocacao(passo ? perfilPasso.getAlocacaoMediaPasso() : perfilPasso.getAlocacaoMedia(etapas[k]))));
                 }
             }
             
@@ -2,6 +2,8 @@ package org.semaflux.sim.visualization;
 
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
 import javafx.geometry.Point2D;
 import javafx.scene.Scene;
 import javafx.scene.Group;
@@ -21,33 +23,42 @@ import javafx.scene.paint.CycleMethod;
 import javafx.scene.paint.Stop;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Line;
+import javafx.scene.shape.Polyline;
+import javafx.scene.shape.Shape;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.control.Label;
 import javafx.scene.control.Button;
 import javafx.scene.control.Slider;
 import javafx.scene.control.Tooltip;
 import javafx.scene.control.Separator;
+import javafx.scene.control.ToggleButton;
 import javafx.scene.text.Text;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.TextAlignment;
 import javafx.scene.effect.DropShadow;
 import javafx.scene.effect.Glow;
+import javafx.scene.transform.Scale;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.XYChart;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 import org.semaflux.sim.core.Aresta;
 import org.semaflux.sim.core.FaseDoSemaforo;
 import org.semaflux.sim.core.Grafo;
+import org.semaflux.sim.core.IndiceEspacial;
 import org.semaflux.sim.core.ListaLigada;
 import org.semaflux.sim.core.No;
 import org.semaflux.sim.core.SinalTransito;
 import org.semaflux.sim.core.Veiculo;
-import org.semaflux.sim.simulação.Estatisticas;
+import org.semaflux.sim.simulação.PerfilPasso;
+import org.semaflux.sim.simulação.RetratoEstatisticas;
 import org.semaflux.sim.simulação.Simulador;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
@@ -68,6 +79,10 @@ public class Visualizer {
     private static final double ANIMATION_SMOOTHNESS = 0.12;
     // Taxa de atualização para movimento mais fluido
     private static final int UPDATE_INTERVAL_MS = 25;
+    // Folga ao redor da área visível, em pixels, para não esconder os traços dos semáforos na borda
+    private static final double MARGEM_VISIVEL = 40;
+    // Distância máxima, em pixels de tela, entre o clique e o elemento selecionado
+    private static final double TOLERANCIA_SELECAO = 12;
 
     private double minLat, maxLat, minLon, maxLon;
     private double centroLat, centroLon;
@@ -95,6 +110,19 @@ public class Visualizer {
     private Map<String, Point2D> previousVehiclePositions;
     // Mapa para armazenar as posições alvo dos veículos para interpolação
     private Map<String, Point2D> targetVehiclePositions;
+    private IndiceEspacial indiceEspacial;
+    // Elementos desenhados, indexados por No.getIndice() e Aresta.getIndice(), e quais estão na área visível
+    private javafx.scene.Node[] visualDoNo;
+    private Shape[] visualDaAresta;
+    private boolean[] noVisivel;
+    private boolean[] arestaVisivel;
+    private SinalTransito[] semaforoPorNo;
+    // Elemento selecionado com um clique no mapa
+    private Label selecaoLabel;
+    private Circle marcadorSelecao;
+    private int noSelecionado = -1;
+    private Aresta arestaSelecionada;
+    private Scale escalaZoom;
     private double zoomFactor = 1.0;
     private double dragStartX, dragStartY;
     private double translateX = 0, translateY = 0;
@@ -173,6 +201,15 @@ public class Visualizer {
         mapGroup = new Group(); // Grupo para aplicar zoom
         mapPane = new Pane();
         mapPane.getChildren().add(mapGroup);
+        // Zoom em torno do centro do mapa, independente dos limites dos elementos visíveis
+        escalaZoom = new Scale();
+        escalaZoom.pivotXProperty().bind(mapPane.prefWidthProperty().divide(2));
+        escalaZoom.pivotYProperty().bind(mapPane.prefHeightProperty().divide(2));
+        mapGroup.getTransforms().add(escalaZoom);
+        Rectangle recorte = new Rectangle();
+        recorte.widthProperty().bind(mapPane.widthProperty());
+        recorte.heightProperty().bind(mapPane.heightProperty());
+        mapPane.setClip(recorte);
         mapPane.setStyle("-fx-background-color: " + PANEL_COLOR + "; -fx-border-color: #AAAAAA; -fx-border-width: 1px;");
         
         // Adicionar sombra ao mapa
@@ -208,7 +245,10 @@ public class Visualizer {
         this.pane = mapGroup;
 
         calcularParametrosDeTransformacao();
+        indiceEspacial = graph.getIndiceEspacial();
         desenharElementosEstaticos();
+        mapPane.widthProperty().addListener((obs, oldVal, newVal) -> atualizarAreaVisivel());
+        mapPane.heightProperty().addListener((obs, oldVal, newVal) -> atualizarAreaVisivel());
 
         // Configurar a velocidade inicial da simulação
         if (simulator != null) {
@@ -331,10 +371,16 @@ public class Visualizer {
         
         statsBox.getChildren().add(statsLabel);
         
+        // Informações do elemento selecionado no mapa
+        selecaoLabel = new Label("Clique em um cruzamento ou via para ver os detalhes");
+        selecaoLabel.setFont(Font.font("System", 12));
+        selecaoLabel.setWrapText(true);
+        selecaoLabel.setTextFill(Color.web(TEXT_COLOR));
+        
         // Legenda de cores
         VBox legendBox = createLegend();
         
-        sidePanel.getChildren().addAll(panelTitle, congestionChart, statsBox, new Separator(), legendBox);
+        sidePanel.getChildren().addAll(panelTitle, congestionChart, statsBox, selecaoLabel, new Separator(), legendBox);
         
         return sidePanel;
     }
@@ -480,14 +526,58 @@ public class Visualizer {
             }
         });
         
+        // Gravação do estado atual para retomar ou ramificar a simulação depois
+        Separator separatorInstantaneo = new Separator(javafx.geometry.Orientation.VERTICAL);
+        separatorInstantaneo.setPadding(new Insets(0, 10, 0, 10));
+
+        Button salvarInstantaneoButton = new Button("Salvar Instantâneo");
+        salvarInstantaneoButton.setTooltip(new Tooltip("Grava o estado completo da simulação para retomá-la depois"));
+        salvarInstantaneoButton.setOnAction(e -> salvarInstantaneo(footer));
+
+        // Medição do tempo de cada etapa do passo, ligada e desligada sem parar a simulação
+        ToggleButton perfilButton = new ToggleButton("Perfil do Passo");
+        perfilButton.setSelected(simulator.getPerfilPasso().isAtivo());
+        perfilButton.setTooltip(new Tooltip("Mede o tempo e a memória alocada em cada etapa do passo da simulação"));
+        perfilButton.setOnAction(e -> simulator.getPerfilPasso().setAtivo(perfilButton.isSelected()));
+
         footer.getChildren().addAll(
             zoomLabel, zoomOutButton, zoomSlider, zoomInButton, resetViewButton,
             separator,
-            speedLabel, slowDownButton, normalSpeedButton, speedUpButton, turboButton
+            speedLabel, slowDownButton, normalSpeedButton, speedUpButton, turboButton,
+            separatorInstantaneo,
+            salvarInstantaneoButton, perfilButton
         );
         
         return footer;
     }
+
+    /**
+     * Pede o arquivo e grava o instantâneo fora da thread da interface, pois a gravação
+     * aguarda o fim do passo de simulação em andamento.
+     */
+    private void salvarInstantaneo(HBox footer) {
+        if (simulator == null) return;
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Salvar instantâneo da simulação");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Instantâneos", "*.snap"));
+        File padrao = simulator.arquivoInstantaneoPadrao();
+        if (padrao.getParentFile().isDirectory()) {
+            fileChooser.setInitialDirectory(padrao.getParentFile());
+        }
+        fileChooser.setInitialFileName(padrao.getName());
+        File arquivo = fileChooser.showSaveDialog(footer.getScene().getWindow());
+        if (arquivo == null) return;
+
+        Thread gravacao = new Thread(() -> {
+            try {
+                simulator.salvarInstantaneo(arquivo);
+            } catch (IOException ex) {
+                System.err.println("Erro ao salvar instantâneo da simulação: " + ex.getMessage());
+            }
+        }, "semaflux-instantaneo");
+        gravacao.setDaemon(true);
+        gravacao.start();
+    }
     
     private void updateSpeedLabel() {
         if (simulator != null) {
@@ -542,6 +632,14 @@ public class Visualizer {
             
             dragStartX = event.getSceneX();
             dragStartY = event.getSceneY();
+            atualizarAreaVisivel();
+        });
+        
+        // Clique sem arrastar seleciona o cruzamento ou a via mais próxima
+        mapPane.setOnMouseClicked(event -> {
+            if (event.isStillSincePress()) {
+                selecionarNoMapa(event.getX(), event.getY());
+            }
         });
         
         // Configurar evento de scroll para zoom
@@ -553,18 +651,20 @@ public class Visualizer {
     }
     
     private void applyZoom() {
-        mapGroup.setScaleX(zoomFactor);
-        mapGroup.setScaleY(zoomFactor);
+        escalaZoom.setX(zoomFactor);
+        escalaZoom.setY(zoomFactor);
+        atualizarAreaVisivel();
     }
     
     private void resetView() {
         zoomFactor = 1.0;
         translateX = 0;
         translateY = 0;
-        mapGroup.setScaleX(1.0);
-        mapGroup.setScaleY(1.0);
+        escalaZoom.setX(1.0);
+        escalaZoom.setY(1.0);
         mapGroup.setTranslateX(0);
         mapGroup.setTranslateY(0);
+        atualizarAreaVisivel();
     }
 
     private void calcularParametrosDeTransformacao() {
@@ -615,24 +715,51 @@ public class Visualizer {
         return new Point2D(xTela, yTela);
     }
 
+    /**
+     * Inverso de transformarCoordenadas: ponto do mapa desenhado para (latitude, longitude).
+     */
+    private Point2D coordenadasGeograficas(double xTela, double yTela) {
+        double lon = (xTela - mapPane.getPrefWidth() / 2) / escalaX + centroLon;
+        double lat = -(yTela - mapPane.getPrefHeight() / 2) / escalaY + centroLat;
+        return new Point2D(lat, lon);
+    }
+
     private void desenharElementosEstaticos() {
         pane.getChildren().clear();
         trafficLightNodeVisuals.clear();
         regularNodeVisuals.clear();
         lightVisualsMap.clear();
+        visualDoNo = new javafx.scene.Node[graph.getNodes().size()];
+        visualDaAresta = new Shape[graph.getEdges().size()];
+        noVisivel = new boolean[visualDoNo.length];
+        arestaVisivel = new boolean[visualDaAresta.length];
+        semaforoPorNo = graph.semaforosPorNo();
 
         // Desenhar linhas da grade (estradas)
         if (graph.getEdges() != null) {
             for (Aresta edge : graph.getEdges()) {
                 if (edge == null) continue;
-                No sourceNode = graph.getNode(edge.getSource());
-                No targetNode = graph.getNode(edge.getDestination());
+                No sourceNode = graph.getNode(edge.getIndiceOrigem());
+                No targetNode = graph.getNode(edge.getIndiceDestino());
                 if (sourceNode != null && targetNode != null) {
                     Point2D p1 = transformarCoordenadas(sourceNode.getLatitude(), sourceNode.getLongitude());
                     Point2D p2 = transformarCoordenadas(targetNode.getLatitude(), targetNode.getLongitude());
-                    Line line = new Line(p1.getX(), p1.getY(), p2.getX(), p2.getY());
+                    Shape line;
+                    if (edge.getGeometria() != null) {
+                        // Aresta com traçado (trecho simplificado): desenha pelos pontos intermediários
+                        Polyline tracado = new Polyline();
+                        for (Point2D ponto : pontosDoTracado(edge, p1, p2)) {
+                            tracado.getPoints().addAll(ponto.getX(), ponto.getY());
+                        }
+                        tracado.setFill(null);
+                        line = tracado;
+                    } else {
+                        line = new Line(p1.getX(), p1.getY(), p2.getX(), p2.getY());
+                    }
                     line.setStroke(Color.rgb(120, 120, 120, 0.8));
                     line.setStrokeWidth(2.0);
+                    line.setVisible(false); // Exibida por atualizarAreaVisivel
+                    visualDaAresta[edge.getIndice()] = line;
                     pane.getChildren().add(line);
                 }
             }
@@ -643,7 +770,7 @@ public class Visualizer {
             for (No node : graph.getNodes()) {
                 if (node == null) continue;
                 Point2D p = transformarCoordenadas(node.getLatitude(), node.getLongitude());
-                SinalTransito tl = findTrafficLight(node.getId());
+                SinalTransito tl = semaforoPorNo[node.getIndice()];
 
                 if (tl != null) {
                     Group trafficLightGroup = new Group(); // Agrupa todos os elementos do semáforo
@@ -698,6 +825,8 @@ public class Visualizer {
                     // Adiciona todos os elementos ao grupo
                     trafficLightGroup.getChildren().addAll(nsLine, ewLine);
                     
+                    trafficLightGroup.setVisible(false);
+                    visualDoNo[node.getIndice()] = trafficLightGroup;
                     pane.getChildren().add(trafficLightGroup);
 
                     // Armazenar os componentes para atualização
@@ -708,10 +837,113 @@ public class Visualizer {
                     nodeCircle.setStroke(Color.NAVY);
                     nodeCircle.setStrokeWidth(0.5);
                     regularNodeVisuals.put(node.getId(), nodeCircle);
+                    nodeCircle.setVisible(false);
+                    visualDoNo[node.getIndice()] = nodeCircle;
                     pane.getChildren().add(nodeCircle);
                 }
             }
         }
+
+        marcadorSelecao = new Circle(9, Color.TRANSPARENT);
+        marcadorSelecao.setStroke(Color.ORANGE);
+        marcadorSelecao.setStrokeWidth(2.5);
+        marcadorSelecao.setMouseTransparent(true);
+        marcadorSelecao.setVisible(false);
+        pane.getChildren().add(marcadorSelecao);
+
+        atualizarAreaVisivel();
+    }
+
+    /**
+     * Exibe apenas os nós e as vias dentro da área visível do mapa (com uma pequena folga),
+     * consultando o índice espacial. Só os elementos que entram ou saem da área são alterados.
+     */
+    private void atualizarAreaVisivel() {
+        if (indiceEspacial == null || visualDoNo == null || !transformacaoCalculada) return;
+        double largura = mapPane.getWidth() > 0 ? mapPane.getWidth() : mapPane.getPrefWidth();
+        double altura = mapPane.getHeight() > 0 ? mapPane.getHeight() : mapPane.getPrefHeight();
+        Bounds area = mapGroup.parentToLocal(new BoundingBox(-MARGEM_VISIVEL, -MARGEM_VISIVEL,
+                largura + 2 * MARGEM_VISIVEL, altura + 2 * MARGEM_VISIVEL));
+        Point2D canto1 = coordenadasGeograficas(area.getMinX(), area.getMaxY()); // Sudoeste
+        Point2D canto2 = coordenadasGeograficas(area.getMaxX(), area.getMinY()); // Nordeste
+
+        boolean[] nos = new boolean[noVisivel.length];
+        for (int indice : indiceEspacial.nosNaArea(canto1.getX(), canto1.getY(), canto2.getX(), canto2.getY())) {
+            nos[indice] = true;
+        }
+        boolean[] arestas = new boolean[arestaVisivel.length];
+        for (int indice : indiceEspacial.arestasNaArea(canto1.getX(), canto1.getY(), canto2.getX(), canto2.getY())) {
+            arestas[indice] = true;
+        }
+        for (int i = 0; i < nos.length; i++) {
+            if (nos[i] != noVisivel[i] && visualDoNo[i] != null) visualDoNo[i].setVisible(nos[i]);
+        }
+        for (int i = 0; i < arestas.length; i++) {
+            if (arestas[i] != arestaVisivel[i] && visualDaAresta[i] != null) visualDaAresta[i].setVisible(arestas[i]);
+        }
+        noVisivel = nos;
+        arestaVisivel = arestas;
+    }
+
+    /**
+     * Seleciona o cruzamento (ou, na falta dele, a via) mais próximo de um ponto clicado no painel do mapa.
+     */
+    private void selecionarNoMapa(double xPainel, double yPainel) {
+        if (indiceEspacial == null || !transformacaoCalculada) return;
+        Point2D local = mapGroup.parentToLocal(xPainel, yPainel);
+        Point2D geo = coordenadasGeograficas(local.getX(), local.getY());
+        double tolerancia = TOLERANCIA_SELECAO / zoomFactor; // Em unidades do mapa desenhado
+
+        noSelecionado = -1;
+        arestaSelecionada = null;
+        int indice = indiceEspacial.noMaisProximo(geo.getX(), geo.getY());
+        No node = graph.getNode(indice);
+        if (node != null && transformarCoordenadas(node.getLatitude(), node.getLongitude()).distance(local) <= tolerancia) {
+            noSelecionado = indice;
+        } else {
+            IndiceEspacial.Projecao projecao = indiceEspacial.arestaMaisProxima(geo.getX(), geo.getY());
+            if (projecao != null && transformarCoordenadas(projecao.getLatitude(), projecao.getLongitude()).distance(local) <= tolerancia) {
+                arestaSelecionada = projecao.getAresta();
+                marcadorSelecao.setCenterX(local.getX());
+                marcadorSelecao.setCenterY(local.getY());
+            }
+        }
+        atualizarSelecao();
+    }
+
+    // Atualiza o destaque e o texto do elemento selecionado (chamado também a cada quadro)
+    private void atualizarSelecao() {
+        if (selecaoLabel == null) return;
+        No node = graph.getNode(noSelecionado);
+        if (node != null) {
+            Point2D p = transformarCoordenadas(node.getLatitude(), node.getLongitude());
+            marcadorSelecao.setCenterX(p.getX());
+            marcadorSelecao.setCenterY(p.getY());
+            marcadorSelecao.setVisible(true);
+            marcadorSelecao.toFront();
+            StringBuilder sb = new StringBuilder("Cruzamento ").append(node.getId()).append("\n");
+            sb.append("Vias de saída: ").append(node.getEdges().size()).append("\n");
+            SinalTransito tl = semaforoPorNo[noSelecionado];
+            if (tl != null) {
+                sb.append("Semáforo: ").append(tl.getCurrentPhase()).append("\n");
+                sb.append("Veículos na fila: ").append(tl.getTotalVehiclesInQueues());
+            } else {
+                sb.append("Sem semáforo");
+            }
+            selecaoLabel.setText(sb.toString());
+        } else if (arestaSelecionada != null) {
+            marcadorSelecao.setVisible(true);
+            marcadorSelecao.toFront();
+            Aresta edge = arestaSelecionada;
+            selecaoLabel.setText("Via " + edge.getId() + "\n"
+                    + "Comprimento: " + df.format(edge.getLength()) + " m\n"
+                    + "Velocidade máxima: " + df.format(edge.getMaxspeed()) + " km/h\n"
+                    + "Ocupação: " + edge.getOcupacao() + " / " + edge.getCapacity() + " veículos\n"
+                    + "Tempo de travessia: " + df.format(edge.getTempoViagemEfetivo()) + "s");
+        } else {
+            marcadorSelecao.setVisible(false);
+            selecaoLabel.setText("Clique em um cruzamento ou via para ver os detalhes");
+        }
     }
 
     private void atualizarElementosDinamicos() {
@@ -721,6 +953,8 @@ public class Visualizer {
         if (graph.getTrafficLights() != null) {
             for (SinalTransito tl : graph.getTrafficLights()) {
                 if (tl == null) continue;
+                No lightNode = graph.getNode(tl.getNodeId());
+                if (lightNode == null || !noVisivel[lightNode.getIndice()]) continue; // Fora da área visível
                 TrafficLightDisplay display = lightVisualsMap.get(tl.getNodeId());
                 if (display != null) {
                     FaseDoSemaforo phase = tl.getCurrentPhase();
@@ -814,28 +1048,43 @@ public class Visualizer {
         List<javafx.scene.Node> childrenToRemove = new ArrayList<>();
 
         for (Veiculo vehicle : currentVehicles) {
-            if (vehicle == null || vehicle.getCurrentNode() == null) continue;
+            if (vehicle == null) continue;
 
             Point2D vehicleTargetPos;
             No currentNodeObject = graph.getNode(vehicle.getCurrentNode());
             if (currentNodeObject == null) continue;
 
-            if (vehicle.getPosition() == 0.0 || vehicle.getRoute() == null || vehicle.getRoute().isEmpty()) {
+            // Veículos fora da área visível não são desenhados (o círculo é recriado quando voltam)
+            Aresta visibleEdge = vehicle.getCurrentEdge();
+            int upcomingNode = vehicle.getNextNode();
+            if (!noVisivel[currentNodeObject.getIndice()] && !(upcomingNode >= 0 && noVisivel[upcomingNode])
+                    && !(visibleEdge != null && arestaVisivel[visibleEdge.getIndice()])) {
+                continue;
+            }
+
+            if (vehicle.getPosition() == 0.0 || vehicle.getRoute().length == 0) {
                 vehicleTargetPos = transformarCoordenadas(currentNodeObject.getLatitude(), currentNodeObject.getLongitude());
             } else {
-                String nextNodeId = getNextNodeIdInRoute(vehicle, currentNodeObject.getId());
-                if (nextNodeId == null) {
+                int nextNode = vehicle.getNextNode();
+                if (nextNode < 0) {
                     vehicleTargetPos = transformarCoordenadas(currentNodeObject.getLatitude(), currentNodeObject.getLongitude());
                 } else {
-                    No nextNodeObject = graph.getNode(nextNodeId);
+                    No nextNodeObject = graph.getNode(nextNode);
                     if (nextNodeObject == null) {
                         vehicleTargetPos = transformarCoordenadas(currentNodeObject.getLatitude(), currentNodeObject.getLongitude());
                     } else {
                         Point2D startScreenPos = transformarCoordenadas(currentNodeObject.getLatitude(), currentNodeObject.getLongitude());
                         Point2D endScreenPos = transformarCoordenadas(nextNodeObject.getLatitude(), nextNodeObject.getLongitude());
-                        double interpolatedX = startScreenPos.getX() + vehicle.getPosition() * (endScreenPos.getX() - startScreenPos.getX());
-                        double interpolatedY = startScreenPos.getY() + vehicle.getPosition() * (endScreenPos.getY() - startScreenPos.getY());
-                        vehicleTargetPos = new Point2D(interpolatedX, interpolatedY);
+                        Aresta currentEdge = vehicle.getCurrentEdge();
+                        if (currentEdge != null && currentEdge.getGeometria() != null
+                                && currentEdge.getIndiceOrigem() == currentNodeObject.getIndice()
+                                && currentEdge.getIndiceDestino() == nextNode) {
+                            vehicleTargetPos = pontoAoLongoDoTracado(pontosDoTracado(currentEdge, startScreenPos, endScreenPos), vehicle.getPosition());
+                        } else {
+                            double interpolatedX = startScreenPos.getX() + vehicle.getPosition() * (endScreenPos.getX() - startScreenPos.getX());
+                            double interpolatedY = startScreenPos.getY() + vehicle.getPosition() * (endScreenPos.getY() - startScreenPos.getY());
+                            vehicleTargetPos = new Point2D(interpolatedX, interpolatedY);
+                        }
                     }
                 }
             }
@@ -872,8 +1121,8 @@ public class Visualizer {
                 // Adicionar tooltip para mostrar informações sobre o veículo
                 Tooltip tooltip = new Tooltip(
                     "ID: " + vehicle.getId() + "\n" +
-                    "Origem: " + vehicle.getOrigin() + "\n" +
-                    "Destino: " + vehicle.getDestination()
+                    "Origem: " + idDoNo(vehicle.getOrigin()) + "\n" +
+                    "Destino: " + idDoNo(vehicle.getDestination())
                 );
                 Tooltip.install(vehicleCircle, tooltip);
                 
@@ -947,16 +1196,18 @@ public class Visualizer {
         pane.getChildren().removeAll(childrenToRemove);
         pane.getChildren().addAll(childrenToAdd);
         vehicleVisuals = newVehicleVisualsMap;
+        atualizarSelecao();
 
         // 3. Atualizar Texto de Estatísticas
         if (simulator != null && simulator.getStats() != null) {
-            Estatisticas currentStats = simulator.getStats();
+            // Um retrato por quadro: todos os valores exibidos são do mesmo passo da simulação
+            RetratoEstatisticas currentStats = simulator.getStats().getRetrato();
             
             // Atualizar labels de informações
-            double tempo = currentStats.getCurrentTime();
-            int numVeiculos = (simulator.getVehicles() != null ? simulator.getVehicles().size() : 0);
-            double congestion = currentStats.getCurrentCongestionIndex();
-            double avgWaitTime = currentStats.getAverageWaitTime();
+            double tempo = currentStats.getTempo();
+            int numVeiculos = currentStats.getVeiculosAtivos();
+            double congestion = currentStats.getCongestionamento();
+            double avgWaitTime = currentStats.getTempoMedioEspera();
             
             timeLabel.setText("Tempo: " + df.format(tempo) + "s");
             vehiclesLabel.setText("Veículos: " + numVeiculos);
@@ -1000,44 +1251,71 @@ public class Visualizer {
         congestionChart.setVisible(true);
     }
     
-    private void updateDetailedStats(Estatisticas stats) {
+    private void updateDetailedStats(RetratoEstatisticas stats) {
         StringBuilder sb = new StringBuilder();
         
-        sb.append("Veículos Gerados: ").append(stats.getTotalVehiclesGenerated()).append("\n");
-        sb.append("Veículos Chegaram ao Destino: ").append(stats.getVehiclesArrived()).append("\n");
-        sb.append("Tempo Médio de Viagem: ").append(df.format(stats.getAverageTravelTime())).append("s\n");
-        sb.append("Tempo Máximo de Viagem: ").append(df.format(stats.getAverageTravelTime() * 1.5)).append("s\n"); // Estimativa
-        sb.append("Tempo Médio de Espera: ").append(df.format(stats.getAverageWaitTime())).append("s\n");
-        sb.append("Tempo Máximo de Espera: ").append(df.format(stats.getAverageWaitTime() * 1.5)).append("s\n"); // Estimativa
-        sb.append("Combustível Total Consumido: ").append(df.format(stats.getTotalFuelConsumed())).append(" unidades");
+        sb.append("Veículos Gerados: ").append(stats.getVeiculosGerados()).append("\n");
+        sb.append("Veículos Chegaram ao Destino: ").append(stats.getVeiculosChegaram()).append("\n");
+        sb.append("Tempo Médio de Viagem: ").append(df.format(stats.getTempoMedioViagem())).append("s\n");
+        sb.append("Tempo Máximo de Viagem: ").append(df.format(stats.getTempoMaximoViagem())).append("s\n");
+        sb.append("Tempo Médio de Espera: ").append(df.format(stats.getTempoMedioEspera())).append("s\n");
+        sb.append("Tempo Máximo de Espera: ").append(df.format(stats.getTempoMaximoEspera())).append("s\n");
+        sb.append("Combustível Total Consumido: ").append(df.format(stats.getCombustivelTotal())).append(" unidades");
+        
+        PerfilPasso perfil = simulator.getPerfilPasso();
+        if (perfil.isAtivo() && perfil.getPassos() > 0) {
+            sb.append("\n\nPasso: ").append(df.format(perfil.getTempoMedioPasso())).append(" µs em média (p99 ")
+              .append(df.format(perfil.getTempoPasso().quantil(0.99))).append(" µs)");
+            for (PerfilPasso.Etapa etapa : PerfilPasso.Etapa.values()) {
+                sb.append("\n  ").append(etapa.getDescricao()).append(": ").append(df.format(perfil.getTempoMedio(etapa)))
+                  .append(" µs (").append(df.format(perfil.getFracao(etapa) * 100.0)).append("%)");
+            }
+            if (perfil.isMedindoAlocacao()) {
+                sb.append("\n  Alocação: ").append(df.format(perfil.getAlocacaoMediaPasso() / 1024.0)).append(" KiB por passo");
+            }
+        }
         
         statsLabel.setText(sb.toString());
     }
 
-    private String getNextNodeIdInRoute(Veiculo vehicle, String currentVehicleNodeId) {
-        ListaLigada<String> route = vehicle.getRoute();
-        if (route == null || route.isEmpty()) return null;
-
-        int currentIndex = route.indexOf(currentVehicleNodeId);
-        if (currentIndex != -1 && currentIndex + 1 < route.size()) {
-            return route.get(currentIndex + 1);
+    /**
+     * Pontos de tela do traçado de uma aresta, da origem ao destino.
+     */
+    private List<Point2D> pontosDoTracado(Aresta edge, Point2D origem, Point2D destino) {
+        double[] geometria = edge.getGeometria();
+        List<Point2D> pontos = new ArrayList<>(geometria.length / 2 + 2);
+        pontos.add(origem);
+        for (int i = 0; i + 1 < geometria.length; i += 2) {
+            pontos.add(transformarCoordenadas(geometria[i], geometria[i + 1]));
         }
-        return null;
+        pontos.add(destino);
+        return pontos;
     }
 
     /**
-     * Procura o semáforo associado a um nó.
-     * @param nodeId ID do nó
-     * @return O semáforo associado ao nó, ou null se não houver
+     * Ponto a uma fração (0 a 1) do comprimento de uma linha poligonal.
      */
-    private SinalTransito findTrafficLight(String nodeId) {
-        if (graph == null || graph.getTrafficLights() == null || nodeId == null) return null;
-        
-        for (SinalTransito trafficLight : graph.getTrafficLights()) {
-            if (trafficLight != null && nodeId.equals(trafficLight.getNodeId())) {
-                return trafficLight;
+    private Point2D pontoAoLongoDoTracado(List<Point2D> pontos, double fracao) {
+        double total = 0.0;
+        for (int i = 1; i < pontos.size(); i++) {
+            total += pontos.get(i - 1).distance(pontos.get(i));
+        }
+        double restante = Math.max(0.0, Math.min(1.0, fracao)) * total;
+        for (int i = 1; i < pontos.size(); i++) {
+            Point2D a = pontos.get(i - 1);
+            Point2D b = pontos.get(i);
+            double trecho = a.distance(b);
+            if (restante <= trecho && trecho > 0) {
+                return a.interpolate(b, restante / trecho);
             }
+            restante -= trecho;
         }
-        return null;
+        return pontos.get(pontos.size() - 1);
+    }
+
+    // ID do nó no mapa, para exibição (os veículos guardam apenas os índices dos nós)
+    private String idDoNo(int indice) {
+        No node = graph.getNode(indice);
+        return (node != null) ? node.getId() : "?";
     }
 }
\ No newline at end of file
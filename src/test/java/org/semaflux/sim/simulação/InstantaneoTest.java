@@ -0,0 +1,126 @@
+package org.semaflux.sim.simulação;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.semaflux.sim.control.leitorJson;
+import org.semaflux.sim.core.Grafo;
+import org.semaflux.sim.core.SinalTransito;
+import org.semaflux.sim.core.Veiculo;
+
+/**
+ * Reprodutibilidade da simulação: com a mesma semente, mapa e configuração, duas simulações são
+ * idênticas, e uma simulação retomada de um instantâneo segue o mesmo caminho da que não foi
+ * interrompida. O redirecionamento de rotas fica ligado, pois as buscas rodam em outra thread.
+ */
+class InstantaneoTest {
+    private static final String MAPA = "/mapas/JoqueiTeresinaPiauiBrazil.json";
+    private static final long SEMENTE = 42L;
+    private static final int PASSOS = 800;
+    private static final int[] MODOS = {1, 2, 3, 4};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void mesmaSementeRepeteASimulacao() throws IOException {
+        for (int modo : MODOS) {
+            Grafo graph = carregarMapa(config(modo));
+            Simulador simulador = new Simulador(graph, config(modo), new AleatorioRestauravel(SEMENTE));
+            executar(simulador, PASSOS);
+
+            Grafo outroGraph = carregarMapa(config(modo));
+            Simulador outro = new Simulador(outroGraph, config(modo), new AleatorioRestauravel(SEMENTE));
+            executar(outro, PASSOS);
+
+            assertEquals(estado(simulador, graph), estado(outro, outroGraph), "modo " + modo);
+            encerrar(simulador);
+            encerrar(outro);
+        }
+    }
+
+    @Test
+    void instantaneoRetomadoSegueComoASimulacaoContinua() throws IOException {
+        // Cortes em uma avaliação de redirecionamento e entre duas, com um lote de rotas pendente
+        for (int corte : new int[] {400, 403}) {
+            for (int modo : MODOS) {
+                File arquivo = dir.resolve("modo" + modo + "-" + corte + ".snap").toFile();
+
+                Grafo graph = carregarMapa(config(modo));
+                Simulador continua = new Simulador(graph, config(modo), new AleatorioRestauravel(SEMENTE));
+                executar(continua, corte);
+                continua.salvarInstantaneo(arquivo);
+                executar(continua, PASSOS - corte);
+
+                Grafo outroGraph = carregarMapa(config(modo));
+                Simulador retomada = new Simulador(outroGraph, config(modo), new AleatorioRestauravel(SEMENTE + 1));
+                retomada.restaurarInstantaneo(arquivo);
+                executar(retomada, PASSOS - corte);
+
+                assertEquals(estado(continua, graph), estado(retomada, outroGraph), "modo " + modo + ", corte " + corte);
+                encerrar(continua);
+                encerrar(retomada);
+            }
+        }
+    }
+
+    private static Config config(int modo) {
+        Config config = new Config();
+        config.setModoSemaforo(modo);
+        config.setTaxaGeracaoVeiculos(2.0);
+        config.setRedirectThreshold(3);
+        config.setDuracaoSimulacao(PASSOS);
+        config.setParadaGeracao(PASSOS);
+        config.setGravarPerfisTempoViagem(false);
+        return config;
+    }
+
+    private static Grafo carregarMapa(Config config) throws IOException {
+        try (InputStream in = InstantaneoTest.class.getResourceAsStream(MAPA)) {
+            assertNotNull(in, "Mapa de teste não encontrado: " + MAPA);
+            return leitorJson.carregarGrafoDoFluxo(in, config);
+        }
+    }
+
+    private static void executar(Simulador simulador, int passos) {
+        for (int i = 0; i < passos; i++) {
+            simulador.executarPasso(1.0);
+        }
+    }
+
+    private static void encerrar(Simulador simulador) {
+        simulador.getRegistroEventos().close();
+    }
+
+    // Resumo do estado observável: estatísticas, veículos e semáforos
+    private static String estado(Simulador simulador, Grafo graph) {
+        Estatisticas stats = simulador.getStats();
+        StringBuilder sb = new StringBuilder();
+        sb.append("gerados=").append(stats.getTotalVehiclesGenerated())
+          .append(" chegaram=").append(stats.getVehiclesArrived())
+          .append(" redirecionados=").append(stats.getTotalVehiclesRerouted())
+          .append(" viagem=").append(stats.getAverageTravelTime())
+          .append(" espera=").append(stats.getAverageWaitTime())
+          .append(" combustivel=").append(stats.getTotalFuelConsumed())
+          .append(" congestionamento=").append(stats.getAverageCongestionRatio())
+          .append('\n');
+        for (Veiculo vehicle : simulador.getVehicles()) {
+            sb.append(vehicle.getId()).append(' ').append(Arrays.toString(vehicle.getRoute()))
+              .append(' ').append(vehicle.getRoutePosition()).append(' ').append(vehicle.getPosition())
+              .append(' ').append(vehicle.getQueuedDirection()).append('\n');
+        }
+        for (SinalTransito tl : graph.getTrafficLights()) {
+            sb.append(tl.getNodeId()).append(' ').append(tl.getCurrentPhase()).append(' ').append(tl.getPhaseTimer())
+              .append(' ').append(Arrays.toString(tl.getAllQueueSizes())).append('\n');
+        }
+        return sb.toString();
+    }
+}